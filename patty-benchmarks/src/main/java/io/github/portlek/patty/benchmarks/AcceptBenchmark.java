@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.ChannelOptions;
+import io.github.portlek.patty.PattyServer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how many connections per second a server accepts and sets up sessions for, with one or more
+ * {@code SO_REUSEPORT} acceptors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AcceptBenchmark {
+
+  private static final int BATCH = 256;
+
+  private static final int PORT = 25571;
+
+  @Param({"1", "4"})
+  public int acceptors;
+
+  private PattyServer server;
+
+  private EventLoopGroup group;
+
+  private Bootstrap bootstrap;
+
+  private Channel[] channels;
+
+  @Setup
+  public void setup() {
+    this.server = PattyServer.tcp("127.0.0.1", AcceptBenchmark.PORT, new BenchmarkPacketHeader(), null,
+      new BenchmarkPacketSizer(), null, null);
+    this.server.setChannelOptions(ChannelOptions.builder()
+      .backlog(4096)
+      .reusePort(this.acceptors)
+      .build());
+    this.server.bind();
+    this.group = Epoll.isAvailable() ? new EpollEventLoopGroup(4) : new NioEventLoopGroup(4);
+    this.bootstrap = new Bootstrap()
+      .group(this.group)
+      .channel(Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class)
+      .option(ChannelOption.SO_LINGER, 0)
+      .handler(new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final Channel channel) {
+        }
+      })
+      .remoteAddress("127.0.0.1", AcceptBenchmark.PORT);
+    this.channels = new Channel[AcceptBenchmark.BATCH];
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    this.group.shutdownGracefully().sync();
+    this.server.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(AcceptBenchmark.BATCH)
+  public void connectAndClose() throws InterruptedException {
+    final ChannelFuture[] futures = new ChannelFuture[AcceptBenchmark.BATCH];
+    for (int index = 0; index < AcceptBenchmark.BATCH; index++) {
+      futures[index] = this.bootstrap.connect();
+    }
+    for (int index = 0; index < AcceptBenchmark.BATCH; index++) {
+      this.channels[index] = futures[index].sync().channel();
+    }
+    while (this.server.connections.size() < AcceptBenchmark.BATCH) {
+      Thread.yield();
+    }
+    for (final Channel channel : this.channels) {
+      channel.close();
+    }
+    while (!this.server.connections.isEmpty()) {
+      Thread.yield();
+    }
+  }
+}
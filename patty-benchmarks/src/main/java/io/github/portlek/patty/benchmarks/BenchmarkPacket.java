@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import org.jetbrains.annotations.NotNull;
+
+public final class BenchmarkPacket extends Packet {
+
+  public byte[] payload;
+
+  public BenchmarkPacket(final byte[] payload) {
+    super(BenchmarkPacket.class);
+    this.payload = payload;
+  }
+
+  public BenchmarkPacket() {
+    super(BenchmarkPacket.class);
+  }
+
+  @Override
+  public void read(@NotNull final ByteBuf buffer, final Connection connection) throws IOException {
+    this.payload = ReadWrite.readByteArray(buffer);
+  }
+
+  @Override
+  public void write(@NotNull final ByteBuf buffer, final Connection connection) {
+    ReadWrite.writeByteArray(buffer, this.payload);
+  }
+
+  @Override
+  public int estimatedSize(final Connection connection) {
+    return ReadWrite.getByteArraySize(this.payload);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PacketRegistry;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.github.portlek.patty.tcp.TcpClientConnection;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.net.InetSocketAddress;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class BenchmarkSupport {
+
+  public static final String HEAP = "heap";
+
+  public static final String DIRECT = "direct";
+
+  static {
+    PacketRegistry.register(BenchmarkPacket.class, 0);
+  }
+
+  private BenchmarkSupport() {
+  }
+
+  @NotNull
+  public static byte[] payload(final int size) {
+    final Random random = new Random(size);
+    final byte[] payload = new byte[size];
+    for (int index = 0; index < size; index++) {
+      payload[index] = (byte) ('a' + random.nextInt(16));
+    }
+    return payload;
+  }
+
+  @NotNull
+  public static ByteBufAllocator allocator(@NotNull final String allocator) {
+    return new PooledByteBufAllocator(BenchmarkSupport.DIRECT.equals(allocator));
+  }
+
+  @NotNull
+  public static ByteBuf buffer(@NotNull final ByteBufAllocator alloc, @NotNull final String allocator,
+                               @NotNull final byte[] bytes) {
+    final ByteBuf buffer = BenchmarkSupport.DIRECT.equals(allocator)
+      ? alloc.directBuffer(bytes.length)
+      : alloc.heapBuffer(bytes.length);
+    return buffer.writeBytes(bytes);
+  }
+
+  @NotNull
+  public static SecretKey key() throws NoSuchAlgorithmException {
+    final KeyGenerator generator = KeyGenerator.getInstance("AES");
+    generator.init(128);
+    return generator.generateKey();
+  }
+
+  @NotNull
+  public static PattyClient client(@Nullable final PacketEncryptor encryptor) {
+    return PattyClient.tcp("127.0.0.1", 25565, new BenchmarkPacketHeader(), encryptor, new BenchmarkPacketSizer(),
+      null);
+  }
+
+  @NotNull
+  public static Connection connection(@NotNull final PattyClient client, final int compressionThreshold) {
+    final Connection connection = new TcpClientConnection(client, new InetSocketAddress("127.0.0.1", 25565));
+    connection.compressionThreshold = compressionThreshold;
+    return connection;
+  }
+}
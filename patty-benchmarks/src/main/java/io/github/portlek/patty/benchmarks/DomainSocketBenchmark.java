@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.ChannelOptions;
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares loopback TCP with a Unix domain socket, by the round-trip time of a single packet and by the packets per
+ * second a client echoes through the server with a thousand packets in flight.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DomainSocketBenchmark {
+
+  private static final int PORT = 25574;
+
+  private static final int BATCH = 1000;
+
+  @Param({"tcp", "unix"})
+  public String transport;
+
+  @Param({"64"})
+  public int size;
+
+  private PattyServer server;
+
+  private Connection connection;
+
+  private BenchmarkPacket packet;
+
+  private volatile long received;
+
+  @Setup
+  public void setup() {
+    final ChannelOptions options = ChannelOptions.builder().eventLoopThreads(1).build();
+    this.packet = new BenchmarkPacket(BenchmarkSupport.payload(this.size));
+    final PattyClient client;
+    if ("tcp".equals(this.transport)) {
+      this.server = PattyServer.tcp("127.0.0.1", DomainSocketBenchmark.PORT, new BenchmarkPacketHeader(), null,
+        new BenchmarkPacketSizer(), null, new Listener(true));
+      client = PattyClient.tcp("127.0.0.1", DomainSocketBenchmark.PORT, new BenchmarkPacketHeader(), null,
+        new BenchmarkPacketSizer(), new Listener(false));
+    } else {
+      final File path = new File(System.getProperty("java.io.tmpdir"), "patty-benchmark.sock");
+      path.delete();
+      this.server = PattyServer.unix(path.getPath(), new BenchmarkPacketHeader(), null,
+        new BenchmarkPacketSizer(), null, new Listener(true));
+      client = PattyClient.unix(path.getPath(), new BenchmarkPacketHeader(), null, new BenchmarkPacketSizer(),
+        new Listener(false));
+    }
+    this.server.setChannelOptions(options);
+    this.server.bind();
+    client.setChannelOptions(options);
+    this.connection = client.connect();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.connection.disconnect("Benchmark finished.");
+    this.server.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public long roundTrip() {
+    final long expected = this.received + 1L;
+    this.connection.sendPacket(this.packet);
+    while (this.received != expected) {
+      Thread.yield();
+    }
+    return expected;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(DomainSocketBenchmark.BATCH)
+  public long stream() {
+    final long expected = this.received + DomainSocketBenchmark.BATCH;
+    for (int index = 0; index < DomainSocketBenchmark.BATCH; index++) {
+      this.connection.sendPacket(this.packet);
+    }
+    while (this.received != expected) {
+      Thread.yield();
+    }
+    return expected;
+  }
+
+  private final class Listener implements ConnectionListener {
+
+    private final boolean echo;
+
+    private Listener(final boolean echo) {
+      this.echo = echo;
+    }
+
+    @Override
+    public void packetReceived(@NotNull final Packet packet, @NotNull final Connection connection) {
+      if (this.echo) {
+        connection.sendPacket(packet);
+      } else {
+        DomainSocketBenchmark.this.received++;
+      }
+    }
+
+    @Override
+    public void packetSent(@NotNull final Packet packet, @NotNull final Connection connection) {
+    }
+
+    @Override
+    public void connected(@NotNull final Connection connection) {
+    }
+
+    @Override
+    public void disconnecting(@NotNull final Connection connection, @NotNull final String reason,
+                              @Nullable final Throwable cause) {
+    }
+
+    @Override
+    public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                             @Nullable final Throwable cause) {
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.IdleDetector;
+import io.github.portlek.patty.IdleHandler;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.tcp.TcpSessionConnection;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the scheduler work of idle connections with the shared {@link IdleDetector} and with a timeout task per
+ * connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdleDetectionBenchmark {
+
+  private static final int HANDLERS_PER_CHANNEL = 1000;
+
+  private static final Runnable TIMEOUT = () -> {
+  };
+
+  @Param({"10000", "100000"})
+  public int connections;
+
+  private IdleDetector detector;
+
+  private long now;
+
+  private long tick;
+
+  private EmbeddedChannel[] channels;
+
+  private EventLoop loop;
+
+  private ScheduledFuture<?>[] tasks;
+
+  @Setup
+  public void setup() throws Exception {
+    final PattyServer server = PattyServer.tcp("127.0.0.1", 0, new BenchmarkPacketHeader(), null,
+      new BenchmarkPacketSizer(), null, null);
+    this.loop = new DefaultEventLoop();
+    final Connection connection = new TcpSessionConnection(server, new InetSocketAddress(0), this.loop);
+    connection.readTimeout = 0;
+    connection.writeTimeout = 30;
+    this.detector = new IdleDetector(IdleDetector.DEFAULT_TICK_MILLIS);
+    this.tick = TimeUnit.MILLISECONDS.toNanos(IdleDetector.DEFAULT_TICK_MILLIS);
+    this.channels = new EmbeddedChannel[this.connections / IdleDetectionBenchmark.HANDLERS_PER_CHANNEL];
+    for (int index = 0; index < this.channels.length; index++) {
+      this.channels[index] = new EmbeddedChannel();
+      for (int handler = 0; handler < IdleDetectionBenchmark.HANDLERS_PER_CHANNEL; handler++) {
+        this.channels[index].pipeline().addLast("idle-" + handler, new IdleHandler(connection, this.detector));
+      }
+    }
+    this.now = System.nanoTime();
+    this.detector.sweep(this.now);
+    this.tasks = new ScheduledFuture<?>[this.connections];
+    this.loop.submit(() -> {
+      for (int index = 0; index < this.tasks.length; index++) {
+        this.tasks[index] = this.loop.schedule(IdleDetectionBenchmark.TIMEOUT, 30L + index % 30, TimeUnit.SECONDS);
+      }
+    }).sync();
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (final EmbeddedChannel channel : this.channels) {
+      channel.finishAndReleaseAll();
+    }
+    this.loop.shutdownGracefully();
+  }
+
+  @Benchmark
+  public int wheel() {
+    final long period = TimeUnit.SECONDS.toNanos(30L) / this.tick;
+    for (long count = 0L; count < period; count++) {
+      this.detector.sweep(this.now += this.tick);
+    }
+    return this.detector.size();
+  }
+
+  @Benchmark
+  public void timeoutTasks() throws Exception {
+    this.loop.submit(() -> {
+      for (int index = 0; index < this.tasks.length; index++) {
+        this.tasks[index].cancel(false);
+        this.tasks[index] = this.loop.schedule(IdleDetectionBenchmark.TIMEOUT, 30L + index % 30, TimeUnit.SECONDS);
+      }
+    }).sync();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketSizer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cost of enabled metrics on a full encode and decode round trip through the pipeline handlers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+  @Param({"off", "on"})
+  public String metrics;
+
+  @Param({"64", "1024"})
+  public int size;
+
+  private Connection clientConnection;
+
+  private Connection serverConnection;
+
+  private EmbeddedChannel client;
+
+  private EmbeddedChannel server;
+
+  private BenchmarkPacket packet;
+
+  @Setup
+  public void setup() {
+    this.clientConnection = this.connection();
+    this.serverConnection = this.connection();
+    this.client = MetricsBenchmark.channel(this.clientConnection);
+    this.server = MetricsBenchmark.channel(this.serverConnection);
+    this.packet = new BenchmarkPacket(BenchmarkSupport.payload(this.size));
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.client.finishAndReleaseAll();
+    this.server.finishAndReleaseAll();
+    this.clientConnection.disconnect("Benchmark finished.");
+    this.serverConnection.disconnect("Benchmark finished.");
+  }
+
+  @Benchmark
+  public Object roundTrip() {
+    this.client.writeAndFlush(this.packet);
+    ByteBuf out;
+    while ((out = this.client.readOutbound()) != null) {
+      this.server.writeInbound(out);
+    }
+    return this.server.readInbound();
+  }
+
+  @NotNull
+  private static EmbeddedChannel channel(@NotNull final Connection connection) {
+    final EmbeddedChannel channel = new EmbeddedChannel();
+    channel.config().setAllocator(BenchmarkSupport.allocator(BenchmarkSupport.HEAP));
+    channel.pipeline().addLast("encryption", new TcpPacketEncryptor(connection));
+    channel.pipeline().addLast("sizer", new TcpPacketSizer(connection.patty));
+    channel.pipeline().addLast("codec", new TcpPacketCodec(connection));
+    return channel;
+  }
+
+  @NotNull
+  private Connection connection() {
+    final PattyClient client = BenchmarkSupport.client(null);
+    client.metrics.setEnabled("on".equals(this.metrics));
+    return BenchmarkSupport.connection(client, -1);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCompressor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketSizer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+  @Param({"16", "256", "4096", "65536"})
+  public int size;
+
+  @Param({BenchmarkSupport.HEAP, BenchmarkSupport.DIRECT})
+  public String allocator;
+
+  @Param({"plain", "compressed", "encrypted", "full"})
+  public String stages;
+
+  private Connection clientConnection;
+
+  private Connection serverConnection;
+
+  private EmbeddedChannel client;
+
+  private EmbeddedChannel server;
+
+  private BenchmarkPacket packet;
+
+  @Setup
+  public void setup() throws GeneralSecurityException {
+    final boolean encrypted = "encrypted".equals(this.stages) || "full".equals(this.stages);
+    final int threshold = "compressed".equals(this.stages) || "full".equals(this.stages) ? 256 : -1;
+    final SecretKey key = BenchmarkSupport.key();
+    this.clientConnection = BenchmarkSupport.connection(BenchmarkSupport.client(
+      encrypted ? new BenchmarkPacketEncryptor(key) : null), threshold);
+    this.serverConnection = BenchmarkSupport.connection(BenchmarkSupport.client(
+      encrypted ? new BenchmarkPacketEncryptor(key) : null), threshold);
+    this.client = this.channel(this.clientConnection);
+    this.server = this.channel(this.serverConnection);
+    this.packet = new BenchmarkPacket(BenchmarkSupport.payload(this.size));
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.client.finishAndReleaseAll();
+    this.server.finishAndReleaseAll();
+    this.clientConnection.disconnect("Benchmark finished.");
+    this.serverConnection.disconnect("Benchmark finished.");
+  }
+
+  @Benchmark
+  public Object roundTrip() {
+    this.client.writeOutbound(this.packet);
+    ByteBuf out;
+    while ((out = this.client.readOutbound()) != null) {
+      this.server.writeInbound(out);
+    }
+    return this.server.readInbound();
+  }
+
+  @NotNull
+  private EmbeddedChannel channel(@NotNull final Connection connection) {
+    final PattyClient patty = (PattyClient) connection.patty;
+    final EmbeddedChannel channel = new EmbeddedChannel();
+    channel.config().setAllocator(BenchmarkSupport.allocator(this.allocator));
+    channel.pipeline().addLast("encryption", new TcpPacketEncryptor(patty));
+    channel.pipeline().addLast("sizer", new TcpPacketSizer(patty));
+    if (connection.compressionThreshold >= 0) {
+      channel.pipeline().addLast("compression", new TcpPacketCompressor(connection));
+    }
+    channel.pipeline().addLast("codec", new TcpPacketCodec(connection));
+    return channel;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PacketRegistry;
+import io.github.portlek.patty.annotations.FieldCodec;
+import io.github.portlek.patty.annotations.PacketField;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares a serializer generated by {@code patty-processor} with the same packet written by hand, field after field
+ * through {@link ReadWrite} and the {@link ByteBuf} read/write methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+  private GeneratedMovePacket generated;
+
+  private HandWrittenMovePacket handWritten;
+
+  private ByteBuf buffer;
+
+  private ByteBuf encoded;
+
+  @Setup
+  public void setup() {
+    PacketRegistry.register(GeneratedMovePacket.class, 1);
+    PacketRegistry.register(HandWrittenMovePacket.class, 2);
+    this.generated = new GeneratedMovePacket();
+    this.handWritten = new HandWrittenMovePacket();
+    this.generated.set(42, 128.5D, 64.0D, -256.25D, 90.0F, 12.5F, true, "patty");
+    this.handWritten.set(42, 128.5D, 64.0D, -256.25D, 90.0F, 12.5F, true, "patty");
+    this.buffer = Unpooled.directBuffer(64);
+    this.encoded = Unpooled.directBuffer(64);
+    this.generated.write(this.encoded, null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.buffer.release();
+    this.encoded.release();
+  }
+
+  @Benchmark
+  public int writeGenerated() {
+    this.buffer.clear();
+    this.generated.write(this.buffer, null);
+    return this.buffer.writerIndex();
+  }
+
+  @Benchmark
+  public int writeHandWritten() {
+    this.buffer.clear();
+    this.handWritten.write(this.buffer, null);
+    return this.buffer.writerIndex();
+  }
+
+  @Benchmark
+  public double readGenerated() throws IOException {
+    this.encoded.readerIndex(0);
+    this.generated.read(this.encoded, null);
+    return this.generated.x;
+  }
+
+  @Benchmark
+  public double readHandWritten() throws IOException {
+    this.encoded.readerIndex(0);
+    this.handWritten.read(this.encoded, null);
+    return this.handWritten.x;
+  }
+
+  public static final class GeneratedMovePacket extends Packet {
+
+    @PacketField(order = 0)
+    int entity;
+
+    @PacketField(order = 1, codec = FieldCodec.DOUBLE)
+    double x;
+
+    @PacketField(order = 2, codec = FieldCodec.DOUBLE)
+    double y;
+
+    @PacketField(order = 3, codec = FieldCodec.DOUBLE)
+    double z;
+
+    @PacketField(order = 4)
+    float yaw;
+
+    @PacketField(order = 5)
+    float pitch;
+
+    @PacketField(order = 6)
+    boolean onGround;
+
+    @PacketField(order = 7)
+    String name;
+
+    public GeneratedMovePacket() {
+      super(GeneratedMovePacket.class);
+    }
+
+    void set(final int entity, final double x, final double y, final double z, final float yaw, final float pitch,
+             final boolean onGround, @NotNull final String name) {
+      this.entity = entity;
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      this.yaw = yaw;
+      this.pitch = pitch;
+      this.onGround = onGround;
+      this.name = name;
+    }
+
+    @Override
+    public void read(@NotNull final ByteBuf buffer, final Connection connection) throws IOException {
+      SerializerBenchmark_GeneratedMovePacketSerializer.read(this, buffer);
+    }
+
+    @Override
+    public void write(@NotNull final ByteBuf buffer, final Connection connection) {
+      SerializerBenchmark_GeneratedMovePacketSerializer.write(this, buffer);
+    }
+
+    @Override
+    public int estimatedSize(final Connection connection) {
+      return SerializerBenchmark_GeneratedMovePacketSerializer.encodedSize(this);
+    }
+  }
+
+  public static final class HandWrittenMovePacket extends Packet {
+
+    int entity;
+
+    double x;
+
+    double y;
+
+    double z;
+
+    float yaw;
+
+    float pitch;
+
+    boolean onGround;
+
+    String name;
+
+    public HandWrittenMovePacket() {
+      super(HandWrittenMovePacket.class);
+    }
+
+    void set(final int entity, final double x, final double y, final double z, final float yaw, final float pitch,
+             final boolean onGround, @NotNull final String name) {
+      this.entity = entity;
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      this.yaw = yaw;
+      this.pitch = pitch;
+      this.onGround = onGround;
+      this.name = name;
+    }
+
+    @Override
+    public void read(@NotNull final ByteBuf buffer, final Connection connection) throws IOException {
+      this.entity = ReadWrite.readVarInt(buffer);
+      this.x = buffer.readDouble();
+      this.y = buffer.readDouble();
+      this.z = buffer.readDouble();
+      this.yaw = buffer.readFloat();
+      this.pitch = buffer.readFloat();
+      this.onGround = buffer.readBoolean();
+      this.name = ReadWrite.readString(buffer);
+    }
+
+    @Override
+    public void write(@NotNull final ByteBuf buffer, final Connection connection) {
+      ReadWrite.writeVarInt(buffer, this.entity);
+      buffer.writeDouble(this.x);
+      buffer.writeDouble(this.y);
+      buffer.writeDouble(this.z);
+      buffer.writeFloat(this.yaw);
+      buffer.writeFloat(this.pitch);
+      buffer.writeBoolean(this.onGround);
+      ReadWrite.writeString(buffer, this.name);
+    }
+  }
+}
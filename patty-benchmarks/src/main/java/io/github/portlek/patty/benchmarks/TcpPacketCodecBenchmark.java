@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TcpPacketCodecBenchmark {
+
+  @Param({"16", "256", "4096", "65536"})
+  public int size;
+
+  @Param({BenchmarkSupport.HEAP, BenchmarkSupport.DIRECT})
+  public String allocator;
+
+  private Connection connection;
+
+  private EmbeddedChannel channel;
+
+  private BenchmarkPacket packet;
+
+  private ByteBuf encoded;
+
+  @Setup
+  public void setup() {
+    this.connection = BenchmarkSupport.connection(BenchmarkSupport.client(null), -1);
+    this.channel = new EmbeddedChannel(new TcpPacketCodec(this.connection));
+    this.channel.config().setAllocator(BenchmarkSupport.allocator(this.allocator));
+    this.packet = new BenchmarkPacket(BenchmarkSupport.payload(this.size));
+    this.channel.writeOutbound(this.packet);
+    final ByteBuf out = this.channel.readOutbound();
+    this.encoded = BenchmarkSupport.buffer(this.channel.alloc(), this.allocator, ByteBufUtil.getBytes(out));
+    out.release();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.encoded.release();
+    this.channel.finishAndReleaseAll();
+    this.connection.disconnect("Benchmark finished.");
+  }
+
+  @Benchmark
+  public int encode() {
+    this.channel.writeOutbound(this.packet);
+    final ByteBuf out = this.channel.readOutbound();
+    final int length = out.readableBytes();
+    out.release();
+    return length;
+  }
+
+  @Benchmark
+  public Object decode() {
+    this.channel.writeInbound(this.encoded.retainedDuplicate());
+    return this.channel.readInbound();
+  }
+}
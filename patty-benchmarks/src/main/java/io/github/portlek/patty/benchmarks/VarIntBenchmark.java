@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks;
+
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the VarInt codecs of {@link ReadWrite} with a plain loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarIntBenchmark {
+
+  @Param({"1", "300", "70000", "16777216", "-1"})
+  public int value;
+
+  private ByteBuf buffer;
+
+  private ByteBuf padded;
+
+  private ByteBuf exact;
+
+  @Setup
+  public void setup() {
+    this.buffer = Unpooled.directBuffer(16);
+    this.padded = Unpooled.directBuffer(16);
+    ReadWrite.writeVarInt(this.padded, this.value);
+    this.padded.writeZero(5);
+    this.exact = Unpooled.directBuffer(16);
+    ReadWrite.writeVarInt(this.exact, this.value);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.buffer.release();
+    this.padded.release();
+    this.exact.release();
+  }
+
+  @Benchmark
+  public int writeUnrolled() {
+    this.buffer.clear();
+    ReadWrite.writeVarInt(this.buffer, this.value);
+    return this.buffer.writerIndex();
+  }
+
+  @Benchmark
+  public int writeLoop() {
+    this.buffer.clear();
+    int value = this.value;
+    while ((value & ~0x7F) != 0) {
+      this.buffer.writeByte(value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    this.buffer.writeByte(value);
+    return this.buffer.writerIndex();
+  }
+
+  @Benchmark
+  public int readUnrolled() throws IOException {
+    this.padded.readerIndex(0);
+    return ReadWrite.readVarInt(this.padded);
+  }
+
+  @Benchmark
+  public int readSlow() throws IOException {
+    this.exact.readerIndex(0);
+    return ReadWrite.readVarInt(this.exact);
+  }
+
+  @Benchmark
+  public int readLoop() {
+    this.padded.readerIndex(0);
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = this.padded.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+}
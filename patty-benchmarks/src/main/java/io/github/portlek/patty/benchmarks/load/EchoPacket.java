@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks.load;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import org.jetbrains.annotations.NotNull;
+
+public final class EchoPacket extends Packet {
+
+  public long intendedNanos;
+
+  public byte[] payload;
+
+  public EchoPacket(final long intendedNanos, final byte[] payload) {
+    super(EchoPacket.class);
+    this.intendedNanos = intendedNanos;
+    this.payload = payload;
+  }
+
+  public EchoPacket() {
+    super(EchoPacket.class);
+  }
+
+  @Override
+  public void read(@NotNull final ByteBuf buffer, final Connection connection) throws IOException {
+    this.intendedNanos = buffer.readLong();
+    this.payload = ReadWrite.readByteArray(buffer);
+  }
+
+  @Override
+  public void write(@NotNull final ByteBuf buffer, final Connection connection) {
+    buffer.writeLong(this.intendedNanos);
+    ReadWrite.writeByteArray(buffer, this.payload);
+  }
+
+  @Override
+  public int estimatedSize(final Connection connection) {
+    return Long.BYTES + ReadWrite.getByteArraySize(this.payload);
+  }
+}
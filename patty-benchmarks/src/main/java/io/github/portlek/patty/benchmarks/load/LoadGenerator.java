@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.benchmarks.load;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PacketRegistry;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.benchmarks.BenchmarkPacketHeader;
+import io.github.portlek.patty.benchmarks.BenchmarkPacketSizer;
+import io.github.portlek.patty.benchmarks.BenchmarkSupport;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Drives M {@link PattyClient}s against a {@link PattyServer} over loopback and reports throughput, round-trip latency
+ * percentiles and CPU time as JSON.
+ */
+public final class LoadGenerator {
+
+  @NotNull
+  private final Map<String, String> options;
+
+  private final Recorder recorder = new Recorder(3);
+
+  private final AtomicLong sent = new AtomicLong();
+
+  private final AtomicLong received = new AtomicLong();
+
+  private volatile long measureStart = Long.MAX_VALUE;
+
+  private LoadGenerator(@NotNull final Map<String, String> options) {
+    this.options = options;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Map<String, String> options = new HashMap<>();
+    for (int index = 0; index + 1 < args.length; index += 2) {
+      if (!args[index].startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument " + args[index]);
+      }
+      options.put(args[index].substring(2), args[index + 1]);
+    }
+    PacketRegistry.register(EchoPacket.class, 1);
+    final String report = new LoadGenerator(options).run();
+    final String output = options.get("output");
+    if (output == null) {
+      System.out.println(report);
+    } else {
+      Files.write(Paths.get(output), report.getBytes(StandardCharsets.UTF_8));
+    }
+    System.exit(0);
+  }
+
+  private static long cpuTime() {
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+      .getProcessCpuTime();
+  }
+
+  @NotNull
+  private static byte[][] mix(@NotNull final String mix) {
+    final List<byte[]> payloads = new ArrayList<>();
+    for (final String entry : mix.split(",")) {
+      final String[] parts = entry.split(":");
+      final byte[] payload = BenchmarkSupport.payload(Integer.parseInt(parts[0].trim()));
+      final int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+      for (int index = 0; index < weight; index++) {
+        payloads.add(payload);
+      }
+    }
+    Collections.shuffle(payloads, new Random(payloads.size()));
+    return payloads.toArray(new byte[0][]);
+  }
+
+  @NotNull
+  private String run() throws InterruptedException {
+    final String role = this.option("role", "all");
+    final String host = this.option("host", "127.0.0.1");
+    final int port = Integer.parseInt(this.option("port", "25570"));
+    final long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(this.option("warmup", "5")));
+    final long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(this.option("duration", "30")));
+    final boolean metrics = Boolean.parseBoolean(this.option("metrics", "false"));
+    final PattyServer server = "client".equals(role) ? null : this.startServer(host, port, metrics);
+    if ("server".equals(role)) {
+      TimeUnit.NANOSECONDS.sleep(warmup);
+      final long cpu = LoadGenerator.cpuTime();
+      final long start = System.nanoTime();
+      TimeUnit.NANOSECONDS.sleep(duration);
+      final String report = this.report(role, System.nanoTime() - start, LoadGenerator.cpuTime() - cpu, null);
+      server.close();
+      return report;
+    }
+    final int clients = Integer.parseInt(this.option("clients", "100"));
+    final int rate = Integer.parseInt(this.option("rate", "100"));
+    final byte[][] payloads = LoadGenerator.mix(this.option("mix", "64:8,1024:2"));
+    final List<Connection> connections = new ArrayList<>(clients);
+    for (int index = 0; index < clients; index++) {
+      final PattyClient client = PattyClient.tcp(host, port, new BenchmarkPacketHeader(), null,
+        new BenchmarkPacketSizer(), new ClientListener());
+      client.metrics.setEnabled(metrics);
+      connections.add(client.connect());
+    }
+    final ScheduledExecutorService senders = Executors.newScheduledThreadPool(
+      Math.min(clients, Runtime.getRuntime().availableProcessors()));
+    final long period = TimeUnit.SECONDS.toNanos(1L) / rate;
+    final long origin = System.nanoTime();
+    for (int index = 0; index < clients; index++) {
+      final Connection connection = connections.get(index);
+      final long offset = period * index / clients;
+      final long[] sequence = {0L};
+      senders.scheduleAtFixedRate(() -> {
+        final long count = sequence[0]++;
+        final long intended = origin + offset + count * period;
+        connection.sendPacket(new EchoPacket(intended, payloads[(int) (count % payloads.length)]));
+        this.sent.incrementAndGet();
+      }, offset, period, TimeUnit.NANOSECONDS);
+    }
+    TimeUnit.NANOSECONDS.sleep(warmup);
+    this.recorder.reset();
+    this.received.set(0L);
+    final long cpu = LoadGenerator.cpuTime();
+    final long sentBefore = this.sent.get();
+    this.measureStart = System.nanoTime();
+    TimeUnit.NANOSECONDS.sleep(duration);
+    final Histogram histogram = this.recorder.getIntervalHistogram();
+    final long elapsed = System.nanoTime() - this.measureStart;
+    final long cpuTime = LoadGenerator.cpuTime() - cpu;
+    this.sent.addAndGet(-sentBefore);
+    senders.shutdownNow();
+    final String report = this.report(role, elapsed, cpuTime, histogram);
+    connections.forEach(connection -> connection.disconnect("Load test finished."));
+    if (server != null) {
+      server.close();
+    }
+    return report;
+  }
+
+  @NotNull
+  private PattyServer startServer(@NotNull final String host, final int port, final boolean metrics) {
+    final PattyServer server = PattyServer.tcp(host, port, new BenchmarkPacketHeader(), null,
+      new BenchmarkPacketSizer(), null, new EchoListener());
+    server.metrics.setEnabled(metrics);
+    server.bind();
+    return server;
+  }
+
+  @NotNull
+  private String report(@NotNull final String role, final long elapsed, final long cpuTime,
+                        @Nullable final Histogram histogram) {
+    final double seconds = elapsed / 1.0e9d;
+    final StringBuilder report = new StringBuilder("{\n")
+      .append("  \"role\": \"").append(role).append("\",\n")
+      .append("  \"options\": {");
+    final Iterator<Map.Entry<String, String>> iterator = new TreeMap<>(this.options).entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<String, String> entry = iterator.next();
+      report.append('"').append(entry.getKey()).append("\": \"").append(entry.getValue()).append('"');
+      if (iterator.hasNext()) {
+        report.append(", ");
+      }
+    }
+    report.append("},\n")
+      .append("  \"seconds\": ").append(String.format(Locale.ROOT, "%.3f", seconds)).append(",\n")
+      .append("  \"cpuSeconds\": ").append(String.format(Locale.ROOT, "%.3f", cpuTime / 1.0e9d)).append(",\n")
+      .append("  \"cpuUtilization\": ").append(String.format(Locale.ROOT, "%.4f",
+      cpuTime / (double) elapsed / Runtime.getRuntime().availableProcessors()));
+    if (histogram != null) {
+      report.append(",\n")
+        .append("  \"sent\": ").append(this.sent.get()).append(",\n")
+        .append("  \"received\": ").append(this.received.get()).append(",\n")
+        .append("  \"throughput\": ").append(String.format(Locale.ROOT, "%.1f", this.received.get() / seconds))
+        .append(",\n")
+        .append("  \"latencyMicros\": {")
+        .append("\"p50\": ").append(LoadGenerator.micros(histogram, 50.0d)).append(", ")
+        .append("\"p99\": ").append(LoadGenerator.micros(histogram, 99.0d)).append(", ")
+        .append("\"p999\": ").append(LoadGenerator.micros(histogram, 99.9d)).append(", ")
+        .append("\"max\": ").append(String.format(Locale.ROOT, "%.1f", histogram.getMaxValue() / 1000.0d))
+        .append("}");
+    }
+    return report.append("\n}").toString();
+  }
+
+  @NotNull
+  private static String micros(@NotNull final Histogram histogram, final double percentile) {
+    return String.format(Locale.ROOT, "%.1f", histogram.getValueAtPercentile(percentile) / 1000.0d);
+  }
+
+  @NotNull
+  private String option(@NotNull final String key, @NotNull final String fallback) {
+    return this.options.getOrDefault(key, fallback);
+  }
+
+  private final class ClientListener implements ConnectionListener {
+
+    @Override
+    public void packetReceived(@NotNull final Packet packet, @NotNull final Connection connection) {
+      if (!(packet instanceof EchoPacket)) {
+        return;
+      }
+      final long intended = ((EchoPacket) packet).intendedNanos;
+      if (intended >= LoadGenerator.this.measureStart) {
+        LoadGenerator.this.recorder.recordValue(Math.max(0L, System.nanoTime() - intended));
+        LoadGenerator.this.received.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void packetSent(@NotNull final Packet packet, @NotNull final Connection connection) {
+    }
+
+    @Override
+    public void connected(@NotNull final Connection connection) {
+    }
+
+    @Override
+    public void disconnecting(@NotNull final Connection connection, @NotNull final String reason,
+                              @Nullable final Throwable cause) {
+    }
+
+    @Override
+    public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                             @Nullable final Throwable cause) {
+    }
+  }
+
+  private static final class EchoListener implements ConnectionListener {
+
+    @Override
+    public void packetReceived(@NotNull final Packet packet, @NotNull final Connection connection) {
+      connection.sendPacket(packet);
+    }
+
+    @Override
+    public void packetSent(@NotNull final Packet packet, @NotNull final Connection connection) {
+    }
+
+    @Override
+    public void connected(@NotNull final Connection connection) {
+    }
+
+    @Override
+    public void disconnecting(@NotNull final Connection connection, @NotNull final String reason,
+                              @Nullable final Throwable cause) {
+    }
+
+    @Override
+    public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                             @Nullable final Throwable cause) {
+    }
+  }
+}
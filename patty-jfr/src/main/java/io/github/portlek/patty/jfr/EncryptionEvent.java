@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.portlek.patty.Encryption")
+@Label("Encryption")
+@Description("Encryption of sent bytes or decryption of received ones")
+public final class EncryptionEvent extends PattyEvent {
+
+  @Label("Decryption")
+  boolean decryption;
+
+  @Label("Input Size")
+  @DataAmount
+  int inputSize;
+
+  @Label("Output Size")
+  @DataAmount
+  int outputSize;
+
+  EncryptionEvent(final boolean decryption) {
+    this.decryption = decryption;
+  }
+
+  @Override
+  void set(final long connectionId, final int packetId, final int inputSize, final int outputSize) {
+    super.set(connectionId, packetId, inputSize, outputSize);
+    this.inputSize = inputSize;
+    this.outputSize = outputSize;
+  }
+}
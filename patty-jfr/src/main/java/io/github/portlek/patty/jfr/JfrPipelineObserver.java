@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.jfr;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Patty;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.github.portlek.patty.metrics.PipelineObserver;
+import jdk.jfr.EventType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Emits a JFR event for every observed pipeline stage.
+ */
+public final class JfrPipelineObserver implements PipelineObserver {
+
+  private static final EventType FRAME_DECODE = EventType.getEventType(FrameDecodeEvent.class);
+
+  private static final EventType PACKET_ENCODE = EventType.getEventType(PacketEncodeEvent.class);
+
+  private static final EventType COMPRESSION = EventType.getEventType(CompressionEvent.class);
+
+  private static final EventType ENCRYPTION = EventType.getEventType(EncryptionEvent.class);
+
+  private static final EventType DISPATCH = EventType.getEventType(DispatchEvent.class);
+
+  private static final EventType DISCONNECT = EventType.getEventType(DisconnectEvent.class);
+
+  private static final EventType WRITABILITY = EventType.getEventType(WritabilityEvent.class);
+
+  public static void install(@NotNull final Patty patty) {
+    patty.metrics.setObserver(new JfrPipelineObserver());
+  }
+
+  @Nullable
+  private static PattyEvent create(@NotNull final ObservedStage stage) {
+    switch (stage) {
+      case FRAME_DECODE:
+        return JfrPipelineObserver.FRAME_DECODE.isEnabled() ? new FrameDecodeEvent() : null;
+      case PACKET_ENCODE:
+        return JfrPipelineObserver.PACKET_ENCODE.isEnabled() ? new PacketEncodeEvent() : null;
+      case COMPRESSION:
+      case DECOMPRESSION:
+        return JfrPipelineObserver.COMPRESSION.isEnabled()
+          ? new CompressionEvent(stage == ObservedStage.DECOMPRESSION)
+          : null;
+      case ENCRYPTION:
+      case DECRYPTION:
+        return JfrPipelineObserver.ENCRYPTION.isEnabled()
+          ? new EncryptionEvent(stage == ObservedStage.DECRYPTION)
+          : null;
+      case DISPATCH:
+        return JfrPipelineObserver.DISPATCH.isEnabled() ? new DispatchEvent() : null;
+      default:
+        return null;
+    }
+  }
+
+  @Nullable
+  @Override
+  public Object begin(@NotNull final ObservedStage stage) {
+    final PattyEvent event = JfrPipelineObserver.create(stage);
+    if (event != null) {
+      event.begin();
+    }
+    return event;
+  }
+
+  @Override
+  public void end(@NotNull final Object event, @NotNull final Connection connection, final int packetId,
+                  final int inputSize, final int outputSize) {
+    final PattyEvent pattyEvent = (PattyEvent) event;
+    pattyEvent.end();
+    if (pattyEvent.shouldCommit()) {
+      pattyEvent.set(connection.getId(), packetId, inputSize, outputSize);
+      pattyEvent.commit();
+    }
+  }
+
+  @Override
+  public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                           @Nullable final Throwable cause) {
+    if (!JfrPipelineObserver.DISCONNECT.isEnabled()) {
+      return;
+    }
+    final DisconnectEvent event = new DisconnectEvent();
+    event.connectionId = connection.getId();
+    event.reason = reason;
+    event.cause = cause == null ? null : cause.toString();
+    event.commit();
+  }
+
+  @Override
+  public void writabilityChanged(@NotNull final Connection connection, final boolean writable) {
+    if (!JfrPipelineObserver.WRITABILITY.isEnabled()) {
+      return;
+    }
+    final WritabilityEvent event = new WritabilityEvent();
+    event.connectionId = connection.getId();
+    event.writable = writable;
+    event.commit();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.jfr;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PacketHeader;
+import io.github.portlek.patty.PacketSizer;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class JfrPipelineObserverTest {
+
+  @NotNull
+  private static Connection connection() {
+    final PattyClient patty = PattyClient.tcp("127.0.0.1", 0, new UnusedHeader(), null, new PacketSizer() {
+    }, null);
+    return patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+  }
+
+  @NotNull
+  private static List<RecordedEvent> events(@NotNull final Recording recording, @NotNull final String name)
+    throws IOException {
+    final Path file = Files.createTempFile("patty", ".jfr");
+    try {
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file).stream()
+        .filter(event -> event.getEventType().getName().equals(name))
+        .collect(Collectors.toList());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void disabledStagesCreateNoEvents() {
+    final JfrPipelineObserver observer = new JfrPipelineObserver();
+    for (final ObservedStage stage : ObservedStage.values()) {
+      Assertions.assertNull(observer.begin(stage), stage.name());
+    }
+  }
+
+  @Test
+  void recordedEventsCarryTheirFields() throws IOException {
+    final JfrPipelineObserver observer = new JfrPipelineObserver();
+    final Connection connection = JfrPipelineObserverTest.connection();
+    try (final Recording recording = new Recording()) {
+      recording.enable(DisconnectEvent.class);
+      recording.enable(WritabilityEvent.class);
+      recording.enable(FrameDecodeEvent.class);
+      recording.start();
+      final Object event = observer.begin(ObservedStage.FRAME_DECODE);
+      Assertions.assertNotNull(event);
+      observer.end(event, connection, 7, 42, 0);
+      observer.writabilityChanged(connection, false);
+      observer.disconnected(connection, "Kicked.", new IOException("boom"));
+      observer.disconnected(connection, "Closed.", null);
+      recording.stop();
+      final List<RecordedEvent> decodes = JfrPipelineObserverTest.events(recording,
+        "io.github.portlek.patty.FrameDecode");
+      Assertions.assertEquals(1, decodes.size());
+      Assertions.assertEquals(connection.getId(), decodes.get(0).getLong("connectionId"));
+      Assertions.assertEquals(7, decodes.get(0).getInt("packetId"));
+      Assertions.assertEquals(42, decodes.get(0).getInt("frameSize"));
+      final List<RecordedEvent> writability = JfrPipelineObserverTest.events(recording,
+        "io.github.portlek.patty.Writability");
+      Assertions.assertEquals(1, writability.size());
+      Assertions.assertEquals(connection.getId(), writability.get(0).getLong("connectionId"));
+      Assertions.assertFalse(writability.get(0).getBoolean("writable"));
+      final List<RecordedEvent> disconnects = JfrPipelineObserverTest.events(recording,
+        "io.github.portlek.patty.Disconnect");
+      Assertions.assertEquals(2, disconnects.size());
+      Assertions.assertEquals(connection.getId(), disconnects.get(0).getLong("connectionId"));
+      Assertions.assertEquals("Kicked.", disconnects.get(0).getString("reason"));
+      Assertions.assertEquals("java.io.IOException: boom", disconnects.get(0).getString("cause"));
+      Assertions.assertEquals("Closed.", disconnects.get(1).getString("reason"));
+      Assertions.assertNull(disconnects.get(1).getString("cause"));
+    } finally {
+      connection.disconnect("Test finished.");
+    }
+  }
+
+  private static final class UnusedHeader implements PacketHeader {
+
+    @Override
+    public boolean isLengthVariable() {
+      return true;
+    }
+
+    @Override
+    public int getLengthSize() {
+      return 5;
+    }
+
+    @Override
+    public int getLengthSize(final int length) {
+      return 5;
+    }
+
+    @Override
+    public int readLength(@NotNull final ByteBuf input, final int available) throws IOException {
+      return 0;
+    }
+
+    @Override
+    public void writeLength(@NotNull final ByteBuf output, final int length) {
+    }
+
+    @Override
+    public int readPacketId(@NotNull final ByteBuf input) throws IOException {
+      return 0;
+    }
+
+    @Override
+    public void writePacketId(@NotNull final ByteBuf output, final int packetId) {
+    }
+  }
+}
@@ -0,0 +1,592 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.processor;
+
+import io.github.portlek.patty.annotations.FieldCodec;
+import io.github.portlek.patty.annotations.PacketField;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@SupportedAnnotationTypes("io.github.portlek.patty.annotations.PacketField")
+public final class PacketFieldProcessor extends AbstractProcessor {
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment environment) {
+    final Map<TypeElement, List<Field>> packets = new LinkedHashMap<>();
+    for (final Element element : environment.getElementsAnnotatedWith(PacketField.class)) {
+      final Field field = this.toField((VariableElement) element);
+      if (field != null) {
+        packets.computeIfAbsent((TypeElement) element.getEnclosingElement(), type -> new ArrayList<>())
+          .add(field);
+      }
+    }
+    packets.forEach(this::generate);
+    return true;
+  }
+
+  @Nullable
+  private Field toField(@NotNull final VariableElement element) {
+    final Set<Modifier> modifiers = element.getModifiers();
+    if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) ||
+      modifiers.contains(Modifier.STATIC)) {
+      this.error(element, "@PacketField fields must not be private, final or static.");
+      return null;
+    }
+    final PacketField annotation = element.getAnnotation(PacketField.class);
+    final TypeMirror type = element.asType();
+    final FieldCodec codec = annotation.codec() == FieldCodec.AUTO
+      ? PacketFieldProcessor.resolve(type)
+      : annotation.codec();
+    if (codec == null) {
+      this.error(element, "No codec for type " + type + ", set @PacketField#codec explicitly.");
+      return null;
+    }
+    if (!this.accepts(codec, type)) {
+      this.error(element, "Codec " + codec + " cannot read and write a field of type " + type + ".");
+      return null;
+    }
+    if (annotation.optional() && type.getKind().isPrimitive()) {
+      this.error(element, "Primitive fields cannot be optional.");
+      return null;
+    }
+    final String typeName = type.getKind() == TypeKind.DECLARED
+      ? ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString()
+      : type.toString();
+    return new Field(element.getSimpleName().toString(), typeName, annotation.order(), codec, annotation.optional());
+  }
+
+  /**
+   * Checks if the values a codec reads can be assigned to a field of the given type and the field can be passed back
+   * to the codec without a narrowing conversion, so the generated serializer compiles and does not lose data.
+   *
+   * @param codec the codec of the field.
+   * @param type the type of the field.
+   *
+   * @return {@code true} if the codec fits the field.
+   */
+  private boolean accepts(@NotNull final FieldCodec codec, @NotNull final TypeMirror type) {
+    if (codec == FieldCodec.ENUM) {
+      return type.getKind() == TypeKind.DECLARED &&
+        ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+    }
+    final TypeMirror value = this.valueType(codec);
+    final Types types = this.processingEnv.getTypeUtils();
+    return types.isAssignable(value, type) && types.isAssignable(type, value);
+  }
+
+  @NotNull
+  private TypeMirror valueType(@NotNull final FieldCodec codec) {
+    final Types types = this.processingEnv.getTypeUtils();
+    switch (codec) {
+      case BOOLEAN:
+        return types.getPrimitiveType(TypeKind.BOOLEAN);
+      case BYTE:
+        return types.getPrimitiveType(TypeKind.BYTE);
+      case SHORT:
+        return types.getPrimitiveType(TypeKind.SHORT);
+      case INT:
+      case VAR_INT:
+      case SIGNED_VAR_INT:
+        return types.getPrimitiveType(TypeKind.INT);
+      case LONG:
+      case VAR_LONG:
+      case SIGNED_VAR_LONG:
+        return types.getPrimitiveType(TypeKind.LONG);
+      case FLOAT:
+        return types.getPrimitiveType(TypeKind.FLOAT);
+      case DOUBLE:
+        return types.getPrimitiveType(TypeKind.DOUBLE);
+      case BYTE_ARRAY:
+        return types.getArrayType(types.getPrimitiveType(TypeKind.BYTE));
+      case INT_ARRAY:
+        return types.getArrayType(types.getPrimitiveType(TypeKind.INT));
+      case LONG_ARRAY:
+        return types.getArrayType(types.getPrimitiveType(TypeKind.LONG));
+      case FLOAT_ARRAY:
+        return types.getArrayType(types.getPrimitiveType(TypeKind.FLOAT));
+      case DOUBLE_ARRAY:
+        return types.getArrayType(types.getPrimitiveType(TypeKind.DOUBLE));
+      case STRING:
+        return this.declaredType("java.lang.String");
+      case UUID:
+        return this.declaredType("java.util.UUID");
+      case BIT_SET:
+        return this.declaredType("java.util.BitSet");
+      default:
+        throw new IllegalStateException(codec + " has no value type");
+    }
+  }
+
+  @NotNull
+  private TypeMirror declaredType(@NotNull final String name) {
+    return this.processingEnv.getElementUtils().getTypeElement(name).asType();
+  }
+
+  private void generate(@NotNull final TypeElement packet, @NotNull final List<Field> fields) {
+    fields.sort(Comparator.comparingInt(field -> field.order));
+    for (int index = 1; index < fields.size(); index++) {
+      if (fields.get(index - 1).order == fields.get(index).order) {
+        this.error(packet, "Duplicate @PacketField order " + fields.get(index).order + ".");
+        return;
+      }
+    }
+    final String packageName = this.processingEnv.getElementUtils().getPackageOf(packet).getQualifiedName().toString();
+    final String packetName = packet.getQualifiedName().toString();
+    final String className = PacketFieldProcessor.serializerName(packet);
+    final StringBuilder source = new StringBuilder();
+    source.append("// Generated by patty-processor, do not edit.\n");
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("import io.github.portlek.patty.util.ReadWrite;\n")
+      .append("import io.netty.buffer.ByteBuf;\n")
+      .append("import java.io.IOException;\n\n")
+      .append("public final class ").append(className).append(" {\n\n");
+    for (final Field field : fields) {
+      if (field.codec == FieldCodec.ENUM) {
+        source.append("  private static final ").append(field.type).append("[] ").append(field.values())
+          .append(" = ").append(field.type).append(".values();\n\n");
+      }
+    }
+    source.append("  private ").append(className).append("() {\n  }\n\n");
+    this.appendRead(source, packetName, fields);
+    this.appendWrite(source, packetName, fields);
+    PacketFieldProcessor.appendEncodedSize(source, packetName, fields);
+    source.append("}\n");
+    try (final Writer writer = this.processingEnv.getFiler()
+      .createSourceFile(packageName.isEmpty() ? className : packageName + '.' + className, packet)
+      .openWriter()) {
+      writer.write(source.toString());
+    } catch (final IOException e) {
+      this.error(packet, "Could not write " + className + ": " + e.getMessage());
+    }
+  }
+
+  private void appendRead(@NotNull final StringBuilder source, @NotNull final String packetName,
+                          @NotNull final List<Field> fields) {
+    source.append("  public static void read(final ").append(packetName)
+      .append(" packet, final ByteBuf buffer) throws IOException {\n");
+    int group = 0;
+    for (int start = 0; start < fields.size(); ) {
+      final int end = PacketFieldProcessor.fixedRunEnd(fields, start);
+      if (end - start > 1) {
+        final String index = "index" + group++;
+        final int size = PacketFieldProcessor.fixedSize(fields, start, end);
+        source.append("    final int ").append(index).append(" = buffer.readerIndex();\n")
+          .append("    if (buffer.readableBytes() < ").append(size).append(") {\n")
+          .append("      throw new IOException(\"").append(packetName).append(" is truncated.\");\n")
+          .append("    }\n");
+        int offset = 0;
+        for (int current = start; current < end; current++) {
+          final Field field = fields.get(current);
+          source.append("    packet.").append(field.name).append(" = ")
+            .append(field.get(PacketFieldProcessor.offset(index, offset))).append(";\n");
+          offset += PacketFieldProcessor.fixedSize(field.codec);
+        }
+        source.append("    buffer.readerIndex(").append(index).append(" + ").append(size).append(");\n");
+        start = end;
+        continue;
+      }
+      final Field field = fields.get(start++);
+      source.append("    packet.").append(field.name).append(" = ");
+      if (field.optional) {
+        source.append("buffer.readBoolean() ? ").append(field.read()).append(" : null;\n");
+      } else {
+        source.append(field.read()).append(";\n");
+      }
+    }
+    source.append("  }\n\n");
+  }
+
+  private void appendWrite(@NotNull final StringBuilder source, @NotNull final String packetName,
+                           @NotNull final List<Field> fields) {
+    source.append("  public static void write(final ").append(packetName).append(" packet, final ByteBuf buffer) {\n");
+    int group = 0;
+    for (int start = 0; start < fields.size(); ) {
+      final int end = PacketFieldProcessor.fixedRunEnd(fields, start);
+      if (end - start > 1) {
+        final String index = "index" + group++;
+        source.append("    buffer.ensureWritable(").append(PacketFieldProcessor.fixedSize(fields, start, end))
+          .append(");\n")
+          .append("    final int ").append(index).append(" = buffer.writerIndex();\n");
+        int offset = 0;
+        for (int current = start; current < end; current++) {
+          final Field field = fields.get(current);
+          source.append("    ").append(field.set(PacketFieldProcessor.offset(index, offset), "packet." + field.name))
+            .append(";\n");
+          offset += PacketFieldProcessor.fixedSize(field.codec);
+        }
+        source.append("    buffer.writerIndex(").append(index).append(" + ").append(offset).append(");\n");
+        start = end;
+        continue;
+      }
+      final Field field = fields.get(start++);
+      final String value = "packet." + field.name;
+      if (field.optional) {
+        source.append("    if (").append(value).append(" == null) {\n")
+          .append("      buffer.writeBoolean(false);\n")
+          .append("    } else {\n")
+          .append("      buffer.writeBoolean(true);\n")
+          .append("      ").append(field.write(value)).append(";\n")
+          .append("    }\n");
+      } else {
+        source.append("    ").append(field.write(value)).append(";\n");
+      }
+    }
+    source.append("  }\n\n");
+  }
+
+  private static void appendEncodedSize(@NotNull final StringBuilder source, @NotNull final String packetName,
+                                        @NotNull final List<Field> fields) {
+    int fixed = 0;
+    final StringBuilder variable = new StringBuilder();
+    for (final Field field : fields) {
+      final String value = "packet." + field.name;
+      if (field.optional) {
+        variable.append("\n      + (").append(value).append(" == null ? 1 : 1 + ").append(field.size(value))
+          .append(")");
+      } else if (field.isFixed()) {
+        fixed += PacketFieldProcessor.fixedSize(field.codec);
+      } else {
+        variable.append("\n      + ").append(field.size(value));
+      }
+    }
+    source.append("  public static int encodedSize(final ").append(packetName).append(" packet) {\n")
+      .append("    return ").append(fixed).append(variable).append(";\n")
+      .append("  }\n");
+  }
+
+  private static int fixedRunEnd(@NotNull final List<Field> fields, final int start) {
+    int end = start;
+    while (end < fields.size() && fields.get(end).isFixed()) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int fixedSize(@NotNull final List<Field> fields, final int start, final int end) {
+    int size = 0;
+    for (int index = start; index < end; index++) {
+      size += PacketFieldProcessor.fixedSize(fields.get(index).codec);
+    }
+    return size;
+  }
+
+  private static int fixedSize(@NotNull final FieldCodec codec) {
+    switch (codec) {
+      case BOOLEAN:
+      case BYTE:
+        return 1;
+      case SHORT:
+        return 2;
+      case INT:
+      case FLOAT:
+        return 4;
+      case LONG:
+      case DOUBLE:
+        return 8;
+      case UUID:
+        return 16;
+      default:
+        return -1;
+    }
+  }
+
+  @NotNull
+  private static String offset(@NotNull final String index, final int offset) {
+    return offset == 0 ? index : index + " + " + offset;
+  }
+
+  @Nullable
+  private static FieldCodec resolve(@NotNull final TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return FieldCodec.BOOLEAN;
+      case BYTE:
+        return FieldCodec.BYTE;
+      case SHORT:
+        return FieldCodec.SHORT;
+      case INT:
+        return FieldCodec.VAR_INT;
+      case LONG:
+        return FieldCodec.VAR_LONG;
+      case FLOAT:
+        return FieldCodec.FLOAT;
+      case DOUBLE:
+        return FieldCodec.DOUBLE;
+      case ARRAY:
+        switch (((ArrayType) type).getComponentType().getKind()) {
+          case BYTE:
+            return FieldCodec.BYTE_ARRAY;
+          case INT:
+            return FieldCodec.INT_ARRAY;
+          case LONG:
+            return FieldCodec.LONG_ARRAY;
+          case FLOAT:
+            return FieldCodec.FLOAT_ARRAY;
+          case DOUBLE:
+            return FieldCodec.DOUBLE_ARRAY;
+          default:
+            return null;
+        }
+      case DECLARED:
+        final Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+          return FieldCodec.ENUM;
+        }
+        switch (((TypeElement) element).getQualifiedName().toString()) {
+          case "java.lang.String":
+            return FieldCodec.STRING;
+          case "java.util.UUID":
+            return FieldCodec.UUID;
+          case "java.util.BitSet":
+            return FieldCodec.BIT_SET;
+          default:
+            return null;
+        }
+      default:
+        return null;
+    }
+  }
+
+  @NotNull
+  private static String serializerName(@NotNull final TypeElement packet) {
+    final StringBuilder name = new StringBuilder(packet.getSimpleName());
+    Element enclosing = packet.getEnclosingElement();
+    while (enclosing instanceof TypeElement) {
+      name.insert(0, enclosing.getSimpleName() + "_");
+      enclosing = enclosing.getEnclosingElement();
+    }
+    return name.append("Serializer").toString();
+  }
+
+  private void error(@NotNull final Element element, @NotNull final String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private static final class Field {
+
+    @NotNull
+    private final String name;
+
+    @NotNull
+    private final String type;
+
+    private final int order;
+
+    @NotNull
+    private final FieldCodec codec;
+
+    private final boolean optional;
+
+    private Field(@NotNull final String name, @NotNull final String type, final int order,
+                  @NotNull final FieldCodec codec, final boolean optional) {
+      this.name = name;
+      this.type = type;
+      this.order = order;
+      this.codec = codec;
+      this.optional = optional;
+    }
+
+    private boolean isFixed() {
+      return !this.optional && PacketFieldProcessor.fixedSize(this.codec) > 0;
+    }
+
+    @NotNull
+    private String values() {
+      return this.name.toUpperCase(Locale.ROOT) + "_VALUES";
+    }
+
+    @NotNull
+    private String get(@NotNull final String index) {
+      if (this.codec == FieldCodec.UUID) {
+        return "new java.util.UUID(buffer.getLong(" + index + "), buffer.getLong(" + index + " + 8))";
+      }
+      return "buffer.get" + this.primitive() + "(" + index + ")";
+    }
+
+    @NotNull
+    private String set(@NotNull final String index, @NotNull final String value) {
+      if (this.codec == FieldCodec.UUID) {
+        return "buffer.setLong(" + index + ", " + value + ".getMostSignificantBits());\n" +
+          "    buffer.setLong(" + index + " + 8, " + value + ".getLeastSignificantBits())";
+      }
+      return "buffer.set" + this.primitive() + "(" + index + ", " + value + ")";
+    }
+
+    @NotNull
+    private String read() {
+      switch (this.codec) {
+        case VAR_INT:
+          return "ReadWrite.readVarInt(buffer)";
+        case VAR_LONG:
+          return "ReadWrite.readVarLong(buffer)";
+        case SIGNED_VAR_INT:
+          return "ReadWrite.readSignedVarInt(buffer)";
+        case SIGNED_VAR_LONG:
+          return "ReadWrite.readSignedVarLong(buffer)";
+        case STRING:
+          return "ReadWrite.readString(buffer)";
+        case UUID:
+          return "ReadWrite.readUuid(buffer)";
+        case BYTE_ARRAY:
+          return "ReadWrite.readByteArray(buffer)";
+        case INT_ARRAY:
+          return "ReadWrite.readIntArray(buffer)";
+        case LONG_ARRAY:
+          return "ReadWrite.readLongArray(buffer)";
+        case FLOAT_ARRAY:
+          return "ReadWrite.readFloatArray(buffer)";
+        case DOUBLE_ARRAY:
+          return "ReadWrite.readDoubleArray(buffer)";
+        case BIT_SET:
+          return "ReadWrite.readBitSet(buffer)";
+        case ENUM:
+          return "ReadWrite.readEnum(buffer, " + this.values() + ")";
+        default:
+          return "buffer.read" + this.primitive() + "()";
+      }
+    }
+
+    @NotNull
+    private String write(@NotNull final String value) {
+      switch (this.codec) {
+        case VAR_INT:
+          return "ReadWrite.writeVarInt(buffer, " + value + ")";
+        case VAR_LONG:
+          return "ReadWrite.writeVarLong(buffer, " + value + ")";
+        case SIGNED_VAR_INT:
+          return "ReadWrite.writeSignedVarInt(buffer, " + value + ")";
+        case SIGNED_VAR_LONG:
+          return "ReadWrite.writeSignedVarLong(buffer, " + value + ")";
+        case STRING:
+          return "ReadWrite.writeString(buffer, " + value + ")";
+        case UUID:
+          return "ReadWrite.writeUuid(buffer, " + value + ")";
+        case BYTE_ARRAY:
+          return "ReadWrite.writeByteArray(buffer, " + value + ")";
+        case INT_ARRAY:
+          return "ReadWrite.writeIntArray(buffer, " + value + ")";
+        case LONG_ARRAY:
+          return "ReadWrite.writeLongArray(buffer, " + value + ")";
+        case FLOAT_ARRAY:
+          return "ReadWrite.writeFloatArray(buffer, " + value + ")";
+        case DOUBLE_ARRAY:
+          return "ReadWrite.writeDoubleArray(buffer, " + value + ")";
+        case BIT_SET:
+          return "ReadWrite.writeBitSet(buffer, " + value + ")";
+        case ENUM:
+          return "ReadWrite.writeEnum(buffer, " + value + ")";
+        default:
+          return "buffer.write" + this.primitive() + "(" + value + ")";
+      }
+    }
+
+    @NotNull
+    private String size(@NotNull final String value) {
+      switch (this.codec) {
+        case VAR_INT:
+          return "ReadWrite.getVarIntSize(" + value + ")";
+        case VAR_LONG:
+          return "ReadWrite.getVarLongSize(" + value + ")";
+        case SIGNED_VAR_INT:
+          return "ReadWrite.getVarIntSize(ReadWrite.encodeZigZag(" + value + "))";
+        case SIGNED_VAR_LONG:
+          return "ReadWrite.getVarLongSize(ReadWrite.encodeZigZag(" + value + "))";
+        case STRING:
+          return "ReadWrite.getStringSize(" + value + ")";
+        case BYTE_ARRAY:
+          return "ReadWrite.getByteArraySize(" + value + ")";
+        case INT_ARRAY:
+          return "ReadWrite.getIntArraySize(" + value + ")";
+        case LONG_ARRAY:
+          return "ReadWrite.getLongArraySize(" + value + ")";
+        case FLOAT_ARRAY:
+          return "ReadWrite.getFloatArraySize(" + value + ")";
+        case DOUBLE_ARRAY:
+          return "ReadWrite.getDoubleArraySize(" + value + ")";
+        case BIT_SET:
+          return "ReadWrite.getBitSetSize(" + value + ")";
+        case ENUM:
+          return "ReadWrite.getVarIntSize(" + value + ".ordinal())";
+        default:
+          return String.valueOf(PacketFieldProcessor.fixedSize(this.codec));
+      }
+    }
+
+    @NotNull
+    private String primitive() {
+      switch (this.codec) {
+        case BOOLEAN:
+          return "Boolean";
+        case BYTE:
+          return "Byte";
+        case SHORT:
+          return "Short";
+        case INT:
+          return "Int";
+        case LONG:
+          return "Long";
+        case FLOAT:
+          return "Float";
+        case DOUBLE:
+          return "Double";
+        default:
+          throw new IllegalStateException(this.codec + " is not a primitive codec");
+      }
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.processor;
+
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PacketRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class PacketFieldProcessorTest {
+
+  private static final String MOVE_PACKET = String.join("\n",
+    "package generated;",
+    "",
+    "import io.github.portlek.patty.Connection;",
+    "import io.github.portlek.patty.Packet;",
+    "import io.github.portlek.patty.annotations.FieldCodec;",
+    "import io.github.portlek.patty.annotations.PacketField;",
+    "import io.netty.buffer.ByteBuf;",
+    "import java.io.IOException;",
+    "import java.util.BitSet;",
+    "import java.util.UUID;",
+    "",
+    "public final class MovePacket extends Packet {",
+    "",
+    "  public enum Mode { WALK, RUN, FLY }",
+    "",
+    "  @PacketField(order = 0) int entity;",
+    "  @PacketField(order = 1, codec = FieldCodec.DOUBLE) double x;",
+    "  @PacketField(order = 2, codec = FieldCodec.DOUBLE) double y;",
+    "  @PacketField(order = 3, codec = FieldCodec.DOUBLE) double z;",
+    "  @PacketField(order = 4) float yaw;",
+    "  @PacketField(order = 5) boolean onGround;",
+    "  @PacketField(order = 6, codec = FieldCodec.SIGNED_VAR_LONG) long delta;",
+    "  @PacketField(order = 7) String name;",
+    "  @PacketField(order = 8, optional = true) String reason;",
+    "  @PacketField(order = 9, optional = true) String missing;",
+    "  @PacketField(order = 10) UUID id;",
+    "  @PacketField(order = 11) Mode mode;",
+    "  @PacketField(order = 12) byte[] data;",
+    "  @PacketField(order = 13) int[] ints;",
+    "  @PacketField(order = 14) BitSet bits;",
+    "  @PacketField(order = 15, codec = FieldCodec.VAR_INT, optional = true) Integer boxed;",
+    "  @PacketField(order = 16) short small;",
+    "  @PacketField(order = 17, codec = FieldCodec.INT) int fixed;",
+    "",
+    "  public MovePacket() {",
+    "    super(MovePacket.class);",
+    "  }",
+    "",
+    "  @Override",
+    "  public void read(final ByteBuf buffer, final Connection connection) throws IOException {",
+    "    MovePacketSerializer.read(this, buffer);",
+    "  }",
+    "",
+    "  @Override",
+    "  public void write(final ByteBuf buffer, final Connection connection) {",
+    "    MovePacketSerializer.write(this, buffer);",
+    "  }",
+    "",
+    "  @Override",
+    "  public int estimatedSize(final Connection connection) {",
+    "    return MovePacketSerializer.encodedSize(this);",
+    "  }",
+    "}");
+
+  private static final String MISMATCHED_PACKET = String.join("\n",
+    "package generated;",
+    "",
+    "import io.github.portlek.patty.annotations.FieldCodec;",
+    "import io.github.portlek.patty.annotations.PacketField;",
+    "",
+    "public final class MismatchedPacket {",
+    "",
+    "  @PacketField(order = 0, codec = FieldCodec.LONG) int widened;",
+    "",
+    "  @PacketField(order = 1, codec = FieldCodec.STRING) int text;",
+    "",
+    "  @PacketField(order = 2, codec = FieldCodec.BYTE) short narrowed;",
+    "",
+    "  @PacketField(order = 3, codec = FieldCodec.ENUM) String notEnum;",
+    "",
+    "  @PacketField(order = 4, codec = FieldCodec.INT) int fine;",
+    "}");
+
+  @TempDir
+  Path output;
+
+  @Test
+  void generatedSerializerRoundTrips() throws Exception {
+    final Compilation compilation = this.compile("generated.MovePacket", PacketFieldProcessorTest.MOVE_PACKET);
+    Assertions.assertTrue(compilation.success, compilation::toString);
+    try (final URLClassLoader loader = new URLClassLoader(new URL[]{this.output.toUri().toURL()},
+      PacketFieldProcessorTest.class.getClassLoader())) {
+      @SuppressWarnings("unchecked") final Class<? extends Packet> type =
+        (Class<? extends Packet>) loader.loadClass("generated.MovePacket");
+      PacketRegistry.register(type, 28);
+      final Class<?> mode = loader.loadClass("generated.MovePacket$Mode");
+      final Packet packet = type.getConstructor().newInstance();
+      final BitSet bits = new BitSet();
+      bits.set(3);
+      bits.set(70);
+      PacketFieldProcessorTest.set(packet, "entity", 300);
+      PacketFieldProcessorTest.set(packet, "x", 1.5D);
+      PacketFieldProcessorTest.set(packet, "y", -64.25D);
+      PacketFieldProcessorTest.set(packet, "z", Double.MAX_VALUE);
+      PacketFieldProcessorTest.set(packet, "yaw", 90.5F);
+      PacketFieldProcessorTest.set(packet, "onGround", true);
+      PacketFieldProcessorTest.set(packet, "delta", -5_000_000_000L);
+      PacketFieldProcessorTest.set(packet, "name", "patty");
+      PacketFieldProcessorTest.set(packet, "reason", "moved too quickly");
+      PacketFieldProcessorTest.set(packet, "id", UUID.randomUUID());
+      PacketFieldProcessorTest.set(packet, "mode", mode.getEnumConstants()[2]);
+      PacketFieldProcessorTest.set(packet, "data", new byte[]{1, 2, 3});
+      PacketFieldProcessorTest.set(packet, "ints", new int[]{-1, 0, Integer.MAX_VALUE});
+      PacketFieldProcessorTest.set(packet, "bits", bits);
+      PacketFieldProcessorTest.set(packet, "boxed", 16384);
+      PacketFieldProcessorTest.set(packet, "small", (short) -2);
+      PacketFieldProcessorTest.set(packet, "fixed", Integer.MIN_VALUE);
+      final Method encodedSize = loader.loadClass("generated.MovePacketSerializer").getMethod("encodedSize", type);
+      final ByteBuf buffer = Unpooled.buffer(1);
+      packet.write(buffer, null);
+      Assertions.assertEquals(encodedSize.invoke(null, packet), buffer.readableBytes());
+      final Packet copy = type.getConstructor().newInstance();
+      copy.read(buffer, null);
+      Assertions.assertFalse(buffer.isReadable());
+      buffer.release();
+      for (final Field field : type.getDeclaredFields()) {
+        if (field.isSynthetic() || Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        final Object expected = field.get(packet);
+        final Object actual = field.get(copy);
+        if (expected instanceof byte[]) {
+          Assertions.assertArrayEquals((byte[]) expected, (byte[]) actual, field.getName());
+        } else if (expected instanceof int[]) {
+          Assertions.assertArrayEquals((int[]) expected, (int[]) actual, field.getName());
+        } else {
+          Assertions.assertEquals(expected, actual, field.getName());
+        }
+      }
+      Assertions.assertNull(PacketFieldProcessorTest.get(copy, "missing"));
+      Assertions.assertEquals(encodedSize.invoke(null, packet), encodedSize.invoke(null, copy));
+    }
+  }
+
+  @Test
+  void mismatchedCodecsAreReportedOnTheField() throws Exception {
+    final Compilation compilation = this.compile("generated.MismatchedPacket",
+      PacketFieldProcessorTest.MISMATCHED_PACKET);
+    Assertions.assertFalse(compilation.success);
+    final List<Diagnostic<? extends JavaFileObject>> errors = compilation.errors();
+    Assertions.assertEquals(Arrays.asList(8L, 10L, 12L, 14L),
+      errors.stream().map(Diagnostic::getLineNumber).collect(Collectors.toList()), compilation::toString);
+    for (final Diagnostic<? extends JavaFileObject> error : errors) {
+      Assertions.assertTrue(error.getSource().getName().endsWith("MismatchedPacket.java"), compilation::toString);
+      Assertions.assertTrue(error.getMessage(Locale.ROOT).startsWith("Codec "), compilation::toString);
+    }
+  }
+
+  @Test
+  void duplicateOrdersAreReported() throws Exception {
+    final Compilation compilation = this.compile("generated.DuplicatePacket", String.join("\n",
+      "package generated;",
+      "",
+      "import io.github.portlek.patty.annotations.PacketField;",
+      "",
+      "public final class DuplicatePacket {",
+      "  @PacketField(order = 0) int first;",
+      "  @PacketField(order = 0) int second;",
+      "}"));
+    Assertions.assertFalse(compilation.success);
+    Assertions.assertEquals(1, compilation.errors().size(), compilation::toString);
+    Assertions.assertTrue(compilation.errors().get(0).getMessage(Locale.ROOT).startsWith("Duplicate @PacketField"));
+  }
+
+  private static void set(final Object target, final String name, final Object value) throws ReflectiveOperationException {
+    final Field field = target.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(target, value);
+  }
+
+  private static Object get(final Object target, final String name) throws ReflectiveOperationException {
+    final Field field = target.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(target);
+  }
+
+  private static String location(final Class<?> type) throws URISyntaxException {
+    return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+  }
+
+  private Compilation compile(final String name, final String source) throws URISyntaxException {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final String classpath = String.join(File.pathSeparator,
+      PacketFieldProcessorTest.location(Packet.class),
+      PacketFieldProcessorTest.location(ByteBuf.class));
+    final JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+      Arrays.asList("-classpath", classpath, "-d", this.output.toString(), "-s", this.output.toString()), null,
+      Collections.singletonList(new Source(name, source)));
+    task.setProcessors(Collections.singletonList(new PacketFieldProcessor()));
+    return new Compilation(task.call(), diagnostics.getDiagnostics());
+  }
+
+  private static final class Source extends SimpleJavaFileObject {
+
+    private final String content;
+
+    private Source(final String name, final String content) {
+      super(URI.create("string:///" + name.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+        JavaFileObject.Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+      return this.content;
+    }
+  }
+
+  private static final class Compilation {
+
+    private final boolean success;
+
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+    private Compilation(final boolean success, final List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+      this.success = success;
+      this.diagnostics = diagnostics;
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> errors() {
+      return this.diagnostics.stream()
+        .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+        .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+      return this.diagnostics.stream()
+        .map(diagnostic -> diagnostic.getSource() + ":" + diagnostic.getLineNumber() + ": " +
+          diagnostic.getMessage(Locale.ROOT))
+        .collect(Collectors.joining("\n"));
+    }
+  }
+}
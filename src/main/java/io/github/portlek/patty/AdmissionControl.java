@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decides which accepted sockets of a {@link PattyServer} become sessions, before their pipeline is built.
+ */
+@ChannelHandler.Sharable
+public final class AdmissionControl extends ChannelInboundHandlerAdapter {
+
+  private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+  private final AtomicInteger sessions = new AtomicInteger();
+
+  private final Map<InetAddress, Integer> addresses = new ConcurrentHashMap<>();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder paused = new LongAdder();
+
+  private volatile int maxSessions = 0;
+
+  private volatile int maxSessionsPerAddress = 0;
+
+  private volatile int maxAcceptRate = 0;
+
+  private long due = System.nanoTime() - AdmissionControl.BURST_NANOS;
+
+  public int getMaxSessions() {
+    return this.maxSessions;
+  }
+
+  /**
+   * Sets how many sessions the server may have at once.
+   *
+   * @param maxSessions the number of sessions, or {@code 0} for no limit.
+   */
+  public void setMaxSessions(final int maxSessions) {
+    this.maxSessions = maxSessions;
+  }
+
+  public int getMaxSessionsPerAddress() {
+    return this.maxSessionsPerAddress;
+  }
+
+  /**
+   * Sets how many sessions a single IP address may have at once, only counting sessions accepted while a limit is
+   * set.
+   *
+   * @param maxSessionsPerAddress the number of sessions, or {@code 0} for no limit.
+   */
+  public void setMaxSessionsPerAddress(final int maxSessionsPerAddress) {
+    this.maxSessionsPerAddress = maxSessionsPerAddress;
+  }
+
+  public int getMaxAcceptRate() {
+    return this.maxAcceptRate;
+  }
+
+  /**
+   * Sets how many sockets the server accepts per second, in bursts of up to one second of the rate.
+   *
+   * @param maxAcceptRate the accepts per second, or {@code 0} for no limit.
+   */
+  public void setMaxAcceptRate(final int maxAcceptRate) {
+    this.maxAcceptRate = maxAcceptRate;
+  }
+
+  public int getSessions() {
+    return this.sessions.get();
+  }
+
+  public long getRejected() {
+    return this.rejected.sum();
+  }
+
+  public long getPaused() {
+    return this.paused.sum();
+  }
+
+  /**
+   * Decides whether a datagram peer becomes a session, for servers that read every peer from one channel.
+   *
+   * @param peer the address of the peer.
+   *
+   * @return the task that frees the slot of the session once it ends, or {@code null} if the peer is rejected.
+   */
+  @Nullable
+  public Runnable admit(@NotNull final InetSocketAddress peer) {
+    final Runnable release = this.tryTake() ? this.reserve(peer) : null;
+    if (release == null) {
+      this.rejected.increment();
+    }
+    return release;
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (!(msg instanceof Channel)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final Channel child = (Channel) msg;
+    final long delay = this.take();
+    if (this.admit(child)) {
+      ctx.fireChannelRead(child);
+    } else {
+      this.rejected.increment();
+      child.unsafe().closeForcibly();
+    }
+    if (delay > 0L && ctx.channel().config().isAutoRead()) {
+      this.paused.increment();
+      ctx.channel().config().setAutoRead(false);
+      ctx.executor().schedule(() -> ctx.channel().config().setAutoRead(true), delay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private boolean admit(@NotNull final Channel child) {
+    final Runnable release = this.reserve(child.remoteAddress());
+    if (release == null) {
+      return false;
+    }
+    child.closeFuture().addListener(future -> release.run());
+    return true;
+  }
+
+  @Nullable
+  private Runnable reserve(@Nullable final SocketAddress remote) {
+    final int maxSessions = this.maxSessions;
+    if (this.sessions.incrementAndGet() > maxSessions && maxSessions > 0) {
+      this.sessions.decrementAndGet();
+      return null;
+    }
+    final int maxSessionsPerAddress = this.maxSessionsPerAddress;
+    final InetAddress address = maxSessionsPerAddress > 0 && remote instanceof InetSocketAddress
+      ? ((InetSocketAddress) remote).getAddress()
+      : null;
+    if (address != null && this.addresses.merge(address, 1, Integer::sum) > maxSessionsPerAddress) {
+      this.release(address);
+      return null;
+    }
+    return () -> this.release(address);
+  }
+
+  private void release(@Nullable final InetAddress address) {
+    this.sessions.decrementAndGet();
+    if (address != null) {
+      this.addresses.computeIfPresent(address, (key, count) -> count == 1 ? null : count - 1);
+    }
+  }
+
+  private synchronized boolean tryTake() {
+    final int rate = this.maxAcceptRate;
+    if (rate <= 0) {
+      return true;
+    }
+    final long now = System.nanoTime();
+    final long full = now - AdmissionControl.BURST_NANOS;
+    final long due = (this.due - full > 0L ? this.due : full) + TimeUnit.SECONDS.toNanos(1L) / rate;
+    if (due - now > 0L) {
+      return false;
+    }
+    this.due = due;
+    return true;
+  }
+
+  private synchronized long take() {
+    final int rate = this.maxAcceptRate;
+    if (rate <= 0) {
+      return 0L;
+    }
+    final long now = System.nanoTime();
+    final long full = now - AdmissionControl.BURST_NANOS;
+    this.due = (this.due - full > 0L ? this.due : full) + TimeUnit.SECONDS.toNanos(1L) / rate;
+    return this.due - now;
+  }
+}
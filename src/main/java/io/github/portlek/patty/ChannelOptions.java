@@ -0,0 +1,478 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The socket options and threading of the channels a {@link Patty} opens.
+ */
+public final class ChannelOptions {
+
+  @NotNull
+  private final Map<ChannelOption<?>, Object> serverOptions;
+
+  @NotNull
+  private final Map<ChannelOption<?>, Object> options;
+
+  @NotNull
+  private final Map<ChannelOption<?>, Object> epollServerOptions;
+
+  @NotNull
+  private final Map<ChannelOption<?>, Object> epollOptions;
+
+  private final int acceptors;
+
+  private final int eventLoopThreads;
+
+  private final boolean busyWait;
+
+  private final long dispatchSpinNanos;
+
+  private ChannelOptions(@NotNull final Builder builder) {
+    this.acceptors = builder.acceptors;
+    this.eventLoopThreads = builder.eventLoopThreads;
+    this.busyWait = builder.busyWait;
+    this.dispatchSpinNanos = builder.dispatchSpinNanos;
+    this.serverOptions = Collections.unmodifiableMap(new LinkedHashMap<>(builder.serverOptions));
+    this.options = Collections.unmodifiableMap(new LinkedHashMap<>(builder.options));
+    this.epollServerOptions = Collections.unmodifiableMap(new LinkedHashMap<>(builder.epollServerOptions));
+    this.epollOptions = Collections.unmodifiableMap(new LinkedHashMap<>(builder.epollOptions));
+  }
+
+  @NotNull
+  public static ChannelOptions defaults() {
+    return ChannelOptions.builder().build();
+  }
+
+  @NotNull
+  public static Builder builder() {
+    return new Builder()
+      .tcpNoDelay(true)
+      .ipTos(0x18)
+      .backlog(1024)
+      .tcpQuickAck(true);
+  }
+
+  /**
+   * Creates a builder of the low-latency profile.
+   *
+   * @return a builder of the low-latency profile.
+   */
+  @NotNull
+  public static Builder lowLatency() {
+    return ChannelOptions.builder()
+      .eventLoopThreads(1)
+      .busyPoll(50)
+      .dispatchSpin(TimeUnit.MILLISECONDS.toNanos(1L));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void option(@NotNull final AbstractBootstrap<?, ?> bootstrap, @NotNull final ChannelOption<T> option,
+                                 @NotNull final Object value) {
+    bootstrap.option(option, (T) value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void childOption(@NotNull final ServerBootstrap bootstrap, @NotNull final ChannelOption<T> option,
+                                      @NotNull final Object value) {
+    bootstrap.childOption(option, (T) value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void option(@NotNull final Channel channel, @NotNull final ChannelOption<T> option,
+                                 @NotNull final Object value) {
+    channel.config().setOption(option, (T) value);
+  }
+
+  private static boolean isInet(@NotNull final ChannelOption<?> option) {
+    final String name = option.name().substring(option.name().lastIndexOf('#') + 1);
+    return name.startsWith("TCP_") || name.startsWith("IP_") || option == ChannelOption.SO_KEEPALIVE ||
+      option == EpollChannelOption.SO_REUSEPORT || option == EpollChannelOption.SO_BUSY_POLL;
+  }
+
+  public void apply(@NotNull final ServerBootstrap bootstrap) {
+    this.apply(bootstrap, Epoll.isAvailable());
+  }
+
+  public void apply(@NotNull final Bootstrap bootstrap) {
+    this.apply(bootstrap, Epoll.isAvailable());
+  }
+
+  void apply(@NotNull final ServerBootstrap bootstrap, final boolean epoll) {
+    this.serverOptions.forEach((option, value) -> ChannelOptions.option(bootstrap, option, value));
+    this.options.forEach((option, value) -> ChannelOptions.childOption(bootstrap, option, value));
+    if (epoll) {
+      this.epollServerOptions.forEach((option, value) -> ChannelOptions.option(bootstrap, option, value));
+      this.epollOptions.forEach((option, value) -> ChannelOptions.childOption(bootstrap, option, value));
+    }
+  }
+
+  void apply(@NotNull final Bootstrap bootstrap, final boolean epoll) {
+    this.options.forEach((option, value) -> ChannelOptions.option(bootstrap, option, value));
+    if (epoll) {
+      this.epollOptions.forEach((option, value) -> ChannelOptions.option(bootstrap, option, value));
+    }
+  }
+
+  /**
+   * Applies the options to a bootstrap of Unix domain sockets, skipping the options of the TCP/IP stack, which those
+   * sockets do not support.
+   *
+   * @param bootstrap the bootstrap to apply.
+   */
+  public void applyDomain(@NotNull final ServerBootstrap bootstrap) {
+    this.serverOptions.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.option(bootstrap, option, value);
+      }
+    });
+    this.options.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.childOption(bootstrap, option, value);
+      }
+    });
+    this.epollServerOptions.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.option(bootstrap, option, value);
+      }
+    });
+    this.epollOptions.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.childOption(bootstrap, option, value);
+      }
+    });
+  }
+
+  public void applyDomain(@NotNull final Bootstrap bootstrap) {
+    this.options.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.option(bootstrap, option, value);
+      }
+    });
+    this.epollOptions.forEach((option, value) -> {
+      if (!ChannelOptions.isInet(option)) {
+        ChannelOptions.option(bootstrap, option, value);
+      }
+    });
+  }
+
+  /**
+   * Applies the connection options to a channel that is not yet bound, skipping the ones the channel does not
+   * support, such as the TCP options on a datagram channel.
+   *
+   * @param channel the channel to apply.
+   */
+  public void apply(@NotNull final Channel channel) {
+    this.options.forEach((option, value) -> ChannelOptions.option(channel, option, value));
+    if (Epoll.isAvailable()) {
+      this.epollOptions.forEach((option, value) -> ChannelOptions.option(channel, option, value));
+    }
+  }
+
+  @NotNull
+  public EventLoopGroup newEventLoopGroup() {
+    return this.newEventLoopGroup(Epoll.isAvailable());
+  }
+
+  @NotNull
+  EventLoopGroup newEventLoopGroup(final boolean epoll) {
+    if (!epoll) {
+      return new NioEventLoopGroup(this.eventLoopThreads);
+    }
+    if (this.busyWait) {
+      return new EpollEventLoopGroup(this.eventLoopThreads,
+        () -> (selectSupplier, hasTasks) -> SelectStrategy.BUSY_WAIT);
+    }
+    return new EpollEventLoopGroup(this.eventLoopThreads);
+  }
+
+  /**
+   * Obtains how long a packet handler thread spins on an empty queue before it blocks.
+   *
+   * @return the nanoseconds to spin, {@code 0} to block right away.
+   */
+  public long getDispatchSpinNanos() {
+    return this.dispatchSpinNanos;
+  }
+
+  /**
+   * Obtains the number of listening sockets a server binds to its port, only more than one on epoll.
+   *
+   * @return the number of listening sockets.
+   */
+  public int getAcceptors() {
+    return this.getAcceptors(Epoll.isAvailable());
+  }
+
+  int getAcceptors(final boolean epoll) {
+    return epoll ? this.acceptors : 1;
+  }
+
+  @NotNull
+  public Map<ChannelOption<?>, Object> getServerOptions() {
+    return this.serverOptions;
+  }
+
+  @NotNull
+  public Map<ChannelOption<?>, Object> getOptions() {
+    return this.options;
+  }
+
+  @NotNull
+  public Map<ChannelOption<?>, Object> getEpollServerOptions() {
+    return this.epollServerOptions;
+  }
+
+  @NotNull
+  public Map<ChannelOption<?>, Object> getEpollOptions() {
+    return this.epollOptions;
+  }
+
+  public static final class Builder {
+
+    private final Map<ChannelOption<?>, Object> serverOptions = new LinkedHashMap<>();
+
+    private final Map<ChannelOption<?>, Object> options = new LinkedHashMap<>();
+
+    private final Map<ChannelOption<?>, Object> epollServerOptions = new LinkedHashMap<>();
+
+    private final Map<ChannelOption<?>, Object> epollOptions = new LinkedHashMap<>();
+
+    private int acceptors = 1;
+
+    private int eventLoopThreads = 0;
+
+    private boolean busyWait = false;
+
+    private long dispatchSpinNanos = 0L;
+
+    private Builder() {
+    }
+
+    @NotNull
+    public <T> Builder serverOption(@NotNull final ChannelOption<T> option, @NotNull final T value) {
+      this.serverOptions.put(option, value);
+      return this;
+    }
+
+    @NotNull
+    public <T> Builder option(@NotNull final ChannelOption<T> option, @NotNull final T value) {
+      this.options.put(option, value);
+      return this;
+    }
+
+    @NotNull
+    public <T> Builder epollServerOption(@NotNull final ChannelOption<T> option, @NotNull final T value) {
+      this.epollServerOptions.put(option, value);
+      return this;
+    }
+
+    @NotNull
+    public <T> Builder epollOption(@NotNull final ChannelOption<T> option, @NotNull final T value) {
+      this.epollOptions.put(option, value);
+      return this;
+    }
+
+    @NotNull
+    public Builder remove(@NotNull final ChannelOption<?> option) {
+      this.serverOptions.remove(option);
+      this.options.remove(option);
+      this.epollServerOptions.remove(option);
+      this.epollOptions.remove(option);
+      return this;
+    }
+
+    @NotNull
+    public Builder tcpNoDelay(final boolean noDelay) {
+      return this.option(ChannelOption.TCP_NODELAY, noDelay);
+    }
+
+    @NotNull
+    public Builder ipTos(final int tos) {
+      return this.option(ChannelOption.IP_TOS, tos);
+    }
+
+    @NotNull
+    public Builder keepAlive(final boolean keepAlive) {
+      return this.option(ChannelOption.SO_KEEPALIVE, keepAlive);
+    }
+
+    @NotNull
+    public Builder receiveBufferSize(final int size) {
+      this.serverOption(ChannelOption.SO_RCVBUF, size);
+      return this.option(ChannelOption.SO_RCVBUF, size);
+    }
+
+    @NotNull
+    public Builder sendBufferSize(final int size) {
+      return this.option(ChannelOption.SO_SNDBUF, size);
+    }
+
+    @NotNull
+    public Builder writeBufferWaterMark(final int low, final int high) {
+      return this.option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(low, high));
+    }
+
+    @NotNull
+    public Builder allocator(@NotNull final ByteBufAllocator allocator) {
+      this.serverOption(ChannelOption.ALLOCATOR, allocator);
+      return this.option(ChannelOption.ALLOCATOR, allocator);
+    }
+
+    @NotNull
+    public Builder backlog(final int backlog) {
+      return this.serverOption(ChannelOption.SO_BACKLOG, backlog);
+    }
+
+    @NotNull
+    public Builder reuseAddress(final boolean reuseAddress) {
+      return this.serverOption(ChannelOption.SO_REUSEADDR, reuseAddress);
+    }
+
+    @NotNull
+    public Builder tcpQuickAck(final boolean quickAck) {
+      return this.epollOption(EpollChannelOption.TCP_QUICKACK, quickAck);
+    }
+
+    /**
+     * Enables TCP Fast Open on the listening socket, needs {@code net.ipv4.tcp_fastopen} to allow it.
+     *
+     * @param pendingRequests the maximum number of pending fast open requests.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder tcpFastOpen(final int pendingRequests) {
+      return this.epollServerOption(EpollChannelOption.TCP_FASTOPEN, pendingRequests);
+    }
+
+    @NotNull
+    public Builder tcpFastOpenConnect(final boolean fastOpen) {
+      return this.epollOption(EpollChannelOption.TCP_FASTOPEN_CONNECT, fastOpen);
+    }
+
+    /**
+     * Limits the unsent bytes in the socket buffer, so writes queue up in the channel, where they can still be
+     * prioritized.
+     *
+     * @param bytes the low water mark of unsent bytes.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder tcpNotSentLowAt(final long bytes) {
+      return this.epollOption(EpollChannelOption.TCP_NOTSENT_LOWAT, bytes);
+    }
+
+    /**
+     * Binds the given number of listening sockets to the same port with {@code SO_REUSEPORT}, each owned by another
+     * event loop, so the kernel spreads incoming connections over them. Only supported on epoll.
+     *
+     * @param acceptors the number of listening sockets.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder reusePort(final int acceptors) {
+      if (acceptors < 1) {
+        throw new IllegalArgumentException("There must be at least one acceptor.");
+      }
+      this.acceptors = acceptors;
+      if (acceptors == 1) {
+        this.epollServerOptions.remove(EpollChannelOption.SO_REUSEPORT);
+        return this;
+      }
+      return this.epollServerOption(EpollChannelOption.SO_REUSEPORT, true);
+    }
+
+    /**
+     * Sets the number of event loop threads the connections of a patty share.
+     *
+     * @param threads the number of threads, {@code 0} for twice the available processors.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder eventLoopThreads(final int threads) {
+      this.eventLoopThreads = threads;
+      return this;
+    }
+
+    /**
+     * Busy-polls the sockets for the given time instead of waiting for interrupts, and lets the epoll event loops
+     * spin instead of sleeping.
+     *
+     * @param micros the microseconds to busy-poll a socket, {@code 0} disables busy-polling.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder busyPoll(final int micros) {
+      this.busyWait = micros > 0;
+      if (micros <= 0) {
+        this.epollOptions.remove(EpollChannelOption.SO_BUSY_POLL);
+        return this;
+      }
+      return this.epollOption(EpollChannelOption.SO_BUSY_POLL, micros);
+    }
+
+    /**
+     * Lets the packet handler thread of each connection spin for the given time on an empty queue before it blocks.
+     *
+     * @param nanos the nanoseconds to spin, {@code 0} blocks right away.
+     *
+     * @return the builder.
+     */
+    @NotNull
+    public Builder dispatchSpin(final long nanos) {
+      this.dispatchSpinNanos = Math.max(0L, nanos);
+      return this;
+    }
+
+    @NotNull
+    public ChannelOptions build() {
+      return new ChannelOptions(this);
+    }
+  }
+}
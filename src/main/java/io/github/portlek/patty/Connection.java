@@ -25,33 +25,58 @@
 
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.github.portlek.patty.metrics.PacketTrace;
+import io.github.portlek.patty.metrics.PipelineObserver;
+import io.github.portlek.patty.metrics.TracePoint;
+import io.github.portlek.patty.metrics.TracedChannelPromise;
 import io.github.portlek.patty.tcp.pipeline.TcpPacketCompressor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketMultiplexer;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketScheduler;
+import io.github.portlek.patty.tcp.pipeline.TcpRateLimiter;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.timeout.ReadTimeoutException;
-import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutException;
-import io.netty.handler.timeout.WriteTimeoutHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketAddress;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
 
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private static final long DRAIN_POLL_MILLIS = 10L;
+
   @NotNull
   public final Patty patty;
 
-  protected final BlockingQueue<Packet> packets = new LinkedBlockingQueue<>();
+  protected final long id = Connection.IDS.incrementAndGet();
+
+  protected final PacketQueue packets = new PacketQueue();
 
   @NotNull
   protected final SocketAddress address;
 
-  protected final EventLoopGroup eventLoop = Epoll.isAvailable() ? new EpollEventLoopGroup() : new NioEventLoopGroup();
+  protected final PacketSizeEstimator sizeEstimator = new PacketSizeEstimator();
+
+  protected final TcpPacketMultiplexer.Streams streams = new TcpPacketMultiplexer.Streams();
+
+  protected final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+
+  protected final EventLoopGroup eventLoop;
+
+  @Nullable
+  protected final ConnectionMetrics metrics;
 
   public int readTimeout = 30;
 
@@ -59,39 +84,100 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
 
   public int compressionThreshold = -1;
 
+  public int heartbeatInterval = 0;
+
   @Nullable
   protected Channel channel;
 
+  @Nullable
+  private volatile Connection datagramConnection;
+
   protected boolean disconnected = false;
 
+  @Nullable
+  private volatile PendingRequests requests;
+
+  private int maxRequests = 4096;
+
+  private volatile long packetsSent;
+
+  private volatile long roundTripNanos = -1L;
+
+  private volatile long roundTripJitterNanos = -1L;
+
   @Nullable
   private Thread packetHandleThread;
 
+  private final AtomicBoolean sharedEventLoop = new AtomicBoolean();
+
   protected Connection(@NotNull final Patty patty, @NotNull final SocketAddress address) {
+    this(patty, address, patty.acquireEventLoopGroup());
+    this.sharedEventLoop.set(true);
+  }
+
+  protected Connection(@NotNull final Patty patty, @NotNull final SocketAddress address,
+                       @NotNull final EventLoopGroup eventLoop) {
     this.patty = patty;
     this.address = address;
+    this.eventLoop = eventLoop;
+    this.metrics = patty.metrics.create(this);
   }
 
   public void sendPacket(@NotNull final Packet packet) {
-    if (this.channel == null) {
-      return;
+    this.send(packet, packet);
+  }
+
+  /**
+   * Sends the encoded bytes of a frozen packet, the listeners see the packet it wraps.
+   */
+  public void sendPacket(@NotNull final FrozenPacket packet) {
+    if (packet.getPacket().getFlags() != 0) {
+      throw new IllegalStateException("A frozen packet can not be sent as a request or response.");
     }
-    final boolean cancelled;
-    final ConnectionListener connectionListener = this.patty.protocol.getConnectionListener();
-    if (connectionListener != null) {
-      cancelled = !connectionListener.packetSending(packet, this);
-    } else {
-      cancelled = true;
+    this.send(packet.getPacket(), packet);
+  }
+
+  @NotNull
+  public <T extends Packet> CompletableFuture<T> request(@NotNull final Packet packet) {
+    return this.request(packet, 30L, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Sends a request, the future completes on the event loop with the packet the peer {@link #respond(Packet, Packet)
+   * responds} with.
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public <T extends Packet> CompletableFuture<T> request(@NotNull final Packet packet, final long timeout,
+                                                        @NotNull final TimeUnit unit) {
+    final Connection datagramConnection = this.datagramConnection;
+    if (datagramConnection != null && !packet.isReliable() && datagramConnection.isConnected()) {
+      return datagramConnection.request(packet, timeout, unit);
     }
-    if (!cancelled) {
-      this.channel.writeAndFlush(packet).addListener(future -> {
-        if (future.isSuccess()) {
-          connectionListener.packetSent(packet, this);
-        } else {
-          this.exceptionCaught(null, future.cause());
-        }
-      });
+    if (!this.isConnected()) {
+      final CompletableFuture<T> future = new CompletableFuture<>();
+      future.completeExceptionally(new IOException("Connection is not connected."));
+      return future;
+    }
+    final CompletableFuture<Packet> future = this.getRequests().add(packet, timeout, unit);
+    if (!future.isDone()) {
+      this.sendPacket(packet);
     }
+    return (CompletableFuture<T>) future;
+  }
+
+  public void respond(@NotNull final Packet request, @NotNull final Packet response) {
+    response.setCorrelation(PacketRegistry.RESPONSE, request.getCorrelationId());
+    this.sendPacket(response);
+  }
+
+  public void setMaxRequests(final int maxRequests) {
+    this.maxRequests = maxRequests;
+  }
+
+  public int getRequestsInFlight() {
+    final PendingRequests requests = this.requests;
+    return requests == null ? 0 : requests.getInFlight();
   }
 
   public void disconnect(@NotNull final String reason) {
@@ -103,6 +189,17 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
       return;
     }
     this.disconnected = true;
+    if (this.metrics != null) {
+      this.metrics.close();
+    }
+    final PipelineObserver observer = this.patty.metrics.getObserver();
+    if (observer != null) {
+      observer.disconnected(this, reason, cause);
+    }
+    final PendingRequests requests = this.requests;
+    if (requests != null) {
+      requests.failAll(new IOException(reason, cause));
+    }
     if (this.packetHandleThread != null) {
       this.packetHandleThread.interrupt();
       this.packetHandleThread = null;
@@ -112,7 +209,7 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
       if (connectionListener != null) {
         connectionListener.disconnecting(this, reason, cause);
       }
-      this.channel.flush().close().addListener(future -> {
+      this.closeChannel(this.channel).addListener(future -> {
         if (connectionListener != null) {
           connectionListener.disconnected(this, reason, cause);
         }
@@ -123,6 +220,25 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
     this.channel = null;
   }
 
+  /**
+   * Handles the received packets and flushes the written ones before disconnecting, at the latest at the
+   * {@link System#nanoTime()} deadline.
+   */
+  @NotNull
+  public CompletableFuture<DrainReport> drain(@NotNull final String reason, final long deadline) {
+    final CompletableFuture<DrainReport> future = new CompletableFuture<>();
+    final Channel channel = this.channel;
+    if (channel == null || this.disconnected) {
+      future.complete(DrainReport.EMPTY);
+      return future;
+    }
+    channel.eventLoop().execute(() -> {
+      channel.flush();
+      this.awaitDrained(channel, reason, deadline, this.packets.getHandled() + this.packetsSent, -1L, future);
+    });
+    return future;
+  }
+
   public void connect() {
     this.connect(true);
   }
@@ -137,19 +253,100 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
   public void close(final boolean wait) {
   }
 
+  /**
+   * Stops a server connection from admitting new sessions while the admitted ones keep running.
+   */
+  public void unbind() {
+  }
+
+  @NotNull
+  protected Future<?> releaseEventLoop() {
+    if (!this.sharedEventLoop.compareAndSet(true, false)) {
+      return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+    }
+    return this.patty.releaseEventLoopGroup(this.eventLoop);
+  }
+
+  @Nullable
+  public Connection getDatagramConnection() {
+    return this.datagramConnection;
+  }
+
+  /**
+   * Attaches a datagram connection to the same peer that sends the packets which are not
+   * {@link Packet#isReliable() reliable}.
+   */
+  public void setDatagramConnection(@Nullable final Connection datagramConnection) {
+    this.datagramConnection = datagramConnection;
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  @NotNull
+  public PacketSizeEstimator getSizeEstimator() {
+    return this.sizeEstimator;
+  }
+
+  @Nullable
+  public ConnectionMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  public long getRoundTripNanos() {
+    return this.roundTripNanos;
+  }
+
+  public long getRoundTripJitterNanos() {
+    return this.roundTripJitterNanos;
+  }
+
+  /**
+   * Adds a round-trip sample, weighed by 1/8 into the round-trip time and by 1/4 into the jitter as TCP does.
+   */
+  public void recordRoundTrip(final long nanos) {
+    final long rtt = this.roundTripNanos;
+    if (rtt < 0L) {
+      this.roundTripNanos = nanos;
+      this.roundTripJitterNanos = nanos / 2L;
+    } else {
+      final long jitter = this.roundTripJitterNanos;
+      this.roundTripJitterNanos = jitter - (jitter >> 2) + (Math.abs(rtt - nanos) >> 2);
+      this.roundTripNanos = rtt - (rtt >> 3) + (nanos >> 3);
+    }
+  }
+
+  public int getQueuedPackets() {
+    return this.packets.size();
+  }
+
   public boolean isConnected() {
     return this.channel != null && this.channel.isOpen() && !this.disconnected;
   }
 
   @Override
   public void channelRead0(final ChannelHandlerContext ctx, final Packet packet) {
-    if (packet.hasPriority()) {
-      final ConnectionListener connectionListener = this.patty.protocol.getConnectionListener();
-      if (connectionListener != null) {
-        connectionListener.packetReceived(packet, this);
+    if (packet.isResponse()) {
+      final PendingRequests requests = this.requests;
+      if (requests != null) {
+        requests.complete(packet);
       }
+      packet.handled();
+      return;
+    }
+    if (packet.hasPriority()) {
+      this.handlePacket(this.patty.protocol.getConnectionListener(), packet);
     } else {
+      final PacketTrace trace = packet.getTrace();
+      if (trace != null) {
+        trace.mark(TracePoint.ENQUEUED);
+      }
       this.packets.add(packet);
+      if (this.metrics != null) {
+        this.metrics.queued(this.packets.size());
+      }
+      this.packetQueued();
     }
   }
 
@@ -160,20 +357,11 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
       return;
     }
     this.channel = ctx.channel();
+    if (this.metrics != null) {
+      this.metrics.open();
+    }
     final ConnectionListener connectionListener = this.patty.protocol.getConnectionListener();
-    this.packetHandleThread = new Thread(() -> {
-      try {
-        Packet packet;
-        while ((packet = this.packets.take()) != null) {
-          if (connectionListener != null) {
-            connectionListener.packetReceived(packet, this);
-          }
-        }
-      } catch (final Throwable t) {
-        this.exceptionCaught(null, t);
-      }
-    });
-    this.packetHandleThread.start();
+    this.startPacketHandler(connectionListener);
     if (connectionListener != null) {
       connectionListener.connected(this);
     }
@@ -186,6 +374,18 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
     }
   }
 
+  @Override
+  public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+    if (this.metrics != null) {
+      this.metrics.increment(MetricCounter.WRITABILITY_CHANGES);
+    }
+    final PipelineObserver observer = this.patty.metrics.getObserver();
+    if (observer != null) {
+      observer.writabilityChanged(this, ctx.channel().isWritable());
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
   @Override
   public void exceptionCaught(@Nullable final ChannelHandlerContext ctx, @NotNull final Throwable cause) {
     final String message;
@@ -209,13 +409,65 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
     }
     if (this.compressionThreshold >= 0) {
       if (this.channel.pipeline().get("compression") == null) {
-        this.channel.pipeline().addBefore("codec", "compression", new TcpPacketCompressor(this));
+        this.channel.pipeline().addAfter("sizer", "compression", new TcpPacketCompressor(this));
       }
     } else if (this.channel.pipeline().get("compression") != null) {
       this.channel.pipeline().remove("compression");
     }
   }
 
+  /**
+   * Enables multiplexing the {@link Packet#getStream() streams} of this connection, both peers must enable it.
+   */
+  public void setStreamChunkSize(final int chunkSize) {
+    if (this.channel == null) {
+      this.streams.setChunkSize(chunkSize);
+      return;
+    }
+    if (chunkSize > 0) {
+      if (this.channel.pipeline().get("multiplexer") == null) {
+        this.channel.pipeline().addAfter(this.channel.pipeline().get("compression") == null ? "sizer" : "compression",
+          "multiplexer", new TcpPacketMultiplexer(this.streams));
+      }
+      this.streams.setChunkSize(chunkSize);
+    } else {
+      this.streams.setChunkSize(chunkSize);
+      if (this.channel.pipeline().get("multiplexer") != null) {
+        this.channel.pipeline().remove("multiplexer");
+      }
+    }
+  }
+
+  public boolean isMultiplexed() {
+    return this.streams.isEnabled();
+  }
+
+  public void setStreamWeight(final int stream, final int weight) {
+    this.streams.setWeight(stream, weight);
+  }
+
+  public void setReadRate(final int packetsPerSecond, final int bytesPerSecond) {
+    this.limits.setRead(packetsPerSecond, bytesPerSecond);
+    this.refreshRateLimiter();
+  }
+
+  public void setWriteRate(final int packetsPerSecond, final int bytesPerSecond) {
+    this.limits.setWrite(packetsPerSecond, bytesPerSecond);
+    this.refreshRateLimiter();
+  }
+
+  public void setPacketWeight(final int id, final int weight) {
+    this.limits.setWeight(id, weight);
+  }
+
+  /**
+   * Sets the seconds the link may stay idle before the peer is pinged, {@code 0} only answers the pings of the peer.
+   */
+  public void setHeartbeatInterval(final int interval) {
+    this.heartbeatInterval = interval;
+    this.refreshReadTimeoutHandler();
+  }
+
   public void setWriteTimeout(final int timeout) {
     this.writeTimeout = timeout;
     this.refreshWriteTimeoutHandler();
@@ -226,6 +478,82 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
     this.refreshReadTimeoutHandler();
   }
 
+  protected void inheritSettings(@NotNull final Connection server) {
+    this.readTimeout = server.readTimeout;
+    this.writeTimeout = server.writeTimeout;
+    this.compressionThreshold = server.compressionThreshold;
+    this.heartbeatInterval = server.heartbeatInterval;
+    this.maxRequests = server.maxRequests;
+    this.streams.copy(server.streams);
+    this.limits.copy(server.limits);
+  }
+
+  @NotNull
+  protected Object toMessage(@NotNull final Object message) {
+    return message;
+  }
+
+  @NotNull
+  protected ChannelFuture closeChannel(@NotNull final Channel channel) {
+    return channel.flush().close();
+  }
+
+  protected void startPacketHandler(@Nullable final ConnectionListener connectionListener) {
+    final long spinNanos = this.patty.getChannelOptions().getDispatchSpinNanos();
+    this.packetHandleThread = new Thread(() -> {
+      try {
+        Packet packet;
+        while ((packet = this.nextPacket(spinNanos)) != null) {
+          try {
+            this.handlePacket(connectionListener, packet);
+          } finally {
+            this.packets.done();
+          }
+        }
+      } catch (final Throwable t) {
+        this.exceptionCaught(null, t);
+      }
+    });
+    this.packetHandleThread.start();
+  }
+
+  protected void packetQueued() {
+  }
+
+  /**
+   * Handles the packet queued first on the calling thread, for connections whose packets are handled by a shared
+   * dispatcher.
+   */
+  protected final boolean handleQueuedPacket() {
+    final Packet packet = this.packets.poll();
+    if (packet == null) {
+      return false;
+    }
+    try {
+      this.handlePacket(this.patty.protocol.getConnectionListener(), packet);
+    } catch (final Throwable t) {
+      this.exceptionCaught(null, t);
+    } finally {
+      this.packets.done();
+    }
+    return true;
+  }
+
+  protected void refreshRateLimiter() {
+    if (this.channel != null) {
+      this.refreshRateLimiter(this.channel);
+    }
+  }
+
+  protected void refreshRateLimiter(@NotNull final Channel channel) {
+    final boolean limited = this.limits.isLimited();
+    if (limited && channel.pipeline().get("limiter") == null) {
+      channel.pipeline().addBefore("codec", "limiter", new TcpRateLimiter(this, this.limits));
+    } else if (!limited && channel.pipeline().get("limiter") != null) {
+      channel.pipeline().remove("limiter");
+    }
+  }
+
   protected void refreshWriteTimeoutHandler() {
     if (this.channel != null) {
       this.refreshWriteTimeoutHandler(this.channel);
@@ -239,30 +567,153 @@ public abstract class Connection extends SimpleChannelInboundHandler<Packet> {
   }
 
   protected void refreshReadTimeoutHandler(@NotNull final Channel channel) {
-    if (this.readTimeout <= 0) {
-      if (channel.pipeline().get("readTimeout") != null) {
-        channel.pipeline().remove("readTimeout");
-      }
+    this.addIdleHandler(channel);
+  }
+
+  protected void refreshWriteTimeoutHandler(@NotNull final Channel channel) {
+    this.addIdleHandler(channel);
+  }
+
+  private void send(@NotNull final Packet packet, @NotNull final Object message) {
+    final Connection datagramConnection = this.datagramConnection;
+    if (datagramConnection != null && !packet.isReliable() && datagramConnection.isConnected()) {
+      datagramConnection.send(packet, message);
       return;
     }
-    if (channel.pipeline().get("readTimeout") == null) {
-      channel.pipeline().addFirst("readTimeout", new ReadTimeoutHandler(this.readTimeout));
-    } else {
-      channel.pipeline().replace("readTimeout", "readTimeout", new ReadTimeoutHandler(this.readTimeout));
+    if (this.channel == null) {
+      return;
+    }
+    final ConnectionListener connectionListener = this.patty.protocol.getConnectionListener();
+    final boolean cancelled = connectionListener != null && !connectionListener.packetSending(packet, this);
+    if (!cancelled) {
+      final PacketTrace trace;
+      final ChannelPromise promise;
+      if (this.metrics == null) {
+        trace = null;
+        promise = this.channel.newPromise();
+      } else {
+        trace = this.metrics.traceOutbound(packet.getId());
+        promise = trace == null ? this.channel.newPromise() : new TracedChannelPromise(this.channel, trace);
+      }
+      this.channel.writeAndFlush(this.toMessage(message), promise).addListener(future -> {
+        if (future.isSuccess()) {
+          this.packetsSent++;
+          if (trace != null) {
+            trace.mark(TracePoint.FLUSHED);
+            trace.complete();
+          }
+          if (connectionListener != null) {
+            connectionListener.packetSent(packet, this);
+          }
+        } else {
+          this.exceptionCaught(null, future.cause());
+        }
+      });
     }
   }
 
-  protected void refreshWriteTimeoutHandler(@NotNull final Channel channel) {
-    if (this.writeTimeout <= 0) {
-      if (channel.pipeline().get("writeTimeout") != null) {
-        channel.pipeline().remove("writeTimeout");
+  @NotNull
+  private PendingRequests getRequests() {
+    PendingRequests requests = this.requests;
+    if (requests == null) {
+      synchronized (this) {
+        requests = this.requests;
+        if (requests == null) {
+          this.requests = requests = new PendingRequests(this.maxRequests);
+        }
       }
+    }
+    return requests;
+  }
+
+  @NotNull
+  private Packet nextPacket(final long spinNanos) throws InterruptedException {
+    if (spinNanos <= 0L) {
+      return this.packets.take();
+    }
+    Packet packet = this.packets.poll();
+    if (packet != null) {
+      return packet;
+    }
+    final long deadline = System.nanoTime() + spinNanos;
+    do {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      packet = this.packets.poll();
+      if (packet != null) {
+        return packet;
+      }
+    } while (System.nanoTime() - deadline < 0L);
+    return this.packets.take();
+  }
+
+  private void awaitDrained(@NotNull final Channel channel, @NotNull final String reason, final long deadline,
+                            final long done, final long received,
+                            @NotNull final CompletableFuture<DrainReport> future) {
+    final int remaining = channel.isActive() ? this.getBacklog(channel) : this.packets.getUnfinished();
+    final long now = this.packets.getHandled() + this.packets.getUnfinished();
+    final boolean timedOut = System.nanoTime() - deadline >= 0L;
+    if ((remaining > 0 || now != received) && !timedOut && channel.isActive()) {
+      channel.eventLoop().schedule(() -> this.awaitDrained(channel, reason, deadline, done, now, future),
+        Connection.DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
       return;
     }
-    if (channel.pipeline().get("writeTimeout") == null) {
-      channel.pipeline().addFirst("writeTimeout", new WriteTimeoutHandler(this.writeTimeout));
+    final long flushed = this.packets.getHandled() + this.packetsSent - done;
+    this.disconnect(reason);
+    future.complete(new DrainReport(1, flushed, remaining, remaining > 0 && timedOut ? 1 : 0));
+  }
+
+  private int getBacklog(@NotNull final Channel channel) {
+    int backlog = this.packets.getUnfinished();
+    final ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+    if (buffer != null) {
+      backlog += buffer.size();
+    }
+    final TcpPacketScheduler scheduler = channel.pipeline().get(TcpPacketScheduler.class);
+    if (scheduler != null) {
+      backlog += scheduler.getQueued();
+    }
+    final TcpRateLimiter limiter = channel.pipeline().get(TcpRateLimiter.class);
+    if (limiter != null) {
+      backlog += limiter.getQueued();
+    }
+    final TcpPacketMultiplexer multiplexer = channel.pipeline().get(TcpPacketMultiplexer.class);
+    if (multiplexer != null) {
+      backlog += multiplexer.getQueued();
+    }
+    return backlog;
+  }
+
+  private void addIdleHandler(@NotNull final Channel channel) {
+    final IdleHandler handler = channel.pipeline().get(IdleHandler.class);
+    if (handler == null) {
+      channel.pipeline().addFirst("idle", new IdleHandler(this));
     } else {
-      channel.pipeline().replace("writeTimeout", "writeTimeout", new WriteTimeoutHandler(this.writeTimeout));
+      handler.refresh();
+    }
+  }
+
+  private void handlePacket(@Nullable final ConnectionListener connectionListener, @NotNull final Packet packet) {
+    final PacketTrace trace = packet.getTrace();
+    final PipelineObserver observer = this.patty.metrics.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.DISPATCH);
+    if (trace != null) {
+      trace.mark(TracePoint.LISTENER_START);
+    }
+    try {
+      if (connectionListener != null) {
+        connectionListener.packetReceived(packet, this);
+      }
+    } finally {
+      packet.handled();
+    }
+    if (trace != null) {
+      trace.mark(TracePoint.LISTENER_END);
+      trace.complete();
+    }
+    if (event != null) {
+      observer.end(event, this, packet.getId(), 0, 0);
     }
   }
 }
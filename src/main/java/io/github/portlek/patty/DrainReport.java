@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The outcome of draining connections before they are disconnected.
+ */
+public final class DrainReport {
+
+  public static final DrainReport EMPTY = new DrainReport(0, 0L, 0L, 0);
+
+  private final int sessions;
+
+  private final long flushed;
+
+  private final long dropped;
+
+  private final int timedOut;
+
+  public DrainReport(final int sessions, final long flushed, final long dropped, final int timedOut) {
+    this.sessions = sessions;
+    this.flushed = flushed;
+    this.dropped = dropped;
+    this.timedOut = timedOut;
+  }
+
+  public int getSessions() {
+    return this.sessions;
+  }
+
+  public long getFlushed() {
+    return this.flushed;
+  }
+
+  public long getDropped() {
+    return this.dropped;
+  }
+
+  /**
+   * Obtains the number of sessions whose backlog was not cleared by the deadline.
+   *
+   * @return the number of timed out sessions.
+   */
+  public int getTimedOut() {
+    return this.timedOut;
+  }
+
+  @NotNull
+  public DrainReport add(@NotNull final DrainReport report) {
+    return new DrainReport(this.sessions + report.sessions, this.flushed + report.flushed,
+      this.dropped + report.dropped, this.timedOut + report.timedOut);
+  }
+
+  @Override
+  public String toString() {
+    return "DrainReport{" +
+      "sessions=" + this.sessions +
+      ", flushed=" + this.flushed +
+      ", dropped=" + this.dropped +
+      ", timedOut=" + this.timedOut +
+      '}';
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The id and body of a packet encoded once, sent through any number of connections without encoding it again. Call
+ * {@link #release()} once the packet is no longer sent.
+ */
+public final class FrozenPacket {
+
+  @NotNull
+  private final Packet packet;
+
+  @NotNull
+  private final ByteBuf encoded;
+
+  public FrozenPacket(@NotNull final Connection connection, @NotNull final Packet packet) {
+    if (packet.getFlags() != 0) {
+      throw new IllegalArgumentException("A request or response can not be frozen.");
+    }
+    this.packet = packet;
+    final ByteBuf buf = Unpooled.directBuffer(Math.max(16, packet.estimatedSize(connection) + 5));
+    try {
+      connection.patty.protocol.getHeader().writePacketId(buf, packet.getId());
+      packet.write(buf, connection);
+    } catch (final Throwable t) {
+      buf.release();
+      throw t;
+    }
+    this.encoded = buf.asReadOnly();
+  }
+
+  @NotNull
+  public Packet getPacket() {
+    return this.packet;
+  }
+
+  /**
+   * Obtains the encoded id and body, which the caller must release.
+   *
+   * @return a retained duplicate of the encoded packet.
+   */
+  @NotNull
+  public ByteBuf retainedEncoded() {
+    return this.encoded.retainedDuplicate();
+  }
+
+  public boolean release() {
+    return this.encoded.release();
+  }
+
+  public int getId() {
+    return this.packet.getId();
+  }
+
+  public int getPriority() {
+    return this.packet.getPriority();
+  }
+
+  public boolean isReliable() {
+    return this.packet.isReliable();
+  }
+
+  public int getStream() {
+    return this.packet.getStream();
+  }
+
+  @Override
+  public String toString() {
+    return "FrozenPacket{" + this.packet + '}';
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Detects read and write timeouts and idle links of many connections on one hashed timing wheel.
+ */
+public final class IdleDetector {
+
+  public static final long DEFAULT_TICK_MILLIS = 250L;
+
+  private static final int WHEEL_SIZE = 512;
+
+  private static final long MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(30L);
+
+  private static final IdleDetector SHARED = new IdleDetector(IdleDetector.DEFAULT_TICK_MILLIS);
+
+  private final IdleHandler[] wheel = new IdleHandler[IdleDetector.WHEEL_SIZE];
+
+  private final Queue<IdleHandler> scheduled = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final long tickNanos;
+
+  private final long start = System.nanoTime();
+
+  private long tick;
+
+  @Nullable
+  private ScheduledExecutorService executor;
+
+  public IdleDetector(final long tickMillis) {
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+  }
+
+  /**
+   * Obtains the detector every connection registers with, ticking every {@link #DEFAULT_TICK_MILLIS} milliseconds on a
+   * daemon thread started with the first connection.
+   *
+   * @return the shared detector.
+   */
+  @NotNull
+  public static IdleDetector shared() {
+    return IdleDetector.SHARED;
+  }
+
+  public synchronized void start() {
+    if (this.executor != null) {
+      return;
+    }
+    this.executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("patty-idle", true));
+    this.executor.scheduleAtFixedRate(this::sweep, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public synchronized void stop() {
+    if (this.executor != null) {
+      this.executor.shutdown();
+      this.executor = null;
+    }
+  }
+
+  public void add(@NotNull final IdleHandler handler) {
+    if (this == IdleDetector.SHARED && this.executor == null) {
+      this.start();
+    }
+    if (!handler.registered) {
+      handler.registered = true;
+      this.size.incrementAndGet();
+      this.scheduled.add(handler);
+    }
+  }
+
+  public void remove(@NotNull final IdleHandler handler) {
+    if (handler.registered) {
+      handler.registered = false;
+      this.size.decrementAndGet();
+    }
+  }
+
+  /**
+   * Checks the handler on the next tick, after its timeouts changed.
+   *
+   * @param handler the handler to check.
+   */
+  public void refresh(@NotNull final IdleHandler handler) {
+    if (handler.registered) {
+      this.scheduled.add(handler);
+    }
+  }
+
+  public int size() {
+    return this.size.get();
+  }
+
+  public void sweep() {
+    this.sweep(System.nanoTime());
+  }
+
+  /**
+   * Processes the buckets of every tick up to the given time, only called from one thread at a time.
+   *
+   * @param now the current time.
+   */
+  public void sweep(final long now) {
+    IdleHandler handler;
+    while ((handler = this.scheduled.poll()) != null) {
+      this.unlink(handler);
+      if (handler.registered) {
+        this.schedule(handler, now, now);
+      }
+    }
+    final long target = (now - this.start) / this.tickNanos;
+    for (int count = 0; this.tick < target && count < IdleDetector.WHEEL_SIZE; count++) {
+      final int index = (int) (++this.tick & IdleDetector.WHEEL_SIZE - 1);
+      handler = this.wheel[index];
+      this.wheel[index] = null;
+      while (handler != null) {
+        final IdleHandler next = handler.next;
+        handler.previous = null;
+        handler.next = null;
+        handler.bucket = -1;
+        if (!handler.registered) {
+          handler = next;
+          continue;
+        }
+        if (handler.rounds > 0) {
+          handler.rounds--;
+          this.link(handler, index);
+        } else {
+          try {
+            this.schedule(handler, now, handler.check(now, IdleDetector.MAX_DELAY_NANOS));
+          } catch (final Throwable t) {
+            t.printStackTrace();
+            this.schedule(handler, now, now + IdleDetector.MAX_DELAY_NANOS);
+          }
+        }
+        handler = next;
+      }
+    }
+    this.tick = Math.max(this.tick, target);
+  }
+
+  private void schedule(@NotNull final IdleHandler handler, final long now, final long deadline) {
+    final long ticks = Math.max(1L, (deadline - now + this.tickNanos - 1L) / this.tickNanos);
+    handler.rounds = (int) ((ticks - 1L) / IdleDetector.WHEEL_SIZE);
+    this.link(handler, (int) (this.tick + ticks & IdleDetector.WHEEL_SIZE - 1));
+  }
+
+  private void link(@NotNull final IdleHandler handler, final int index) {
+    final IdleHandler head = this.wheel[index];
+    handler.bucket = index;
+    handler.previous = null;
+    handler.next = head;
+    if (head != null) {
+      head.previous = handler;
+    }
+    this.wheel[index] = handler;
+  }
+
+  private void unlink(@NotNull final IdleHandler handler) {
+    if (handler.bucket < 0) {
+      return;
+    }
+    if (handler.previous == null) {
+      this.wheel[handler.bucket] = handler.next;
+    } else {
+      handler.previous.next = handler.next;
+    }
+    if (handler.next != null) {
+      handler.next.previous = handler.previous;
+    }
+    handler.previous = null;
+    handler.next = null;
+    handler.bucket = -1;
+  }
+}
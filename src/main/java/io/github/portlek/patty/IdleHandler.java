@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.tcp.pipeline.TcpHeartbeatHandler;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutException;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stamps the reads and writes of a connection for the {@link IdleDetector}, in place of a read and a write timeout
+ * handler.
+ */
+public final class IdleHandler extends ChannelDuplexHandler implements ChannelFutureListener {
+
+  @NotNull
+  private final Connection connection;
+
+  @NotNull
+  private final IdleDetector detector;
+
+  @Nullable
+  private volatile ChannelHandlerContext ctx;
+
+  private volatile long lastRead = System.nanoTime();
+
+  private volatile long lastWrite = System.nanoTime();
+
+  private volatile int pendingWrites;
+
+  private long lastHeartbeat = this.lastRead;
+
+  private boolean timedOut;
+
+  volatile boolean registered;
+
+  @Nullable
+  IdleHandler previous;
+
+  @Nullable
+  IdleHandler next;
+
+  int bucket = -1;
+
+  int rounds;
+
+  public IdleHandler(@NotNull final Connection connection) {
+    this(connection, IdleDetector.shared());
+  }
+
+  public IdleHandler(@NotNull final Connection connection, @NotNull final IdleDetector detector) {
+    this.connection = connection;
+    this.detector = detector;
+  }
+
+  @Override
+  public void handlerAdded(final ChannelHandlerContext ctx) {
+    this.ctx = ctx;
+    if (ctx.channel().isActive()) {
+      this.detector.add(this);
+    }
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    this.detector.remove(this);
+  }
+
+  @Override
+  public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+    this.lastRead = System.nanoTime();
+    this.detector.add(this);
+    super.channelActive(ctx);
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+    this.detector.remove(this);
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void channelReadComplete(final ChannelHandlerContext ctx) {
+    this.lastRead = System.nanoTime();
+    ctx.fireChannelReadComplete();
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+    if (promise.isVoid()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    if (this.pendingWrites++ == 0) {
+      this.lastWrite = System.nanoTime();
+    }
+    ctx.write(msg, promise.addListener(this));
+  }
+
+  @Override
+  public void operationComplete(final ChannelFuture future) {
+    this.pendingWrites--;
+    this.lastWrite = System.nanoTime();
+  }
+
+  /**
+   * Checks the stamps against the timeouts of the connection, called by the detector from its own thread.
+   *
+   * @param now the time of the check.
+   * @param maxDelay the longest time until the next check.
+   *
+   * @return the time of the next deadline of the connection.
+   */
+  long check(final long now, final long maxDelay) {
+    final ChannelHandlerContext ctx = this.ctx;
+    long next = now + maxDelay;
+    if (ctx == null) {
+      return next;
+    }
+    final long readTimeout = TimeUnit.SECONDS.toNanos(this.connection.readTimeout);
+    if (readTimeout > 0L) {
+      final long deadline = this.lastRead + readTimeout;
+      if (now - deadline > 0L) {
+        ctx.executor().execute(() -> this.timeout(ctx, ReadTimeoutException.INSTANCE));
+        return next;
+      }
+      next = IdleHandler.earliest(next, deadline);
+    }
+    final long writeTimeout = TimeUnit.SECONDS.toNanos(this.connection.writeTimeout);
+    if (writeTimeout > 0L) {
+      if (this.pendingWrites > 0) {
+        final long deadline = this.lastWrite + writeTimeout;
+        if (now - deadline > 0L) {
+          ctx.executor().execute(() -> this.timeout(ctx, WriteTimeoutException.INSTANCE));
+          return next;
+        }
+        next = IdleHandler.earliest(next, deadline);
+      } else {
+        next = IdleHandler.earliest(next, now + writeTimeout);
+      }
+    }
+    final long interval = TimeUnit.SECONDS.toNanos(this.connection.heartbeatInterval);
+    if (interval > 0L) {
+      final long idle = now - this.lastRead;
+      if (idle >= interval && now - this.lastHeartbeat >= interval) {
+        this.lastHeartbeat = now;
+        final TcpHeartbeatHandler heartbeat = ctx.pipeline().get(TcpHeartbeatHandler.class);
+        if (heartbeat != null) {
+          ctx.executor().execute(heartbeat::check);
+        }
+      }
+      final long since = this.lastRead - this.lastHeartbeat > 0L ? this.lastRead : this.lastHeartbeat;
+      next = IdleHandler.earliest(next, since + interval);
+    }
+    return next;
+  }
+
+  /**
+   * Checks the handler again on the next tick of the detector, after the timeouts of the connection changed.
+   */
+  public void refresh() {
+    this.detector.refresh(this);
+  }
+
+  private static long earliest(final long first, final long second) {
+    return first - second < 0L ? first : second;
+  }
+
+  private void timeout(@NotNull final ChannelHandlerContext ctx, @NotNull final Throwable cause) {
+    if (!this.timedOut && ctx.channel().isActive()) {
+      this.timedOut = true;
+      ctx.fireExceptionCaught(cause);
+      ctx.close();
+    }
+  }
+}
@@ -25,26 +25,138 @@
 
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.metrics.PacketTrace;
 import io.netty.buffer.ByteBuf;
+import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class Packet {
 
+  public static final int LANES = 4;
+
+  public static final int HIGHEST_PRIORITY = 0;
+
+  public static final int DEFAULT_PRIORITY = 2;
+
+  public static final int LOWEST_PRIORITY = Packet.LANES - 1;
+
   private final int id;
 
+  @Nullable
+  private PacketTrace trace;
+
+  @Nullable
+  private Runnable handledTask;
+
+  private int flags;
+
+  private int correlationId;
+
   protected Packet(@NotNull final Class<? extends Packet> cls) {
     this.id = PacketRegistry.getPacketId(PacketRegistry.getPacketId(cls));
   }
 
-  public abstract void read(@NotNull ByteBuf buffer, Connection connection);
+  public abstract void read(@NotNull ByteBuf buffer, Connection connection) throws IOException;
 
   public abstract void write(@NotNull ByteBuf buffer, Connection connection);
 
+  public int estimatedSize(@NotNull final Connection connection) {
+    return -1;
+  }
+
   public boolean hasPriority() {
     return false;
   }
 
+  /**
+   * Obtains the lane the packet is queued in, both when it is sent and when it is received.
+   *
+   * @return the lane from {@link #HIGHEST_PRIORITY} to {@link #LOWEST_PRIORITY}, {@link #HIGHEST_PRIORITY} if the
+   *   packet {@link #hasPriority() has priority} and {@link #DEFAULT_PRIORITY} otherwise.
+   */
+  public int getPriority() {
+    return this.hasPriority() ? Packet.HIGHEST_PRIORITY : Packet.DEFAULT_PRIORITY;
+  }
+
+  /**
+   * Checks if the packet needs ordered and reliable delivery.
+   *
+   * @return {@code false} if the packet may be lost or reordered.
+   */
+  public boolean isReliable() {
+    return true;
+  }
+
+  /**
+   * Obtains the stream the packet is sent on, while the connection multiplexes streams.
+   *
+   * @return the non-negative id of the stream, {@code 0} by default.
+   */
+  public int getStream() {
+    return 0;
+  }
+
   public int getId() {
     return this.id;
   }
+
+  /**
+   * Obtains the {@link PacketRegistry#REQUEST request} or {@link PacketRegistry#RESPONSE response} flag the packet is
+   * sent with.
+   *
+   * @return the flags of the packet, {@code 0} for a plain packet.
+   */
+  public int getFlags() {
+    return this.flags;
+  }
+
+  public int getCorrelationId() {
+    return this.correlationId;
+  }
+
+  public boolean isRequest() {
+    return (this.flags & PacketRegistry.REQUEST) != 0;
+  }
+
+  public boolean isResponse() {
+    return (this.flags & PacketRegistry.RESPONSE) != 0;
+  }
+
+  public void setCorrelation(final int flags, final int correlationId) {
+    this.flags = flags;
+    this.correlationId = correlationId;
+  }
+
+  /**
+   * Obtains the trace of a received packet, present only while tracing is enabled.
+   *
+   * @return the trace of the packet.
+   */
+  @Nullable
+  public PacketTrace getTrace() {
+    return this.trace;
+  }
+
+  public void setTrace(@Nullable final PacketTrace trace) {
+    this.trace = trace;
+  }
+
+  /**
+   * Sets the task to run once the received packet is handled, the multiplexer returns the window of the stream the
+   * packet came on with it.
+   *
+   * @param task the task to run, or {@code null} for none.
+   */
+  public void setHandledTask(@Nullable final Runnable task) {
+    this.handledTask = task;
+  }
+
+  void handled() {
+    final Runnable task = this.handledTask;
+    if (task != null) {
+      this.handledTask = null;
+      task.run();
+    }
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The received packets waiting for the packet handler thread, one queue per {@link Packet#getPriority() priority}.
+ * Any thread may add packets, only one thread may take them.
+ */
+public final class PacketQueue {
+
+  private final Queue<Packet>[] lanes;
+
+  private final Semaphore available = new Semaphore(0);
+
+  private final AtomicInteger unfinished = new AtomicInteger();
+
+  private volatile long handled;
+
+  @SuppressWarnings("unchecked")
+  public PacketQueue() {
+    this.lanes = (Queue<Packet>[]) new Queue<?>[Packet.LANES];
+    for (int index = 0; index < this.lanes.length; index++) {
+      this.lanes[index] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  public void add(@NotNull final Packet packet) {
+    this.unfinished.incrementAndGet();
+    this.lanes[PacketQueue.lane(packet)].add(packet);
+    this.available.release();
+  }
+
+  @Nullable
+  public Packet poll() {
+    if (!this.available.tryAcquire()) {
+      return null;
+    }
+    return this.next();
+  }
+
+  @NotNull
+  public Packet take() throws InterruptedException {
+    this.available.acquire();
+    return this.next();
+  }
+
+  public int size() {
+    return this.available.availablePermits();
+  }
+
+  /**
+   * Marks a taken packet as handled.
+   */
+  public void done() {
+    this.unfinished.decrementAndGet();
+    this.handled++;
+  }
+
+  public long getHandled() {
+    return this.handled;
+  }
+
+  /**
+   * Obtains the number of packets that are queued or taken but not yet {@link #done() handled}.
+   *
+   * @return the number of unfinished packets.
+   */
+  public int getUnfinished() {
+    return this.unfinished.get();
+  }
+
+  public int size(final int priority) {
+    return this.lanes[priority].size();
+  }
+
+  /**
+   * Obtains the lane of a packet, clamping priorities out of range to the nearest lane.
+   *
+   * @param packet the packet to check.
+   *
+   * @return the lane of the packet.
+   */
+  public static int lane(@NotNull final Packet packet) {
+    return PacketQueue.lane(packet.getPriority());
+  }
+
+  public static int lane(final int priority) {
+    return Math.max(Packet.HIGHEST_PRIORITY, Math.min(Packet.LOWEST_PRIORITY, priority));
+  }
+
+  @NotNull
+  private Packet next() {
+    while (true) {
+      for (final Queue<Packet> lane : this.lanes) {
+        final Packet packet = lane.poll();
+        if (packet != null) {
+          return packet;
+        }
+      }
+    }
+  }
+}
@@ -34,6 +34,21 @@ import org.jetbrains.annotations.NotNull;
 
 public final class PacketRegistry {
 
+  /**
+   * The flag set on the id of a request packet, followed by its correlation id.
+   */
+  public static final int REQUEST = 0x8000000;
+
+  /**
+   * The flag set on the id of a response packet, followed by the correlation id of its request.
+   */
+  public static final int RESPONSE = 0x10000000;
+
+  /**
+   * The flag set on the id of a control frame, which is handled by the pipeline and never reaches the listener.
+   */
+  public static final int CONTROL = 0x20000000;
+
   private static final Map<Class<? extends Packet>, Constructor<? extends Packet>> CTORS = new HashMap<>();
 
   private static final Map<Class<? extends Packet>, Integer> PACKET_IDS = new HashMap<>();
@@ -72,6 +87,10 @@ public final class PacketRegistry {
     return info & 0x7ffffff;
   }
 
+  public static int getPacketFlags(final int info) {
+    return info & (PacketRegistry.REQUEST | PacketRegistry.RESPONSE | PacketRegistry.CONTROL);
+  }
+
   public static void register(@NotNull final Class<? extends Packet> cls, final int id) {
     PacketRegistry.PACKET_IDS.put(cls, id);
     PacketRegistry.PACKETS.put(id, cls);
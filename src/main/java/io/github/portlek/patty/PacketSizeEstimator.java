@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sizes the buffers packets are encoded into from the sizes the packets of the same id had before. Only the event loop
+ * of the connection records sizes, the counters are volatile so the metrics can read them from other threads.
+ */
+public final class PacketSizeEstimator {
+
+  private static final int MAX_TRACKED_ID = 4096;
+
+  private static final int MIN_SIZE = 16;
+
+  private static final int ID_SIZE = 5;
+
+  private int[] averages = new int[0];
+
+  private int fallback = PacketSizeEstimator.MIN_SIZE;
+
+  private volatile long encoded;
+
+  private volatile long reallocations;
+
+  public int estimate(@NotNull final Packet packet, @NotNull final Connection connection) {
+    final int hint = packet.estimatedSize(connection);
+    if (hint >= 0) {
+      return PacketSizeEstimator.ID_SIZE + hint;
+    }
+    final int id = packet.getId();
+    final int average = id >= 0 && id < this.averages.length && this.averages[id] > 0
+      ? this.averages[id]
+      : this.fallback;
+    return Math.max(PacketSizeEstimator.MIN_SIZE, average + (average >>> 2));
+  }
+
+  public void record(final int id, final int size, final boolean reallocated) {
+    this.encoded++;
+    if (reallocated) {
+      this.reallocations++;
+    }
+    this.fallback += size - this.fallback >> 3;
+    if (id < 0 || id >= PacketSizeEstimator.MAX_TRACKED_ID) {
+      return;
+    }
+    if (id >= this.averages.length) {
+      this.averages = Arrays.copyOf(this.averages, Math.min(PacketSizeEstimator.MAX_TRACKED_ID, id + 1 << 1));
+    }
+    final int average = this.averages[id];
+    this.averages[id] = average == 0 ? size : average + (size - average >> 3);
+  }
+
+  public long getEncodedPackets() {
+    return this.encoded;
+  }
+
+  public long getReallocations() {
+    return this.reallocations;
+  }
+
+  public double getReallocationsPerPacket() {
+    final long packets = this.encoded;
+    return packets == 0L ? 0.0d : (double) this.reallocations / packets;
+  }
+}
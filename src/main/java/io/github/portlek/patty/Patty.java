@@ -25,14 +25,74 @@
 
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.metrics.PattyMetrics;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class Patty {
 
   @NotNull
   public final Protocol protocol;
 
+  @NotNull
+  public final PattyMetrics metrics = new PattyMetrics();
+
+  @NotNull
+  private ChannelOptions channelOptions = ChannelOptions.defaults();
+
+  @Nullable
+  private EventLoopGroup eventLoopGroup;
+
+  private int eventLoopUsers;
+
   protected Patty(@NotNull final Protocol protocol) {
     this.protocol = protocol;
   }
-}
\ No newline at end of file
+
+  @NotNull
+  public ChannelOptions getChannelOptions() {
+    return this.channelOptions;
+  }
+
+  /**
+   * Sets the socket options of the channels opened after this call.
+   *
+   * @param channelOptions the options to set.
+   */
+  public void setChannelOptions(@NotNull final ChannelOptions channelOptions) {
+    this.channelOptions = channelOptions;
+  }
+
+  /**
+   * Obtains the event loop group the connections of this instance share, created on first use.
+   *
+   * @return the shared event loop group.
+   */
+  @NotNull
+  synchronized EventLoopGroup acquireEventLoopGroup() {
+    if (this.eventLoopGroup == null) {
+      this.eventLoopGroup = this.channelOptions.newEventLoopGroup();
+    }
+    this.eventLoopUsers++;
+    return this.eventLoopGroup;
+  }
+
+  /**
+   * Releases the shared event loop group, shutting it down once no connection uses it.
+   *
+   * @param group the group to release.
+   *
+   * @return the future of the shutdown, or a completed future while the group is still in use.
+   */
+  @NotNull
+  synchronized Future<?> releaseEventLoopGroup(@NotNull final EventLoopGroup group) {
+    if (group != this.eventLoopGroup || --this.eventLoopUsers > 0) {
+      return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+    }
+    this.eventLoopGroup = null;
+    return group.shutdownGracefully();
+  }
+}
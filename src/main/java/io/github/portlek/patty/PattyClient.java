@@ -24,10 +24,13 @@
  */
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.local.LocalProtocol;
+import io.github.portlek.patty.shm.ShmProtocol;
 import io.github.portlek.patty.tcp.PacketEncryptor;
-import io.github.portlek.patty.tcp.TcpClientConnection;
 import io.github.portlek.patty.tcp.TcpProtocol;
-import java.net.InetSocketAddress;
+import io.github.portlek.patty.udp.UdpProtocol;
+import io.github.portlek.patty.unix.UnixProtocol;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -56,12 +59,64 @@ public final class PattyClient extends Patty {
     return new PattyClient(ip, port, protocol);
   }
 
-  public void connect() {
-    this.connect(true);
+  @NotNull
+  public static PattyClient udp(@NotNull final String ip, final int port, @NotNull final PacketHeader packetHeader,
+                                @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                @Nullable final ConnectionListener connectionListener) {
+    return PattyClient.udp(ip, port, new UdpProtocol(packetEncryptor, packetSizer, packetHeader, null, connectionListener));
+  }
+
+  @NotNull
+  public static PattyClient udp(@NotNull final String ip, final int port, @NotNull final UdpProtocol protocol) {
+    return new PattyClient(ip, port, protocol);
+  }
+
+  @NotNull
+  public static PattyClient local(@NotNull final String ip, final int port, @NotNull final PacketHeader packetHeader,
+                                  @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                  @Nullable final ConnectionListener connectionListener, @NotNull final LocalMode mode) {
+    return PattyClient.local(ip, port, new LocalProtocol(packetEncryptor, packetSizer, packetHeader, null,
+      connectionListener, mode));
+  }
+
+  @NotNull
+  public static PattyClient local(@NotNull final String ip, final int port, @NotNull final LocalProtocol protocol) {
+    return new PattyClient(ip, port, protocol);
+  }
+
+  @NotNull
+  public static PattyClient unix(@NotNull final String path, @NotNull final PacketHeader packetHeader,
+                                 @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                 @Nullable final ConnectionListener connectionListener) {
+    return PattyClient.unix(path, new UnixProtocol(packetEncryptor, packetSizer, packetHeader, null, connectionListener));
+  }
+
+  @NotNull
+  public static PattyClient unix(@NotNull final String path, @NotNull final UnixProtocol protocol) {
+    return new PattyClient(path, 0, protocol);
+  }
+
+  @NotNull
+  public static PattyClient shm(@NotNull final String path, @NotNull final PacketHeader packetHeader,
+                                @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                @Nullable final ConnectionListener connectionListener) {
+    return PattyClient.shm(path, new ShmProtocol(packetEncryptor, packetSizer, packetHeader, null, connectionListener));
+  }
+
+  @NotNull
+  public static PattyClient shm(@NotNull final String path, @NotNull final ShmProtocol protocol) {
+    return new PattyClient(path, 0, protocol);
   }
 
-  public void connect(final boolean wait) {
-    new TcpClientConnection(this, new InetSocketAddress(this.ip, this.port))
-      .connect(wait);
+  @NotNull
+  public Connection connect() {
+    return this.connect(true);
+  }
+
+  @NotNull
+  public Connection connect(final boolean wait) {
+    final Connection connection = this.protocol.newClientConnection(this, this.protocol.newAddress(this.ip, this.port));
+    connection.connect(wait);
+    return connection;
   }
 }
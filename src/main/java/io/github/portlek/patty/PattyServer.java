@@ -24,18 +24,34 @@
  */
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.local.LocalProtocol;
+import io.github.portlek.patty.shm.ShmProtocol;
 import io.github.portlek.patty.tcp.PacketEncryptor;
 import io.github.portlek.patty.tcp.TcpProtocol;
-import io.github.portlek.patty.tcp.TcpServerConnection;
-import java.net.InetSocketAddress;
+import io.github.portlek.patty.udp.UdpProtocol;
+import io.github.portlek.patty.unix.UnixProtocol;
+import io.netty.handler.traffic.GlobalTrafficShapingHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public final class PattyServer extends Patty {
 
-  public final List<Connection> connections = new ArrayList<>();
+  private static final long DRAIN_GRACE_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+  public final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+  @NotNull
+  public final AdmissionControl admission = new AdmissionControl();
 
   @NotNull
   private final String ip;
@@ -45,6 +61,9 @@ public final class PattyServer extends Patty {
   @Nullable
   private Connection connection;
 
+  @Nullable
+  private volatile GlobalTrafficShapingHandler trafficShaper;
+
   private PattyServer(@NotNull final String ip, final int port, @NotNull final Protocol protocol) {
     super(protocol);
     this.ip = ip;
@@ -64,12 +83,85 @@ public final class PattyServer extends Patty {
     return new PattyServer(ip, port, protocol);
   }
 
+  @NotNull
+  public static PattyServer udp(@NotNull final String ip, final int port, @NotNull final PacketHeader packetHeader,
+                                @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                @Nullable final ServerListener serverListener, @Nullable final ConnectionListener connectionListener) {
+    return PattyServer.udp(ip, port, new UdpProtocol(packetEncryptor, packetSizer, packetHeader, serverListener,
+      connectionListener));
+  }
+
+  @NotNull
+  public static PattyServer udp(@NotNull final String ip, final int port, @NotNull final UdpProtocol protocol) {
+    return new PattyServer(ip, port, protocol);
+  }
+
+  @NotNull
+  public static PattyServer local(@NotNull final String ip, final int port, @NotNull final PacketHeader packetHeader,
+                                  @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                  @Nullable final ServerListener serverListener, @Nullable final ConnectionListener connectionListener,
+                                  @NotNull final LocalMode mode) {
+    return PattyServer.local(ip, port, new LocalProtocol(packetEncryptor, packetSizer, packetHeader, serverListener,
+      connectionListener, mode));
+  }
+
+  @NotNull
+  public static PattyServer local(@NotNull final String ip, final int port, @NotNull final LocalProtocol protocol) {
+    return new PattyServer(ip, port, protocol);
+  }
+
+  @NotNull
+  public static PattyServer unix(@NotNull final String path, @NotNull final PacketHeader packetHeader,
+                                 @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                 @Nullable final ServerListener serverListener, @Nullable final ConnectionListener connectionListener) {
+    return PattyServer.unix(path, new UnixProtocol(packetEncryptor, packetSizer, packetHeader, serverListener,
+      connectionListener));
+  }
+
+  @NotNull
+  public static PattyServer unix(@NotNull final String path, @NotNull final UnixProtocol protocol) {
+    return new PattyServer(path, 0, protocol);
+  }
+
+  @NotNull
+  public static PattyServer shm(@NotNull final String path, @NotNull final PacketHeader packetHeader,
+                                @Nullable final PacketEncryptor packetEncryptor, @NotNull final PacketSizer packetSizer,
+                                @Nullable final ServerListener serverListener, @Nullable final ConnectionListener connectionListener) {
+    return PattyServer.shm(path, new ShmProtocol(packetEncryptor, packetSizer, packetHeader, serverListener,
+      connectionListener));
+  }
+
+  @NotNull
+  public static PattyServer shm(@NotNull final String path, @NotNull final ShmProtocol protocol) {
+    return new PattyServer(path, 0, protocol);
+  }
+
+  @Nullable
+  public GlobalTrafficShapingHandler getTrafficShaper() {
+    return this.trafficShaper;
+  }
+
+  /**
+   * Shapes the bytes written to all TCP sessions together, on top of the rates of each session. Sessions accepted
+   * before the first call are not shaped.
+   *
+   * @param bytesPerSecond the bytes per second, or {@code 0} for no limit.
+   */
+  public synchronized void setGlobalWriteRate(final long bytesPerSecond) {
+    final GlobalTrafficShapingHandler trafficShaper = this.trafficShaper;
+    if (trafficShaper != null) {
+      trafficShaper.setWriteLimit(bytesPerSecond);
+    } else if (bytesPerSecond > 0L) {
+      this.trafficShaper = new GlobalTrafficShapingHandler(GlobalEventExecutor.INSTANCE, bytesPerSecond, 0L);
+    }
+  }
+
   public void bind() {
     this.bind(true);
   }
 
   public void bind(final boolean wait) {
-    (this.connection = new TcpServerConnection(this, new InetSocketAddress(this.ip, this.port)))
+    (this.connection = this.protocol.newServerConnection(this, this.protocol.newAddress(this.ip, this.port)))
       .connect(wait);
   }
 
@@ -81,6 +173,49 @@ public final class PattyServer extends Patty {
     if (this.protocol.getServerListener() != null) {
       this.protocol.getServerListener().serverClosing(this);
     }
+    this.shutdown(wait);
+  }
+
+  /**
+   * Closes the server gracefully. It stops accepting sessions, lets every session handle the packets it received and
+   * flush the packets it wrote until the backlog is cleared or the timeout passes, disconnects the sessions on their
+   * event loops and closes the server.
+   *
+   * @param timeout the time the sessions get to clear their backlog.
+   * @param unit the unit of the timeout.
+   *
+   * @return the packets flushed and dropped by all sessions.
+   */
+  @NotNull
+  public DrainReport drain(final long timeout, @NotNull final TimeUnit unit) {
+    if (this.protocol.getServerListener() != null) {
+      this.protocol.getServerListener().serverClosing(this);
+    }
+    if (this.connection != null) {
+      this.connection.unbind();
+    }
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    final List<CompletableFuture<DrainReport>> futures = new ArrayList<>();
+    for (final Connection session : this.connections) {
+      futures.add(session.drain("Server closed.", deadline));
+    }
+    DrainReport report = DrainReport.EMPTY;
+    for (final CompletableFuture<DrainReport> future : futures) {
+      try {
+        report = report.add(future.get(Math.max(0L, deadline - System.nanoTime()) + PattyServer.DRAIN_GRACE_NANOS,
+          TimeUnit.NANOSECONDS));
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (final ExecutionException | TimeoutException e) {
+        report = report.add(new DrainReport(1, 0L, 0L, 1));
+      }
+    }
+    this.shutdown(true);
+    return report;
+  }
+
+  private void shutdown(final boolean wait) {
     this.connections.stream()
       .filter(Connection::isConnected)
       .forEach(conn ->
@@ -88,5 +223,9 @@ public final class PattyServer extends Patty {
     if (this.connection != null) {
       this.connection.close(wait);
     }
+    final GlobalTrafficShapingHandler trafficShaper = this.trafficShaper;
+    if (trafficShaper != null) {
+      trafficShaper.release();
+    }
   }
 }
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The requests of a connection waiting for their responses.
+ */
+final class PendingRequests {
+
+  private static final Timer TIMER = new HashedWheelTimer(new DefaultThreadFactory("patty-requests", true),
+    10L, TimeUnit.MILLISECONDS, 512);
+
+  private final AtomicReferenceArray<Request> slots;
+
+  private final int mask;
+
+  private final int maxRequests;
+
+  private final AtomicInteger ids = new AtomicInteger();
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  PendingRequests(final int maxRequests) {
+    final int capacity = Integer.highestOneBit(Math.max(2, maxRequests) * 2 - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.mask = capacity - 1;
+    this.maxRequests = maxRequests;
+  }
+
+  @NotNull
+  CompletableFuture<Packet> add(@NotNull final Packet packet, final long timeout, @NotNull final TimeUnit unit) {
+    final Request request = new Request();
+    if (this.inFlight.incrementAndGet() > this.maxRequests) {
+      this.inFlight.decrementAndGet();
+      request.completeExceptionally(new RejectedExecutionException(
+        "Too many requests in flight, the limit is " + this.maxRequests + "."));
+      return request;
+    }
+    int id;
+    do {
+      id = this.ids.incrementAndGet() & 0x7fffffff;
+      request.id = id;
+    } while (id == 0 || !this.slots.compareAndSet(id & this.mask, null, request));
+    request.timeout = PendingRequests.TIMER.newTimeout(request, timeout, unit);
+    packet.setCorrelation(PacketRegistry.REQUEST, id);
+    return request;
+  }
+
+  boolean complete(@NotNull final Packet response) {
+    final Request request = this.remove(response.getCorrelationId());
+    if (request == null) {
+      return false;
+    }
+    request.cancelTimeout();
+    request.complete(response);
+    return true;
+  }
+
+  void fail(final int id, @NotNull final Throwable cause) {
+    final Request request = this.remove(id);
+    if (request != null) {
+      request.cancelTimeout();
+      request.completeExceptionally(cause);
+    }
+  }
+
+  void failAll(@NotNull final Throwable cause) {
+    for (int index = 0; index < this.slots.length(); index++) {
+      final Request request = this.slots.get(index);
+      if (request != null) {
+        this.fail(request.id, cause);
+      }
+    }
+  }
+
+  int getInFlight() {
+    return this.inFlight.get();
+  }
+
+  @Nullable
+  private Request remove(final int id) {
+    final int index = id & this.mask;
+    final Request request = this.slots.get(index);
+    if (request == null || request.id != id || !this.slots.compareAndSet(index, request, null)) {
+      return null;
+    }
+    this.inFlight.decrementAndGet();
+    return request;
+  }
+
+  private final class Request extends CompletableFuture<Packet> implements TimerTask {
+
+    private volatile int id;
+
+    @Nullable
+    private volatile Timeout timeout;
+
+    @Override
+    public void run(final Timeout timeout) {
+      PendingRequests.this.fail(this.id, new TimeoutException("Request " + this.id + " timed out."));
+    }
+
+    private void cancelTimeout() {
+      final Timeout timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+  }
+}
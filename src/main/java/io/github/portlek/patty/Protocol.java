@@ -26,6 +26,19 @@
 package io.github.portlek.patty;
 
 import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.github.portlek.patty.tcp.TcpClientConnection;
+import io.github.portlek.patty.tcp.TcpServerConnection;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,4 +58,70 @@ public interface Protocol {
 
   @Nullable
   ConnectionListener getConnectionListener();
+
+  @NotNull
+  default SocketAddress newAddress(@NotNull final String ip, final int port) {
+    return new InetSocketAddress(ip, port);
+  }
+
+  @NotNull
+  default Connection newServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    return new TcpServerConnection(patty, address);
+  }
+
+  @NotNull
+  default Connection newClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    return new TcpClientConnection(patty, address);
+  }
+
+  /**
+   * Obtains the class of the listening channels a {@link TcpServerConnection} binds for this protocol.
+   *
+   * @return the class of the listening channels, TCP sockets by default.
+   */
+  @NotNull
+  default Class<? extends ServerChannel> getServerChannelClass() {
+    return Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+  }
+
+  /**
+   * Obtains the class of the channel a {@link TcpClientConnection} connects with for this protocol.
+   *
+   * @return the class of the channel, a TCP socket by default.
+   */
+  @NotNull
+  default Class<? extends Channel> getClientChannelClass() {
+    return Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class;
+  }
+
+  /**
+   * Applies the channel options the channels of this protocol support to a server bootstrap.
+   *
+   * @param options the options of the server.
+   * @param bootstrap the bootstrap to apply.
+   */
+  default void applyOptions(@NotNull final ChannelOptions options, @NotNull final ServerBootstrap bootstrap) {
+    options.apply(bootstrap);
+  }
+
+  /**
+   * Applies the channel options the channels of this protocol support to a client bootstrap.
+   *
+   * @param options the options of the client.
+   * @param bootstrap the bootstrap to apply.
+   */
+  default void applyOptions(@NotNull final ChannelOptions options, @NotNull final Bootstrap bootstrap) {
+    options.apply(bootstrap);
+  }
+
+  /**
+   * Obtains how many listening channels a server binds to the same address.
+   *
+   * @param options the options of the server.
+   *
+   * @return the number of listening channels, {@link ChannelOptions#getAcceptors()} by default.
+   */
+  default int getAcceptors(@NotNull final ChannelOptions options) {
+    return options.getAcceptors();
+  }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.PattyClient;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.local.LocalChannel;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class LocalClientConnection extends LocalConnection {
+
+  public LocalClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    super(patty, address);
+  }
+
+  @Override
+  public void disconnect(@NotNull final String reason, @Nullable final Throwable cause) {
+    super.disconnect(reason, cause);
+    this.releaseEventLoop();
+  }
+
+  @Override
+  public void connect(final boolean wait) {
+    if (this.disconnected) {
+      throw new IllegalStateException("Session has already been disconnected.");
+    }
+    try {
+      final Bootstrap bootstrap = new Bootstrap()
+        .channel(LocalChannel.class)
+        .handler(new ChannelInitializer<Channel>() {
+          @Override
+          public void initChannel(final Channel channel) {
+            LocalClientConnection.this.initChannel(channel);
+          }
+        })
+        .group(this.eventLoop)
+        .remoteAddress(this.address);
+      final Runnable connectTask = () -> {
+        try {
+          if (bootstrap.connect().sync().isSuccess()) {
+            while (!this.isConnected() && !this.disconnected) {
+              try {
+                Thread.sleep(5);
+              } catch (final InterruptedException ignored) {
+              }
+            }
+          }
+        } catch (final Throwable t) {
+          this.exceptionCaught(null, t);
+        }
+      };
+      if (wait) {
+        connectTask.run();
+      } else {
+        new Thread(connectTask).start();
+      }
+    } catch (final Throwable t) {
+      this.exceptionCaught(null, t);
+    }
+  }
+}
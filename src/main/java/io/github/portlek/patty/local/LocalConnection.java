@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.FrozenPacket;
+import io.github.portlek.patty.Patty;
+import io.github.portlek.patty.tcp.pipeline.TcpHeartbeatHandler;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketCompressor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketMultiplexer;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketScheduler;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketSizer;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A peer of a local channel. In {@link LocalMode#DIRECT direct} mode the pipeline has no codec, so compression,
+ * multiplexing and rate limits, which work on the encoded frames, are not applied.
+ */
+abstract class LocalConnection extends Connection {
+
+  @NotNull
+  protected final LocalProtocol protocol;
+
+  protected LocalConnection(@NotNull final Patty patty, @NotNull final SocketAddress address) {
+    super(patty, address);
+    this.protocol = (LocalProtocol) patty.protocol;
+  }
+
+  protected LocalConnection(@NotNull final Patty patty, @NotNull final SocketAddress address,
+                            @NotNull final EventLoopGroup eventLoop) {
+    super(patty, address, eventLoop);
+    this.protocol = (LocalProtocol) patty.protocol;
+  }
+
+  @Override
+  public void setCompressionThreshold(final int threshold) {
+    if (this.isDirect()) {
+      this.compressionThreshold = threshold;
+    } else {
+      super.setCompressionThreshold(threshold);
+    }
+  }
+
+  @Override
+  public void setStreamChunkSize(final int chunkSize) {
+    if (this.isDirect()) {
+      this.streams.setChunkSize(chunkSize);
+    } else {
+      super.setStreamChunkSize(chunkSize);
+    }
+  }
+
+  void initChannel(@NotNull final Channel channel) {
+    final ChannelPipeline pipeline = channel.pipeline();
+    this.refreshReadTimeoutHandler(channel);
+    this.refreshWriteTimeoutHandler(channel);
+    if (!this.isDirect()) {
+      pipeline.addLast("encryption", new TcpPacketEncryptor(this));
+      pipeline.addLast("sizer", new TcpPacketSizer(this.patty));
+      if (this.compressionThreshold >= 0) {
+        pipeline.addLast("compression", new TcpPacketCompressor(this));
+      }
+      if (this.streams.isEnabled()) {
+        pipeline.addLast("multiplexer", new TcpPacketMultiplexer(this.streams));
+      }
+      pipeline.addLast("codec", new TcpPacketCodec(this));
+      this.refreshRateLimiter(channel);
+    }
+    pipeline.addLast("heartbeat", new TcpHeartbeatHandler(this));
+    pipeline.addLast("scheduler", new TcpPacketScheduler());
+    pipeline.addLast("manager", this);
+  }
+
+  @Override
+  protected void refreshRateLimiter(@NotNull final Channel channel) {
+    if (!this.isDirect()) {
+      super.refreshRateLimiter(channel);
+    }
+  }
+
+  @NotNull
+  @Override
+  protected Object toMessage(@NotNull final Object message) {
+    if (this.isDirect() && message instanceof FrozenPacket) {
+      return ((FrozenPacket) message).getPacket();
+    }
+    return message;
+  }
+
+  private boolean isDirect() {
+    return this.protocol.getMode() == LocalMode.DIRECT;
+  }
+}
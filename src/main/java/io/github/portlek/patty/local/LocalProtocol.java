@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.PacketHeader;
+import io.github.portlek.patty.PacketSizer;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.ServerListener;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.netty.channel.local.LocalAddress;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A protocol that connects a client and a server in the same process through Netty's local channels, with no socket
+ * and no kernel in between.
+ */
+public final class LocalProtocol implements Protocol {
+
+  @Nullable
+  private final PacketEncryptor encryptor;
+
+  @NotNull
+  private final PacketSizer sizer;
+
+  @NotNull
+  private final PacketHeader header;
+
+  @Nullable
+  private final ServerListener serverListener;
+
+  @Nullable
+  private final ConnectionListener connectionListener;
+
+  @NotNull
+  private final LocalMode mode;
+
+  public LocalProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                       @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                       @Nullable final ConnectionListener connectionListener) {
+    this(encryptor, sizer, header, serverListener, connectionListener, LocalMode.DIRECT);
+  }
+
+  public LocalProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                       @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                       @Nullable final ConnectionListener connectionListener, @NotNull final LocalMode mode) {
+    this.encryptor = encryptor;
+    this.sizer = sizer;
+    this.header = header;
+    this.serverListener = serverListener;
+    this.connectionListener = connectionListener;
+    this.mode = mode;
+  }
+
+  @Nullable
+  @Override
+  public PacketEncryptor getEncryptor() {
+    return this.encryptor;
+  }
+
+  @NotNull
+  @Override
+  public PacketSizer getSizer() {
+    return this.sizer;
+  }
+
+  @NotNull
+  @Override
+  public PacketHeader getHeader() {
+    return this.header;
+  }
+
+  @Nullable
+  @Override
+  public ServerListener getServerListener() {
+    return this.serverListener;
+  }
+
+  @Nullable
+  @Override
+  public ConnectionListener getConnectionListener() {
+    return this.connectionListener;
+  }
+
+  @NotNull
+  @Override
+  public SocketAddress newAddress(@NotNull final String ip, final int port) {
+    return new LocalAddress(ip + ':' + port);
+  }
+
+  @NotNull
+  @Override
+  public Connection newServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    return new LocalServerConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Connection newClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    return new LocalClientConnection(patty, address);
+  }
+
+  @NotNull
+  public LocalMode getMode() {
+    return this.mode;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.ServerListener;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+
+public final class LocalServerConnection extends Connection {
+
+  @NotNull
+  private final PattyServer patty;
+
+  public LocalServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    super(patty, address);
+    this.patty = patty;
+  }
+
+  @Override
+  public void connect(final boolean wait) {
+    if (this.channel != null) {
+      return;
+    }
+    final ServerBootstrap bootstrap = new ServerBootstrap()
+      .channel(LocalServerChannel.class)
+      .childHandler(new ChannelInitializer<Channel>() {
+        @Override
+        public void initChannel(final Channel channel) {
+          final LocalSessionConnection session = new LocalSessionConnection(LocalServerConnection.this.patty,
+            channel.remoteAddress(), LocalServerConnection.this.eventLoop);
+          session.initChannel(LocalServerConnection.this, channel);
+        }
+      })
+      .handler(this.patty.admission)
+      .group(this.eventLoop)
+      .localAddress(this.address);
+    final ChannelFuture future = bootstrap.bind();
+    this.channel = future.channel();
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (wait) {
+      try {
+        future.sync();
+      } catch (final InterruptedException e) {
+        e.printStackTrace();
+      }
+      if (serverListener != null) {
+        serverListener.serverBound(this.patty, this);
+      }
+    } else {
+      future.addListener((ChannelFutureListener) it -> {
+        if (it.isSuccess()) {
+          if (serverListener != null) {
+            serverListener.serverBound(this.patty, this);
+          }
+        } else {
+          System.err.println("[ERROR] Failed to asynchronously bind connection listener.");
+          if (it.cause() != null) {
+            it.cause().printStackTrace();
+          }
+        }
+      });
+    }
+  }
+
+  @Override
+  public void unbind() {
+    if (this.channel != null && this.channel.isOpen()) {
+      this.channel.close();
+    }
+  }
+
+  @Override
+  public void close(final boolean wait) {
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (this.channel != null) {
+      final ChannelFuture future = this.channel.close();
+      if (wait) {
+        try {
+          future.sync();
+        } catch (final InterruptedException e) {
+          e.printStackTrace();
+        }
+        if (serverListener != null) {
+          serverListener.serverClosed(this.patty, this);
+        }
+      } else {
+        future.addListener((ChannelFutureListener) listener -> {
+          if (listener.isSuccess()) {
+            if (serverListener != null) {
+              serverListener.serverClosed(this.patty, this);
+            }
+          } else {
+            System.err.println("[ERROR] Failed to asynchronously close connection listener.");
+            if (listener.cause() != null) {
+              listener.cause().printStackTrace();
+            }
+          }
+        });
+      }
+      this.channel = null;
+    }
+    final Future<?> future = this.releaseEventLoop();
+    if (wait) {
+      try {
+        future.sync();
+      } catch (final InterruptedException e) {
+      }
+    } else {
+      future.addListener((FutureListener<Object>) it -> {
+        if (!it.isSuccess()) {
+          System.err.println("[ERROR] Failed to asynchronously close connection listener.");
+          if (it.cause() != null) {
+            it.cause().printStackTrace();
+          }
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.ServerListener;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+
+public final class LocalSessionConnection extends LocalConnection {
+
+  @NotNull
+  private final PattyServer patty;
+
+  public LocalSessionConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address,
+                                @NotNull final EventLoopGroup eventLoop) {
+    super(patty, address, eventLoop);
+    this.patty = patty;
+  }
+
+  void initChannel(@NotNull final Connection server, @NotNull final Channel channel) {
+    this.inheritSettings(server);
+    this.initChannel(channel);
+  }
+
+  @Override
+  public void channelActive(final ChannelHandlerContext ctx) {
+    super.channelActive(ctx);
+    this.patty.connections.add(this);
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (serverListener != null) {
+      serverListener.sessionAdded(this.patty, this);
+    }
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+    super.channelInactive(ctx);
+    this.patty.connections.remove(this);
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (serverListener != null) {
+      serverListener.sessionRemoved(this.patty, this);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Counters of a single connection.
+ */
+public final class ConnectionMetrics {
+
+  /**
+   * The value {@link #start(MetricStage)} returns when the call is not sampled.
+   */
+  public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  @NotNull
+  private final PattyMetrics parent;
+
+  @NotNull
+  private final Connection connection;
+
+  private final LongAdder[] counters = new LongAdder[MetricCounter.values().length];
+
+  private final int[] samples = new int[MetricStage.values().length];
+
+  private final AtomicInteger traces = new AtomicInteger();
+
+  private long arrival;
+
+  ConnectionMetrics(@NotNull final PattyMetrics parent, @NotNull final Connection connection) {
+    this.parent = parent;
+    this.connection = connection;
+    for (int index = 0; index < this.counters.length; index++) {
+      this.counters[index] = new LongAdder();
+    }
+  }
+
+  public void increment(@NotNull final MetricCounter counter) {
+    this.add(counter, 1L);
+  }
+
+  public void add(@NotNull final MetricCounter counter, final long value) {
+    this.counters[counter.ordinal()].add(value);
+    this.parent.add(counter, value);
+  }
+
+  public void packetRead(final int id, final int bytes) {
+    this.add(MetricCounter.PACKETS_READ, 1L);
+    this.add(MetricCounter.PACKET_BYTES_READ, bytes);
+    this.parent.packetRead(id);
+  }
+
+  public void packetWritten(final int id, final int bytes) {
+    this.add(MetricCounter.PACKETS_WRITTEN, 1L);
+    this.add(MetricCounter.PACKET_BYTES_WRITTEN, bytes);
+    this.parent.packetWritten(id);
+  }
+
+  public void queued(final int depth) {
+    this.parent.queued(depth);
+  }
+
+  /**
+   * Starts timing the given stage if this call is sampled, from the event loop of the connection.
+   *
+   * @param stage the stage to time.
+   *
+   * @return the start time to pass to {@link #stop(MetricStage, long)}.
+   */
+  public long start(@NotNull final MetricStage stage) {
+    if ((this.samples[stage.ordinal()]++ & this.parent.getSampleMask()) != 0) {
+      return ConnectionMetrics.NOT_SAMPLED;
+    }
+    return System.nanoTime();
+  }
+
+  public void stop(@NotNull final MetricStage stage, final long start) {
+    if (start != ConnectionMetrics.NOT_SAMPLED) {
+      this.parent.getHistogram(stage).record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Stamps the arrival of the bytes read from the socket for the traces of the frames they contain, from the event
+   * loop of the connection.
+   */
+  public void frameArrived() {
+    if (this.parent.getTracer().isEnabled()) {
+      this.arrival = System.nanoTime();
+    }
+  }
+
+  @Nullable
+  public PacketTrace traceInbound(final int id) {
+    final PacketTrace trace = this.parent.getTracer().trace(this.connection, id, true, this.traces);
+    if (trace != null && this.arrival != 0L) {
+      trace.mark(TracePoint.ARRIVAL, this.arrival);
+    }
+    return trace;
+  }
+
+  @Nullable
+  public PacketTrace traceOutbound(final int id) {
+    final PacketTrace trace = this.parent.getTracer().trace(this.connection, id, false, this.traces);
+    if (trace != null) {
+      trace.mark(TracePoint.SEND);
+    }
+    return trace;
+  }
+
+  public long get(@NotNull final MetricCounter counter) {
+    return this.counters[counter.ordinal()].sum();
+  }
+
+  public int getQueueDepth() {
+    return this.connection.getQueuedPackets();
+  }
+
+  public long getReallocations() {
+    return this.connection.getSizeEstimator().getReallocations();
+  }
+
+  public void open() {
+    this.parent.open(this);
+  }
+
+  public void close() {
+    this.parent.close(this);
+  }
+}
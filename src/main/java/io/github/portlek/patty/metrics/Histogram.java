@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free log-linear histogram of non-negative values.
+ */
+public final class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << Histogram.SUB_BUCKET_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(64 * Histogram.SUB_BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  private final AtomicLong max = new AtomicLong();
+
+  private static int index(final long value) {
+    if (value < Histogram.SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> exponent - Histogram.SUB_BUCKET_BITS) & Histogram.SUB_BUCKETS - 1;
+    return (exponent - Histogram.SUB_BUCKET_BITS + 1 << Histogram.SUB_BUCKET_BITS) + sub;
+  }
+
+  private static long lowerBound(final int index) {
+    if (index < Histogram.SUB_BUCKETS) {
+      return index;
+    }
+    final int exponent = (index >>> Histogram.SUB_BUCKET_BITS) + Histogram.SUB_BUCKET_BITS - 1;
+    final long sub = index & Histogram.SUB_BUCKETS - 1;
+    return 1L << exponent | sub << exponent - Histogram.SUB_BUCKET_BITS;
+  }
+
+  public void record(final long value) {
+    final long sanitized = Math.max(0L, value);
+    this.buckets.incrementAndGet(Histogram.index(sanitized));
+    this.count.increment();
+    this.sum.add(sanitized);
+    long max = this.max.get();
+    while (sanitized > max && !this.max.compareAndSet(max, sanitized)) {
+      max = this.max.get();
+    }
+  }
+
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  public double getMean() {
+    final long count = this.count.sum();
+    return count == 0L ? 0.0d : (double) this.sum.sum() / count;
+  }
+
+  public long getMax() {
+    return this.max.get();
+  }
+
+  public long getValueAtPercentile(final double percentile) {
+    final long count = this.count.sum();
+    if (count == 0L) {
+      return 0L;
+    }
+    final long target = Math.max(1L, (long) Math.ceil(count * percentile / 100.0d));
+    long seen = 0L;
+    for (int index = 0; index < this.buckets.length(); index++) {
+      seen += this.buckets.get(index);
+      if (seen >= target) {
+        return Math.min(this.max.get(), Histogram.lowerBound(index));
+      }
+    }
+    return this.max.get();
+  }
+}
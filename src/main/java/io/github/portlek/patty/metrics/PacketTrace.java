@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import java.util.Locale;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The timestamps of a single packet on its way through a connection.
+ */
+public final class PacketTrace {
+
+  @NotNull
+  private final PacketTracer tracer;
+
+  @NotNull
+  private final Connection connection;
+
+  private final int id;
+
+  private final boolean inbound;
+
+  private final boolean sampled;
+
+  private final long[] stamps = new long[TracePoint.values().length];
+
+  private int marked;
+
+  PacketTrace(@NotNull final PacketTracer tracer, @NotNull final Connection connection, final int id,
+              final boolean inbound, final boolean sampled) {
+    this.tracer = tracer;
+    this.connection = connection;
+    this.id = id;
+    this.inbound = inbound;
+    this.sampled = sampled;
+  }
+
+  public void mark(@NotNull final TracePoint point) {
+    this.mark(point, System.nanoTime());
+  }
+
+  public void mark(@NotNull final TracePoint point, final long nanos) {
+    this.stamps[point.ordinal()] = nanos;
+    this.marked |= 1 << point.ordinal();
+  }
+
+  public boolean has(@NotNull final TracePoint point) {
+    return (this.marked & 1 << point.ordinal()) != 0;
+  }
+
+  public long get(@NotNull final TracePoint point) {
+    return this.stamps[point.ordinal()];
+  }
+
+  /**
+   * Obtains the nanoseconds spent in the given span.
+   *
+   * @param span the span to measure.
+   *
+   * @return the length of the span, or {@code -1} if one of its points was not marked.
+   */
+  public long getSpan(@NotNull final TraceSpan span) {
+    if (!this.has(span.getFrom()) || !this.has(span.getTo())) {
+      return -1L;
+    }
+    return this.get(span.getTo()) - this.get(span.getFrom());
+  }
+
+  @NotNull
+  public Connection getConnection() {
+    return this.connection;
+  }
+
+  public int getId() {
+    return this.id;
+  }
+
+  public boolean isInbound() {
+    return this.inbound;
+  }
+
+  /**
+   * Checks whether the trace is handed to the trace listener once it completes.
+   *
+   * @return whether the trace is sampled.
+   */
+  public boolean isSampled() {
+    return this.sampled;
+  }
+
+  /**
+   * Records the spans of this trace to the tracer. Must be called once, after the last point.
+   */
+  public void complete() {
+    this.tracer.record(this);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder("PacketTrace{id=").append(this.id)
+      .append(this.inbound ? ", inbound" : ", outbound");
+    for (final TraceSpan span : TraceSpan.values()) {
+      final long nanos = this.getSpan(span);
+      if (nanos >= 0L) {
+        builder.append(", ").append(span.name().toLowerCase(Locale.ROOT)).append('=')
+          .append(String.format(Locale.ROOT, "%.1fus", nanos / 1000.0d));
+      }
+    }
+    return builder.append('}').toString();
+  }
+}
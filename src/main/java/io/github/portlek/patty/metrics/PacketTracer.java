@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Aggregates {@link PacketTrace}s into per packet type histograms of every {@link TraceSpan}.
+ */
+public final class PacketTracer {
+
+  private static final int MAX_TRACKED_ID = 4096;
+
+  private final AtomicReferenceArray<Histogram[]> histograms = new AtomicReferenceArray<>(PacketTracer.MAX_TRACKED_ID);
+
+  private volatile boolean enabled = false;
+
+  private volatile int sampleMask = 1023;
+
+  @Nullable
+  private volatile Consumer<PacketTrace> listener;
+
+  /**
+   * Starts the trace of a packet if tracing is enabled.
+   *
+   * @param connection the connection of the packet.
+   * @param id the id of the packet.
+   * @param inbound whether the packet was read.
+   * @param sequence the trace counter of the connection, picks the traces handed to the listener.
+   *
+   * @return the trace, or {@code null} if tracing is disabled.
+   */
+  @Nullable
+  public PacketTrace trace(@NotNull final Connection connection, final int id, final boolean inbound,
+                           @NotNull final AtomicInteger sequence) {
+    if (!this.enabled) {
+      return null;
+    }
+    final boolean sampled = (sequence.getAndIncrement() & this.sampleMask) == 0;
+    return new PacketTrace(this, connection, id, inbound, sampled);
+  }
+
+  public void enable() {
+    this.setEnabled(true);
+  }
+
+  public void disable() {
+    this.setEnabled(false);
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getSampleRate() {
+    return this.sampleMask + 1;
+  }
+
+  /**
+   * Sets how many completed traces are handed to the listener, rounded up to a power of two.
+   *
+   * @param rate one full trace every {@code rate} packets.
+   */
+  public void setSampleRate(final int rate) {
+    if (rate < 1) {
+      throw new IllegalArgumentException("Sample rate must be positive.");
+    }
+    this.sampleMask = rate == 1 ? 0 : (Integer.highestOneBit(rate - 1) << 1) - 1;
+  }
+
+  public void setListener(@Nullable final Consumer<PacketTrace> listener) {
+    this.listener = listener;
+  }
+
+  @Nullable
+  public Histogram getHistogram(final int id, @NotNull final TraceSpan span) {
+    if (id < 0 || id >= PacketTracer.MAX_TRACKED_ID) {
+      return null;
+    }
+    final Histogram[] spans = this.histograms.get(id);
+    return spans == null ? null : spans[span.ordinal()];
+  }
+
+  int getMaxTrackedId() {
+    return PacketTracer.MAX_TRACKED_ID;
+  }
+
+  void record(@NotNull final PacketTrace trace) {
+    final int id = trace.getId();
+    if (id >= 0 && id < PacketTracer.MAX_TRACKED_ID) {
+      final Histogram[] spans = this.histograms(id);
+      for (final TraceSpan span : TraceSpan.values()) {
+        final long nanos = trace.getSpan(span);
+        if (nanos >= 0L) {
+          spans[span.ordinal()].record(nanos);
+        }
+      }
+    }
+    final Consumer<PacketTrace> listener = this.listener;
+    if (listener != null && trace.isSampled()) {
+      listener.accept(trace);
+    }
+  }
+
+  @NotNull
+  private Histogram[] histograms(final int id) {
+    final Histogram[] current = this.histograms.get(id);
+    if (current != null) {
+      return current;
+    }
+    final Histogram[] spans = new Histogram[TraceSpan.values().length];
+    for (int index = 0; index < spans.length; index++) {
+      spans[index] = new Histogram();
+    }
+    return this.histograms.compareAndSet(id, null, spans) ? spans : this.histograms.get(id);
+  }
+}
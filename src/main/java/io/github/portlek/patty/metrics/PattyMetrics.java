@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The metrics registry of a {@link io.github.portlek.patty.Patty} instance.
+ */
+public final class PattyMetrics implements PattyMetricsMXBean {
+
+  private static final int MAX_TRACKED_ID = 4096;
+
+  private static final double[] PERCENTILES = {50.0d, 90.0d, 99.0d, 99.9d};
+
+  private final LongAdder[] counters = new LongAdder[MetricCounter.values().length];
+
+  private final Histogram[] stages = new Histogram[MetricStage.values().length];
+
+  private final Histogram queueDepths = new Histogram();
+
+  private final AtomicReferenceArray<LongAdder> packetsRead = new AtomicReferenceArray<>(PattyMetrics.MAX_TRACKED_ID);
+
+  private final AtomicReferenceArray<LongAdder> packetsWritten =
+    new AtomicReferenceArray<>(PattyMetrics.MAX_TRACKED_ID);
+
+  private final LongAdder untrackedRead = new LongAdder();
+
+  private final LongAdder untrackedWritten = new LongAdder();
+
+  private final Set<ConnectionMetrics> connections = ConcurrentHashMap.newKeySet();
+
+  private final PacketTracer tracer = new PacketTracer();
+
+  private volatile boolean enabled = false;
+
+  private volatile int sampleMask = 7;
+
+  @Nullable
+  private volatile PipelineObserver observer;
+
+  @Nullable
+  private ObjectName objectName;
+
+  public PattyMetrics() {
+    for (int index = 0; index < this.counters.length; index++) {
+      this.counters[index] = new LongAdder();
+    }
+    for (int index = 0; index < this.stages.length; index++) {
+      this.stages[index] = new Histogram();
+    }
+  }
+
+  private static String key(@NotNull final Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+
+  private static Map<String, Long> describe(@NotNull final String prefix, @NotNull final Histogram histogram,
+                                            @NotNull final Map<String, Long> map) {
+    map.put(prefix + "count", histogram.getCount());
+    map.put(prefix + "mean", Math.round(histogram.getMean()));
+    for (final double percentile : PattyMetrics.PERCENTILES) {
+      final String name = percentile == Math.rint(percentile)
+        ? String.valueOf((int) percentile)
+        : String.valueOf(percentile).replace(".", "");
+      map.put(prefix + 'p' + name, histogram.getValueAtPercentile(percentile));
+    }
+    map.put(prefix + "max", histogram.getMax());
+    return map;
+  }
+
+  private static Map<String, Long> describe(@NotNull final AtomicReferenceArray<LongAdder> counts,
+                                            @NotNull final LongAdder untracked) {
+    final Map<String, Long> map = new LinkedHashMap<>();
+    for (int id = 0; id < counts.length(); id++) {
+      final long count = PattyMetrics.sum(counts, id);
+      if (count != 0L) {
+        map.put(String.valueOf(id), count);
+      }
+    }
+    final long rest = untracked.sum();
+    if (rest != 0L) {
+      map.put("untracked", rest);
+    }
+    return map;
+  }
+
+  private static long sum(@NotNull final AtomicReferenceArray<LongAdder> counts, final int id) {
+    if (id < 0 || id >= PattyMetrics.MAX_TRACKED_ID) {
+      return 0L;
+    }
+    final LongAdder count = counts.get(id);
+    return count == null ? 0L : count.sum();
+  }
+
+  @NotNull
+  private static LongAdder counter(@NotNull final AtomicReferenceArray<LongAdder> counts, final int id) {
+    final LongAdder count = counts.get(id);
+    if (count != null) {
+      return count;
+    }
+    final LongAdder created = new LongAdder();
+    return counts.compareAndSet(id, null, created) ? created : counts.get(id);
+  }
+
+  @Nullable
+  public ConnectionMetrics create(@NotNull final Connection connection) {
+    if (!this.enabled) {
+      return null;
+    }
+    return new ConnectionMetrics(this, connection);
+  }
+
+  public void enable() {
+    this.setEnabled(true);
+  }
+
+  public void disable() {
+    this.setEnabled(false);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  @Override
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Nullable
+  public PipelineObserver getObserver() {
+    return this.observer;
+  }
+
+  public void setObserver(@Nullable final PipelineObserver observer) {
+    this.observer = observer;
+  }
+
+  @NotNull
+  public PacketTracer getTracer() {
+    return this.tracer;
+  }
+
+  @Override
+  public boolean isTracingEnabled() {
+    return this.tracer.isEnabled();
+  }
+
+  @Override
+  public void setTracingEnabled(final boolean enabled) {
+    this.tracer.setEnabled(enabled);
+  }
+
+  @Override
+  public int getSampleRate() {
+    return this.sampleMask + 1;
+  }
+
+  /**
+   * Sets how often stage timings are taken, rounded up to a power of two.
+   *
+   * @param rate one sample every {@code rate} calls, {@code 1} times every call.
+   */
+  @Override
+  public void setSampleRate(final int rate) {
+    if (rate < 1) {
+      throw new IllegalArgumentException("Sample rate must be positive.");
+    }
+    this.sampleMask = rate == 1 ? 0 : (Integer.highestOneBit(rate - 1) << 1) - 1;
+  }
+
+  public long get(@NotNull final MetricCounter counter) {
+    return this.counters[counter.ordinal()].sum();
+  }
+
+  @NotNull
+  public Histogram getHistogram(@NotNull final MetricStage stage) {
+    return this.stages[stage.ordinal()];
+  }
+
+  @NotNull
+  public Histogram getQueueDepthHistogram() {
+    return this.queueDepths;
+  }
+
+  public long getPacketsRead(final int id) {
+    return PattyMetrics.sum(this.packetsRead, id);
+  }
+
+  public long getPacketsWritten(final int id) {
+    return PattyMetrics.sum(this.packetsWritten, id);
+  }
+
+  @NotNull
+  public Set<ConnectionMetrics> getConnections() {
+    return Collections.unmodifiableSet(this.connections);
+  }
+
+  @Override
+  public int getOpenConnections() {
+    return this.connections.size();
+  }
+
+  @Override
+  public long getQueueDepth() {
+    long depth = 0L;
+    for (final ConnectionMetrics connection : this.connections) {
+      depth += connection.getQueueDepth();
+    }
+    return depth;
+  }
+
+  @Override
+  public long getReallocations() {
+    long reallocations = 0L;
+    for (final ConnectionMetrics connection : this.connections) {
+      reallocations += connection.getReallocations();
+    }
+    return reallocations;
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    final Map<String, Long> map = new LinkedHashMap<>();
+    for (final MetricCounter counter : MetricCounter.values()) {
+      map.put(PattyMetrics.key(counter), this.get(counter));
+    }
+    return map;
+  }
+
+  @Override
+  public Map<String, Long> getPacketsReadById() {
+    return PattyMetrics.describe(this.packetsRead, this.untrackedRead);
+  }
+
+  @Override
+  public Map<String, Long> getPacketsWrittenById() {
+    return PattyMetrics.describe(this.packetsWritten, this.untrackedWritten);
+  }
+
+  @Override
+  public Map<String, Long> getStageNanos() {
+    final Map<String, Long> map = new LinkedHashMap<>();
+    for (final MetricStage stage : MetricStage.values()) {
+      PattyMetrics.describe(PattyMetrics.key(stage) + '.', this.getHistogram(stage), map);
+    }
+    return map;
+  }
+
+  @Override
+  public Map<String, Long> getTraceNanos() {
+    final Map<String, Long> map = new LinkedHashMap<>();
+    for (int id = 0; id < this.tracer.getMaxTrackedId(); id++) {
+      for (final TraceSpan span : TraceSpan.values()) {
+        final Histogram histogram = this.tracer.getHistogram(id, span);
+        if (histogram != null && histogram.getCount() != 0L) {
+          PattyMetrics.describe(id + "." + PattyMetrics.key(span) + '.', histogram, map);
+        }
+      }
+    }
+    return map;
+  }
+
+  @Override
+  public Map<String, Long> getQueueDepths() {
+    return PattyMetrics.describe("", this.queueDepths, new LinkedHashMap<>());
+  }
+
+  /**
+   * Registers this registry to the platform MBean server as
+   * {@code io.github.portlek.patty:type=Metrics,name=<name>}.
+   *
+   * @param name the name of the instance.
+   *
+   * @throws JMException if the registration fails.
+   */
+  public synchronized void registerMBean(@NotNull final String name) throws JMException {
+    if (this.objectName != null) {
+      throw new IllegalStateException("Metrics are already registered as " + this.objectName + '.');
+    }
+    final ObjectName objectName = new ObjectName("io.github.portlek.patty:type=Metrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    this.objectName = objectName;
+  }
+
+  public synchronized void unregisterMBean() throws JMException {
+    if (this.objectName == null) {
+      return;
+    }
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(this.objectName)) {
+      server.unregisterMBean(this.objectName);
+    }
+    this.objectName = null;
+  }
+
+  int getSampleMask() {
+    return this.sampleMask;
+  }
+
+  void add(@NotNull final MetricCounter counter, final long value) {
+    this.counters[counter.ordinal()].add(value);
+  }
+
+  void packetRead(final int id) {
+    if (id >= 0 && id < PattyMetrics.MAX_TRACKED_ID) {
+      PattyMetrics.counter(this.packetsRead, id).increment();
+    } else {
+      this.untrackedRead.increment();
+    }
+  }
+
+  void packetWritten(final int id) {
+    if (id >= 0 && id < PattyMetrics.MAX_TRACKED_ID) {
+      PattyMetrics.counter(this.packetsWritten, id).increment();
+    } else {
+      this.untrackedWritten.increment();
+    }
+  }
+
+  void queued(final int depth) {
+    this.queueDepths.record(depth);
+  }
+
+  void open(@NotNull final ConnectionMetrics connection) {
+    this.connections.add(connection);
+  }
+
+  void close(@NotNull final ConnectionMetrics connection) {
+    this.connections.remove(connection);
+  }
+}
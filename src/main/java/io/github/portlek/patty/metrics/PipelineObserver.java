@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hook for external profilers into the pipeline stages of every connection of a
+ * {@link io.github.portlek.patty.Patty} instance.
+ */
+public interface PipelineObserver {
+
+  /**
+   * Called right before the given stage runs.
+   *
+   * @param stage the stage to observe.
+   *
+   * @return an event to pass to {@link #end(Object, Connection, int, int, int)}, or {@code null} to skip the stage.
+   */
+  @Nullable
+  Object begin(@NotNull ObservedStage stage);
+
+  /**
+   * Called right after a stage that {@link #begin(ObservedStage)} returned an event for.
+   *
+   * @param event the event of the stage.
+   * @param connection the connection of the stage.
+   * @param packetId the id of the packet, or {@code -1} if the stage works on raw bytes.
+   * @param inputSize the bytes the stage consumed.
+   * @param outputSize the bytes the stage produced.
+   */
+  void end(@NotNull Object event, @NotNull Connection connection, int packetId, int inputSize, int outputSize);
+
+  void disconnected(@NotNull Connection connection, @NotNull String reason, @Nullable Throwable cause);
+
+  void writabilityChanged(@NotNull Connection connection, boolean writable);
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+public enum TraceSpan {
+  DECODE(TracePoint.ARRIVAL, TracePoint.DECODED),
+  PIPELINE(TracePoint.DECODED, TracePoint.ENQUEUED),
+  QUEUE(TracePoint.ENQUEUED, TracePoint.LISTENER_START),
+  LISTENER(TracePoint.LISTENER_START, TracePoint.LISTENER_END),
+  ENCODE(TracePoint.SEND, TracePoint.ENCODED),
+  FLUSH(TracePoint.ENCODED, TracePoint.FLUSHED);
+
+  @NotNull
+  private final TracePoint from;
+
+  @NotNull
+  private final TracePoint to;
+
+  TraceSpan(@NotNull final TracePoint from, @NotNull final TracePoint to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  @NotNull
+  public TracePoint getFrom() {
+    return this.from;
+  }
+
+  @NotNull
+  public TracePoint getTo() {
+    return this.to;
+  }
+}
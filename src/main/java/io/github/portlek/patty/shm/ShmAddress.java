@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import java.io.File;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The address of a shared-memory server, the directory its clients create their ring files in, or the ring file of a
+ * single connection.
+ */
+public final class ShmAddress extends SocketAddress {
+
+  static final int MIN_CAPACITY = 4096;
+
+  private static final long serialVersionUID = 1L;
+
+  @NotNull
+  private final File path;
+
+  private final int capacity;
+
+  /**
+   * Creates an address.
+   *
+   * @param path the directory of the server, or the ring file of a connection.
+   * @param capacity the bytes of the ring of each direction the client creates, a power of two.
+   */
+  public ShmAddress(@NotNull final File path, final int capacity) {
+    if (capacity < ShmAddress.MIN_CAPACITY || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Ring capacity must be a power of two of at least 4096 bytes.");
+    }
+    this.path = path;
+    this.capacity = capacity;
+  }
+
+  @NotNull
+  public File getPath() {
+    return this.path;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ShmAddress)) {
+      return false;
+    }
+    return this.path.equals(((ShmAddress) o).path);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "shm:" + this.path;
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NotYetConnectedException;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A byte stream between two processes on the same host, through a memory-mapped ring file of two
+ * {@link ShmRing rings}, one per direction.
+ */
+public final class ShmChannel extends AbstractChannel {
+
+  static final int MAGIC = 0x50545953;
+
+  static final int HEADER_SIZE = 128;
+
+  static final int NEW = 0;
+
+  static final int OPEN = 1;
+
+  static final int CLOSED = 2;
+
+  private static final int MAGIC_OFFSET = 0;
+
+  private static final int CAPACITY_OFFSET = 4;
+
+  private static final int CLIENT_STATE_OFFSET = 64;
+
+  private static final int SERVER_STATE_OFFSET = 72;
+
+  private static final int READ_SIZE = 65536;
+
+  private static final int MAX_READS = 16;
+
+  private static final long SPIN_NANOS = Runtime.getRuntime().availableProcessors() > 1
+    ? TimeUnit.MICROSECONDS.toNanos(50L)
+    : 0L;
+
+  private static final long YIELD_NANOS = TimeUnit.MICROSECONDS.toNanos(200L);
+
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20L);
+
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private static final long CONNECT_POLL_MILLIS = 1L;
+
+  private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+  @NotNull
+  private final ChannelConfig config = new DefaultChannelConfig(this);
+
+  private volatile int state = ShmChannel.NEW;
+
+  @Nullable
+  private volatile ShmAddress localAddress;
+
+  @Nullable
+  private volatile ShmAddress remoteAddress;
+
+  @Nullable
+  private File file;
+
+  @Nullable
+  private MappedByteBuffer buffer;
+
+  private long stateAddress;
+
+  private long peerStateAddress;
+
+  @Nullable
+  private ShmRing inbound;
+
+  @Nullable
+  private ShmRing outbound;
+
+  @Nullable
+  private Thread poller;
+
+  @Nullable
+  private ChannelPromise connectPromise;
+
+  private long connectDeadline;
+
+  private volatile boolean reading;
+
+  private volatile boolean readScheduled;
+
+  private volatile boolean writeBlocked;
+
+  public ShmChannel() {
+    super(null);
+  }
+
+  ShmChannel(@NotNull final ShmServerChannel parent, @NotNull final File file) throws IOException {
+    super(parent);
+    final MappedByteBuffer buffer = ShmChannel.map(file, -1);
+    final int capacity = buffer.getInt(ShmChannel.CAPACITY_OFFSET);
+    if (buffer.getInt(ShmChannel.MAGIC_OFFSET) != ShmChannel.MAGIC || capacity < ShmAddress.MIN_CAPACITY ||
+      Integer.bitCount(capacity) != 1 || buffer.capacity() != ShmChannel.size(capacity)) {
+      throw new IOException("Not a ring file: " + file);
+    }
+    this.init(buffer, file, capacity, false);
+    if (ShmMemory.getIntVolatile(this.peerStateAddress) != ShmChannel.OPEN) {
+      throw new IOException("Abandoned ring file: " + file);
+    }
+    this.localAddress = parent.localAddress();
+    this.remoteAddress = new ShmAddress(file, capacity);
+    this.state = ShmChannel.OPEN;
+  }
+
+  static int size(final int capacity) {
+    return ShmChannel.HEADER_SIZE + 2 * ShmRing.size(capacity);
+  }
+
+  @NotNull
+  private static MappedByteBuffer map(@NotNull final File file, final int size) throws IOException {
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (size >= 0) {
+        raf.setLength(size);
+      }
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, raf.length());
+    }
+  }
+
+  @Override
+  public ChannelConfig config() {
+    return this.config;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return this.state != ShmChannel.CLOSED;
+  }
+
+  @Override
+  public boolean isActive() {
+    return this.state == ShmChannel.OPEN && this.buffer != null;
+  }
+
+  @Override
+  public ChannelMetadata metadata() {
+    return ShmChannel.METADATA;
+  }
+
+  @Override
+  protected AbstractUnsafe newUnsafe() {
+    return new ShmUnsafe();
+  }
+
+  @Override
+  protected boolean isCompatible(final EventLoop loop) {
+    return loop instanceof SingleThreadEventLoop;
+  }
+
+  @Override
+  protected SocketAddress localAddress0() {
+    return this.localAddress;
+  }
+
+  @Override
+  protected SocketAddress remoteAddress0() {
+    return this.remoteAddress;
+  }
+
+  @Override
+  protected void doRegister() {
+    if (this.parent() != null && this.isActive()) {
+      ShmMemory.putIntVolatile(this.stateAddress, ShmChannel.OPEN);
+      this.startPoller();
+    }
+  }
+
+  @Override
+  protected void doBind(final SocketAddress localAddress) {
+    throw new UnsupportedOperationException("Shared memory channels are bound by connecting.");
+  }
+
+  @Override
+  protected void doDisconnect() {
+    this.doClose();
+  }
+
+  @Override
+  protected void doClose() {
+    final boolean wasOpen = this.state != ShmChannel.CLOSED;
+    this.state = ShmChannel.CLOSED;
+    if (!wasOpen) {
+      return;
+    }
+    if (this.buffer != null) {
+      ShmMemory.putIntVolatile(this.stateAddress, ShmChannel.CLOSED);
+    }
+    final File file = this.file;
+    if (file != null) {
+      file.delete();
+      if (this.parent() != null) {
+        ((ShmServerChannel) this.parent()).remove(file.getName());
+      }
+    }
+    final Thread poller = this.poller;
+    if (poller != null) {
+      LockSupport.unpark(poller);
+    }
+    final ChannelPromise promise = this.connectPromise;
+    if (promise != null) {
+      this.connectPromise = null;
+      promise.tryFailure(new ConnectException("Channel closed while connecting."));
+    }
+  }
+
+  @Override
+  protected void doBeginRead() {
+    this.reading = true;
+    final ShmRing inbound = this.inbound;
+    if (inbound != null && !this.readScheduled && inbound.readable() > 0) {
+      this.readScheduled = true;
+      this.eventLoop().execute(this::readInbound);
+    }
+  }
+
+  @Override
+  protected void doWrite(final ChannelOutboundBuffer in) throws Exception {
+    final ShmRing outbound = this.outbound;
+    if (outbound == null || !this.isActive()) {
+      throw new NotYetConnectedException();
+    }
+    boolean written = false;
+    try {
+      for (; ; ) {
+        final Object msg = in.current();
+        if (msg == null) {
+          break;
+        }
+        if (!(msg instanceof ByteBuf)) {
+          in.remove(new UnsupportedOperationException("Unsupported message type: " +
+            StringUtil.simpleClassName(msg)));
+          continue;
+        }
+        final ByteBuf buf = (ByteBuf) msg;
+        final int readable = buf.readableBytes();
+        if (readable == 0) {
+          in.remove();
+          continue;
+        }
+        final int length = outbound.write(buf);
+        if (length > 0) {
+          written = true;
+          in.removeBytes(length);
+        }
+        if (length < readable) {
+          this.writeBlocked = true;
+          break;
+        }
+      }
+    } finally {
+      if (written) {
+        outbound.publish();
+      }
+    }
+  }
+
+  private void init(@NotNull final MappedByteBuffer buffer, @NotNull final File file, final int capacity,
+                    final boolean client) {
+    final long address = PlatformDependent.directBufferAddress(buffer);
+    final ShmRing toServer = new ShmRing(buffer, ShmChannel.HEADER_SIZE, capacity);
+    final ShmRing toClient = new ShmRing(buffer, ShmChannel.HEADER_SIZE + ShmRing.size(capacity), capacity);
+    this.stateAddress = address + (client ? ShmChannel.CLIENT_STATE_OFFSET : ShmChannel.SERVER_STATE_OFFSET);
+    this.peerStateAddress = address + (client ? ShmChannel.SERVER_STATE_OFFSET : ShmChannel.CLIENT_STATE_OFFSET);
+    this.outbound = client ? toServer : toClient;
+    this.inbound = client ? toClient : toServer;
+    this.file = file;
+    this.buffer = buffer;
+  }
+
+  private void create(@NotNull final ShmAddress remote) throws IOException {
+    final File directory = remote.getPath();
+    if (!directory.isDirectory()) {
+      throw new ConnectException("connection refused: " + remote);
+    }
+    final String name = UUID.randomUUID().toString();
+    final File temp = new File(directory, name + ".tmp");
+    final File file = new File(directory, name + ShmServerChannel.SUFFIX);
+    final int capacity = remote.getCapacity();
+    final MappedByteBuffer buffer;
+    try {
+      buffer = ShmChannel.map(temp, ShmChannel.size(capacity));
+      buffer.putInt(ShmChannel.MAGIC_OFFSET, ShmChannel.MAGIC);
+      buffer.putInt(ShmChannel.CAPACITY_OFFSET, capacity);
+      this.init(buffer, file, capacity, true);
+      ShmMemory.putIntVolatile(this.stateAddress, ShmChannel.OPEN);
+      if (!temp.renameTo(file)) {
+        throw new IOException("Failed to create " + file);
+      }
+    } catch (final IOException e) {
+      temp.delete();
+      throw e;
+    }
+    this.localAddress = new ShmAddress(file, capacity);
+    this.remoteAddress = remote;
+  }
+
+  private void awaitAccepted() {
+    final ChannelPromise promise = this.connectPromise;
+    if (promise == null || this.state == ShmChannel.CLOSED) {
+      return;
+    }
+    final int peer = ShmMemory.getIntVolatile(this.peerStateAddress);
+    if (peer == ShmChannel.OPEN) {
+      this.connectPromise = null;
+      this.state = ShmChannel.OPEN;
+      this.startPoller();
+      promise.trySuccess();
+      this.pipeline().fireChannelActive();
+    } else if (peer == ShmChannel.CLOSED) {
+      this.failConnect(promise, new ConnectException("connection refused: " + this.remoteAddress));
+    } else if (System.nanoTime() - this.connectDeadline >= 0L) {
+      this.failConnect(promise, new ConnectTimeoutException("connection timed out: " + this.remoteAddress));
+    } else {
+      this.eventLoop().schedule(this::awaitAccepted, ShmChannel.CONNECT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void failConnect(@NotNull final ChannelPromise promise, @NotNull final Throwable cause) {
+    this.connectPromise = null;
+    promise.tryFailure(cause);
+    this.unsafe().close(this.unsafe().voidPromise());
+  }
+
+  private void startPoller() {
+    final Thread poller = new Thread(this::poll, "patty-shm-poller");
+    poller.setDaemon(true);
+    this.poller = poller;
+    poller.start();
+  }
+
+  private void poll() {
+    final ShmRing inbound = this.inbound;
+    final ShmRing outbound = this.outbound;
+    long idleSince = System.nanoTime();
+    long park = ShmChannel.MIN_PARK_NANOS;
+    try {
+      while (this.state != ShmChannel.CLOSED) {
+        boolean busy = false;
+        final int readable = inbound.readable();
+        if (readable > 0 && this.reading && !this.readScheduled) {
+          this.readScheduled = true;
+          this.eventLoop().execute(this::readInbound);
+          busy = true;
+        }
+        if (this.writeBlocked && outbound.writable() > 0) {
+          this.writeBlocked = false;
+          this.eventLoop().execute(() -> this.unsafe().flush());
+          busy = true;
+        }
+        if (readable == 0 && ShmMemory.getIntVolatile(this.peerStateAddress) == ShmChannel.CLOSED) {
+          this.eventLoop().execute(() -> this.unsafe().close(this.unsafe().voidPromise()));
+          return;
+        }
+        final long now = System.nanoTime();
+        if (busy) {
+          idleSince = now;
+          park = ShmChannel.MIN_PARK_NANOS;
+        } else if (now - idleSince < ShmChannel.SPIN_NANOS) {
+          continue;
+        } else if (now - idleSince < ShmChannel.YIELD_NANOS) {
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(park);
+          park = Math.min(park << 1, ShmChannel.MAX_PARK_NANOS);
+        }
+      }
+    } catch (final RejectedExecutionException ignored) {
+    }
+  }
+
+  private void readInbound() {
+    this.readScheduled = false;
+    final ShmRing inbound = this.inbound;
+    if (inbound == null || !this.isActive() || !this.reading) {
+      return;
+    }
+    final ChannelPipeline pipeline = this.pipeline();
+    boolean read = false;
+    for (int index = 0; index < ShmChannel.MAX_READS && this.isActive(); index++) {
+      final ByteBuf buf = inbound.read(this.config.getAllocator(), ShmChannel.READ_SIZE);
+      if (buf == null) {
+        break;
+      }
+      read = true;
+      pipeline.fireChannelRead(buf);
+    }
+    if (read) {
+      if (!this.config.isAutoRead()) {
+        this.reading = false;
+      }
+      pipeline.fireChannelReadComplete();
+    }
+  }
+
+  private final class ShmUnsafe extends AbstractUnsafe {
+
+    @Override
+    public void connect(final SocketAddress remoteAddress, final SocketAddress localAddress,
+                        final ChannelPromise promise) {
+      if (!promise.setUncancellable() || !this.ensureOpen(promise)) {
+        return;
+      }
+      if (ShmChannel.this.isActive()) {
+        promise.setFailure(new AlreadyConnectedException());
+        return;
+      }
+      if (ShmChannel.this.connectPromise != null) {
+        promise.setFailure(new ConnectionPendingException());
+        return;
+      }
+      if (!(remoteAddress instanceof ShmAddress)) {
+        promise.setFailure(new ConnectException("Not a shared memory address: " + remoteAddress));
+        return;
+      }
+      try {
+        ShmChannel.this.create((ShmAddress) remoteAddress);
+      } catch (final Throwable t) {
+        this.safeSetFailure(promise, t);
+        this.close(this.voidPromise());
+        return;
+      }
+      ShmChannel.this.connectPromise = promise;
+      ShmChannel.this.connectDeadline = System.nanoTime() +
+        TimeUnit.MILLISECONDS.toNanos(ShmChannel.this.config.getConnectTimeoutMillis());
+      ShmChannel.this.awaitAccepted();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.netty.util.internal.PlatformDependent;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Volatile and ordered accesses to native memory, which the ring indexes shared with another process need and Java 8
+ * only offers through {@code sun.misc.Unsafe}. The methods are looked up reflectively, so the class compiles against
+ * any JDK, and called through constant method handles, which the JIT inlines.
+ */
+final class ShmMemory {
+
+  @Nullable
+  private static final MethodHandle GET_LONG_VOLATILE;
+
+  @Nullable
+  private static final MethodHandle PUT_LONG_ORDERED;
+
+  @Nullable
+  private static final MethodHandle GET_INT_VOLATILE;
+
+  @Nullable
+  private static final MethodHandle PUT_INT_VOLATILE;
+
+  @Nullable
+  private static final Throwable UNAVAILABILITY_CAUSE;
+
+  static {
+    MethodHandle getLongVolatile = null;
+    MethodHandle putLongOrdered = null;
+    MethodHandle getIntVolatile = null;
+    MethodHandle putIntVolatile = null;
+    Throwable cause = null;
+    try {
+      if (!PlatformDependent.hasUnsafe()) {
+        throw new UnsupportedOperationException("Direct buffer addresses are not available.",
+          PlatformDependent.getUnsafeUnavailabilityCause());
+      }
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      final Object unsafe = field.get(null);
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      getLongVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+        MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+      putLongOrdered = lookup.findVirtual(unsafeClass, "putOrderedLong",
+        MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+      getIntVolatile = lookup.findVirtual(unsafeClass, "getIntVolatile",
+        MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+      putIntVolatile = lookup.findVirtual(unsafeClass, "putIntVolatile",
+        MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+    } catch (final Throwable t) {
+      cause = t;
+    }
+    GET_LONG_VOLATILE = getLongVolatile;
+    PUT_LONG_ORDERED = putLongOrdered;
+    GET_INT_VOLATILE = getIntVolatile;
+    PUT_INT_VOLATILE = putIntVolatile;
+    UNAVAILABILITY_CAUSE = cause;
+  }
+
+  private ShmMemory() {
+  }
+
+  @Nullable
+  static Throwable unavailabilityCause() {
+    return ShmMemory.UNAVAILABILITY_CAUSE;
+  }
+
+  static long getLongVolatile(final long address) {
+    try {
+      return (long) ShmMemory.GET_LONG_VOLATILE.invokeExact((Object) null, address);
+    } catch (final Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  static void putLongOrdered(final long address, final long value) {
+    try {
+      ShmMemory.PUT_LONG_ORDERED.invokeExact((Object) null, address, value);
+    } catch (final Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  static int getIntVolatile(final long address) {
+    try {
+      return (int) ShmMemory.GET_INT_VOLATILE.invokeExact((Object) null, address);
+    } catch (final Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  static void putIntVolatile(final long address, final int value) {
+    try {
+      ShmMemory.PUT_INT_VOLATILE.invokeExact((Object) null, address, value);
+    } catch (final Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+}
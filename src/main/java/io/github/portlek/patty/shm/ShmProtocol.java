@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.github.portlek.patty.ChannelOptions;
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.PacketHeader;
+import io.github.portlek.patty.PacketSizer;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.ServerListener;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.github.portlek.patty.tcp.TcpClientConnection;
+import io.github.portlek.patty.tcp.TcpServerConnection;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ServerChannel;
+import java.io.File;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A protocol that connects processes on the same host through {@link ShmChannel shared memory rings}, with the same
+ * pipeline as TCP but without any system call per packet. The ip is the directory of the ring files, the port is
+ * ignored.
+ */
+public final class ShmProtocol implements Protocol {
+
+  public static final int DEFAULT_CAPACITY = 1 << 20;
+
+  @Nullable
+  private final PacketEncryptor encryptor;
+
+  @NotNull
+  private final PacketSizer sizer;
+
+  @NotNull
+  private final PacketHeader header;
+
+  @Nullable
+  private final ServerListener serverListener;
+
+  @Nullable
+  private final ConnectionListener connectionListener;
+
+  private final int capacity;
+
+  public ShmProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                     @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                     @Nullable final ConnectionListener connectionListener) {
+    this(encryptor, sizer, header, serverListener, connectionListener, ShmProtocol.DEFAULT_CAPACITY);
+  }
+
+  public ShmProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                     @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                     @Nullable final ConnectionListener connectionListener, final int capacity) {
+    this.encryptor = encryptor;
+    this.sizer = sizer;
+    this.header = header;
+    this.serverListener = serverListener;
+    this.connectionListener = connectionListener;
+    this.capacity = capacity;
+  }
+
+  @Nullable
+  @Override
+  public PacketEncryptor getEncryptor() {
+    return this.encryptor;
+  }
+
+  @NotNull
+  @Override
+  public PacketSizer getSizer() {
+    return this.sizer;
+  }
+
+  @NotNull
+  @Override
+  public PacketHeader getHeader() {
+    return this.header;
+  }
+
+  @Nullable
+  @Override
+  public ServerListener getServerListener() {
+    return this.serverListener;
+  }
+
+  @Nullable
+  @Override
+  public ConnectionListener getConnectionListener() {
+    return this.connectionListener;
+  }
+
+  @NotNull
+  @Override
+  public SocketAddress newAddress(@NotNull final String ip, final int port) {
+    if (ShmMemory.unavailabilityCause() != null) {
+      throw new IllegalStateException("Shared memory needs sun.misc.Unsafe.", ShmMemory.unavailabilityCause());
+    }
+    return new ShmAddress(new File(ip), this.capacity);
+  }
+
+  @NotNull
+  @Override
+  public Connection newServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    return new TcpServerConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Connection newClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    return new TcpClientConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Class<? extends ServerChannel> getServerChannelClass() {
+    return ShmServerChannel.class;
+  }
+
+  @NotNull
+  @Override
+  public Class<? extends Channel> getClientChannelClass() {
+    return ShmChannel.class;
+  }
+
+  @Override
+  public void applyOptions(@NotNull final ChannelOptions options, @NotNull final ServerBootstrap bootstrap) {
+  }
+
+  @Override
+  public void applyOptions(@NotNull final ChannelOptions options, @NotNull final Bootstrap bootstrap) {
+  }
+
+  @Override
+  public int getAcceptors(@NotNull final ChannelOptions options) {
+    return 1;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single-producer single-consumer ring of bytes in shared memory, carrying one direction of a {@link ShmChannel}.
+ */
+final class ShmRing {
+
+  static final int HEADER_SIZE = 128;
+
+  private static final int TAIL = 0;
+
+  private static final int HEAD = 64;
+
+  private final long tailAddress;
+
+  private final long headAddress;
+
+  @NotNull
+  private final ByteBuffer data;
+
+  private final int offset;
+
+  private final int capacity;
+
+  private final int mask;
+
+  private long tail;
+
+  private long head;
+
+  ShmRing(@NotNull final MappedByteBuffer buffer, final int offset, final int capacity) {
+    final long address = PlatformDependent.directBufferAddress(buffer) + offset;
+    this.tailAddress = address + ShmRing.TAIL;
+    this.headAddress = address + ShmRing.HEAD;
+    this.data = buffer.duplicate();
+    this.offset = offset + ShmRing.HEADER_SIZE;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.tail = ShmMemory.getLongVolatile(this.tailAddress);
+    this.head = ShmMemory.getLongVolatile(this.headAddress);
+  }
+
+  static int size(final int capacity) {
+    return ShmRing.HEADER_SIZE + capacity;
+  }
+
+  /**
+   * Obtains the bytes the consumer can read, called from any thread.
+   *
+   * @return the published bytes not read yet.
+   */
+  int readable() {
+    return (int) (ShmMemory.getLongVolatile(this.tailAddress) - ShmMemory.getLongVolatile(this.headAddress));
+  }
+
+  /**
+   * Obtains the bytes the producer can write, called from any thread.
+   *
+   * @return the free bytes.
+   */
+  int writable() {
+    return this.capacity - this.readable();
+  }
+
+  /**
+   * Copies as much of the buffer as fits into the ring, without publishing it.
+   *
+   * @param buf the buffer to write, its reader index is not moved.
+   *
+   * @return the bytes written.
+   */
+  int write(@NotNull final ByteBuf buf) {
+    final int free = this.capacity - (int) (this.tail - ShmMemory.getLongVolatile(this.headAddress));
+    final int length = Math.min(free, buf.readableBytes());
+    if (length <= 0) {
+      return 0;
+    }
+    final int start = (int) this.tail & this.mask;
+    final int first = Math.min(length, this.capacity - start);
+    this.segment(start, first);
+    buf.getBytes(buf.readerIndex(), this.data);
+    if (first < length) {
+      this.segment(0, length - first);
+      buf.getBytes(buf.readerIndex() + first, this.data);
+    }
+    this.tail += length;
+    return length;
+  }
+
+  /**
+   * Publishes the bytes written since the last call to the consumer.
+   */
+  void publish() {
+    ShmMemory.putLongOrdered(this.tailAddress, this.tail);
+  }
+
+  /**
+   * Reads the published bytes into a new buffer and releases their space to the producer.
+   *
+   * @param allocator the allocator of the buffer.
+   * @param max the most bytes to read.
+   *
+   * @return the bytes read, or {@code null} when the ring is empty.
+   */
+  @Nullable
+  ByteBuf read(@NotNull final ByteBufAllocator allocator, final int max) {
+    final int length = Math.min(max, (int) (ShmMemory.getLongVolatile(this.tailAddress) - this.head));
+    if (length <= 0) {
+      return null;
+    }
+    final ByteBuf buf = allocator.ioBuffer(length);
+    final int start = (int) this.head & this.mask;
+    final int first = Math.min(length, this.capacity - start);
+    this.segment(start, first);
+    buf.writeBytes(this.data);
+    if (first < length) {
+      this.segment(0, length - first);
+      buf.writeBytes(this.data);
+    }
+    this.head += length;
+    ShmMemory.putLongOrdered(this.headAddress, this.head);
+    return buf;
+  }
+
+  private void segment(final int start, final int length) {
+    this.data.clear();
+    this.data.position(this.offset + start);
+    this.data.limit(this.offset + start + length);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.netty.channel.AbstractServerChannel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.io.File;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.SocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Accepts {@link ShmChannel}s from the ring files clients create in a directory, which is locked while the server is
+ * bound. The directory is scanned every few milliseconds, which only delays connecting, not the packets. Ring files
+ * that are malformed or abandoned by their client are deleted.
+ */
+public final class ShmServerChannel extends AbstractServerChannel {
+
+  static final String SUFFIX = ".ring";
+
+  private static final String LOCK = ".lock";
+
+  private static final long ACCEPT_POLL_MILLIS = 5L;
+
+  @NotNull
+  private final ChannelConfig config = new DefaultChannelConfig(this);
+
+  private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+
+  private volatile int state = ShmChannel.NEW;
+
+  @Nullable
+  private volatile ShmAddress localAddress;
+
+  @Nullable
+  private FileChannel lockChannel;
+
+  @Nullable
+  private ScheduledFuture<?> scan;
+
+  private boolean reading;
+
+  @Override
+  public ChannelConfig config() {
+    return this.config;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return this.state != ShmChannel.CLOSED;
+  }
+
+  @Override
+  public boolean isActive() {
+    return this.state == ShmChannel.OPEN;
+  }
+
+  @Override
+  public ShmAddress localAddress() {
+    return (ShmAddress) super.localAddress();
+  }
+
+  @Override
+  protected boolean isCompatible(final EventLoop loop) {
+    return loop instanceof SingleThreadEventLoop;
+  }
+
+  @Override
+  protected SocketAddress localAddress0() {
+    return this.localAddress;
+  }
+
+  @Override
+  protected void doBind(final SocketAddress localAddress) throws Exception {
+    if (!(localAddress instanceof ShmAddress)) {
+      throw new BindException("Not a shared memory address: " + localAddress);
+    }
+    final File directory = ((ShmAddress) localAddress).getPath();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new BindException("Cannot create " + directory);
+    }
+    final FileChannel lockChannel = FileChannel.open(new File(directory, ShmServerChannel.LOCK).toPath(),
+      StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = lockChannel.tryLock();
+    } catch (final OverlappingFileLockException e) {
+      lock = null;
+    } catch (final IOException e) {
+      lockChannel.close();
+      throw e;
+    }
+    if (lock == null) {
+      lockChannel.close();
+      throw new BindException("Address already in use: " + localAddress);
+    }
+    this.lockChannel = lockChannel;
+    this.localAddress = (ShmAddress) localAddress;
+    this.state = ShmChannel.OPEN;
+    this.scan = this.eventLoop().scheduleWithFixedDelay(this::accept, ShmServerChannel.ACCEPT_POLL_MILLIS,
+      ShmServerChannel.ACCEPT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    final boolean bound = this.state == ShmChannel.OPEN;
+    this.state = ShmChannel.CLOSED;
+    final ScheduledFuture<?> scan = this.scan;
+    if (scan != null) {
+      scan.cancel(false);
+    }
+    final FileChannel lockChannel = this.lockChannel;
+    final ShmAddress localAddress = this.localAddress;
+    if (bound && lockChannel != null && localAddress != null) {
+      new File(localAddress.getPath(), ShmServerChannel.LOCK).delete();
+      lockChannel.close();
+    }
+  }
+
+  @Override
+  protected void doBeginRead() {
+    this.reading = true;
+  }
+
+  void remove(@NotNull final String name) {
+    this.accepted.remove(name);
+  }
+
+  /**
+   * Deletes a ring file that can not be accepted, so it is neither scanned again nor remembered.
+   *
+   * @param file the rejected ring file.
+   */
+  private void reject(@NotNull final File file) {
+    file.delete();
+    this.accepted.remove(file.getName());
+  }
+
+  private void accept() {
+    final ShmAddress localAddress = this.localAddress;
+    if (!this.reading || localAddress == null) {
+      return;
+    }
+    final File[] files = localAddress.getPath().listFiles((directory, name) -> name.endsWith(ShmServerChannel.SUFFIX));
+    if (files == null) {
+      return;
+    }
+    final ChannelPipeline pipeline = this.pipeline();
+    boolean read = false;
+    for (final File file : files) {
+      if (!this.reading) {
+        break;
+      }
+      if (!this.accepted.add(file.getName())) {
+        continue;
+      }
+      final ShmChannel child;
+      try {
+        child = new ShmChannel(this, file);
+      } catch (final Exception e) {
+        this.reject(file);
+        continue;
+      }
+      read = true;
+      pipeline.fireChannelRead(child);
+      if (!this.config.isAutoRead()) {
+        this.reading = false;
+      }
+    }
+    if (read) {
+      pipeline.fireChannelReadComplete();
+    }
+  }
+}
@@ -27,18 +27,17 @@ package io.github.portlek.patty.tcp;
 
 import io.github.portlek.patty.Connection;
 import io.github.portlek.patty.Patty;
+import io.github.portlek.patty.tcp.pipeline.TcpHeartbeatHandler;
 import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
 import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketMultiplexer;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketScheduler;
 import io.github.portlek.patty.tcp.pipeline.TcpPacketSizer;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import java.net.SocketAddress;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -47,8 +46,6 @@ public final class TcpClientConnection extends Connection {
 
   private final int connectTimeout = 30;
 
-  private final Class<? extends SocketChannel> tcpChannel = Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class;
-
   public TcpClientConnection(@NotNull final Patty patty, @NotNull final SocketAddress address) {
     super(patty, address);
   }
@@ -56,7 +53,7 @@ public final class TcpClientConnection extends Connection {
   @Override
   public void disconnect(@NotNull final String reason, @Nullable final Throwable cause) {
     super.disconnect(reason, cause);
-    this.eventLoop.shutdownGracefully();
+    this.releaseEventLoop();
   }
 
   @Override
@@ -66,24 +63,29 @@ public final class TcpClientConnection extends Connection {
     }
     try {
       final Bootstrap bootstrap = new Bootstrap()
-        .channel(this.tcpChannel)
+        .channel(this.patty.protocol.getClientChannelClass())
         .handler(new ChannelInitializer<Channel>() {
           @Override
           public void initChannel(final Channel channel) {
-            channel.config().setOption(ChannelOption.IP_TOS, 0x18);
-            channel.config().setOption(ChannelOption.TCP_NODELAY, false);
             final ChannelPipeline pipeline = channel.pipeline();
             TcpClientConnection.this.refreshReadTimeoutHandler(channel);
             TcpClientConnection.this.refreshWriteTimeoutHandler(channel);
-            pipeline.addLast("encryption", new TcpPacketEncryptor(TcpClientConnection.this.patty));
+            pipeline.addLast("encryption", new TcpPacketEncryptor(TcpClientConnection.this));
             pipeline.addLast("sizer", new TcpPacketSizer(TcpClientConnection.this.patty));
+            if (TcpClientConnection.this.streams.isEnabled()) {
+              pipeline.addLast("multiplexer", new TcpPacketMultiplexer(TcpClientConnection.this.streams));
+            }
             pipeline.addLast("codec", new TcpPacketCodec(TcpClientConnection.this));
+            TcpClientConnection.this.refreshRateLimiter(channel);
+            pipeline.addLast("heartbeat", new TcpHeartbeatHandler(TcpClientConnection.this));
+            pipeline.addLast("scheduler", new TcpPacketScheduler());
             pipeline.addLast("manager", TcpClientConnection.this);
           }
         })
         .group(this.eventLoop)
         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, this.connectTimeout * 1000)
         .remoteAddress(this.address);
+      this.patty.protocol.applyOptions(this.patty.getChannelOptions(), bootstrap);
       final Runnable connectTask = () -> {
         try {
           if (bootstrap.connect().sync().isSuccess()) {
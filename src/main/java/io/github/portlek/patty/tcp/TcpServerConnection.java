@@ -25,30 +25,30 @@
 
 package io.github.portlek.patty.tcp;
 
+import io.github.portlek.patty.ChannelOptions;
 import io.github.portlek.patty.Connection;
 import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.Protocol;
 import io.github.portlek.patty.ServerListener;
-import io.github.portlek.patty.tcp.pipeline.TcpPacketCodec;
-import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
-import io.github.portlek.patty.tcp.pipeline.TcpPacketSizer;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.socket.ServerSocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.PromiseCombiner;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
 public final class TcpServerConnection extends Connection {
 
-  private final Class<? extends ServerSocketChannel> tcpChannel = Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
-
   @NotNull
   private final PattyServer patty;
 
+  private final List<Channel> acceptors = new ArrayList<>();
+
   public TcpServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
     super(patty, address);
     this.patty = patty;
@@ -59,25 +59,32 @@ public final class TcpServerConnection extends Connection {
     if (this.channel != null) {
       return;
     }
-    final ChannelFuture future = new ServerBootstrap()
-      .channel(this.tcpChannel)
+    final Protocol protocol = this.patty.protocol;
+    final ServerBootstrap bootstrap = new ServerBootstrap()
+      .channel(protocol.getServerChannelClass())
       .childHandler(new ChannelInitializer<Channel>() {
         @Override
         public void initChannel(final Channel channel) {
-          channel.config().setOption(ChannelOption.IP_TOS, 0x18);
-          channel.config().setOption(ChannelOption.TCP_NODELAY, false);
-          final ChannelPipeline pipeline = channel.pipeline();
-          TcpServerConnection.this.refreshReadTimeoutHandler(channel);
-          TcpServerConnection.this.refreshWriteTimeoutHandler(channel);
-          pipeline.addLast("encryption", new TcpPacketEncryptor(TcpServerConnection.this.patty));
-          pipeline.addLast("sizer", new TcpPacketSizer(TcpServerConnection.this.patty));
-          pipeline.addLast("codec", new TcpPacketCodec(TcpServerConnection.this));
-          pipeline.addLast("manager", TcpServerConnection.this);
+          final TcpSessionConnection session = new TcpSessionConnection(TcpServerConnection.this.patty,
+            channel.remoteAddress(), TcpServerConnection.this.eventLoop);
+          session.initChannel(TcpServerConnection.this, channel);
         }
       })
+      .handler(this.patty.admission)
       .group(this.eventLoop)
-      .localAddress(this.address)
-      .bind();
+      .localAddress(this.address);
+    final ChannelOptions options = this.patty.getChannelOptions();
+    protocol.applyOptions(options, bootstrap);
+    final PromiseCombiner combiner = new PromiseCombiner(ImmediateEventExecutor.INSTANCE);
+    final int acceptors = protocol.getAcceptors(options);
+    for (int index = 0; index < acceptors; index++) {
+      final ChannelFuture bound = bootstrap.bind();
+      this.acceptors.add(bound.channel());
+      combiner.add(bound);
+    }
+    this.channel = this.acceptors.get(0);
+    final Promise<Void> future = ImmediateEventExecutor.INSTANCE.newPromise();
+    combiner.finish(future);
     final ServerListener serverListener = this.patty.protocol.getServerListener();
     if (wait) {
       try {
@@ -89,7 +96,7 @@ public final class TcpServerConnection extends Connection {
         serverListener.serverBound(this.patty, this);
       }
     } else {
-      future.addListener((ChannelFutureListener) it -> {
+      future.addListener((GenericFutureListener<Future<Void>>) it -> {
         if (it.isSuccess()) {
           if (serverListener != null) {
             serverListener.serverBound(this.patty, this);
@@ -104,39 +111,54 @@ public final class TcpServerConnection extends Connection {
     }
   }
 
+  @Override
+  public void unbind() {
+    for (final Channel acceptor : this.acceptors) {
+      if (acceptor.isOpen()) {
+        acceptor.close();
+      }
+    }
+  }
+
   @Override
   public void close(final boolean wait) {
     final ServerListener serverListener = this.patty.protocol.getServerListener();
     if (this.channel != null) {
-      if (this.channel.isOpen()) {
-        final ChannelFuture future = this.channel.close();
-        if (wait) {
-          try {
-            future.sync();
-          } catch (final InterruptedException e) {
-            e.printStackTrace();
-          }
-          if (serverListener != null) {
-            serverListener.serverClosed(this.patty, this);
-          }
-        } else {
-          future.addListener((ChannelFutureListener) listener -> {
-            if (listener.isSuccess()) {
-              if (serverListener != null) {
-                serverListener.serverClosed(this.patty, this);
-              }
-            } else {
-              System.err.println("[ERROR] Failed to asynchronously close connection listener.");
-              if (future.cause() != null) {
-                future.cause().printStackTrace();
-              }
-            }
-          });
+      final PromiseCombiner combiner = new PromiseCombiner(ImmediateEventExecutor.INSTANCE);
+      for (final Channel acceptor : this.acceptors) {
+        if (acceptor.isOpen()) {
+          combiner.add(acceptor.close());
         }
       }
+      this.acceptors.clear();
+      final Promise<Void> future = ImmediateEventExecutor.INSTANCE.newPromise();
+      combiner.finish(future);
+      if (wait) {
+        try {
+          future.sync();
+        } catch (final InterruptedException e) {
+          e.printStackTrace();
+        }
+        if (serverListener != null) {
+          serverListener.serverClosed(this.patty, this);
+        }
+      } else {
+        future.addListener((GenericFutureListener<Future<Void>>) listener -> {
+          if (listener.isSuccess()) {
+            if (serverListener != null) {
+              serverListener.serverClosed(this.patty, this);
+            }
+          } else {
+            System.err.println("[ERROR] Failed to asynchronously close connection listener.");
+            if (future.cause() != null) {
+              future.cause().printStackTrace();
+            }
+          }
+        });
+      }
       this.channel = null;
     }
-    final Future<?> future = this.eventLoop.shutdownGracefully();
+    final Future<?> future = this.releaseEventLoop();
     if (wait) {
       try {
         future.sync();
@@ -153,26 +175,4 @@ public final class TcpServerConnection extends Connection {
       });
     }
   }
-
-  @Override
-  public void channelActive(final ChannelHandlerContext ctx) {
-    super.channelActive(ctx);
-    this.patty.connections.add(this);
-    final ServerListener serverListener = this.patty.protocol.getServerListener();
-    if (serverListener != null) {
-      serverListener.sessionAdded(this.patty, this);
-    }
-  }
-
-  @Override
-  public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
-    super.channelInactive(ctx);
-    this.patty.connections.remove(this);
-    if (this.isConnected()) {
-      this.disconnect("Connection closed.");
-    }
-    if (this.patty.protocol.getServerListener() != null) {
-      this.patty.protocol.getServerListener().sessionRemoved(this.patty, this);
-    }
-  }
 }
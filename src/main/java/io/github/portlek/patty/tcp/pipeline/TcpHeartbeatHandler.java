@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.IdleHandler;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Answers the pings of the peer and, while {@link Connection#heartbeatInterval} is set, pings it when the link is idle.
+ */
+public final class TcpHeartbeatHandler extends ChannelDuplexHandler {
+
+  public static final int MISSED_INTERVALS = 3;
+
+  @NotNull
+  private final Connection connection;
+
+  private long lastRead = System.nanoTime();
+
+  private long pingNanos;
+
+  private int missed;
+
+  @Nullable
+  private volatile ChannelHandlerContext ctx;
+
+  public TcpHeartbeatHandler(@NotNull final Connection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public void handlerAdded(final ChannelHandlerContext ctx) {
+    this.ctx = ctx;
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    this.lastRead = System.nanoTime();
+    this.missed = 0;
+    if (!(msg instanceof Heartbeat)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final Heartbeat heartbeat = (Heartbeat) msg;
+    if (!heartbeat.pong) {
+      ctx.writeAndFlush(new Heartbeat(true, heartbeat.nanos), ctx.voidPromise());
+    } else if (heartbeat.nanos == this.pingNanos) {
+      this.pingNanos = 0L;
+      this.connection.recordRoundTrip(this.lastRead - heartbeat.nanos);
+    }
+  }
+
+  /**
+   * Pings the peer if nothing was read for an interval, or disconnects it if it stayed silent after a ping, called by
+   * the {@link IdleHandler} once per interval while the link is idle.
+   */
+  public void check() {
+    final ChannelHandlerContext ctx = this.ctx;
+    final int interval = this.connection.heartbeatInterval;
+    if (ctx == null || interval <= 0 || System.nanoTime() - this.lastRead < TimeUnit.SECONDS.toNanos(interval)) {
+      return;
+    }
+    if (this.pingNanos == 0L) {
+      this.pingNanos = System.nanoTime();
+      ctx.writeAndFlush(new Heartbeat(false, this.pingNanos), ctx.voidPromise());
+    } else if (++this.missed >= TcpHeartbeatHandler.MISSED_INTERVALS) {
+      this.connection.disconnect("Heartbeat timed out.");
+    }
+  }
+
+  /**
+   * A ping or pong, carrying the send time of the ping.
+   */
+  public static final class Heartbeat {
+
+    public final boolean pong;
+
+    public final long nanos;
+
+    public Heartbeat(final boolean pong, final long nanos) {
+      this.pong = pong;
+      this.nanos = nanos;
+    }
+  }
+}
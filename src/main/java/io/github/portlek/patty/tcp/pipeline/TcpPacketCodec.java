@@ -26,30 +26,138 @@
 package io.github.portlek.patty.tcp.pipeline;
 
 import io.github.portlek.patty.*;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricStage;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.github.portlek.patty.metrics.PacketTrace;
+import io.github.portlek.patty.metrics.PipelineObserver;
+import io.github.portlek.patty.metrics.TracePoint;
+import io.github.portlek.patty.metrics.TracedChannelPromise;
+import io.github.portlek.patty.util.ReadWrite;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.ByteToMessageCodec;
 import java.util.List;
 import java.util.Optional;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class TcpPacketCodec extends ByteToMessageCodec<Packet> {
 
+  private static final int PING = 1;
+
+  private static final int PONG = 2;
+
   @NotNull
   private final Connection connection;
 
   private final Protocol protocol;
 
+  @Nullable
+  private Runnable handledTask;
+
   public TcpPacketCodec(@NotNull final Connection connection) {
     this.connection = connection;
     this.protocol = connection.patty.protocol;
   }
 
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+    if (!(msg instanceof TcpPacketMultiplexer.Frame)) {
+      super.channelRead(ctx, msg);
+      return;
+    }
+    final TcpPacketMultiplexer.Frame frame = (TcpPacketMultiplexer.Frame) msg;
+    this.handledTask = frame.handled;
+    try {
+      super.channelRead(ctx, frame.content);
+    } finally {
+      final Runnable task = this.handledTask;
+      this.handledTask = null;
+      if (task != null) {
+        task.run();
+      }
+    }
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception {
+    final ConnectionMetrics metrics = this.connection.getMetrics();
+    final boolean multiplexed = this.connection.isMultiplexed();
+    if (msg instanceof FrozenPacket) {
+      ByteBuf encoded = ((FrozenPacket) msg).retainedEncoded();
+      if (multiplexed) {
+        final ByteBuf stream = ctx.alloc().ioBuffer(5);
+        ReadWrite.writeVarInt(stream, ((FrozenPacket) msg).getStream());
+        encoded = ctx.alloc().compositeBuffer(2).addComponents(true, stream, encoded);
+      }
+      if (metrics != null) {
+        metrics.packetWritten(((FrozenPacket) msg).getId(), encoded.readableBytes());
+      }
+      ctx.write(encoded, promise);
+      return;
+    }
+    if (msg instanceof TcpHeartbeatHandler.Heartbeat) {
+      final TcpHeartbeatHandler.Heartbeat heartbeat = (TcpHeartbeatHandler.Heartbeat) msg;
+      final ByteBuf buf = ctx.alloc().ioBuffer(16);
+      if (multiplexed) {
+        ReadWrite.writeVarInt(buf, 0);
+      }
+      this.protocol.getHeader().writePacketId(buf, PacketRegistry.CONTROL |
+        (heartbeat.pong ? TcpPacketCodec.PONG : TcpPacketCodec.PING));
+      ReadWrite.writeVarLong(buf, heartbeat.nanos);
+      ctx.write(buf, promise);
+      return;
+    }
+    if (!(msg instanceof Packet)) {
+      ctx.write(msg, promise);
+      return;
+    }
+    final Packet packet = (Packet) msg;
+    final PacketSizeEstimator estimator = this.connection.getSizeEstimator();
+    final ByteBuf buf = ctx.alloc().ioBuffer(estimator.estimate(packet, this.connection));
+    final int capacity = buf.capacity();
+    if (multiplexed) {
+      ReadWrite.writeVarInt(buf, packet.getStream());
+    }
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.ENCODE);
+    final PipelineObserver observer = this.connection.patty.metrics.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.PACKET_ENCODE);
+    try {
+      this.encode(ctx, packet, buf);
+    } catch (final Throwable t) {
+      buf.release();
+      throw t;
+    }
+    estimator.record(packet.getId(), buf.readableBytes(), buf.capacity() != capacity);
+    if (event != null) {
+      observer.end(event, this.connection, packet.getId(), 0, buf.readableBytes());
+    }
+    if (metrics != null) {
+      metrics.stop(MetricStage.ENCODE, start);
+      metrics.packetWritten(packet.getId(), buf.readableBytes());
+    }
+    if (promise instanceof TracedChannelPromise) {
+      ((TracedChannelPromise) promise).getTrace().mark(TracePoint.ENCODED);
+    }
+    if (buf.isReadable()) {
+      ctx.write(buf, promise);
+    } else {
+      buf.release();
+      ctx.write(Unpooled.EMPTY_BUFFER, promise);
+    }
+  }
+
   @Override
   public void encode(final ChannelHandlerContext ctx, final Packet packet, final ByteBuf buf) {
     final int initial = buf.readerIndex();
     try {
-      this.protocol.getHeader().writePacketId(buf, packet.getId());
+      this.protocol.getHeader().writePacketId(buf, packet.getId() | packet.getFlags());
+      if (packet.getFlags() != 0) {
+        ReadWrite.writeVarInt(buf, packet.getCorrelationId());
+      }
       packet.write(buf, this.connection);
     } catch (final Throwable t) {
       buf.writerIndex(initial);
@@ -65,12 +173,24 @@ public final class TcpPacketCodec extends ByteToMessageCodec<Packet> {
   @Override
   public void decode(final ChannelHandlerContext ctx, final ByteBuf buf, final List<Object> out) throws Exception {
     final int initial = buf.readerIndex();
+    final int frame = buf.readableBytes();
+    final ConnectionMetrics metrics = this.connection.getMetrics();
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.DECODE);
+    final PipelineObserver observer = this.connection.patty.metrics.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.FRAME_DECODE);
     try {
-      final int id = this.protocol.getHeader().readPacketId(buf);
-      if (id == -1) {
+      final int info = this.protocol.getHeader().readPacketId(buf);
+      if (info == -1) {
         buf.readerIndex(initial);
         return;
       }
+      final int id = PacketRegistry.getPacketId(info);
+      final int flags = PacketRegistry.getPacketFlags(info);
+      if (flags == PacketRegistry.CONTROL) {
+        out.add(new TcpHeartbeatHandler.Heartbeat(id == TcpPacketCodec.PONG, ReadWrite.readVarLong(buf)));
+        return;
+      }
+      final int correlationId = flags == 0 ? 0 : ReadWrite.readVarInt(buf);
       final Optional<Class<? extends Packet>> packetCls = PacketRegistry.getPacket(id);
       if (!packetCls.isPresent()) {
         buf.readerIndex(initial);
@@ -82,10 +202,25 @@ public final class TcpPacketCodec extends ByteToMessageCodec<Packet> {
         return;
       }
       final Packet packet = packetOptional.get();
+      packet.setCorrelation(flags, correlationId);
       packet.read(buf, this.connection);
       if (buf.readableBytes() > 0) {
         throw new IllegalStateException("Packet \"" + packet.getClass().getSimpleName() + "\" not fully read.");
       }
+      if (event != null) {
+        observer.end(event, this.connection, id, frame, 0);
+      }
+      if (metrics != null) {
+        metrics.stop(MetricStage.DECODE, start);
+        metrics.packetRead(id, frame);
+        final PacketTrace trace = metrics.traceInbound(id);
+        if (trace != null) {
+          trace.mark(TracePoint.DECODED);
+          packet.setTrace(trace);
+        }
+      }
+      packet.setHandledTask(this.handledTask);
+      this.handledTask = null;
       out.add(packet);
     } catch (final Throwable t) {
       buf.readerIndex(buf.readerIndex() + buf.readableBytes());
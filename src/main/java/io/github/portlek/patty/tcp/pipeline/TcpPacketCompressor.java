@@ -26,6 +26,11 @@
 package io.github.portlek.patty.tcp.pipeline;
 
 import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.metrics.MetricStage;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.github.portlek.patty.metrics.PipelineObserver;
 import io.github.portlek.patty.util.ReadWrite;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -56,6 +61,11 @@ public final class TcpPacketCompressor extends ByteToMessageCodec<ByteBuf> {
 
   @Override
   public void encode(final ChannelHandlerContext ctx, final ByteBuf input, final ByteBuf out) {
+    final ConnectionMetrics metrics = this.connection.getMetrics();
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.COMPRESS);
+    final PipelineObserver observer = this.connection.patty.metrics.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.COMPRESSION);
+    final int written = out.writerIndex();
     final int readable = input.readableBytes();
     if (readable < this.connection.compressionThreshold) {
       ReadWrite.writeVarInt(out, 0);
@@ -72,6 +82,13 @@ public final class TcpPacketCompressor extends ByteToMessageCodec<ByteBuf> {
       }
       this.deflated.reset();
     }
+    if (event != null) {
+      observer.end(event, this.connection, -1, readable, out.writerIndex() - written);
+    }
+    if (metrics != null) {
+      metrics.stop(MetricStage.COMPRESS, start);
+      metrics.add(MetricCounter.COMPRESSED_BYTES_WRITTEN, out.writerIndex() - written);
+    }
   }
 
   @Override
@@ -79,6 +96,10 @@ public final class TcpPacketCompressor extends ByteToMessageCodec<ByteBuf> {
     if (input.readableBytes() == 0) {
       return;
     }
+    final ConnectionMetrics metrics = this.connection.getMetrics();
+    if (metrics != null) {
+      metrics.add(MetricCounter.COMPRESSED_BYTES_READ, input.readableBytes());
+    }
     final int size = ReadWrite.readVarInt(input);
     if (size == 0) {
       out.add(input.readBytes(input.readableBytes()));
@@ -90,6 +111,9 @@ public final class TcpPacketCompressor extends ByteToMessageCodec<ByteBuf> {
     if (size > TcpPacketCompressor.MAX_COMPRESSED_SIZE) {
       throw new DecoderException("Badly compressed packet: size of " + size + " is larger than protocol maximum of " + TcpPacketCompressor.MAX_COMPRESSED_SIZE + ".");
     }
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.DECOMPRESS);
+    final PipelineObserver observer = this.connection.patty.metrics.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.DECOMPRESSION);
     final byte[] bytes = new byte[input.readableBytes()];
     input.readBytes(bytes);
     this.inflated.setInput(bytes);
@@ -97,5 +121,11 @@ public final class TcpPacketCompressor extends ByteToMessageCodec<ByteBuf> {
     this.inflated.inflate(inflatedArray);
     out.add(Unpooled.wrappedBuffer(inflatedArray));
     this.inflated.reset();
+    if (event != null) {
+      observer.end(event, this.connection, -1, bytes.length, size);
+    }
+    if (metrics != null) {
+      metrics.stop(MetricStage.DECOMPRESS, start);
+    }
   }
 }
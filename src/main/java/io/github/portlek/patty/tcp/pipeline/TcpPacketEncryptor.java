@@ -25,56 +25,120 @@
 
 package io.github.portlek.patty.tcp.pipeline;
 
+import io.github.portlek.patty.Connection;
 import io.github.portlek.patty.Patty;
 import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.metrics.MetricStage;
+import io.github.portlek.patty.metrics.ObservedStage;
+import io.github.portlek.patty.metrics.PipelineObserver;
 import io.github.portlek.patty.tcp.PacketEncryptor;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageCodec;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class TcpPacketEncryptor extends ByteToMessageCodec<ByteBuf> {
 
   @NotNull
   private final Protocol protocol;
 
+  @Nullable
+  private final Connection connection;
+
   private byte[] decryptedArray = new byte[0];
 
   private byte[] encryptedArray = new byte[0];
 
   public TcpPacketEncryptor(@NotNull final Patty patty) {
     this.protocol = patty.protocol;
+    this.connection = null;
+  }
+
+  public TcpPacketEncryptor(@NotNull final Connection connection) {
+    this.protocol = connection.patty.protocol;
+    this.connection = connection;
   }
 
   @Override
   public void encode(final ChannelHandlerContext ctx, final ByteBuf msg, final ByteBuf out) throws Exception {
+    final ConnectionMetrics metrics = this.getMetrics();
     final PacketEncryptor encryptor = this.protocol.getEncryptor();
     if (encryptor == null) {
+      if (metrics != null) {
+        metrics.add(MetricCounter.WIRE_BYTES_WRITTEN, msg.readableBytes());
+      }
       out.writeBytes(msg);
       return;
     }
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.ENCRYPT);
+    final PipelineObserver observer = this.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.ENCRYPTION);
     final int length = msg.readableBytes();
     final byte[] bytes = this.getBytes(msg);
     final int outLength = encryptor.getEncryptOutputSize(length);
     if (this.encryptedArray.length < outLength) {
       this.encryptedArray = new byte[outLength];
     }
-    out.writeBytes(this.encryptedArray, 0, encryptor.encrypt(bytes, 0, length, this.encryptedArray, 0));
+    final int encrypted = encryptor.encrypt(bytes, 0, length, this.encryptedArray, 0);
+    out.writeBytes(this.encryptedArray, 0, encrypted);
+    if (event != null) {
+      observer.end(event, this.connection, -1, length, encrypted);
+    }
+    if (metrics != null) {
+      metrics.stop(MetricStage.ENCRYPT, start);
+      metrics.add(MetricCounter.WIRE_BYTES_WRITTEN, encrypted);
+    }
+  }
+
+  @Override
+  public void flush(final ChannelHandlerContext ctx) {
+    final ConnectionMetrics metrics = this.getMetrics();
+    if (metrics != null) {
+      metrics.increment(MetricCounter.FLUSHES);
+    }
+    ctx.flush();
   }
 
   @Override
   public void decode(final ChannelHandlerContext ctx, final ByteBuf buf, final List<Object> out) throws Exception {
+    final ConnectionMetrics metrics = this.getMetrics();
+    if (metrics != null) {
+      metrics.frameArrived();
+      metrics.add(MetricCounter.WIRE_BYTES_READ, buf.readableBytes());
+    }
     final PacketEncryptor encryptor = this.protocol.getEncryptor();
     if (encryptor == null) {
       out.add(buf.readBytes(buf.readableBytes()));
       return;
     }
+    final long start = metrics == null ? ConnectionMetrics.NOT_SAMPLED : metrics.start(MetricStage.DECRYPT);
+    final PipelineObserver observer = this.getObserver();
+    final Object event = observer == null ? null : observer.begin(ObservedStage.DECRYPTION);
     final int length = buf.readableBytes();
     final byte[] bytes = this.getBytes(buf);
     final ByteBuf result = ctx.alloc().heapBuffer(encryptor.getDecryptOutputSize(length));
     result.writerIndex(encryptor.decrypt(bytes, 0, length, result.array(), result.arrayOffset()));
     out.add(result);
+    if (event != null) {
+      observer.end(event, this.connection, -1, length, result.readableBytes());
+    }
+    if (metrics != null) {
+      metrics.stop(MetricStage.DECRYPT, start);
+    }
+  }
+
+  @Nullable
+  private ConnectionMetrics getMetrics() {
+    return this.connection == null ? null : this.connection.getMetrics();
+  }
+
+  @Nullable
+  private PipelineObserver getObserver() {
+    return this.connection == null ? null : this.connection.patty.metrics.getObserver();
   }
 
   private byte[] getBytes(final ByteBuf buf) {
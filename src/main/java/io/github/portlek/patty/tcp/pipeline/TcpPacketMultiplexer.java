@@ -0,0 +1,396 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DecoderException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Interleaves the packets of different {@link io.github.portlek.patty.Packet#getStream() streams} on one connection.
+ */
+public final class TcpPacketMultiplexer extends ChannelDuplexHandler {
+
+  public static final int WINDOW = 1048576;
+
+  public static final int MAX_STREAMS = 1024;
+
+  public static final int MAX_FRAME_SIZE = 16777216;
+
+  public static final int MAX_REASSEMBLY_SIZE = 2 * TcpPacketMultiplexer.MAX_FRAME_SIZE;
+
+  private static final int END = 0x1;
+
+  private static final int WINDOW_UPDATE = 0x2;
+
+  @NotNull
+  private final Streams streams;
+
+  private final Map<Integer, Outbound> outbound = new HashMap<>();
+
+  private final Map<Integer, Inbound> inbound = new HashMap<>();
+
+  private final Queue<Outbound> active = new ArrayDeque<>();
+
+  private int reassembling;
+
+  public TcpPacketMultiplexer(@NotNull final Streams streams) {
+    this.streams = streams;
+  }
+
+  public int getQueued() {
+    int queued = 0;
+    for (final Outbound state : this.outbound.values()) {
+      queued += state.pending.size();
+    }
+    return queued;
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception {
+    if (!(msg instanceof ByteBuf) || !((ByteBuf) msg).isReadable()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    final ByteBuf buf = (ByteBuf) msg;
+    final int stream;
+    try {
+      stream = ReadWrite.readVarInt(buf);
+    } catch (final Throwable t) {
+      buf.release();
+      promise.tryFailure(t);
+      return;
+    }
+    final Outbound state = this.outbound.computeIfAbsent(stream, Outbound::new);
+    if (!state.active && state.window > 0) {
+      state.active = true;
+      this.active.add(state);
+    }
+    state.pending.add(new Pending(buf, promise));
+  }
+
+  @Override
+  public void flush(final ChannelHandlerContext ctx) {
+    this.schedule(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final ByteBuf buf = (ByteBuf) msg;
+    try {
+      final int stream = ReadWrite.readVarInt(buf);
+      final int flags = buf.readUnsignedByte();
+      if ((flags & TcpPacketMultiplexer.WINDOW_UPDATE) != 0) {
+        final int increment = ReadWrite.readVarInt(buf);
+        final Outbound state = this.outbound.get(stream);
+        if (state == null) {
+          return;
+        }
+        state.window += increment;
+        if (!state.pending.isEmpty() && !state.active) {
+          state.active = true;
+          this.active.add(state);
+        }
+        this.flush(ctx);
+        return;
+      }
+      final Inbound state = this.inbound(ctx, stream);
+      final int length = buf.readableBytes();
+      final int reassembled = state.frame == null ? 0 : state.frame.readableBytes();
+      if (reassembled + length > TcpPacketMultiplexer.MAX_FRAME_SIZE) {
+        throw new IllegalStateException("Stream " + stream + " exceeded the maximum frame size.");
+      }
+      if ((flags & TcpPacketMultiplexer.END) == 0) {
+        if (this.reassembling + length > TcpPacketMultiplexer.MAX_REASSEMBLY_SIZE) {
+          throw new IllegalStateException("The streams exceeded the maximum reassembly size.");
+        }
+        if (state.frame == null) {
+          state.frame = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+        }
+        state.frame.addComponent(true, buf.retain());
+        this.reassembling += length;
+        this.credit(ctx, stream, state, length);
+        return;
+      }
+      final ByteBuf frame;
+      if (state.frame == null) {
+        frame = buf.retain();
+      } else {
+        frame = state.frame.addComponent(true, buf.retain());
+        state.frame = null;
+        this.reassembling -= reassembled;
+      }
+      state.outstanding.incrementAndGet();
+      ctx.fireChannelRead(new Frame(frame, () -> {
+        this.credit(ctx, stream, state, length);
+        state.outstanding.decrementAndGet();
+      }));
+    } catch (final Throwable t) {
+      throw new DecoderException("Invalid stream chunk.", t);
+    } finally {
+      buf.release();
+    }
+  }
+
+  @Override
+  public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+    if (ctx.channel().isWritable()) {
+      this.flush(ctx);
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    final ClosedChannelException cause = new ClosedChannelException();
+    this.outbound.values().forEach(state -> {
+      Pending pending;
+      while ((pending = state.pending.poll()) != null) {
+        pending.buf.release();
+        pending.promise.tryFailure(cause);
+      }
+    });
+    this.inbound.values().stream()
+      .filter(state -> state.frame != null)
+      .forEach(state -> state.frame.release());
+    this.outbound.clear();
+    this.inbound.clear();
+    this.active.clear();
+    this.reassembling = 0;
+  }
+
+  @NotNull
+  private Inbound inbound(@NotNull final ChannelHandlerContext ctx, final int stream) {
+    final Inbound current = this.inbound.get(stream);
+    if (current != null) {
+      return current;
+    }
+    if (this.inbound.size() >= TcpPacketMultiplexer.MAX_STREAMS) {
+      this.evictIdle(ctx);
+      if (this.inbound.size() >= TcpPacketMultiplexer.MAX_STREAMS) {
+        throw new IllegalStateException("The peer exceeded " + TcpPacketMultiplexer.MAX_STREAMS + " streams.");
+      }
+    }
+    final Inbound state = new Inbound();
+    this.inbound.put(stream, state);
+    return state;
+  }
+
+  private void evictIdle(@NotNull final ChannelHandlerContext ctx) {
+    final Iterator<Map.Entry<Integer, Inbound>> iterator = this.inbound.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Integer, Inbound> entry = iterator.next();
+      final Inbound state = entry.getValue();
+      if (state.frame == null && state.outstanding.get() == 0) {
+        iterator.remove();
+        this.returnCredit(ctx, entry.getKey(), state);
+      }
+    }
+  }
+
+  private void credit(@NotNull final ChannelHandlerContext ctx, final int stream, @NotNull final Inbound state,
+                      final int length) {
+    final int before = state.credit.getAndAdd(length);
+    if (before >= TcpPacketMultiplexer.WINDOW / 2 || before + length < TcpPacketMultiplexer.WINDOW / 2) {
+      return;
+    }
+    if (ctx.executor().inEventLoop()) {
+      this.returnCredit(ctx, stream, state);
+      return;
+    }
+    try {
+      ctx.executor().execute(() -> this.returnCredit(ctx, stream, state));
+    } catch (final RejectedExecutionException ignored) {
+    }
+  }
+
+  private void returnCredit(@NotNull final ChannelHandlerContext ctx, final int stream, @NotNull final Inbound state) {
+    final int credit = state.credit.getAndSet(0);
+    if (credit > 0 && ctx.channel().isActive()) {
+      this.sendWindowUpdate(ctx, stream, credit);
+    }
+  }
+
+  private void schedule(@NotNull final ChannelHandlerContext ctx) {
+    final int chunkSize = Math.max(1, this.streams.chunkSize);
+    while (!this.active.isEmpty() && ctx.channel().isWritable()) {
+      final Outbound state = this.active.poll();
+      state.deficit += (long) chunkSize * this.streams.getWeight(state.stream);
+      while (state.deficit > 0L && state.window > 0 && ctx.channel().isWritable()) {
+        final Pending pending = state.pending.peek();
+        if (pending == null) {
+          break;
+        }
+        final int length = Math.min(Math.min(chunkSize, pending.buf.readableBytes()), state.window);
+        final boolean end = length == pending.buf.readableBytes();
+        final ByteBuf header = ctx.alloc().ioBuffer(ReadWrite.getVarIntSize(state.stream) + 1);
+        ReadWrite.writeVarInt(header, state.stream);
+        header.writeByte(end ? TcpPacketMultiplexer.END : 0);
+        final CompositeByteBuf chunk = ctx.alloc().compositeBuffer(2)
+          .addComponent(true, header)
+          .addComponent(true, pending.buf.readRetainedSlice(length));
+        state.deficit -= length;
+        state.window -= length;
+        if (end) {
+          state.pending.poll();
+          pending.buf.release();
+          ctx.write(chunk, pending.promise);
+        } else {
+          ctx.write(chunk, ctx.voidPromise());
+        }
+      }
+      if (state.pending.isEmpty()) {
+        state.deficit = 0L;
+        state.active = false;
+      } else if (state.window <= 0) {
+        state.active = false;
+      } else {
+        this.active.add(state);
+      }
+    }
+  }
+
+  private void sendWindowUpdate(@NotNull final ChannelHandlerContext ctx, final int stream, final int increment) {
+    final ByteBuf buf = ctx.alloc().ioBuffer(ReadWrite.getVarIntSize(stream) + 1 + ReadWrite.getVarIntSize(increment));
+    ReadWrite.writeVarInt(buf, stream);
+    buf.writeByte(TcpPacketMultiplexer.WINDOW_UPDATE);
+    ReadWrite.writeVarInt(buf, increment);
+    ctx.writeAndFlush(buf, ctx.voidPromise());
+  }
+
+  public static final class Streams {
+
+    private final Map<Integer, Integer> weights = new ConcurrentHashMap<>();
+
+    private int chunkSize = -1;
+
+    public int getChunkSize() {
+      return this.chunkSize;
+    }
+
+    public void setChunkSize(final int chunkSize) {
+      this.chunkSize = chunkSize;
+    }
+
+    public boolean isEnabled() {
+      return this.chunkSize > 0;
+    }
+
+    public int getWeight(final int stream) {
+      return this.weights.getOrDefault(stream, 1);
+    }
+
+    public void setWeight(final int stream, final int weight) {
+      if (weight < 1) {
+        throw new IllegalArgumentException("Stream weight must be positive.");
+      }
+      this.weights.put(stream, weight);
+    }
+
+    public void copy(@NotNull final Streams streams) {
+      this.chunkSize = streams.chunkSize;
+      this.weights.putAll(streams.weights);
+    }
+  }
+
+  private static final class Outbound {
+
+    private final int stream;
+
+    private final Queue<Pending> pending = new ArrayDeque<>();
+
+    private int window = TcpPacketMultiplexer.WINDOW;
+
+    private long deficit;
+
+    private boolean active;
+
+    private Outbound(final int stream) {
+      this.stream = stream;
+    }
+  }
+
+  /**
+   * A reassembled frame with the task that returns its credit, run once the packet it holds is handled.
+   */
+  public static final class Frame {
+
+    @NotNull
+    public final ByteBuf content;
+
+    @NotNull
+    public final Runnable handled;
+
+    public Frame(@NotNull final ByteBuf content, @NotNull final Runnable handled) {
+      this.content = content;
+      this.handled = handled;
+    }
+  }
+
+  private static final class Inbound {
+
+    private final AtomicInteger credit = new AtomicInteger();
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    @Nullable
+    private CompositeByteBuf frame;
+  }
+
+  private static final class Pending {
+
+    @NotNull
+    private final ByteBuf buf;
+
+    @NotNull
+    private final ChannelPromise promise;
+
+    private Pending(@NotNull final ByteBuf buf, @NotNull final ChannelPromise promise) {
+      this.buf = buf;
+      this.promise = promise;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.FrozenPacket;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PacketQueue;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Holds back outbound packets while the channel is not writable and releases them by {@link Packet#getPriority()
+ * priority}.
+ */
+public final class TcpPacketScheduler extends ChannelDuplexHandler {
+
+  private final Queue<Pending>[] lanes;
+
+  private int queued;
+
+  @SuppressWarnings("unchecked")
+  public TcpPacketScheduler() {
+    this.lanes = (Queue<Pending>[]) new Queue<?>[Packet.LANES];
+    for (int index = 0; index < this.lanes.length; index++) {
+      this.lanes[index] = new ArrayDeque<>();
+    }
+  }
+
+  public int getQueued() {
+    return this.queued;
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+    final int lane;
+    if (msg instanceof Packet) {
+      lane = PacketQueue.lane((Packet) msg);
+    } else if (msg instanceof FrozenPacket) {
+      lane = PacketQueue.lane(((FrozenPacket) msg).getPriority());
+    } else {
+      lane = -1;
+    }
+    if (lane < 0 || this.queued == 0 && ctx.channel().isWritable()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    this.lanes[lane].add(new Pending(msg, promise));
+    this.queued++;
+  }
+
+  @Override
+  public void flush(final ChannelHandlerContext ctx) {
+    this.schedule(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+    if (ctx.channel().isWritable() && this.queued > 0) {
+      this.flush(ctx);
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    final ClosedChannelException cause = new ClosedChannelException();
+    for (final Queue<Pending> lane : this.lanes) {
+      Pending pending;
+      while ((pending = lane.poll()) != null) {
+        pending.promise.tryFailure(cause);
+      }
+    }
+    this.queued = 0;
+  }
+
+  private void schedule(@NotNull final ChannelHandlerContext ctx) {
+    while (this.queued > 0 && ctx.channel().isWritable()) {
+      for (int index = 0; index < this.lanes.length && ctx.channel().isWritable(); index++) {
+        final Queue<Pending> lane = this.lanes[index];
+        for (int quantum = 1 << Packet.LANES - 1 - index; quantum > 0 && ctx.channel().isWritable(); quantum--) {
+          final Pending pending = lane.poll();
+          if (pending == null) {
+            break;
+          }
+          this.queued--;
+          ctx.write(pending.message, pending.promise);
+        }
+      }
+    }
+  }
+
+  private static final class Pending {
+
+    @NotNull
+    private final Object message;
+
+    @NotNull
+    private final ChannelPromise promise;
+
+    private Pending(@NotNull final Object message, @NotNull final ChannelPromise promise) {
+      this.message = message;
+      this.promise = promise;
+    }
+  }
+}
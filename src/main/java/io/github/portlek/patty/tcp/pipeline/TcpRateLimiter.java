@@ -0,0 +1,330 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PacketRegistry;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Limits the packets and bytes per second of a connection in both directions with token buckets, right in front of the
+ * codec so it sees whole packets, reassembled by the {@link TcpPacketMultiplexer} if streams are multiplexed. The
+ * stream id the codec prefixes outbound packets with is not counted, so both directions count the same bytes.
+ */
+public final class TcpRateLimiter extends ChannelDuplexHandler {
+
+  private static final int WRITABILITY_INDEX = 4;
+
+  private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+  @NotNull
+  private final Connection connection;
+
+  @NotNull
+  private final Limits limits;
+
+  private final Bucket readPackets = new Bucket();
+
+  private final Bucket readBytes = new Bucket();
+
+  private final Bucket writePackets = new Bucket();
+
+  private final Bucket writeBytes = new Bucket();
+
+  private final Queue<Pending> pending = new ArrayDeque<>();
+
+  @Nullable
+  private ScheduledFuture<?> resume;
+
+  @Nullable
+  private ScheduledFuture<?> drain;
+
+  private long readSuspended;
+
+  private long writeSuspended;
+
+  public TcpRateLimiter(@NotNull final Connection connection, @NotNull final Limits limits) {
+    this.connection = connection;
+    this.limits = limits;
+  }
+
+  public int getQueued() {
+    return this.pending.size();
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    final ByteBuf frame;
+    if (msg instanceof TcpPacketMultiplexer.Frame) {
+      frame = ((TcpPacketMultiplexer.Frame) msg).content;
+    } else if (msg instanceof ByteBuf) {
+      frame = (ByteBuf) msg;
+    } else {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    if (this.limits.readPackets <= 0 && this.limits.readBytes <= 0) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final long now = System.nanoTime();
+    final long delay = Math.max(
+      this.readPackets.take(this.weight(frame, 0), this.limits.readPackets, now),
+      this.readBytes.take(frame.readableBytes(), this.limits.readBytes, now));
+    ctx.fireChannelRead(msg);
+    if (delay > 0L && this.resume == null) {
+      this.readSuspended = now;
+      ctx.channel().config().setAutoRead(false);
+      this.resume = ctx.executor().schedule(() -> this.resume(ctx), delay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+    if (!(msg instanceof ByteBuf) || this.limits.writePackets <= 0 && this.limits.writeBytes <= 0) {
+      ctx.write(msg, promise);
+      return;
+    }
+    final ByteBuf frame = (ByteBuf) msg;
+    final int stream = this.streamHeader(frame);
+    final long now = System.nanoTime();
+    final long delay = Math.max(
+      this.writePackets.take(this.weight(frame, stream), this.limits.writePackets, now),
+      this.writeBytes.take(frame.readableBytes() - stream, this.limits.writeBytes, now));
+    if (delay <= 0L && this.pending.isEmpty()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    this.pending.add(new Pending(frame, promise, now + delay));
+    if (this.drain == null) {
+      this.writeSuspended = now;
+      TcpRateLimiter.setWritable(ctx, false);
+      this.drain = ctx.executor().schedule(() -> this.drain(ctx), delay, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    if (this.resume != null) {
+      this.resume.cancel(false);
+      this.resume = null;
+      ctx.channel().config().setAutoRead(true);
+    }
+    if (this.drain != null) {
+      this.drain.cancel(false);
+      this.drain = null;
+      TcpRateLimiter.setWritable(ctx, true);
+    }
+    final ClosedChannelException cause = new ClosedChannelException();
+    Pending pending;
+    while ((pending = this.pending.poll()) != null) {
+      pending.frame.release();
+      pending.promise.tryFailure(cause);
+    }
+  }
+
+  private static void setWritable(@NotNull final ChannelHandlerContext ctx, final boolean writable) {
+    final ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+    if (buffer != null) {
+      buffer.setUserDefinedWritability(TcpRateLimiter.WRITABILITY_INDEX, writable);
+    }
+  }
+
+  private void resume(@NotNull final ChannelHandlerContext ctx) {
+    final long now = System.nanoTime();
+    final long delay = Math.max(this.readPackets.remaining(this.limits.readPackets, now),
+      this.readBytes.remaining(this.limits.readBytes, now));
+    if (delay > 0L) {
+      this.resume = ctx.executor().schedule(() -> this.resume(ctx), delay, TimeUnit.NANOSECONDS);
+      return;
+    }
+    this.resume = null;
+    this.count(MetricCounter.READ_THROTTLED_NANOS, now - this.readSuspended);
+    ctx.channel().config().setAutoRead(true);
+  }
+
+  private void drain(@NotNull final ChannelHandlerContext ctx) {
+    final long now = System.nanoTime();
+    Pending pending;
+    boolean written = false;
+    while ((pending = this.pending.peek()) != null && pending.due - now <= 0L) {
+      this.pending.poll();
+      ctx.write(pending.frame, pending.promise);
+      written = true;
+    }
+    if (written) {
+      ctx.flush();
+    }
+    if (pending != null) {
+      this.drain = ctx.executor().schedule(() -> this.drain(ctx), pending.due - now, TimeUnit.NANOSECONDS);
+      return;
+    }
+    this.drain = null;
+    this.count(MetricCounter.WRITE_THROTTLED_NANOS, now - this.writeSuspended);
+    TcpRateLimiter.setWritable(ctx, true);
+  }
+
+  private void count(@NotNull final MetricCounter counter, final long nanos) {
+    final ConnectionMetrics metrics = this.connection.getMetrics();
+    if (metrics != null) {
+      metrics.add(counter, nanos);
+    }
+  }
+
+  private int streamHeader(@NotNull final ByteBuf frame) {
+    if (!this.connection.isMultiplexed()) {
+      return 0;
+    }
+    final int index = frame.readerIndex();
+    try {
+      ReadWrite.readVarInt(frame);
+      return frame.readerIndex() - index;
+    } catch (final Exception e) {
+      return 0;
+    } finally {
+      frame.readerIndex(index);
+    }
+  }
+
+  private int weight(@NotNull final ByteBuf frame, final int header) {
+    if (this.limits.weights.isEmpty()) {
+      return 1;
+    }
+    final int index = frame.readerIndex();
+    try {
+      frame.skipBytes(header);
+      final int info = this.connection.patty.protocol.getHeader().readPacketId(frame);
+      if (info == -1 || PacketRegistry.getPacketFlags(info) == PacketRegistry.CONTROL) {
+        return 1;
+      }
+      return this.limits.getWeight(PacketRegistry.getPacketId(info));
+    } catch (final Exception e) {
+      return 1;
+    } finally {
+      frame.readerIndex(index);
+    }
+  }
+
+  public static final class Limits {
+
+    private final Map<Integer, Integer> weights = new ConcurrentHashMap<>();
+
+    private int readPackets;
+
+    private int readBytes;
+
+    private int writePackets;
+
+    private int writeBytes;
+
+    public void setRead(final int packetsPerSecond, final int bytesPerSecond) {
+      this.readPackets = packetsPerSecond;
+      this.readBytes = bytesPerSecond;
+    }
+
+    public void setWrite(final int packetsPerSecond, final int bytesPerSecond) {
+      this.writePackets = packetsPerSecond;
+      this.writeBytes = bytesPerSecond;
+    }
+
+    public boolean isLimited() {
+      return this.readPackets > 0 || this.readBytes > 0 || this.writePackets > 0 || this.writeBytes > 0;
+    }
+
+    public int getWeight(final int id) {
+      return this.weights.getOrDefault(id, 1);
+    }
+
+    public void setWeight(final int id, final int weight) {
+      if (weight < 0) {
+        throw new IllegalArgumentException("Packet weight must not be negative.");
+      }
+      this.weights.put(id, weight);
+    }
+
+    public void copy(@NotNull final Limits limits) {
+      this.readPackets = limits.readPackets;
+      this.readBytes = limits.readBytes;
+      this.writePackets = limits.writePackets;
+      this.writeBytes = limits.writeBytes;
+      this.weights.putAll(limits.weights);
+    }
+  }
+
+  /**
+   * A token bucket kept as the time its tokens are due, the bucket is full when that time is one burst in the past.
+   */
+  private static final class Bucket {
+
+    private long due = System.nanoTime() - TcpRateLimiter.BURST_NANOS;
+
+    private long take(final long tokens, final int rate, final long now) {
+      if (rate <= 0) {
+        return 0L;
+      }
+      final long full = now - TcpRateLimiter.BURST_NANOS;
+      this.due = (this.due - full > 0L ? this.due : full) + tokens * TimeUnit.SECONDS.toNanos(1L) / rate;
+      return this.due - now;
+    }
+
+    private long remaining(final int rate, final long now) {
+      return rate <= 0 ? 0L : this.due - now;
+    }
+  }
+
+  private static final class Pending {
+
+    @NotNull
+    private final ByteBuf frame;
+
+    @NotNull
+    private final ChannelPromise promise;
+
+    private final long due;
+
+    private Pending(@NotNull final ByteBuf frame, @NotNull final ChannelPromise promise, final long due) {
+      this.frame = frame;
+      this.promise = promise;
+      this.due = due;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.udp.pipeline.UdpPacketCodec;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class UdpClientConnection extends Connection implements UdpSessions {
+
+  private final Class<? extends DatagramChannel> udpChannel = Epoll.isAvailable() ? EpollDatagramChannel.class : NioDatagramChannel.class;
+
+  @NotNull
+  private final UdpProtocol protocol;
+
+  public UdpClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    super(patty, address);
+    this.protocol = (UdpProtocol) patty.protocol;
+  }
+
+  @NotNull
+  @Override
+  public Connection getSession(@NotNull final InetSocketAddress address) {
+    return this;
+  }
+
+  @NotNull
+  @Override
+  public Connection createSession(@NotNull final InetSocketAddress address) {
+    return this;
+  }
+
+  @Override
+  public void disconnect(@NotNull final String reason, @Nullable final Throwable cause) {
+    super.disconnect(reason, cause);
+    this.releaseEventLoop();
+  }
+
+  @Override
+  public void connect(final boolean wait) {
+    if (this.disconnected) {
+      throw new IllegalStateException("Session has already been disconnected.");
+    }
+    try {
+      final Bootstrap bootstrap = new Bootstrap()
+        .channel(this.udpChannel)
+        .handler(new ChannelInitializer<Channel>() {
+          @Override
+          public void initChannel(final Channel channel) {
+            UdpClientConnection.this.patty.getChannelOptions().apply(channel);
+            final ChannelPipeline pipeline = channel.pipeline();
+            UdpClientConnection.this.refreshReadTimeoutHandler(channel);
+            UdpClientConnection.this.refreshWriteTimeoutHandler(channel);
+            pipeline.addLast("codec", new UdpPacketCodec(UdpClientConnection.this.protocol, UdpClientConnection.this,
+              UdpClientConnection.this.protocol.getMaxDatagramSize()));
+            pipeline.addLast("manager", UdpClientConnection.this);
+          }
+        })
+        .group(this.eventLoop)
+        .remoteAddress(this.address);
+      final Runnable connectTask = () -> {
+        try {
+          if (bootstrap.connect().sync().isSuccess()) {
+            while (!this.isConnected() && !this.disconnected) {
+              try {
+                Thread.sleep(5);
+              } catch (final InterruptedException ignored) {
+              }
+            }
+          }
+        } catch (final Throwable t) {
+          this.exceptionCaught(null, t);
+        }
+      };
+      if (wait) {
+        connectTask.run();
+      } else {
+        new Thread(connectTask).start();
+      }
+    } catch (final Throwable t) {
+      this.exceptionCaught(null, t);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (msg instanceof AddressedEnvelope) {
+      this.channelRead0(ctx, ((AddressedEnvelope<Packet, InetSocketAddress>) msg).content());
+    } else {
+      ctx.fireChannelRead(msg);
+    }
+  }
+
+  @Override
+  public void setCompressionThreshold(final int threshold) {
+    this.compressionThreshold = threshold;
+  }
+
+  @Override
+  public void setStreamChunkSize(final int chunkSize) {
+    this.streams.setChunkSize(chunkSize);
+  }
+
+  @Override
+  protected void refreshRateLimiter(@NotNull final Channel channel) {
+  }
+
+  @NotNull
+  @Override
+  protected Object toMessage(@NotNull final Object message) {
+    return new DefaultAddressedEnvelope<>(message, (InetSocketAddress) this.address);
+  }
+}
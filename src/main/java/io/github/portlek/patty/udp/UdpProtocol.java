@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.PacketHeader;
+import io.github.portlek.patty.PacketSizer;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.ServerListener;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A protocol that sends every packet in its own datagram.
+ */
+public final class UdpProtocol implements Protocol {
+
+  public static final int DEFAULT_MAX_DATAGRAM_SIZE = 1472;
+
+  @Nullable
+  private final PacketEncryptor encryptor;
+
+  @NotNull
+  private final PacketSizer sizer;
+
+  @NotNull
+  private final PacketHeader header;
+
+  @Nullable
+  private final ServerListener serverListener;
+
+  @Nullable
+  private final ConnectionListener connectionListener;
+
+  private final int maxDatagramSize;
+
+  public UdpProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                     @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                     @Nullable final ConnectionListener connectionListener) {
+    this(encryptor, sizer, header, serverListener, connectionListener, UdpProtocol.DEFAULT_MAX_DATAGRAM_SIZE);
+  }
+
+  public UdpProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                     @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                     @Nullable final ConnectionListener connectionListener, final int maxDatagramSize) {
+    this.encryptor = encryptor;
+    this.sizer = sizer;
+    this.header = header;
+    this.serverListener = serverListener;
+    this.connectionListener = connectionListener;
+    this.maxDatagramSize = maxDatagramSize;
+  }
+
+  @Nullable
+  @Override
+  public PacketEncryptor getEncryptor() {
+    return this.encryptor;
+  }
+
+  @NotNull
+  @Override
+  public PacketSizer getSizer() {
+    return this.sizer;
+  }
+
+  @NotNull
+  @Override
+  public PacketHeader getHeader() {
+    return this.header;
+  }
+
+  @Nullable
+  @Override
+  public ServerListener getServerListener() {
+    return this.serverListener;
+  }
+
+  @Nullable
+  @Override
+  public ConnectionListener getConnectionListener() {
+    return this.connectionListener;
+  }
+
+  @NotNull
+  @Override
+  public Connection newServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    return new UdpServerConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Connection newClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    return new UdpClientConnection(patty, address);
+  }
+
+  public int getMaxDatagramSize() {
+    return this.maxDatagramSize;
+  }
+}
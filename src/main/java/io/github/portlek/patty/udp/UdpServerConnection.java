@@ -0,0 +1,300 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.ServerListener;
+import io.github.portlek.patty.udp.pipeline.UdpPacketCodec;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A server that reads every peer from one datagram channel, creating a {@link UdpSessionConnection} once the first
+ * datagram of an unknown address decodes into a packet and {@link PattyServer#admission} admits the address.
+ */
+public final class UdpServerConnection extends Connection implements UdpSessions {
+
+  private final Class<? extends DatagramChannel> udpChannel = Epoll.isAvailable() ? EpollDatagramChannel.class : NioDatagramChannel.class;
+
+  private final Map<InetSocketAddress, UdpSessionConnection> sessions = new ConcurrentHashMap<>();
+
+  private final BlockingQueue<UdpSessionConnection> ready = new LinkedBlockingQueue<>();
+
+  @NotNull
+  private final PattyServer patty;
+
+  @NotNull
+  private final UdpProtocol protocol;
+
+  @Nullable
+  private ChannelHandlerContext ctx;
+
+  @Nullable
+  private ScheduledFuture<?> sweep;
+
+  @Nullable
+  private Thread dispatcher;
+
+  private volatile boolean unbound;
+
+  public UdpServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    super(patty, address);
+    this.patty = patty;
+    this.protocol = (UdpProtocol) patty.protocol;
+  }
+
+  @Nullable
+  @Override
+  public Connection getSession(@NotNull final InetSocketAddress address) {
+    return this.sessions.get(address);
+  }
+
+  @Nullable
+  @Override
+  public Connection createSession(@NotNull final InetSocketAddress address) {
+    final UdpSessionConnection current = this.sessions.get(address);
+    if (current != null || this.ctx == null || this.unbound) {
+      return current;
+    }
+    final Runnable release = this.patty.admission.admit(address);
+    if (release == null) {
+      return null;
+    }
+    final UdpSessionConnection session = new UdpSessionConnection(this, this.patty, address, this.eventLoop, release);
+    session.readTimeout = this.readTimeout;
+    session.writeTimeout = this.writeTimeout;
+    final UdpSessionConnection previous = this.sessions.putIfAbsent(address, session);
+    if (previous != null) {
+      release.run();
+      return previous;
+    }
+    session.channelActive(this.ctx);
+    this.patty.connections.add(session);
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (serverListener != null) {
+      serverListener.sessionAdded(this.patty, session);
+    }
+    return session;
+  }
+
+  @Override
+  public void channelActive(final ChannelHandlerContext ctx) {
+    this.channel = ctx.channel();
+    this.ctx = ctx;
+    this.sweep = ctx.executor().scheduleAtFixedRate(this::sweep, 1L, 1L, TimeUnit.SECONDS);
+    this.dispatcher = new Thread(this::dispatch);
+    this.dispatcher.start();
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) {
+    if (this.sweep != null) {
+      this.sweep.cancel(false);
+      this.sweep = null;
+    }
+    this.sessions.values().forEach(session -> session.disconnect("Server closed."));
+    if (this.dispatcher != null) {
+      this.dispatcher.interrupt();
+      this.dispatcher = null;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (!(msg instanceof AddressedEnvelope)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final AddressedEnvelope<Packet, InetSocketAddress> envelope = (AddressedEnvelope<Packet, InetSocketAddress>) msg;
+    final UdpSessionConnection session = this.sessions.get(envelope.sender());
+    if (session != null) {
+      session.touch();
+      session.channelRead0(ctx, envelope.content());
+    }
+  }
+
+  @Override
+  public void unbind() {
+    this.unbound = true;
+  }
+
+  @Override
+  public void connect(final boolean wait) {
+    if (this.channel != null) {
+      return;
+    }
+    final int maxDatagramSize = this.protocol.getMaxDatagramSize();
+    final Bootstrap bootstrap = new Bootstrap()
+      .channel(this.udpChannel)
+      .handler(new ChannelInitializer<Channel>() {
+        @Override
+        public void initChannel(final Channel channel) {
+          UdpServerConnection.this.patty.getChannelOptions().apply(channel);
+          final ChannelPipeline pipeline = channel.pipeline();
+          pipeline.addLast("flush", new FlushConsolidationHandler());
+          pipeline.addLast("codec", new UdpPacketCodec(UdpServerConnection.this.protocol, UdpServerConnection.this,
+            maxDatagramSize));
+          pipeline.addLast("manager", UdpServerConnection.this);
+        }
+      })
+      .group(this.eventLoop)
+      .localAddress(this.address);
+    if (Epoll.isAvailable()) {
+      bootstrap
+        .option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramSize)
+        .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize * 16));
+    }
+    final ChannelFuture future = bootstrap.bind();
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (wait) {
+      try {
+        future.sync();
+      } catch (final InterruptedException e) {
+        e.printStackTrace();
+      }
+      if (serverListener != null) {
+        serverListener.serverBound(this.patty, this);
+      }
+    } else {
+      future.addListener((ChannelFutureListener) it -> {
+        if (it.isSuccess()) {
+          if (serverListener != null) {
+            serverListener.serverBound(this.patty, this);
+          }
+        } else {
+          System.err.println("[ERROR] Failed to asynchronously bind connection listener.");
+          if (it.cause() != null) {
+            it.cause().printStackTrace();
+          }
+        }
+      });
+    }
+  }
+
+  @Override
+  public void close(final boolean wait) {
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (this.channel != null) {
+      if (this.channel.isOpen()) {
+        final ChannelFuture future = this.channel.close();
+        if (wait) {
+          try {
+            future.sync();
+          } catch (final InterruptedException e) {
+            e.printStackTrace();
+          }
+          if (serverListener != null) {
+            serverListener.serverClosed(this.patty, this);
+          }
+        } else {
+          future.addListener((ChannelFutureListener) listener -> {
+            if (listener.isSuccess()) {
+              if (serverListener != null) {
+                serverListener.serverClosed(this.patty, this);
+              }
+            } else {
+              System.err.println("[ERROR] Failed to asynchronously close connection listener.");
+              if (future.cause() != null) {
+                future.cause().printStackTrace();
+              }
+            }
+          });
+        }
+      }
+      this.channel = null;
+    }
+    final Future<?> future = this.releaseEventLoop();
+    if (wait) {
+      try {
+        future.sync();
+      } catch (final InterruptedException e) {
+      }
+    } else {
+      future.addListener((FutureListener<Object>) it -> {
+        if (!it.isSuccess()) {
+          System.err.println("[ERROR] Failed to asynchronously close connection listener.");
+          if (it.cause() != null) {
+            it.cause().printStackTrace();
+          }
+        }
+      });
+    }
+  }
+
+  void packetQueued(@NotNull final UdpSessionConnection session) {
+    this.ready.add(session);
+  }
+
+  void removeSession(@NotNull final InetSocketAddress address, @NotNull final UdpSessionConnection session) {
+    this.sessions.remove(address, session);
+  }
+
+  private void dispatch() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        this.ready.take().dispatch();
+      }
+    } catch (final InterruptedException ignored) {
+    }
+  }
+
+  private void sweep() {
+    final long now = System.nanoTime();
+    this.sessions.values().stream()
+      .filter(session -> session.readTimeout > 0 &&
+        now - session.getLastRead() > TimeUnit.SECONDS.toNanos(session.readTimeout))
+      .forEach(session -> session.disconnect("Read timed out."));
+  }
+}
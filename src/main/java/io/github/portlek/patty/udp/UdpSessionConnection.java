@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.ServerListener;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.EventLoopGroup;
+import java.net.InetSocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A peer of a {@link UdpServerConnection}, sharing its channel and its packet dispatcher.
+ */
+public final class UdpSessionConnection extends Connection {
+
+  @NotNull
+  private final UdpServerConnection server;
+
+  @NotNull
+  private final PattyServer patty;
+
+  @NotNull
+  private final Runnable release;
+
+  private volatile long lastRead = System.nanoTime();
+
+  UdpSessionConnection(@NotNull final UdpServerConnection server, @NotNull final PattyServer patty,
+                       @NotNull final InetSocketAddress address, @NotNull final EventLoopGroup eventLoop,
+                       @NotNull final Runnable release) {
+    super(patty, address, eventLoop);
+    this.server = server;
+    this.patty = patty;
+    this.release = release;
+  }
+
+  @Override
+  public void disconnect(@NotNull final String reason, @Nullable final Throwable cause) {
+    if (this.disconnected) {
+      return;
+    }
+    super.disconnect(reason, cause);
+    this.server.removeSession((InetSocketAddress) this.address, this);
+    this.release.run();
+    this.patty.connections.remove(this);
+    final ServerListener serverListener = this.patty.protocol.getServerListener();
+    if (serverListener != null) {
+      serverListener.sessionRemoved(this.patty, this);
+    }
+  }
+
+  @Override
+  public void setCompressionThreshold(final int threshold) {
+    this.compressionThreshold = threshold;
+  }
+
+  @Override
+  public void setStreamChunkSize(final int chunkSize) {
+    this.streams.setChunkSize(chunkSize);
+  }
+
+  @NotNull
+  @Override
+  protected Object toMessage(@NotNull final Object message) {
+    return new DefaultAddressedEnvelope<>(message, (InetSocketAddress) this.address);
+  }
+
+  @NotNull
+  @Override
+  protected ChannelFuture closeChannel(@NotNull final Channel channel) {
+    return channel.flush().newSucceededFuture();
+  }
+
+  @Override
+  protected void startPacketHandler(@Nullable final ConnectionListener connectionListener) {
+  }
+
+  @Override
+  protected void packetQueued() {
+    this.server.packetQueued(this);
+  }
+
+  @Override
+  protected void refreshReadTimeoutHandler(@NotNull final Channel channel) {
+  }
+
+  @Override
+  protected void refreshWriteTimeoutHandler(@NotNull final Channel channel) {
+  }
+
+  @Override
+  protected void refreshRateLimiter(@NotNull final Channel channel) {
+  }
+
+  void dispatch() {
+    if (!this.disconnected) {
+      this.handleQueuedPacket();
+    }
+  }
+
+  void touch() {
+    this.lastRead = System.nanoTime();
+  }
+
+  long getLastRead() {
+    return this.lastRead;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp.pipeline;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.FrozenPacket;
+import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.PacketRegistry;
+import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.github.portlek.patty.udp.UdpSessions;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Optional;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Encodes every packet into a datagram of its own and decodes every datagram into one packet, each datagram is
+ * encrypted on its own.
+ */
+public final class UdpPacketCodec
+  extends MessageToMessageCodec<DatagramPacket, AddressedEnvelope<Object, InetSocketAddress>> {
+
+  @NotNull
+  private final Protocol protocol;
+
+  @NotNull
+  private final Connection owner;
+
+  @NotNull
+  private final UdpSessions sessions;
+
+  private final int maxDatagramSize;
+
+  public <T extends Connection & UdpSessions> UdpPacketCodec(@NotNull final Protocol protocol, @NotNull final T owner,
+                                                            final int maxDatagramSize) {
+    this.protocol = protocol;
+    this.owner = owner;
+    this.sessions = owner;
+    this.maxDatagramSize = maxDatagramSize;
+  }
+
+  @Override
+  public boolean acceptOutboundMessage(final Object msg) {
+    if (!(msg instanceof AddressedEnvelope)) {
+      return false;
+    }
+    final Object content = ((AddressedEnvelope<?, ?>) msg).content();
+    return content instanceof Packet || content instanceof FrozenPacket;
+  }
+
+  @Override
+  public void encode(final ChannelHandlerContext ctx, final AddressedEnvelope<Object, InetSocketAddress> msg,
+                     final List<Object> out) throws Exception {
+    final Connection connection = this.sessions.getSession(msg.recipient());
+    if (connection == null) {
+      return;
+    }
+    final Object content = msg.content();
+    final Packet packet = content instanceof FrozenPacket ? ((FrozenPacket) content).getPacket() : (Packet) content;
+    ByteBuf buf = null;
+    try {
+      if (content instanceof FrozenPacket) {
+        buf = ((FrozenPacket) content).retainedEncoded();
+      } else {
+        buf = ctx.alloc().ioBuffer(connection.getSizeEstimator().estimate(packet, connection));
+        this.protocol.getHeader().writePacketId(buf, packet.getId() | packet.getFlags());
+        if (packet.getFlags() != 0) {
+          ReadWrite.writeVarInt(buf, packet.getCorrelationId());
+        }
+        packet.write(buf, connection);
+        connection.getSizeEstimator().record(packet.getId(), buf.readableBytes(), false);
+      }
+      final ConnectionMetrics metrics = connection.getMetrics();
+      if (metrics != null) {
+        metrics.packetWritten(packet.getId(), buf.readableBytes());
+      }
+      final PacketEncryptor encryptor = this.protocol.getEncryptor();
+      if (encryptor != null) {
+        final int length = buf.readableBytes();
+        final byte[] bytes = new byte[length];
+        buf.readBytes(bytes);
+        final ByteBuf encrypted = ctx.alloc().heapBuffer(encryptor.getEncryptOutputSize(length));
+        encrypted.writerIndex(encryptor.encrypt(bytes, 0, length, encrypted.array(), encrypted.arrayOffset()));
+        buf.release();
+        buf = encrypted;
+      }
+      if (buf.readableBytes() > this.maxDatagramSize) {
+        throw new EncoderException("Packet \"" + packet.getClass().getSimpleName() + "\" is " + buf.readableBytes() +
+          " bytes, larger than the maximum datagram size of " + this.maxDatagramSize + ".");
+      }
+      if (metrics != null) {
+        metrics.add(MetricCounter.WIRE_BYTES_WRITTEN, buf.readableBytes());
+      }
+      out.add(new DatagramPacket(buf, msg.recipient()));
+    } catch (final Throwable t) {
+      if (buf != null) {
+        buf.release();
+      }
+      final ConnectionListener connectionListener = this.protocol.getConnectionListener();
+      if (connectionListener != null && connectionListener.packetError(t, connection)) {
+        throw t;
+      }
+    }
+  }
+
+  @Override
+  public void decode(final ChannelHandlerContext ctx, final DatagramPacket msg, final List<Object> out) {
+    final InetSocketAddress sender = msg.sender();
+    final Connection session = this.sessions.getSession(sender);
+    final Connection reader = session == null ? this.owner : session;
+    ByteBuf buf = msg.content();
+    final int wire = buf.readableBytes();
+    final ConnectionMetrics sessionMetrics = session == null ? null : session.getMetrics();
+    if (sessionMetrics != null) {
+      sessionMetrics.add(MetricCounter.WIRE_BYTES_READ, wire);
+    }
+    boolean decrypted = false;
+    try {
+      final PacketEncryptor encryptor = this.protocol.getEncryptor();
+      if (encryptor != null) {
+        final int length = buf.readableBytes();
+        final byte[] bytes = new byte[length];
+        buf.readBytes(bytes);
+        buf = ctx.alloc().heapBuffer(encryptor.getDecryptOutputSize(length));
+        decrypted = true;
+        buf.writerIndex(encryptor.decrypt(bytes, 0, length, buf.array(), buf.arrayOffset()));
+      }
+      final int frame = buf.readableBytes();
+      final int info = this.protocol.getHeader().readPacketId(buf);
+      final int id = PacketRegistry.getPacketId(info);
+      final int flags = PacketRegistry.getPacketFlags(info);
+      final int correlationId = flags == 0 ? 0 : ReadWrite.readVarInt(buf);
+      final Optional<Class<? extends Packet>> packetCls = PacketRegistry.getPacket(id);
+      if (!packetCls.isPresent()) {
+        return;
+      }
+      final Optional<Packet> packetOptional = PacketRegistry.createPacket(packetCls.get());
+      if (!packetOptional.isPresent()) {
+        return;
+      }
+      final Packet packet = packetOptional.get();
+      packet.setCorrelation(flags, correlationId);
+      packet.read(buf, reader);
+      if (buf.isReadable()) {
+        throw new IllegalStateException("Packet \"" + packet.getClass().getSimpleName() + "\" not fully read.");
+      }
+      final Connection connection = session == null ? this.sessions.createSession(sender) : session;
+      if (connection == null) {
+        return;
+      }
+      final ConnectionMetrics metrics = connection.getMetrics();
+      if (metrics != null) {
+        if (session == null) {
+          metrics.add(MetricCounter.WIRE_BYTES_READ, wire);
+        }
+        metrics.packetRead(id, frame);
+      }
+      out.add(new DefaultAddressedEnvelope<>(packet, msg.recipient(), sender));
+    } catch (final Throwable t) {
+      if (session == null) {
+        return;
+      }
+      final ConnectionListener connectionListener = this.protocol.getConnectionListener();
+      if (connectionListener != null && connectionListener.packetError(t, session)) {
+        session.disconnect("Invalid datagram.", t);
+      }
+    } finally {
+      if (decrypted) {
+        buf.release();
+      }
+    }
+  }
+}
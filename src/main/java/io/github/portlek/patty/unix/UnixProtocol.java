@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.unix;
+
+import io.github.portlek.patty.ChannelOptions;
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.ConnectionListener;
+import io.github.portlek.patty.PacketHeader;
+import io.github.portlek.patty.PacketSizer;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.Protocol;
+import io.github.portlek.patty.ServerListener;
+import io.github.portlek.patty.tcp.PacketEncryptor;
+import io.github.portlek.patty.tcp.TcpClientConnection;
+import io.github.portlek.patty.tcp.TcpServerConnection;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.net.SocketAddress;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A protocol that connects peers on the same host through a Unix domain socket, with the same pipeline as TCP but
+ * without the TCP/IP stack. The ip is the path of the socket file, the port is ignored. Needs the native epoll
+ * transport.
+ */
+public final class UnixProtocol implements Protocol {
+
+  @Nullable
+  private final PacketEncryptor encryptor;
+
+  @NotNull
+  private final PacketSizer sizer;
+
+  @NotNull
+  private final PacketHeader header;
+
+  @Nullable
+  private final ServerListener serverListener;
+
+  @Nullable
+  private final ConnectionListener connectionListener;
+
+  public UnixProtocol(@Nullable final PacketEncryptor encryptor, @NotNull final PacketSizer sizer,
+                      @NotNull final PacketHeader header, @Nullable final ServerListener serverListener,
+                      @Nullable final ConnectionListener connectionListener) {
+    this.encryptor = encryptor;
+    this.sizer = sizer;
+    this.header = header;
+    this.serverListener = serverListener;
+    this.connectionListener = connectionListener;
+  }
+
+  @Nullable
+  @Override
+  public PacketEncryptor getEncryptor() {
+    return this.encryptor;
+  }
+
+  @NotNull
+  @Override
+  public PacketSizer getSizer() {
+    return this.sizer;
+  }
+
+  @NotNull
+  @Override
+  public PacketHeader getHeader() {
+    return this.header;
+  }
+
+  @Nullable
+  @Override
+  public ServerListener getServerListener() {
+    return this.serverListener;
+  }
+
+  @Nullable
+  @Override
+  public ConnectionListener getConnectionListener() {
+    return this.connectionListener;
+  }
+
+  @NotNull
+  @Override
+  public SocketAddress newAddress(@NotNull final String ip, final int port) {
+    if (!Epoll.isAvailable()) {
+      throw new IllegalStateException("Unix domain sockets need the native epoll transport.",
+        Epoll.unavailabilityCause());
+    }
+    return new DomainSocketAddress(ip);
+  }
+
+  @NotNull
+  @Override
+  public Connection newServerConnection(@NotNull final PattyServer patty, @NotNull final SocketAddress address) {
+    return new TcpServerConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Connection newClientConnection(@NotNull final PattyClient patty, @NotNull final SocketAddress address) {
+    return new TcpClientConnection(patty, address);
+  }
+
+  @NotNull
+  @Override
+  public Class<? extends ServerChannel> getServerChannelClass() {
+    return EpollServerDomainSocketChannel.class;
+  }
+
+  @NotNull
+  @Override
+  public Class<? extends Channel> getClientChannelClass() {
+    return EpollDomainSocketChannel.class;
+  }
+
+  @Override
+  public void applyOptions(@NotNull final ChannelOptions options, @NotNull final ServerBootstrap bootstrap) {
+    options.applyDomain(bootstrap);
+  }
+
+  @Override
+  public void applyOptions(@NotNull final ChannelOptions options, @NotNull final Bootstrap bootstrap) {
+    options.applyDomain(bootstrap);
+  }
+
+  @Override
+  public int getAcceptors(@NotNull final ChannelOptions options) {
+    return 1;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An ASCII-only {@link CharSequence} view over the bytes of a packet buffer, only valid during
+ * {@link io.github.portlek.patty.Packet#read}.
+ */
+public final class ByteBufCharSequence implements CharSequence {
+
+  @NotNull
+  private final ByteBuf buf;
+
+  private final int index;
+
+  private final int length;
+
+  ByteBufCharSequence(@NotNull final ByteBuf buf, final int index, final int length) {
+    this.buf = buf;
+    this.index = index;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + this.length);
+    }
+    return (char) (this.buf.getByte(this.index + index) & 0xFF);
+  }
+
+  @NotNull
+  @Override
+  public CharSequence subSequence(final int start, final int end) {
+    if (start < 0 || end > this.length || start > end) {
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + this.length);
+    }
+    return new ByteBufCharSequence(this.buf, this.index + start, end - start);
+  }
+
+  public boolean contentEquals(@NotNull final CharSequence other) {
+    if (other.length() != this.length) {
+      return false;
+    }
+    for (int index = 0; index < this.length; index++) {
+      if (other.charAt(index) != (char) (this.buf.getByte(this.index + index) & 0xFF)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    return this.buf.toString(this.index, this.length, CharsetUtil.US_ASCII);
+  }
+}
@@ -26,31 +26,398 @@
 package io.github.portlek.patty.util;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.CharsetUtil;
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ReadWrite {
 
   private ReadWrite() {
   }
 
+  public static int getVarIntSize(final int value) {
+    return (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+  }
+
+  public static int getVarLongSize(final long value) {
+    return (63 - Long.numberOfLeadingZeros(value)) / 7 + 1;
+  }
+
   public static int readVarInt(final ByteBuf buf) throws IOException {
-    int value = 0;
-    int size = 0;
-    int b;
-    while (((b = buf.readByte()) & 0x80) == 0x80) {
-      value |= b & 0x7F << size++ * 7;
-      if (size > 5) {
-        throw new IOException("VarInt too long (length must be <= 5)");
+    if (buf.readableBytes() < 5) {
+      return ReadWrite.readVarIntSlow(buf);
+    }
+    final int index = buf.readerIndex();
+    int b = buf.getByte(index);
+    if (b >= 0) {
+      buf.readerIndex(index + 1);
+      return b;
+    }
+    int value = b & 0x7F;
+    b = buf.getByte(index + 1);
+    if (b >= 0) {
+      buf.readerIndex(index + 2);
+      return value | b << 7;
+    }
+    value |= (b & 0x7F) << 7;
+    b = buf.getByte(index + 2);
+    if (b >= 0) {
+      buf.readerIndex(index + 3);
+      return value | b << 14;
+    }
+    value |= (b & 0x7F) << 14;
+    b = buf.getByte(index + 3);
+    if (b >= 0) {
+      buf.readerIndex(index + 4);
+      return value | b << 21;
+    }
+    value |= (b & 0x7F) << 21;
+    b = buf.getByte(index + 4);
+    if (b < 0) {
+      throw new IOException("VarInt too long (length must be <= 5)");
+    }
+    buf.readerIndex(index + 5);
+    return value | b << 28;
+  }
+
+  public static void writeVarInt(final ByteBuf buf, final int value) {
+    if ((value & 0xFFFFFF80) == 0) {
+      buf.writeByte(value);
+    } else if ((value & 0xFFFFC000) == 0) {
+      buf.writeShort((value & 0x7F | 0x80) << 8 | value >>> 7);
+    } else if ((value & 0xFFE00000) == 0) {
+      buf.writeMedium((value & 0x7F | 0x80) << 16 | (value >>> 7 & 0x7F | 0x80) << 8 | value >>> 14);
+    } else if ((value & 0xF0000000) == 0) {
+      buf.writeInt((value & 0x7F | 0x80) << 24 | (value >>> 7 & 0x7F | 0x80) << 16 |
+        (value >>> 14 & 0x7F | 0x80) << 8 | value >>> 21);
+    } else {
+      buf.writeInt((value & 0x7F | 0x80) << 24 | (value >>> 7 & 0x7F | 0x80) << 16 |
+        (value >>> 14 & 0x7F | 0x80) << 8 | (value >>> 21 & 0x7F | 0x80));
+      buf.writeByte(value >>> 28);
+    }
+  }
+
+  public static long readVarLong(final ByteBuf buf) throws IOException {
+    long value = 0L;
+    for (int shift = 0; shift < 70; shift += 7) {
+      final byte b = buf.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("VarLong too long (length must be <= 10)");
+  }
+
+  public static void writeVarLong(final ByteBuf buf, long value) {
+    if ((value & 0xFFFFFFFFF0000000L) == 0L) {
+      ReadWrite.writeVarInt(buf, (int) value);
+      return;
+    }
+    while ((value & 0xFFFFFFFFFFFFFF80L) != 0L) {
+      buf.writeByte((int) value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    buf.writeByte((int) value);
+  }
+
+  public static int encodeZigZag(final int value) {
+    return value << 1 ^ value >> 31;
+  }
+
+  public static long encodeZigZag(final long value) {
+    return value << 1 ^ value >> 63;
+  }
+
+  public static int decodeZigZag(final int value) {
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public static long decodeZigZag(final long value) {
+    return value >>> 1 ^ -(value & 1L);
+  }
+
+  public static int readSignedVarInt(final ByteBuf buf) throws IOException {
+    return ReadWrite.decodeZigZag(ReadWrite.readVarInt(buf));
+  }
+
+  public static void writeSignedVarInt(final ByteBuf buf, final int value) {
+    ReadWrite.writeVarInt(buf, ReadWrite.encodeZigZag(value));
+  }
+
+  public static long readSignedVarLong(final ByteBuf buf) throws IOException {
+    return ReadWrite.decodeZigZag(ReadWrite.readVarLong(buf));
+  }
+
+  public static void writeSignedVarLong(final ByteBuf buf, final long value) {
+    ReadWrite.writeVarLong(buf, ReadWrite.encodeZigZag(value));
+  }
+
+  public static int getStringSize(@NotNull final CharSequence value) {
+    final int length = ByteBufUtil.utf8Bytes(value);
+    return ReadWrite.getVarIntSize(length) + length;
+  }
+
+  public static void writeString(@NotNull final ByteBuf buf, @NotNull final CharSequence value) {
+    final int length = ByteBufUtil.utf8Bytes(value);
+    ReadWrite.writeVarInt(buf, length);
+    ByteBufUtil.reserveAndWriteUtf8(buf, value, length);
+  }
+
+  @NotNull
+  public static String readString(@NotNull final ByteBuf buf) throws IOException {
+    return ReadWrite.readString(buf, Integer.MAX_VALUE);
+  }
+
+  @NotNull
+  public static String readString(@NotNull final ByteBuf buf, final int maxLength) throws IOException {
+    final int length = ReadWrite.readLength(buf, maxLength, Byte.BYTES);
+    final String value = buf.toString(buf.readerIndex(), length, CharsetUtil.UTF_8);
+    buf.skipBytes(length);
+    return value;
+  }
+
+  @NotNull
+  public static CharSequence readCharSequence(@NotNull final ByteBuf buf) throws IOException {
+    return ReadWrite.readCharSequence(buf, Integer.MAX_VALUE);
+  }
+
+  @NotNull
+  public static CharSequence readCharSequence(@NotNull final ByteBuf buf, final int maxLength) throws IOException {
+    final int length = ReadWrite.readLength(buf, maxLength, Byte.BYTES);
+    final int index = buf.readerIndex();
+    final CharSequence value;
+    if (ByteBufUtil.isText(buf, index, length, CharsetUtil.US_ASCII)) {
+      value = new ByteBufCharSequence(buf, index, length);
+    } else {
+      value = buf.toString(index, length, CharsetUtil.UTF_8);
+    }
+    buf.skipBytes(length);
+    return value;
+  }
+
+  public static void writeUuid(@NotNull final ByteBuf buf, @NotNull final UUID value) {
+    buf.writeLong(value.getMostSignificantBits());
+    buf.writeLong(value.getLeastSignificantBits());
+  }
+
+  @NotNull
+  public static UUID readUuid(@NotNull final ByteBuf buf) {
+    return new UUID(buf.readLong(), buf.readLong());
+  }
+
+  public static int getByteArraySize(@NotNull final byte[] value) {
+    return ReadWrite.getVarIntSize(value.length) + value.length;
+  }
+
+  public static void writeByteArray(@NotNull final ByteBuf buf, @NotNull final byte[] value) {
+    ReadWrite.writeVarInt(buf, value.length);
+    buf.writeBytes(value);
+  }
+
+  @NotNull
+  public static byte[] readByteArray(@NotNull final ByteBuf buf) throws IOException {
+    return ReadWrite.readByteArray(buf, Integer.MAX_VALUE);
+  }
+
+  @NotNull
+  public static byte[] readByteArray(@NotNull final ByteBuf buf, final int maxLength) throws IOException {
+    final byte[] value = new byte[ReadWrite.readLength(buf, maxLength, Byte.BYTES)];
+    buf.readBytes(value);
+    return value;
+  }
+
+  public static int getIntArraySize(@NotNull final int[] value) {
+    return ReadWrite.getVarIntSize(value.length) + value.length * Integer.BYTES;
+  }
+
+  public static void writeIntArray(@NotNull final ByteBuf buf, @NotNull final int[] value) {
+    ReadWrite.writeVarInt(buf, value.length);
+    buf.ensureWritable(value.length * Integer.BYTES);
+    for (final int element : value) {
+      buf.writeInt(element);
+    }
+  }
+
+  @NotNull
+  public static int[] readIntArray(@NotNull final ByteBuf buf) throws IOException {
+    final int[] value = new int[ReadWrite.readLength(buf, Integer.MAX_VALUE, Integer.BYTES)];
+    for (int index = 0; index < value.length; index++) {
+      value[index] = buf.readInt();
+    }
+    return value;
+  }
+
+  public static int getLongArraySize(@NotNull final long[] value) {
+    return ReadWrite.getVarIntSize(value.length) + value.length * Long.BYTES;
+  }
+
+  public static void writeLongArray(@NotNull final ByteBuf buf, @NotNull final long[] value) {
+    ReadWrite.writeVarInt(buf, value.length);
+    buf.ensureWritable(value.length * Long.BYTES);
+    for (final long element : value) {
+      buf.writeLong(element);
+    }
+  }
+
+  @NotNull
+  public static long[] readLongArray(@NotNull final ByteBuf buf) throws IOException {
+    final long[] value = new long[ReadWrite.readLength(buf, Integer.MAX_VALUE, Long.BYTES)];
+    for (int index = 0; index < value.length; index++) {
+      value[index] = buf.readLong();
+    }
+    return value;
+  }
+
+  public static int getFloatArraySize(@NotNull final float[] value) {
+    return ReadWrite.getVarIntSize(value.length) + value.length * Float.BYTES;
+  }
+
+  public static void writeFloatArray(@NotNull final ByteBuf buf, @NotNull final float[] value) {
+    ReadWrite.writeVarInt(buf, value.length);
+    buf.ensureWritable(value.length * Float.BYTES);
+    for (final float element : value) {
+      buf.writeFloat(element);
+    }
+  }
+
+  @NotNull
+  public static float[] readFloatArray(@NotNull final ByteBuf buf) throws IOException {
+    final float[] value = new float[ReadWrite.readLength(buf, Integer.MAX_VALUE, Float.BYTES)];
+    for (int index = 0; index < value.length; index++) {
+      value[index] = buf.readFloat();
+    }
+    return value;
+  }
+
+  public static int getDoubleArraySize(@NotNull final double[] value) {
+    return ReadWrite.getVarIntSize(value.length) + value.length * Double.BYTES;
+  }
+
+  public static void writeDoubleArray(@NotNull final ByteBuf buf, @NotNull final double[] value) {
+    ReadWrite.writeVarInt(buf, value.length);
+    buf.ensureWritable(value.length * Double.BYTES);
+    for (final double element : value) {
+      buf.writeDouble(element);
+    }
+  }
+
+  @NotNull
+  public static double[] readDoubleArray(@NotNull final ByteBuf buf) throws IOException {
+    final double[] value = new double[ReadWrite.readLength(buf, Integer.MAX_VALUE, Double.BYTES)];
+    for (int index = 0; index < value.length; index++) {
+      value[index] = buf.readDouble();
+    }
+    return value;
+  }
+
+  public static int getBitSetSize(@NotNull final BitSet value) {
+    final int words = value.length() + 63 >>> 6;
+    return ReadWrite.getVarIntSize(words) + words * Long.BYTES;
+  }
+
+  public static void writeBitSet(@NotNull final ByteBuf buf, @NotNull final BitSet value) {
+    final int words = value.length() + 63 >>> 6;
+    ReadWrite.writeVarInt(buf, words);
+    buf.ensureWritable(words * Long.BYTES);
+    int bit = value.nextSetBit(0);
+    for (int word = 0; word < words; word++) {
+      final int limit = word + 1 << 6;
+      long bits = 0L;
+      while (bit >= 0 && bit < limit) {
+        bits |= 1L << bit;
+        bit = value.nextSetBit(bit + 1);
+      }
+      buf.writeLong(bits);
+    }
+  }
+
+  @NotNull
+  public static BitSet readBitSet(@NotNull final ByteBuf buf) throws IOException {
+    final int words = ReadWrite.readLength(buf, Integer.MAX_VALUE, Long.BYTES);
+    final BitSet value = new BitSet(words << 6);
+    for (int word = 0; word < words; word++) {
+      long bits = buf.readLong();
+      while (bits != 0L) {
+        value.set(word << 6 | Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1L;
       }
     }
-    return value | b & 0x7F << size * 7;
+    return value;
+  }
+
+  public static void writeEnum(@NotNull final ByteBuf buf, @NotNull final Enum<?> value) {
+    ReadWrite.writeVarInt(buf, value.ordinal());
+  }
+
+  @NotNull
+  public static <E extends Enum<E>> E readEnum(@NotNull final ByteBuf buf, @NotNull final E[] values)
+    throws IOException {
+    final int ordinal = ReadWrite.readVarInt(buf);
+    if (ordinal < 0 || ordinal >= values.length) {
+      throw new IOException("Enum ordinal " + ordinal + " is out of range (0-" + (values.length - 1) + ")");
+    }
+    return values[ordinal];
+  }
+
+  public static <T> void writeOptional(@NotNull final ByteBuf buf, @Nullable final T value,
+                                       @NotNull final Writer<? super T> writer) {
+    if (value == null) {
+      buf.writeBoolean(false);
+    } else {
+      buf.writeBoolean(true);
+      writer.write(buf, value);
+    }
   }
 
-  public static void writeVarInt(final ByteBuf buf, int towrite) {
-    while ((towrite & ~0x7F) != 0) {
-      buf.writeByte(towrite & 0x7F | 0x80);
-      towrite = towrite >>> 7;
+  @Nullable
+  public static <T> T readOptional(@NotNull final ByteBuf buf, @NotNull final Reader<? extends T> reader)
+    throws IOException {
+    if (buf.readBoolean()) {
+      return reader.read(buf);
     }
-    buf.writeByte(towrite);
+    return null;
+  }
+
+  private static int readLength(@NotNull final ByteBuf buf, final int maxLength, final int elementSize)
+    throws IOException {
+    final int length = ReadWrite.readVarInt(buf);
+    if (length < 0 || length > maxLength) {
+      throw new IOException("Length of " + length + " is out of range (0-" + maxLength + ")");
+    }
+    if ((long) length * elementSize > buf.readableBytes()) {
+      throw new IOException("Length of " + length + " exceeds " + buf.readableBytes() / elementSize +
+        " readable elements");
+    }
+    return length;
+  }
+
+  private static int readVarIntSlow(final ByteBuf buf) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      final byte b = buf.readByte();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("VarInt too long (length must be <= 5)");
+  }
+
+  @FunctionalInterface
+  public interface Writer<T> {
+
+    void write(@NotNull ByteBuf buf, @NotNull T value);
+  }
+
+  @FunctionalInterface
+  public interface Reader<T> {
+
+    @NotNull
+    T read(@NotNull ByteBuf buf) throws IOException;
   }
 }
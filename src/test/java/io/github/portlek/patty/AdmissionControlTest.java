@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class AdmissionControlTest {
+
+  private static int freePort() throws IOException {
+    try (final ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  @NotNull
+  private static InetSocketAddress peer(@NotNull final String host) {
+    return new InetSocketAddress(host, 25565);
+  }
+
+  @Test
+  void socketsPastTheSessionLimitAreClosed() {
+    final AdmissionControl admission = new AdmissionControl();
+    admission.setMaxSessions(1);
+    final EmbeddedChannel listener = new EmbeddedChannel(admission);
+    final EmbeddedChannel first = new EmbeddedChannel();
+    final EmbeddedChannel second = new EmbeddedChannel();
+    listener.writeInbound(first);
+    listener.writeInbound(second);
+    Assertions.assertSame(first, listener.readInbound());
+    Assertions.assertNull(listener.readInbound());
+    Assertions.assertTrue(first.isOpen());
+    Assertions.assertFalse(second.isOpen());
+    Assertions.assertEquals(1, admission.getSessions());
+    Assertions.assertEquals(1L, admission.getRejected());
+    first.close();
+    Assertions.assertEquals(0, admission.getSessions());
+    final EmbeddedChannel third = new EmbeddedChannel();
+    listener.writeInbound(third);
+    Assertions.assertSame(third, listener.readInbound());
+    listener.finishAndReleaseAll();
+  }
+
+  @Test
+  void addressesAreLimitedSeparately() {
+    final AdmissionControl admission = new AdmissionControl();
+    admission.setMaxSessionsPerAddress(2);
+    final Runnable first = admission.admit(AdmissionControlTest.peer("10.0.0.1"));
+    Assertions.assertNotNull(first);
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.1")));
+    Assertions.assertNull(admission.admit(AdmissionControlTest.peer("10.0.0.1")));
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.2")));
+    Assertions.assertEquals(3, admission.getSessions());
+    Assertions.assertEquals(1L, admission.getRejected());
+    first.run();
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.1")));
+  }
+
+  @Test
+  void peersPastTheAcceptRateAreRejected() throws InterruptedException {
+    final AdmissionControl admission = new AdmissionControl();
+    admission.setMaxAcceptRate(2);
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.1")));
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.2")));
+    Assertions.assertNull(admission.admit(AdmissionControlTest.peer("10.0.0.3")));
+    Assertions.assertEquals(1L, admission.getRejected());
+    Thread.sleep(600L);
+    Assertions.assertNotNull(admission.admit(AdmissionControlTest.peer("10.0.0.3")));
+  }
+
+  @Test
+  void acceptingPausesPastTheAcceptRate() throws InterruptedException {
+    final AdmissionControl admission = new AdmissionControl();
+    admission.setMaxAcceptRate(2);
+    final EmbeddedChannel listener = new EmbeddedChannel(admission);
+    listener.writeInbound(new EmbeddedChannel());
+    listener.writeInbound(new EmbeddedChannel());
+    Assertions.assertTrue(listener.config().isAutoRead());
+    listener.writeInbound(new EmbeddedChannel());
+    Assertions.assertFalse(listener.config().isAutoRead());
+    Assertions.assertEquals(1L, admission.getPaused());
+    Assertions.assertEquals(0L, admission.getRejected());
+    Assertions.assertEquals(3, admission.getSessions());
+    Thread.sleep(600L);
+    listener.runScheduledPendingTasks();
+    Assertions.assertTrue(listener.config().isAutoRead());
+    listener.finishAndReleaseAll();
+  }
+
+  @Test
+  void tcpServerClosesSocketsPastTheSessionLimit() throws Exception {
+    final int port = AdmissionControlTest.freePort();
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = PattyServer.tcp("127.0.0.1", port, new TestPacketHeader(), null,
+      new TestPacketSizer(), server, server);
+    patty.admission.setMaxSessions(1);
+    patty.bind();
+    try (final Socket first = new Socket("127.0.0.1", port);
+         final Socket second = new Socket("127.0.0.1", port)) {
+      Assertions.assertNotNull(server.nextSession());
+      second.setSoTimeout((int) TimeUnit.SECONDS.toMillis(RecordingListener.TIMEOUT_SECONDS));
+      Assertions.assertEquals(-1, second.getInputStream().read());
+      Assertions.assertNull(server.sessions.poll(200L, TimeUnit.MILLISECONDS));
+      Assertions.assertEquals(1, patty.admission.getSessions());
+      Assertions.assertEquals(1L, patty.admission.getRejected());
+      first.close();
+      Assertions.assertNotNull(RecordingListener.poll(server.removed));
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RecordingListener.TIMEOUT_SECONDS);
+      while (patty.admission.getSessions() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10L);
+      }
+      Assertions.assertEquals(0, patty.admission.getSessions());
+    } finally {
+      patty.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+final class ChannelOptionsTest {
+
+  @Test
+  void serverBootstrapsGetConnectionOptionsAsChildOptions() {
+    final ServerBootstrap epoll = new ServerBootstrap();
+    ChannelOptions.defaults().apply(epoll, true);
+    final Map<ChannelOption<?>, Object> options = epoll.config().options();
+    final Map<ChannelOption<?>, Object> children = epoll.config().childOptions();
+    Assertions.assertEquals(1024, options.get(ChannelOption.SO_BACKLOG));
+    Assertions.assertFalse(options.containsKey(ChannelOption.TCP_NODELAY));
+    Assertions.assertEquals(true, children.get(ChannelOption.TCP_NODELAY));
+    Assertions.assertEquals(0x18, children.get(ChannelOption.IP_TOS));
+    Assertions.assertEquals(true, children.get(EpollChannelOption.TCP_QUICKACK));
+    final ServerBootstrap nio = new ServerBootstrap();
+    ChannelOptions.defaults().apply(nio, false);
+    Assertions.assertEquals(1024, nio.config().options().get(ChannelOption.SO_BACKLOG));
+    Assertions.assertEquals(true, nio.config().childOptions().get(ChannelOption.TCP_NODELAY));
+    Assertions.assertFalse(nio.config().childOptions().containsKey(EpollChannelOption.TCP_QUICKACK));
+  }
+
+  @Test
+  void clientBootstrapsGetConnectionOptionsOnly() {
+    final Bootstrap epoll = new Bootstrap();
+    ChannelOptions.defaults().apply(epoll, true);
+    Assertions.assertEquals(true, epoll.config().options().get(ChannelOption.TCP_NODELAY));
+    Assertions.assertEquals(true, epoll.config().options().get(EpollChannelOption.TCP_QUICKACK));
+    Assertions.assertFalse(epoll.config().options().containsKey(ChannelOption.SO_BACKLOG));
+    final Bootstrap nio = new Bootstrap();
+    ChannelOptions.defaults().apply(nio, false);
+    Assertions.assertEquals(true, nio.config().options().get(ChannelOption.TCP_NODELAY));
+    Assertions.assertFalse(nio.config().options().containsKey(EpollChannelOption.TCP_QUICKACK));
+  }
+
+  @Test
+  void domainSocketsSkipTheInetOptions() {
+    final WriteBufferWaterMark waterMark = new WriteBufferWaterMark(1024, 4096);
+    final ChannelOptions options = ChannelOptions.builder()
+      .reusePort(4)
+      .busyPoll(50)
+      .keepAlive(true)
+      .sendBufferSize(8192)
+      .writeBufferWaterMark(waterMark.low(), waterMark.high())
+      .build();
+    final ServerBootstrap server = new ServerBootstrap();
+    options.applyDomain(server);
+    Assertions.assertEquals(1024, server.config().options().get(ChannelOption.SO_BACKLOG));
+    Assertions.assertFalse(server.config().options().containsKey(EpollChannelOption.SO_REUSEPORT));
+    final Map<ChannelOption<?>, Object> children = server.config().childOptions();
+    Assertions.assertEquals(8192, children.get(ChannelOption.SO_SNDBUF));
+    Assertions.assertEquals(waterMark.high(),
+      ((WriteBufferWaterMark) children.get(ChannelOption.WRITE_BUFFER_WATER_MARK)).high());
+    for (final ChannelOption<?> inet : new ChannelOption<?>[]{ChannelOption.TCP_NODELAY, ChannelOption.IP_TOS,
+      ChannelOption.SO_KEEPALIVE, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.SO_BUSY_POLL}) {
+      Assertions.assertFalse(children.containsKey(inet), inet.name());
+    }
+    final Bootstrap client = new Bootstrap();
+    options.applyDomain(client);
+    Assertions.assertEquals(8192, client.config().options().get(ChannelOption.SO_SNDBUF));
+    Assertions.assertFalse(client.config().options().containsKey(ChannelOption.TCP_NODELAY));
+    Assertions.assertFalse(client.config().options().containsKey(EpollChannelOption.SO_BUSY_POLL));
+  }
+
+  @Test
+  void reusePortBindsOneAcceptorPerSocketOnEpollOnly() {
+    final ChannelOptions options = ChannelOptions.builder().reusePort(4).build();
+    Assertions.assertEquals(4, options.getAcceptors(true));
+    Assertions.assertEquals(1, options.getAcceptors(false));
+    Assertions.assertEquals(true, options.getEpollServerOptions().get(EpollChannelOption.SO_REUSEPORT));
+    final ServerBootstrap nio = new ServerBootstrap();
+    options.apply(nio, false);
+    Assertions.assertFalse(nio.config().options().containsKey(EpollChannelOption.SO_REUSEPORT));
+    final ChannelOptions single = ChannelOptions.builder().reusePort(4).reusePort(1).build();
+    Assertions.assertEquals(1, single.getAcceptors(true));
+    Assertions.assertFalse(single.getEpollServerOptions().containsKey(EpollChannelOption.SO_REUSEPORT));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ChannelOptions.builder().reusePort(0));
+  }
+
+  @Test
+  void nioEventLoopsWithoutEpoll() {
+    final EventLoopGroup group = ChannelOptions.builder().eventLoopThreads(2).build().newEventLoopGroup(false);
+    try {
+      Assertions.assertTrue(group instanceof NioEventLoopGroup);
+      Assertions.assertEquals(2, ((NioEventLoopGroup) group).executorCount());
+    } finally {
+      group.shutdownGracefully();
+    }
+  }
+
+  @Test
+  void epollEventLoopsWhenAvailable() {
+    Assumptions.assumeTrue(Epoll.isAvailable());
+    final EventLoopGroup group = ChannelOptions.lowLatency().build().newEventLoopGroup(true);
+    try {
+      Assertions.assertTrue(group instanceof EpollEventLoopGroup);
+      Assertions.assertEquals(1, ((EpollEventLoopGroup) group).executorCount());
+    } finally {
+      group.shutdownGracefully();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.packets.TestPingPacket;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+final class DrainReportTest {
+
+  private static final int PACKETS = 5;
+
+  private static final byte[] PING = {0, 0};
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @NotNull
+  private static PattyServer server(@NotNull final String name, @NotNull final RecordingListener server,
+                                    @NotNull final GatedListener sessions) {
+    final PattyServer patty = PattyServer.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      server, sessions, LocalMode.SERIALIZED);
+    patty.bind();
+    return patty;
+  }
+
+  private static void sendPackets(@NotNull final String name, @NotNull final GatedListener sessions)
+    throws InterruptedException {
+    final Connection client = PattyClient.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener(), LocalMode.SERIALIZED).connect();
+    for (int index = 0; index < DrainReportTest.PACKETS; index++) {
+      client.sendPacket(new TestPingPacket("drain " + index));
+    }
+    Assertions.assertTrue(sessions.entered.await(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  private static void send(@NotNull final DatagramSocket socket, final int port) throws IOException {
+    socket.send(new DatagramPacket(DrainReportTest.PING, DrainReportTest.PING.length,
+      new InetSocketAddress("127.0.0.1", port)));
+  }
+
+  @Test
+  void reportsAddUp() {
+    final DrainReport report = new DrainReport(1, 10L, 2L, 1).add(new DrainReport(2, 5L, 0L, 0));
+    Assertions.assertEquals(3, report.getSessions());
+    Assertions.assertEquals(15L, report.getFlushed());
+    Assertions.assertEquals(2L, report.getDropped());
+    Assertions.assertEquals(1, report.getTimedOut());
+    Assertions.assertEquals(report.getFlushed(), report.add(DrainReport.EMPTY).getFlushed());
+  }
+
+  @Test
+  void serverWithoutSessionsDrainsNothing() {
+    final PattyServer patty = DrainReportTest.server("drain-empty", new RecordingListener(), new GatedListener());
+    final DrainReport report = patty.drain(1L, TimeUnit.SECONDS);
+    Assertions.assertEquals(0, report.getSessions());
+    Assertions.assertEquals(0L, report.getFlushed());
+    Assertions.assertEquals(0L, report.getDropped());
+  }
+
+  @Test
+  void backlogIsHandledBeforeDisconnecting() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final GatedListener sessions = new GatedListener();
+    final PattyServer patty = DrainReportTest.server("drain-flush", server, sessions);
+    DrainReportTest.sendPackets("drain-flush", sessions);
+    final Thread opener = new Thread(() -> {
+      try {
+        Thread.sleep(200L);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      sessions.gate.countDown();
+    });
+    opener.start();
+    final DrainReport report = patty.drain(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    opener.join();
+    Assertions.assertEquals(1, report.getSessions());
+    Assertions.assertEquals(DrainReportTest.PACKETS, report.getFlushed());
+    Assertions.assertEquals(0L, report.getDropped());
+    Assertions.assertEquals(0, report.getTimedOut());
+    Assertions.assertEquals(0L, sessions.handled.getCount());
+    Assertions.assertEquals("Server closed.", RecordingListener.poll(sessions.disconnected));
+  }
+
+  @Test
+  void backlogLeftAtTheDeadlineIsDropped() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final GatedListener sessions = new GatedListener();
+    final PattyServer patty = DrainReportTest.server("drain-timeout", server, sessions);
+    try {
+      DrainReportTest.sendPackets("drain-timeout", sessions);
+      final DrainReport report = patty.drain(200L, TimeUnit.MILLISECONDS);
+      Assertions.assertEquals(1, report.getSessions());
+      Assertions.assertEquals(0L, report.getFlushed());
+      Assertions.assertEquals(DrainReportTest.PACKETS, report.getDropped());
+      Assertions.assertEquals(1, report.getTimedOut());
+    } finally {
+      sessions.gate.countDown();
+    }
+  }
+
+  @Test
+  void udpServerStopsAdmittingWhileDraining() throws Exception {
+    final int port;
+    try (final DatagramSocket socket = new DatagramSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    final RecordingListener server = new RecordingListener();
+    final GatedListener sessions = new GatedListener();
+    final PattyServer patty = PattyServer.udp("127.0.0.1", port, new TestPacketHeader(), null,
+      new TestPacketSizer(), server, sessions);
+    patty.bind();
+    try (final DatagramSocket first = new DatagramSocket();
+         final DatagramSocket second = new DatagramSocket()) {
+      for (int index = 0; index < DrainReportTest.PACKETS; index++) {
+        DrainReportTest.send(first, port);
+      }
+      Assertions.assertTrue(sessions.entered.await(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assertions.assertNotNull(server.nextSession());
+      final AtomicReference<DrainReport> report = new AtomicReference<>();
+      final Thread drainer = new Thread(() ->
+        report.set(patty.drain(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS)));
+      drainer.start();
+      Thread.sleep(100L);
+      DrainReportTest.send(second, port);
+      Assertions.assertNull(server.sessions.poll(200L, TimeUnit.MILLISECONDS));
+      sessions.gate.countDown();
+      drainer.join();
+      Assertions.assertEquals(1, report.get().getSessions());
+      Assertions.assertEquals(DrainReportTest.PACKETS, report.get().getFlushed());
+      Assertions.assertEquals(0, report.get().getTimedOut());
+    } finally {
+      sessions.gate.countDown();
+      patty.close();
+    }
+  }
+
+  /**
+   * Holds the first received packet until the gate opens, so the rest queue up behind it.
+   */
+  private static final class GatedListener implements ConnectionListener {
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch handled = new CountDownLatch(DrainReportTest.PACKETS);
+
+    private final BlockingQueue<String> disconnected = new LinkedBlockingQueue<>();
+
+    @Override
+    public void packetReceived(@NotNull final Packet packet, @NotNull final Connection connection) {
+      this.entered.countDown();
+      try {
+        this.gate.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      this.handled.countDown();
+    }
+
+    @Override
+    public void packetSent(@NotNull final Packet packet, @NotNull final Connection connection) {
+    }
+
+    @Override
+    public void connected(@NotNull final Connection connection) {
+    }
+
+    @Override
+    public void disconnecting(@NotNull final Connection connection, @NotNull final String reason,
+                              @Nullable final Throwable cause) {
+    }
+
+    @Override
+    public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                             @Nullable final Throwable cause) {
+      this.disconnected.add(reason);
+    }
+  }
+}
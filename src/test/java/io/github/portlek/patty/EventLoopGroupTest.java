@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class EventLoopGroupTest {
+
+  @NotNull
+  private static PattyClient patty() {
+    return PattyClient.tcp("127.0.0.1", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener());
+  }
+
+  @NotNull
+  private static Connection connection(@NotNull final PattyClient patty) {
+    return patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+  }
+
+  @Test
+  void lowLatencyRunsASingleEventLoop() {
+    final PattyClient patty = EventLoopGroupTest.patty();
+    patty.setChannelOptions(ChannelOptions.lowLatency().build());
+    final Connection connection = EventLoopGroupTest.connection(patty);
+    Assertions.assertEquals(1, ((MultithreadEventExecutorGroup) connection.eventLoop).executorCount());
+    connection.disconnect("done");
+  }
+
+  @Test
+  void connectionsOfAPattyShareTheGroup() {
+    final PattyClient patty = EventLoopGroupTest.patty();
+    final Connection first = EventLoopGroupTest.connection(patty);
+    final Connection second = EventLoopGroupTest.connection(patty);
+    Assertions.assertSame(first.eventLoop, second.eventLoop);
+    first.disconnect("done");
+    Assertions.assertFalse(second.eventLoop.isShuttingDown());
+    first.disconnect("again");
+    Assertions.assertFalse(second.eventLoop.isShuttingDown());
+    second.disconnect("done");
+    Assertions.assertTrue(second.eventLoop.isShuttingDown());
+  }
+
+  @Test
+  void releasedGroupIsReplaced() {
+    final PattyClient patty = EventLoopGroupTest.patty();
+    final Connection first = EventLoopGroupTest.connection(patty);
+    first.disconnect("done");
+    final Connection second = EventLoopGroupTest.connection(patty);
+    Assertions.assertNotSame(first.eventLoop, second.eventLoop);
+    Assertions.assertFalse(second.eventLoop.isShuttingDown());
+    second.disconnect("done");
+  }
+
+  @Test
+  void connectionsOfDifferentPattiesDoNotShare() {
+    final Connection first = EventLoopGroupTest.connection(EventLoopGroupTest.patty());
+    final Connection second = EventLoopGroupTest.connection(EventLoopGroupTest.patty());
+    Assertions.assertNotSame(first.eventLoop, second.eventLoop);
+    first.disconnect("done");
+    second.disconnect("done");
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.packets.TestPingPacket;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+final class FrozenPacketTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @ParameterizedTest
+  @EnumSource(LocalMode.class)
+  void frozenPacketReachesEveryClient(final LocalMode mode) throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final RecordingListener first = new RecordingListener();
+    final RecordingListener second = new RecordingListener();
+    final PattyServer patty = PattyServer.local("frozen-" + mode, 0, new TestPacketHeader(), null,
+      new TestPacketSizer(), server, server, mode);
+    patty.bind();
+    try {
+      PattyClient.local("frozen-" + mode, 0, new TestPacketHeader(), null, new TestPacketSizer(), first, mode)
+        .connect();
+      PattyClient.local("frozen-" + mode, 0, new TestPacketHeader(), null, new TestPacketSizer(), second, mode)
+        .connect();
+      final Connection firstSession = server.nextSession();
+      final Connection secondSession = server.nextSession();
+      Assertions.assertNotNull(firstSession);
+      Assertions.assertNotNull(secondSession);
+      final TestPingPacket ping = new TestPingPacket("frozen");
+      final FrozenPacket frozen = new FrozenPacket(firstSession, ping);
+      firstSession.sendPacket(frozen);
+      secondSession.sendPacket(frozen);
+      Assertions.assertEquals("frozen", first.<TestPingPacket>next().message);
+      Assertions.assertEquals("frozen", second.<TestPingPacket>next().message);
+      Assertions.assertSame(ping, RecordingListener.poll(server.sent));
+      Assertions.assertSame(ping, RecordingListener.poll(server.sent));
+      Assertions.assertTrue(frozen.release());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void encodedBytesHoldTheIdAndBody() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = PattyServer.local("frozen-bytes", 0, new TestPacketHeader(), null,
+      new TestPacketSizer(), server, server, LocalMode.SERIALIZED);
+    patty.bind();
+    try {
+      PattyClient.local("frozen-bytes", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+        new RecordingListener(), LocalMode.SERIALIZED).connect();
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      final TestPingPacket ping = new TestPingPacket("bytes");
+      final FrozenPacket frozen = new FrozenPacket(session, ping);
+      final ByteBuf encoded = frozen.retainedEncoded();
+      try {
+        Assertions.assertEquals(ping.getId(), new TestPacketHeader().readPacketId(encoded));
+        final TestPingPacket copy = new TestPingPacket();
+        copy.read(encoded, session);
+        Assertions.assertEquals("bytes", copy.message);
+        Assertions.assertFalse(encoded.isReadable());
+      } finally {
+        encoded.release();
+      }
+      Assertions.assertTrue(frozen.release());
+    } finally {
+      patty.close();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutException;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class IdleDetectorTest {
+
+  @NotNull
+  private static Connection connection() {
+    final PattyClient patty = PattyClient.tcp("127.0.0.1", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener());
+    final Connection connection = patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+    connection.readTimeout = 0;
+    return connection;
+  }
+
+  private static void sweep(@NotNull final IdleDetector detector, @NotNull final EmbeddedChannel channel,
+                            final long now) {
+    detector.sweep(now);
+    channel.runPendingTasks();
+  }
+
+  private static long millis(final long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  @Test
+  void readTimeoutFiresAtItsDeadline() {
+    final IdleDetector detector = new IdleDetector(10L);
+    final Connection connection = IdleDetectorTest.connection();
+    connection.readTimeout = 2;
+    final EmbeddedChannel channel = new EmbeddedChannel(new IdleHandler(connection, detector));
+    final long start = System.nanoTime();
+    Assertions.assertEquals(1, detector.size());
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(1000L));
+    Assertions.assertTrue(channel.isOpen());
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(2100L));
+    Assertions.assertFalse(channel.isOpen());
+    Assertions.assertThrows(ReadTimeoutException.class, channel::checkException);
+    Assertions.assertEquals(0, detector.size());
+  }
+
+  @Test
+  void readsMoveTheDeadline() throws InterruptedException {
+    final IdleDetector detector = new IdleDetector(10L);
+    final Connection connection = IdleDetectorTest.connection();
+    connection.readTimeout = 1;
+    final EmbeddedChannel channel = new EmbeddedChannel(new IdleHandler(connection, detector));
+    final long start = System.nanoTime();
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(100L));
+    Thread.sleep(300L);
+    channel.pipeline().fireChannelReadComplete();
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(1100L));
+    Assertions.assertTrue(channel.isOpen());
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(1500L));
+    Assertions.assertFalse(channel.isOpen());
+    Assertions.assertThrows(ReadTimeoutException.class, channel::checkException);
+  }
+
+  @Test
+  void deadlinesBeyondOneTurnWaitTheirRounds() {
+    final IdleDetector detector = new IdleDetector(1L);
+    final Connection connection = IdleDetectorTest.connection();
+    connection.readTimeout = 2;
+    final EmbeddedChannel channel = new EmbeddedChannel(new IdleHandler(connection, detector));
+    final long start = System.nanoTime();
+    for (long millis = 100L; millis < 2000L; millis += 400L) {
+      IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(millis));
+      Assertions.assertTrue(channel.isOpen(), "closed after " + millis + " ms");
+    }
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(2050L));
+    Assertions.assertFalse(channel.isOpen());
+    Assertions.assertThrows(ReadTimeoutException.class, channel::checkException);
+  }
+
+  @Test
+  void pendingWriteTimesOut() {
+    final IdleDetector detector = new IdleDetector(10L);
+    final Connection connection = IdleDetectorTest.connection();
+    connection.writeTimeout = 1;
+    final EmbeddedChannel channel = new EmbeddedChannel(new IdleHandler(connection, detector));
+    final long start = System.nanoTime();
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(1500L));
+    Assertions.assertTrue(channel.isOpen());
+    channel.write("pending");
+    IdleDetectorTest.sweep(detector, channel, System.nanoTime() + IdleDetectorTest.millis(2600L));
+    Assertions.assertFalse(channel.isOpen());
+    Assertions.assertThrows(WriteTimeoutException.class, channel::checkException);
+  }
+
+  @Test
+  void closedChannelsLeaveTheWheel() {
+    final IdleDetector detector = new IdleDetector(10L);
+    final Connection connection = IdleDetectorTest.connection();
+    connection.readTimeout = 1;
+    final EmbeddedChannel channel = new EmbeddedChannel(new IdleHandler(connection, detector));
+    final long start = System.nanoTime();
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(100L));
+    channel.close();
+    Assertions.assertEquals(0, detector.size());
+    IdleDetectorTest.sweep(detector, channel, start + IdleDetectorTest.millis(2000L));
+    Assertions.assertDoesNotThrow(channel::checkException);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.packets.TestLanePacket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+final class PacketQueueTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @Test
+  void higherLanesAreTakenFirstAndLanesKeepTheirOrder() throws InterruptedException {
+    final PacketQueue queue = new PacketQueue();
+    queue.add(new TestLanePacket(3, 0));
+    queue.add(new TestLanePacket(2, 1));
+    queue.add(new TestLanePacket(3, 2));
+    queue.add(new TestLanePacket(0, 3));
+    queue.add(new TestLanePacket(2, 4));
+    queue.add(new TestLanePacket(1, 5));
+    final List<String> order = new ArrayList<>();
+    while (queue.size() > 0) {
+      order.add(queue.take().toString());
+      queue.done();
+    }
+    Assertions.assertEquals(Arrays.asList("0:3", "1:5", "2:1", "2:4", "3:0", "3:2"), order);
+    Assertions.assertNull(queue.poll());
+  }
+
+  @Test
+  void prioritiesOutOfRangeAreClamped() {
+    Assertions.assertEquals(Packet.HIGHEST_PRIORITY, PacketQueue.lane(-7));
+    Assertions.assertEquals(Packet.LOWEST_PRIORITY, PacketQueue.lane(42));
+    final PacketQueue queue = new PacketQueue();
+    queue.add(new TestLanePacket(42, 0));
+    queue.add(new TestLanePacket(-7, 1));
+    Assertions.assertEquals(1, queue.size(Packet.HIGHEST_PRIORITY));
+    Assertions.assertEquals(1, queue.size(Packet.LOWEST_PRIORITY));
+    Assertions.assertEquals(1, ((TestLanePacket) queue.poll()).sequence);
+  }
+
+  @Test
+  void unfinishedCountsPacketsUntilTheyAreDone() {
+    final PacketQueue queue = new PacketQueue();
+    queue.add(new TestLanePacket(2, 0));
+    queue.add(new TestLanePacket(2, 1));
+    Assertions.assertEquals(2, queue.size());
+    Assertions.assertNotNull(queue.poll());
+    Assertions.assertEquals(1, queue.size());
+    Assertions.assertEquals(2, queue.getUnfinished());
+    queue.done();
+    Assertions.assertEquals(1, queue.getUnfinished());
+    Assertions.assertEquals(1L, queue.getHandled());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.packets.TestLanePacket;
+import io.github.portlek.patty.packets.TestPingPacket;
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class PacketSizeEstimatorTest {
+
+  private static final int UNTRACKED_ID = 5000;
+
+  private Connection connection;
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+    PacketRegistry.register(UntrackedPacket.class, PacketSizeEstimatorTest.UNTRACKED_ID);
+  }
+
+  @BeforeEach
+  void connect() {
+    final PattyClient patty = PattyClient.tcp("127.0.0.1", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener());
+    this.connection = patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+  }
+
+  @AfterEach
+  void disconnect() {
+    this.connection.disconnect("Test finished.");
+  }
+
+  @Test
+  void hintsOfThePacketAreUsedWithRoomForTheId() {
+    final PacketSizeEstimator estimator = new PacketSizeEstimator();
+    final TestPingPacket packet = new TestPingPacket("abc");
+    estimator.record(packet.getId(), 1000, false);
+    Assertions.assertEquals(5 + packet.estimatedSize(this.connection), estimator.estimate(packet, this.connection));
+  }
+
+  @Test
+  void unknownPacketsGetTheMinimumSize() {
+    final PacketSizeEstimator estimator = new PacketSizeEstimator();
+    Assertions.assertEquals(20, estimator.estimate(new TestLanePacket(), this.connection));
+  }
+
+  @Test
+  void averagesFollowRecordedSizesWithHeadroom() {
+    final PacketSizeEstimator estimator = new PacketSizeEstimator();
+    final TestLanePacket packet = new TestLanePacket();
+    estimator.record(packet.getId(), 800, false);
+    Assertions.assertEquals(1000, estimator.estimate(packet, this.connection));
+    estimator.record(packet.getId(), 1600, false);
+    Assertions.assertEquals(900 + 225, estimator.estimate(packet, this.connection));
+    for (int index = 0; index < 200; index++) {
+      estimator.record(packet.getId(), 1600, false);
+    }
+    final int estimate = estimator.estimate(packet, this.connection);
+    Assertions.assertTrue(estimate >= 1600 && estimate <= 2000, "estimate " + estimate);
+  }
+
+  @Test
+  void idsPastTheTrackedRangeUseTheFallback() {
+    final PacketSizeEstimator estimator = new PacketSizeEstimator();
+    final UntrackedPacket packet = new UntrackedPacket();
+    Assertions.assertEquals(PacketSizeEstimatorTest.UNTRACKED_ID, packet.getId());
+    estimator.record(packet.getId(), 16 + 800, false);
+    Assertions.assertEquals(116 + 29, estimator.estimate(packet, this.connection));
+    estimator.record(new TestLanePacket().getId(), 116, false);
+    Assertions.assertEquals(116 + 29, estimator.estimate(packet, this.connection));
+  }
+
+  @Test
+  void reallocationsAreCounted() {
+    final PacketSizeEstimator estimator = new PacketSizeEstimator();
+    Assertions.assertEquals(0.0d, estimator.getReallocationsPerPacket());
+    estimator.record(1, 100, true);
+    estimator.record(1, 100, false);
+    estimator.record(PacketSizeEstimatorTest.UNTRACKED_ID, 100, true);
+    estimator.record(-1, 100, false);
+    Assertions.assertEquals(4L, estimator.getEncodedPackets());
+    Assertions.assertEquals(2L, estimator.getReallocations());
+    Assertions.assertEquals(0.5d, estimator.getReallocationsPerPacket());
+  }
+
+  public static final class UntrackedPacket extends Packet {
+
+    public UntrackedPacket() {
+      super(UntrackedPacket.class);
+    }
+
+    @Override
+    public void read(@NotNull final ByteBuf buffer, final Connection connection) {
+    }
+
+    @Override
+    public void write(@NotNull final ByteBuf buffer, final Connection connection) {
+    }
+  }
+}
@@ -23,12 +23,14 @@
 
 package io.github.portlek.patty;
 
+import io.github.portlek.patty.packets.TestLanePacket;
 import io.github.portlek.patty.packets.TestPingPacket;
 import java.util.Arrays;
 import org.jetbrains.annotations.NotNull;
 
 public enum Packets {
-  TEST(0, TestPingPacket.class);
+  TEST(0, TestPingPacket.class),
+  LANE(1, TestLanePacket.class);
 
   private final int id;
 
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records the packets and events of the connections and servers it listens to, for the tests to wait on.
+ */
+public final class RecordingListener implements ConnectionListener, ServerListener {
+
+  public static final long TIMEOUT_SECONDS = 5L;
+
+  public final BlockingQueue<Packet> received = new LinkedBlockingQueue<>();
+
+  public final BlockingQueue<Packet> sent = new LinkedBlockingQueue<>();
+
+  public final BlockingQueue<Connection> connected = new LinkedBlockingQueue<>();
+
+  public final BlockingQueue<String> disconnected = new LinkedBlockingQueue<>();
+
+  public final BlockingQueue<Connection> sessions = new LinkedBlockingQueue<>();
+
+  public final BlockingQueue<Connection> removed = new LinkedBlockingQueue<>();
+
+  @Nullable
+  public static <T> T poll(@NotNull final BlockingQueue<T> queue) throws InterruptedException {
+    return queue.poll(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T extends Packet> T next() throws InterruptedException {
+    return (T) RecordingListener.poll(this.received);
+  }
+
+  @Nullable
+  public Connection nextSession() throws InterruptedException {
+    return RecordingListener.poll(this.sessions);
+  }
+
+  @Override
+  public void packetReceived(@NotNull final Packet packet, @NotNull final Connection connection) {
+    this.received.add(packet);
+  }
+
+  @Override
+  public void packetSent(@NotNull final Packet packet, @NotNull final Connection connection) {
+    this.sent.add(packet);
+  }
+
+  @Override
+  public void connected(@NotNull final Connection connection) {
+    this.connected.add(connection);
+  }
+
+  @Override
+  public void disconnecting(@NotNull final Connection connection, @NotNull final String reason,
+                            @Nullable final Throwable cause) {
+  }
+
+  @Override
+  public void disconnected(@NotNull final Connection connection, @NotNull final String reason,
+                           @Nullable final Throwable cause) {
+    this.disconnected.add(reason);
+  }
+
+  @Override
+  public void serverBound(@NotNull final PattyServer patty, @NotNull final Connection connection) {
+  }
+
+  @Override
+  public void serverClosing(@NotNull final PattyServer patty) {
+  }
+
+  @Override
+  public void serverClosed(@NotNull final PattyServer patty, @NotNull final Connection connection) {
+  }
+
+  @Override
+  public void sessionAdded(@NotNull final PattyServer patty, @NotNull final Connection connection) {
+    this.sessions.add(connection);
+  }
+
+  @Override
+  public void sessionRemoved(@NotNull final PattyServer patty, @NotNull final Connection connection) {
+    this.removed.add(connection);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty;
+
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.packets.TestPingPacket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+final class RequestResponseTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @ParameterizedTest
+  @EnumSource(LocalMode.class)
+  void responsesCompleteTheirOwnRequests(final LocalMode mode) throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = RequestResponseTest.server("requests-" + mode, server, mode);
+    try {
+      final Connection client = RequestResponseTest.client("requests-" + mode, mode);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      final CompletableFuture<TestPingPacket> first = client.request(new TestPingPacket("first"));
+      final CompletableFuture<TestPingPacket> second = client.request(new TestPingPacket("second"));
+      final TestPingPacket firstRequest = server.next();
+      final TestPingPacket secondRequest = server.next();
+      Assertions.assertNotNull(firstRequest);
+      Assertions.assertNotNull(secondRequest);
+      Assertions.assertTrue(firstRequest.isRequest());
+      Assertions.assertNotEquals(firstRequest.getCorrelationId(), secondRequest.getCorrelationId());
+      Assertions.assertEquals(2, client.getRequestsInFlight());
+      session.respond(secondRequest, new TestPingPacket("to second"));
+      session.respond(firstRequest, new TestPingPacket("to first"));
+      Assertions.assertEquals("to first",
+        first.get(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS).message);
+      Assertions.assertEquals("to second",
+        second.get(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS).message);
+      Assertions.assertEquals(0, client.getRequestsInFlight());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void requestWithoutResponseTimesOut() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = RequestResponseTest.server("requests-timeout", server, LocalMode.SERIALIZED);
+    try {
+      final Connection client = RequestResponseTest.client("requests-timeout", LocalMode.SERIALIZED);
+      final CompletableFuture<Packet> future = client.request(new TestPingPacket("ignored"), 50L,
+        TimeUnit.MILLISECONDS);
+      Assertions.assertNotNull(server.next());
+      final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () ->
+        future.get(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assertions.assertTrue(exception.getCause() instanceof TimeoutException);
+      Assertions.assertEquals(0, client.getRequestsInFlight());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void requestsPastTheCapFailRightAway() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = RequestResponseTest.server("requests-cap", server, LocalMode.SERIALIZED);
+    try {
+      final Connection client = RequestResponseTest.client("requests-cap", LocalMode.SERIALIZED);
+      client.setMaxRequests(2);
+      final CompletableFuture<Packet> first = client.request(new TestPingPacket("first"));
+      final CompletableFuture<Packet> second = client.request(new TestPingPacket("second"));
+      final CompletableFuture<Packet> third = client.request(new TestPingPacket("third"));
+      Assertions.assertTrue(third.isCompletedExceptionally());
+      final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, third::get);
+      Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+      Assertions.assertFalse(first.isDone());
+      Assertions.assertFalse(second.isDone());
+      Assertions.assertEquals(2, client.getRequestsInFlight());
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      final Packet request = server.next();
+      Assertions.assertNotNull(request);
+      session.respond(request, new TestPingPacket("done"));
+      first.get(RecordingListener.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assertions.assertFalse(client.request(new TestPingPacket("fourth")).isDone());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void requestsAndResponsesCanNotBeFrozen() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = RequestResponseTest.server("requests-frozen", server, LocalMode.SERIALIZED);
+    try {
+      final Connection client = RequestResponseTest.client("requests-frozen", LocalMode.SERIALIZED);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      client.request(new TestPingPacket("request"));
+      final Packet request = server.next();
+      Assertions.assertNotNull(request);
+      final TestPingPacket response = new TestPingPacket("response");
+      final FrozenPacket frozen = new FrozenPacket(session, response);
+      session.respond(request, response);
+      Assertions.assertThrows(IllegalStateException.class, () -> session.sendPacket(frozen));
+      Assertions.assertThrows(IllegalArgumentException.class, () -> new FrozenPacket(session, response));
+      Assertions.assertTrue(frozen.release());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @NotNull
+  private static PattyServer server(@NotNull final String name, @NotNull final RecordingListener listener,
+                                    @NotNull final LocalMode mode) {
+    final PattyServer patty = PattyServer.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      listener, listener, mode);
+    patty.bind();
+    return patty;
+  }
+
+  @NotNull
+  private static Connection client(@NotNull final String name, @NotNull final LocalMode mode) {
+    return PattyClient.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(), new RecordingListener(),
+      mode).connect();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.local;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.FrozenPacket;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.metrics.ConnectionMetrics;
+import io.github.portlek.patty.metrics.MetricCounter;
+import io.github.portlek.patty.packets.TestPingPacket;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+final class LocalModeTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @NotNull
+  private static PattyServer server(@NotNull final String name, @NotNull final RecordingListener listener,
+                                    @NotNull final LocalMode mode) {
+    final PattyServer patty = PattyServer.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      listener, listener, mode);
+    patty.bind();
+    return patty;
+  }
+
+  @NotNull
+  private static PattyClient client(@NotNull final String name, @NotNull final LocalMode mode) {
+    return PattyClient.local(name, 0, new TestPacketHeader(), null, new TestPacketSizer(), new RecordingListener(),
+      mode);
+  }
+
+  @Test
+  void directModeHandsOverTheSentInstance() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = LocalModeTest.server("mode-direct", server, LocalMode.DIRECT);
+    try {
+      final Connection client = LocalModeTest.client("mode-direct", LocalMode.DIRECT).connect();
+      final TestPingPacket ping = new TestPingPacket("direct");
+      client.sendPacket(ping);
+      Assertions.assertSame(ping, server.next());
+      final TestPingPacket frozen = new TestPingPacket("frozen");
+      final FrozenPacket packet = new FrozenPacket(client, frozen);
+      client.sendPacket(packet);
+      Assertions.assertSame(frozen, server.next());
+      Assertions.assertTrue(packet.release());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void serializedModeDecodesACopy() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = LocalModeTest.server("mode-serialized", server, LocalMode.SERIALIZED);
+    try {
+      final Connection client = LocalModeTest.client("mode-serialized", LocalMode.SERIALIZED).connect();
+      final TestPingPacket ping = new TestPingPacket("serialized");
+      client.sendPacket(ping);
+      final TestPingPacket received = server.next();
+      Assertions.assertNotNull(received);
+      Assertions.assertNotSame(ping, received);
+      Assertions.assertEquals("serialized", received.message);
+    } finally {
+      patty.close();
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(LocalMode.class)
+  void onlySerializedModeWritesBytes(final LocalMode mode) throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = LocalModeTest.server("mode-bytes-" + mode, server, mode);
+    try {
+      final PattyClient client = LocalModeTest.client("mode-bytes-" + mode, mode);
+      client.metrics.enable();
+      final Connection connection = client.connect();
+      connection.sendPacket(new TestPingPacket("bytes"));
+      Assertions.assertNotNull(server.next());
+      final ConnectionMetrics metrics = connection.getMetrics();
+      Assertions.assertNotNull(metrics);
+      final long written = metrics.get(MetricCounter.WIRE_BYTES_WRITTEN);
+      if (mode == LocalMode.DIRECT) {
+        Assertions.assertEquals(0L, written);
+      } else {
+        Assertions.assertTrue(written > 0L);
+      }
+    } finally {
+      patty.close();
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(LocalMode.class)
+  void compressionAndStreamsKeepPacketsIntact(final LocalMode mode) throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = LocalModeTest.server("mode-frames-" + mode, server, mode);
+    try {
+      final Connection client = LocalModeTest.client("mode-frames-" + mode, mode).connect();
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      client.setCompressionThreshold(0);
+      session.setCompressionThreshold(0);
+      client.setStreamChunkSize(8);
+      session.setStreamChunkSize(8);
+      final StringBuilder message = new StringBuilder();
+      for (int index = 0; index < 64; index++) {
+        message.append("chunk ").append(index);
+      }
+      client.sendPacket(new TestPingPacket(message.toString()));
+      final TestPingPacket received = server.next();
+      Assertions.assertNotNull(received);
+      Assertions.assertEquals(message.toString(), received.message);
+    } finally {
+      patty.close();
+    }
+  }
+}
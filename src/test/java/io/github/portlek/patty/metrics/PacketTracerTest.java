@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class PacketTracerTest {
+
+  @NotNull
+  private static Connection connection() {
+    final PattyClient patty = PattyClient.tcp("127.0.0.1", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener());
+    return patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+  }
+
+  @Test
+  void sampleRatesRoundUpToPowersOfTwo() {
+    final PacketTracer tracer = new PacketTracer();
+    Assertions.assertEquals(1024, tracer.getSampleRate());
+    tracer.setSampleRate(1);
+    Assertions.assertEquals(1, tracer.getSampleRate());
+    tracer.setSampleRate(3);
+    Assertions.assertEquals(4, tracer.getSampleRate());
+    tracer.setSampleRate(64);
+    Assertions.assertEquals(64, tracer.getSampleRate());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(0));
+  }
+
+  @Test
+  void everyNthTraceOfAConnectionIsSampled() {
+    final PacketTracer tracer = new PacketTracer();
+    final List<Integer> sampled = new ArrayList<>();
+    tracer.enable();
+    tracer.setSampleRate(4);
+    tracer.setListener(trace -> sampled.add(trace.getId()));
+    final Connection first = PacketTracerTest.connection();
+    final Connection second = PacketTracerTest.connection();
+    try {
+      final AtomicInteger firstSequence = new AtomicInteger();
+      final AtomicInteger secondSequence = new AtomicInteger();
+      for (int id = 0; id < 16; id++) {
+        tracer.trace(first, id, id % 2 == 0, firstSequence).complete();
+      }
+      tracer.trace(second, 100, true, secondSequence).complete();
+      tracer.trace(second, 101, true, secondSequence).complete();
+      final List<Integer> expected = new ArrayList<>();
+      expected.add(0);
+      expected.add(4);
+      expected.add(8);
+      expected.add(12);
+      expected.add(100);
+      Assertions.assertEquals(expected, sampled);
+    } finally {
+      first.disconnect("Test finished.");
+      second.disconnect("Test finished.");
+    }
+  }
+
+  @Test
+  void spansAreRecordedInPipelineOrder() {
+    final PacketTracer tracer = new PacketTracer();
+    final List<PacketTrace> sampled = new ArrayList<>();
+    tracer.enable();
+    tracer.setSampleRate(1);
+    tracer.setListener(sampled::add);
+    final Connection connection = PacketTracerTest.connection();
+    try {
+      final PacketTrace trace = tracer.trace(connection, 7, true, new AtomicInteger());
+      Assertions.assertNotNull(trace);
+      trace.mark(TracePoint.ARRIVAL, 1_000L);
+      trace.mark(TracePoint.DECODED, 3_000L);
+      trace.mark(TracePoint.ENQUEUED, 6_000L);
+      trace.mark(TracePoint.LISTENER_START, 10_000L);
+      trace.mark(TracePoint.LISTENER_END, 15_000L);
+      Assertions.assertEquals(2_000L, trace.getSpan(TraceSpan.DECODE));
+      Assertions.assertEquals(3_000L, trace.getSpan(TraceSpan.PIPELINE));
+      Assertions.assertEquals(4_000L, trace.getSpan(TraceSpan.QUEUE));
+      Assertions.assertEquals(5_000L, trace.getSpan(TraceSpan.LISTENER));
+      Assertions.assertEquals(-1L, trace.getSpan(TraceSpan.ENCODE));
+      Assertions.assertEquals(-1L, trace.getSpan(TraceSpan.FLUSH));
+      Assertions.assertEquals("PacketTrace{id=7, inbound, decode=2.0us, pipeline=3.0us, queue=4.0us, listener=5.0us}",
+        trace.toString());
+      trace.complete();
+      Assertions.assertEquals(1, sampled.size());
+      Assertions.assertSame(trace, sampled.get(0));
+      Assertions.assertEquals(1L, tracer.getHistogram(7, TraceSpan.QUEUE).getCount());
+      Assertions.assertEquals(0L, tracer.getHistogram(7, TraceSpan.ENCODE).getCount());
+      Assertions.assertNull(tracer.getHistogram(8, TraceSpan.QUEUE));
+    } finally {
+      connection.disconnect("Test finished.");
+    }
+  }
+
+  @Test
+  void disabledTracerStartsNoTraces() {
+    final PacketTracer tracer = new PacketTracer();
+    final List<PacketTrace> sampled = new ArrayList<>();
+    tracer.setSampleRate(1);
+    tracer.setListener(sampled::add);
+    final Connection connection = PacketTracerTest.connection();
+    try {
+      final AtomicInteger sequence = new AtomicInteger();
+      Assertions.assertFalse(tracer.isEnabled());
+      Assertions.assertNull(tracer.trace(connection, 7, true, sequence));
+      Assertions.assertEquals(0, sequence.get());
+      Assertions.assertNull(tracer.getHistogram(7, TraceSpan.DECODE));
+      tracer.enable();
+      final PacketTrace trace = tracer.trace(connection, 7, true, sequence);
+      Assertions.assertNotNull(trace);
+      tracer.disable();
+      Assertions.assertNull(tracer.trace(connection, 7, false, sequence));
+      trace.complete();
+      Assertions.assertEquals(1, sampled.size());
+      Assertions.assertTrue(sampled.get(0).isSampled());
+    } finally {
+      connection.disconnect("Test finished.");
+    }
+  }
+}
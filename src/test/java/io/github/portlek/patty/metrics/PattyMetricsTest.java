@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.metrics;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.tcp.TcpClientConnection;
+import io.github.portlek.patty.tcp.pipeline.TcpPacketEncryptor;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class PattyMetricsTest {
+
+  private static final int THREADS = 4;
+
+  private static final int ITERATIONS = 10_000;
+
+  private static void race(final Runnable task) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int index = 0; index < PattyMetricsTest.THREADS; index++) {
+      final Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        task.run();
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  void disabledRegistryCreatesNoConnectionMetrics() {
+    final PattyClient client = PattyClient.tcp("127.0.0.1", 25565, new TestPacketHeader(), null,
+      new TestPacketSizer(), null);
+    final Connection connection = new TcpClientConnection(client, new InetSocketAddress("127.0.0.1", 25565));
+    try {
+      Assertions.assertNull(connection.getMetrics());
+    } finally {
+      connection.disconnect("Test finished.");
+    }
+  }
+
+  @Test
+  void flushesAreCountedOncePerFlushNotPerWrite() {
+    final PattyClient client = PattyClient.tcp("127.0.0.1", 25565, new TestPacketHeader(), null,
+      new TestPacketSizer(), null);
+    client.metrics.enable();
+    final Connection connection = new TcpClientConnection(client, new InetSocketAddress("127.0.0.1", 25565));
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpPacketEncryptor(connection));
+    try {
+      final ConnectionMetrics metrics = connection.getMetrics();
+      Assertions.assertNotNull(metrics);
+      for (int index = 0; index < 3; index++) {
+        channel.write(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}));
+      }
+      Assertions.assertEquals(0L, metrics.get(MetricCounter.FLUSHES));
+      channel.flush();
+      Assertions.assertEquals(1L, metrics.get(MetricCounter.FLUSHES));
+      Assertions.assertEquals(9L, metrics.get(MetricCounter.WIRE_BYTES_WRITTEN));
+      Assertions.assertEquals(1L, client.metrics.get(MetricCounter.FLUSHES));
+    } finally {
+      channel.finishAndReleaseAll();
+      connection.disconnect("Test finished.");
+    }
+  }
+
+  @Test
+  void packetCountsPerIdAreExactAcrossThreads() throws InterruptedException {
+    final PattyClient client = PattyClient.tcp("127.0.0.1", 25565, new TestPacketHeader(), null,
+      new TestPacketSizer(), null);
+    client.metrics.enable();
+    final Connection connection = new TcpClientConnection(client, new InetSocketAddress("127.0.0.1", 25565));
+    try {
+      final ConnectionMetrics metrics = connection.getMetrics();
+      Assertions.assertNotNull(metrics);
+      PattyMetricsTest.race(() -> {
+        for (int index = 0; index < PattyMetricsTest.ITERATIONS; index++) {
+          metrics.packetRead(7, 10);
+          metrics.packetWritten(7, 10);
+          metrics.packetWritten(1_000_000, 10);
+        }
+      });
+      final long expected = (long) PattyMetricsTest.THREADS * PattyMetricsTest.ITERATIONS;
+      Assertions.assertEquals(expected, client.metrics.getPacketsRead(7));
+      Assertions.assertEquals(expected, client.metrics.getPacketsWritten(7));
+      Assertions.assertEquals(0L, client.metrics.getPacketsRead(8));
+      Assertions.assertEquals(0L, client.metrics.getPacketsRead(-1));
+      Assertions.assertEquals(expected, client.metrics.getPacketsWrittenById().get("untracked"));
+      Assertions.assertEquals(1, client.metrics.getPacketsReadById().size());
+      Assertions.assertEquals(expected * 2, metrics.get(MetricCounter.PACKETS_WRITTEN));
+    } finally {
+      connection.disconnect("Test finished.");
+    }
+  }
+
+  @Test
+  void histogramKeepsTheLargestValueAcrossThreads() throws InterruptedException {
+    final Histogram histogram = new Histogram();
+    PattyMetricsTest.race(() -> {
+      for (int index = 1; index <= PattyMetricsTest.ITERATIONS; index++) {
+        histogram.record(index);
+      }
+    });
+    Assertions.assertEquals(PattyMetricsTest.ITERATIONS, histogram.getMax());
+    Assertions.assertEquals((long) PattyMetricsTest.THREADS * PattyMetricsTest.ITERATIONS, histogram.getCount());
+    Assertions.assertTrue(histogram.getValueAtPercentile(100.0d) <= histogram.getMax());
+  }
+
+  @Test
+  void histogramPercentilesStayWithinTheBucketError() {
+    final Histogram histogram = new Histogram();
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    final long median = histogram.getValueAtPercentile(50.0d);
+    Assertions.assertTrue(median >= 500 * 7 / 8 && median <= 500, "median " + median);
+    Assertions.assertEquals(500.5d, histogram.getMean(), 0.001d);
+    histogram.record(-5L);
+    Assertions.assertEquals(0L, histogram.getValueAtPercentile(0.0d));
+  }
+}
@@ -27,8 +27,9 @@ package io.github.portlek.patty.packets;
 
 import io.github.portlek.patty.Connection;
 import io.github.portlek.patty.Packet;
+import io.github.portlek.patty.util.ReadWrite;
 import io.netty.buffer.ByteBuf;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -47,20 +48,18 @@ public final class TestPingPacket extends Packet {
   }
 
   @Override
-  public void read(@NotNull final ByteBuf buffer, @NotNull final Connection connection) {
-    final int length = buffer.readInt();
-    final byte[] bytes = new byte[length];
-    buffer.readBytes(bytes);
-    this.message = new String(bytes, StandardCharsets.UTF_8);
+  public void read(@NotNull final ByteBuf buffer, @NotNull final Connection connection) throws IOException {
+    this.message = ReadWrite.readOptional(buffer, ReadWrite::readString);
   }
 
   @Override
   public void write(@NotNull final ByteBuf buffer, @NotNull final Connection connection) {
-    if (this.message == null) {
-      return;
-    }
-    buffer.writeInt(this.message.length());
-    buffer.writeBytes(this.message.getBytes(StandardCharsets.UTF_8));
+    ReadWrite.writeOptional(buffer, this.message, ReadWrite::writeString);
+  }
+
+  @Override
+  public int estimatedSize(@NotNull final Connection connection) {
+    return this.message == null ? 1 : 1 + ReadWrite.getStringSize(this.message);
   }
 
   @Override
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.shm;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.packets.TestPingPacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class ShmChannelTest {
+
+  private static final int CAPACITY = 4096;
+
+  private File directory;
+
+  @BeforeAll
+  static void register() {
+    Assumptions.assumeTrue(ShmMemory.unavailabilityCause() == null, "Shared memory needs sun.misc.Unsafe.");
+    Packets.registerAll();
+  }
+
+  @NotNull
+  private static MappedByteBuffer map(@NotNull final File file, final int size) throws IOException {
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(size);
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);
+    }
+  }
+
+  @NotNull
+  private static ByteBuf bytes(final int length, final int seed) {
+    final ByteBuf buf = Unpooled.buffer(length);
+    for (int index = 0; index < length; index++) {
+      buf.writeByte(index * 31 + seed);
+    }
+    return buf;
+  }
+
+  private static void await(@NotNull final File file) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RecordingListener.TIMEOUT_SECONDS);
+    while (file.exists() && System.nanoTime() < deadline) {
+      Thread.sleep(5L);
+    }
+  }
+
+  @BeforeEach
+  void createDirectory() throws IOException {
+    this.directory = Files.createTempDirectory("patty-shm").toFile();
+  }
+
+  @AfterEach
+  void deleteDirectory() {
+    final File[] files = this.directory.listFiles();
+    if (files != null) {
+      for (final File file : files) {
+        file.delete();
+      }
+    }
+    this.directory.delete();
+  }
+
+  @NotNull
+  private PattyServer server(@NotNull final RecordingListener listener) {
+    final PattyServer patty = PattyServer.shm(this.directory.getPath(), new ShmProtocol(null, new TestPacketSizer(),
+      new TestPacketHeader(), listener, listener, ShmChannelTest.CAPACITY));
+    patty.bind();
+    return patty;
+  }
+
+  @NotNull
+  private Connection client(@NotNull final RecordingListener listener) {
+    return PattyClient.shm(this.directory.getPath(), new ShmProtocol(null, new TestPacketSizer(),
+      new TestPacketHeader(), null, listener, ShmChannelTest.CAPACITY)).connect();
+  }
+
+  @Test
+  void ringWrapsAround() throws IOException {
+    final MappedByteBuffer buffer = ShmChannelTest.map(new File(this.directory, "ring"),
+      ShmRing.size(ShmChannelTest.CAPACITY));
+    final ShmRing producer = new ShmRing(buffer, 0, ShmChannelTest.CAPACITY);
+    final ShmRing consumer = new ShmRing(buffer, 0, ShmChannelTest.CAPACITY);
+    for (int round = 0; round < 3; round++) {
+      final ByteBuf written = ShmChannelTest.bytes(3000, round);
+      Assertions.assertEquals(3000, producer.write(written));
+      Assertions.assertEquals(0, consumer.readable());
+      producer.publish();
+      Assertions.assertEquals(3000, consumer.readable());
+      final ByteBuf read = consumer.read(ByteBufAllocator.DEFAULT, Integer.MAX_VALUE);
+      Assertions.assertNotNull(read);
+      Assertions.assertEquals(written, read);
+      Assertions.assertNull(consumer.read(ByteBufAllocator.DEFAULT, Integer.MAX_VALUE));
+      written.release();
+      read.release();
+    }
+    final ByteBuf large = ShmChannelTest.bytes(5000, 7);
+    Assertions.assertEquals(ShmChannelTest.CAPACITY, producer.write(large));
+    producer.publish();
+    Assertions.assertEquals(0, producer.writable());
+    Assertions.assertEquals(0, producer.write(large));
+    final ByteBuf head = consumer.read(ByteBufAllocator.DEFAULT, 100);
+    Assertions.assertNotNull(head);
+    Assertions.assertEquals(large.slice(0, 100), head);
+    Assertions.assertEquals(100, producer.writable());
+    head.release();
+    large.release();
+  }
+
+  @Test
+  void packetsLargerThanTheRingArriveInOrder() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = this.server(server);
+    try {
+      final Connection connection = this.client(new RecordingListener());
+      Assertions.assertNotNull(server.nextSession());
+      final StringBuilder message = new StringBuilder();
+      while (message.length() < ShmChannelTest.CAPACITY * 2) {
+        message.append("wraparound ");
+      }
+      for (int index = 0; index < 20; index++) {
+        connection.sendPacket(new TestPingPacket(index + message.toString()));
+      }
+      for (int index = 0; index < 20; index++) {
+        final TestPingPacket received = server.next();
+        Assertions.assertNotNull(received);
+        Assertions.assertEquals(index + message.toString(), received.message);
+      }
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void closingDeletesTheFiles() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = this.server(server);
+    final File lock = new File(this.directory, ".lock");
+    try {
+      Assertions.assertTrue(lock.exists());
+      final Connection connection = this.client(new RecordingListener());
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      final File[] rings = this.directory.listFiles((directory, name) -> name.endsWith(ShmServerChannel.SUFFIX));
+      Assertions.assertNotNull(rings);
+      Assertions.assertEquals(1, rings.length);
+      connection.disconnect("Test finished.");
+      Assertions.assertSame(session, RecordingListener.poll(server.removed));
+      ShmChannelTest.await(rings[0]);
+      Assertions.assertFalse(rings[0].exists());
+    } finally {
+      patty.close();
+    }
+    Assertions.assertFalse(lock.exists());
+  }
+
+  @Test
+  void malformedRingFilesAreDeletedAndAcceptingGoesOn() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = this.server(server);
+    try {
+      final File small = new File(this.directory, "small" + ShmServerChannel.SUFFIX);
+      final MappedByteBuffer buffer = ShmChannelTest.map(small, ShmChannel.size(1024));
+      buffer.putInt(0, ShmChannel.MAGIC);
+      buffer.putInt(4, 1024);
+      buffer.putInt(64, ShmChannel.OPEN);
+      final File junk = new File(this.directory, "junk" + ShmServerChannel.SUFFIX);
+      Files.write(junk.toPath(), new byte[]{1, 2, 3});
+      ShmChannelTest.await(small);
+      ShmChannelTest.await(junk);
+      Assertions.assertFalse(small.exists());
+      Assertions.assertFalse(junk.exists());
+      final Connection connection = this.client(new RecordingListener());
+      Assertions.assertNotNull(server.nextSession());
+      connection.sendPacket(new TestPingPacket("accepted"));
+      final TestPingPacket received = server.next();
+      Assertions.assertNotNull(received);
+      Assertions.assertEquals("accepted", received.message);
+    } finally {
+      patty.close();
+    }
+  }
+}
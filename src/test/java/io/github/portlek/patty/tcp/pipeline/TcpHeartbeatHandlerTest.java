@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.local.LocalMode;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class TcpHeartbeatHandlerTest {
+
+  private static final long PAST_INTERVAL_MILLIS = 1100L;
+
+  private final RecordingListener listener = new RecordingListener();
+
+  private PattyServer server;
+
+  private Connection connection;
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @BeforeEach
+  void connect() {
+    final RecordingListener serverListener = new RecordingListener();
+    this.server = PattyServer.local("heartbeat", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      serverListener, serverListener, LocalMode.SERIALIZED);
+    this.server.bind();
+    this.connection = PattyClient.local("heartbeat", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      this.listener, LocalMode.SERIALIZED).connect();
+  }
+
+  @AfterEach
+  void close() {
+    this.server.close();
+  }
+
+  @Test
+  void pingsAreAnsweredWithTheirSendTime() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpHeartbeatHandler(this.connection));
+    channel.writeInbound(new TcpHeartbeatHandler.Heartbeat(false, 42L));
+    final TcpHeartbeatHandler.Heartbeat pong = channel.readOutbound();
+    Assertions.assertNotNull(pong);
+    Assertions.assertTrue(pong.pong);
+    Assertions.assertEquals(42L, pong.nanos);
+    Assertions.assertNull(channel.readInbound());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void idleLinkIsPingedAndThePongFeedsTheRoundTrip() throws InterruptedException {
+    this.connection.heartbeatInterval = 1;
+    final TcpHeartbeatHandler handler = new TcpHeartbeatHandler(this.connection);
+    final EmbeddedChannel channel = new EmbeddedChannel(handler);
+    handler.check();
+    Assertions.assertNull(channel.readOutbound());
+    Thread.sleep(TcpHeartbeatHandlerTest.PAST_INTERVAL_MILLIS);
+    handler.check();
+    final TcpHeartbeatHandler.Heartbeat ping = channel.readOutbound();
+    Assertions.assertNotNull(ping);
+    Assertions.assertFalse(ping.pong);
+    handler.check();
+    Assertions.assertNull(channel.readOutbound());
+    channel.writeInbound(new TcpHeartbeatHandler.Heartbeat(true, ping.nanos));
+    Assertions.assertNull(channel.readInbound());
+    final long rtt = this.connection.getRoundTripNanos();
+    Assertions.assertTrue(rtt > 0L && rtt < TimeUnit.SECONDS.toNanos(1L));
+    Assertions.assertTrue(this.connection.getRoundTripJitterNanos() >= 0L);
+    Assertions.assertTrue(this.connection.isConnected());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void silentPeerIsDisconnected() throws InterruptedException {
+    this.connection.heartbeatInterval = 1;
+    final TcpHeartbeatHandler handler = new TcpHeartbeatHandler(this.connection);
+    final EmbeddedChannel channel = new EmbeddedChannel(handler);
+    Thread.sleep(TcpHeartbeatHandlerTest.PAST_INTERVAL_MILLIS);
+    handler.check();
+    Assertions.assertNotNull(channel.readOutbound());
+    for (int missed = 1; missed < TcpHeartbeatHandler.MISSED_INTERVALS; missed++) {
+      handler.check();
+      Assertions.assertTrue(this.connection.isConnected());
+    }
+    handler.check();
+    Assertions.assertFalse(this.connection.isConnected());
+    Assertions.assertEquals("Heartbeat timed out.", RecordingListener.poll(this.listener.disconnected));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void trafficKeepsTheLinkFromBeingPinged() throws InterruptedException {
+    this.connection.heartbeatInterval = 1;
+    final TcpHeartbeatHandler handler = new TcpHeartbeatHandler(this.connection);
+    final EmbeddedChannel channel = new EmbeddedChannel(handler);
+    Thread.sleep(TcpHeartbeatHandlerTest.PAST_INTERVAL_MILLIS);
+    channel.writeInbound("data");
+    handler.check();
+    Assertions.assertNull(channel.readOutbound());
+    Assertions.assertEquals("data", channel.readInbound());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void idleConnectionMeasuresItsRoundTrip() throws InterruptedException {
+    Assertions.assertEquals(-1L, this.connection.getRoundTripNanos());
+    this.connection.setHeartbeatInterval(1);
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RecordingListener.TIMEOUT_SECONDS);
+    while (this.connection.getRoundTripNanos() < 0L && System.nanoTime() < deadline) {
+      Thread.sleep(50L);
+    }
+    Assertions.assertTrue(this.connection.getRoundTripNanos() >= 0L);
+    Assertions.assertTrue(this.connection.isConnected());
+  }
+
+  @Test
+  void roundTripSamplesAreSmoothed() {
+    this.connection.recordRoundTrip(800L);
+    Assertions.assertEquals(800L, this.connection.getRoundTripNanos());
+    Assertions.assertEquals(400L, this.connection.getRoundTripJitterNanos());
+    this.connection.recordRoundTrip(1600L);
+    Assertions.assertEquals(800L - 100L + 200L, this.connection.getRoundTripNanos());
+    Assertions.assertEquals(400L - 100L + 200L, this.connection.getRoundTripJitterNanos());
+  }
+}
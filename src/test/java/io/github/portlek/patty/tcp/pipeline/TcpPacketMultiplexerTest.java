@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class TcpPacketMultiplexerTest {
+
+  private TcpPacketMultiplexer.Streams streams;
+
+  private EmbeddedChannel sender;
+
+  private EmbeddedChannel receiver;
+
+  @NotNull
+  private static ByteBuf frame(final int stream, @NotNull final byte[] payload) {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeVarInt(buf, stream);
+    return buf.writeBytes(payload);
+  }
+
+  @NotNull
+  private static ByteBuf chunk(final int stream, final boolean end, final int length) {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeVarInt(buf, stream);
+    buf.writeByte(end ? 1 : 0);
+    return buf.writeZero(length);
+  }
+
+  @NotNull
+  private static byte[] payload(final int length, final int seed) {
+    final byte[] payload = new byte[length];
+    for (int index = 0; index < length; index++) {
+      payload[index] = (byte) (index * 31 + seed);
+    }
+    return payload;
+  }
+
+  @NotNull
+  private static byte[] bytes(@NotNull final ByteBuf buf) {
+    final byte[] bytes = new byte[buf.readableBytes()];
+    buf.readBytes(bytes);
+    buf.release();
+    return bytes;
+  }
+
+  @BeforeEach
+  void setUp() {
+    this.streams = new TcpPacketMultiplexer.Streams();
+    this.sender = new EmbeddedChannel(new TcpPacketMultiplexer(this.streams));
+    this.receiver = new EmbeddedChannel(new TcpPacketMultiplexer(this.streams));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.sender.finishAndReleaseAll();
+    this.receiver.finishAndReleaseAll();
+  }
+
+  @Test
+  void smallPacketOvertakesALargeOneOnAnotherStream() {
+    this.streams.setChunkSize(16);
+    final byte[] large = TcpPacketMultiplexerTest.payload(100, 1);
+    final byte[] small = TcpPacketMultiplexerTest.payload(5, 2);
+    this.sender.write(TcpPacketMultiplexerTest.frame(1, large));
+    this.sender.write(TcpPacketMultiplexerTest.frame(2, small));
+    this.sender.flush();
+    final List<TcpPacketMultiplexer.Frame> frames = this.deliver();
+    Assertions.assertEquals(2, frames.size());
+    Assertions.assertArrayEquals(small, TcpPacketMultiplexerTest.bytes(frames.get(0).content));
+    Assertions.assertArrayEquals(large, TcpPacketMultiplexerTest.bytes(frames.get(1).content));
+  }
+
+  @Test
+  void weightedStreamSendsMoreChunksPerTurn() throws IOException {
+    this.streams.setChunkSize(10);
+    this.streams.setWeight(1, 3);
+    this.sender.write(TcpPacketMultiplexerTest.frame(1, new byte[60]));
+    this.sender.write(TcpPacketMultiplexerTest.frame(2, new byte[60]));
+    this.sender.flush();
+    final List<Integer> streams = new ArrayList<>();
+    ByteBuf chunk;
+    while ((chunk = this.sender.readOutbound()) != null) {
+      streams.add(ReadWrite.readVarInt(chunk));
+      chunk.release();
+    }
+    Assertions.assertEquals(Arrays.asList(1, 1, 1, 2, 1, 1, 1, 2, 2, 2, 2, 2), streams);
+  }
+
+  @Test
+  void windowIsReturnedOnlyOnceThePacketsAreHandled() {
+    final int chunkSize = TcpPacketMultiplexer.WINDOW / 4;
+    this.streams.setChunkSize(chunkSize);
+    for (int index = 0; index < 8; index++) {
+      this.sender.write(TcpPacketMultiplexerTest.frame(1, new byte[chunkSize - 1]));
+    }
+    this.sender.flush();
+    final List<TcpPacketMultiplexer.Frame> frames = this.deliver();
+    Assertions.assertEquals(4, frames.size());
+    Assertions.assertEquals(4, this.sender.pipeline().get(TcpPacketMultiplexer.class).getQueued());
+    Assertions.assertNull(this.receiver.readOutbound(), "credit was returned before the packets were handled");
+    frames.get(0).handled.run();
+    Assertions.assertNull(this.receiver.readOutbound());
+    frames.get(1).handled.run();
+    final ByteBuf update = this.receiver.readOutbound();
+    Assertions.assertNotNull(update);
+    this.sender.writeInbound(update);
+    final List<TcpPacketMultiplexer.Frame> more = this.deliver();
+    Assertions.assertEquals(2, more.size());
+    Assertions.assertEquals(2, this.sender.pipeline().get(TcpPacketMultiplexer.class).getQueued());
+    frames.forEach(frame -> frame.content.release());
+    more.forEach(frame -> frame.content.release());
+  }
+
+  @Test
+  void packetLargerThanTheWindowCompletes() {
+    this.streams.setChunkSize(65536);
+    final byte[] payload = TcpPacketMultiplexerTest.payload(3 * TcpPacketMultiplexer.WINDOW, 3);
+    this.sender.writeAndFlush(TcpPacketMultiplexerTest.frame(1, payload));
+    final List<TcpPacketMultiplexer.Frame> frames = new ArrayList<>();
+    for (int round = 0; round < 16 && frames.isEmpty(); round++) {
+      frames.addAll(this.deliver());
+      ByteBuf update;
+      while ((update = this.receiver.readOutbound()) != null) {
+        this.sender.writeInbound(update);
+      }
+    }
+    Assertions.assertEquals(1, frames.size());
+    Assertions.assertArrayEquals(payload, TcpPacketMultiplexerTest.bytes(frames.get(0).content));
+  }
+
+  @Test
+  void tooManyConcurrentStreamsAreRejected() {
+    for (int stream = 0; stream < TcpPacketMultiplexer.MAX_STREAMS; stream++) {
+      this.receiver.writeInbound(TcpPacketMultiplexerTest.chunk(stream, false, 1));
+    }
+    Assertions.assertThrows(DecoderException.class, () ->
+      this.receiver.writeInbound(TcpPacketMultiplexerTest.chunk(TcpPacketMultiplexer.MAX_STREAMS, false, 1)));
+  }
+
+  @Test
+  void handledStreamsDoNotCountAgainstTheCap() {
+    for (int stream = 0; stream < 3 * TcpPacketMultiplexer.MAX_STREAMS; stream++) {
+      this.receiver.writeInbound(TcpPacketMultiplexerTest.chunk(stream, true, 1));
+      final TcpPacketMultiplexer.Frame frame = this.receiver.readInbound();
+      frame.handled.run();
+      frame.content.release();
+    }
+  }
+
+  @Test
+  void unfinishedPacketsAreCappedPerConnection() {
+    final int chunk = 1048576;
+    final int streams = TcpPacketMultiplexer.MAX_REASSEMBLY_SIZE / chunk;
+    for (int stream = 0; stream < streams; stream++) {
+      this.receiver.writeInbound(TcpPacketMultiplexerTest.chunk(stream, false, chunk));
+    }
+    Assertions.assertThrows(DecoderException.class, () ->
+      this.receiver.writeInbound(TcpPacketMultiplexerTest.chunk(streams, false, 1)));
+  }
+
+  @NotNull
+  private List<TcpPacketMultiplexer.Frame> deliver() {
+    ByteBuf chunk;
+    while ((chunk = this.sender.readOutbound()) != null) {
+      this.receiver.writeInbound(chunk);
+    }
+    final List<TcpPacketMultiplexer.Frame> frames = new ArrayList<>();
+    TcpPacketMultiplexer.Frame frame;
+    while ((frame = this.receiver.readInbound()) != null) {
+      frames.add(frame);
+    }
+    return frames;
+  }
+}
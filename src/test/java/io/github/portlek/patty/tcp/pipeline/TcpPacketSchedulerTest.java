@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.packets.TestLanePacket;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+final class TcpPacketSchedulerTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  private static void setWritable(@NotNull final EmbeddedChannel channel, final boolean writable) {
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+    channel.runPendingTasks();
+  }
+
+  @NotNull
+  private static List<Integer> drain(@NotNull final EmbeddedChannel channel) {
+    final List<Integer> lanes = new ArrayList<>();
+    Object message;
+    while ((message = channel.readOutbound()) != null) {
+      lanes.add(((TestLanePacket) message).priority);
+    }
+    return lanes;
+  }
+
+  @Test
+  void packetsPassThroughWhileWritable() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpPacketScheduler());
+    channel.writeAndFlush(new TestLanePacket(3, 0));
+    channel.writeAndFlush(new TestLanePacket(0, 1));
+    Assertions.assertEquals(Arrays.asList(3, 0), TcpPacketSchedulerTest.drain(channel));
+    Assertions.assertEquals(0, channel.pipeline().get(TcpPacketScheduler.class).getQueued());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void heldBackLanesAreReleasedInWeightedRounds() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpPacketScheduler());
+    TcpPacketSchedulerTest.setWritable(channel, false);
+    for (int sequence = 0; sequence < 16; sequence++) {
+      channel.write(new TestLanePacket(3, sequence));
+      channel.write(new TestLanePacket(1, sequence));
+    }
+    channel.write(new TestLanePacket(0, 0));
+    channel.flush();
+    Assertions.assertEquals(33, channel.pipeline().get(TcpPacketScheduler.class).getQueued());
+    Assertions.assertTrue(TcpPacketSchedulerTest.drain(channel).isEmpty());
+    TcpPacketSchedulerTest.setWritable(channel, true);
+    final List<Integer> lanes = TcpPacketSchedulerTest.drain(channel);
+    Assertions.assertEquals(33, lanes.size());
+    Assertions.assertEquals(Arrays.asList(0, 1, 1, 1, 1, 3, 1, 1, 1, 1, 3), lanes.subList(0, 11));
+    Assertions.assertEquals(0, channel.pipeline().get(TcpPacketScheduler.class).getQueued());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void packetsOfALaneKeepTheirOrder() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpPacketScheduler());
+    TcpPacketSchedulerTest.setWritable(channel, false);
+    for (int sequence = 0; sequence < 10; sequence++) {
+      channel.write(new TestLanePacket(2, sequence));
+    }
+    TcpPacketSchedulerTest.setWritable(channel, true);
+    final List<Integer> sequences = new ArrayList<>();
+    Object message;
+    while ((message = channel.readOutbound()) != null) {
+      sequences.add(((TestLanePacket) message).sequence);
+    }
+    Assertions.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), sequences);
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void queuedPacketsFailWhenTheHandlerIsRemoved() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpPacketScheduler());
+    TcpPacketSchedulerTest.setWritable(channel, false);
+    final ChannelPromise promise = channel.newPromise();
+    channel.write(new TestLanePacket(2, 0), promise);
+    channel.pipeline().remove(TcpPacketScheduler.class);
+    Assertions.assertTrue(promise.cause() instanceof ClosedChannelException);
+    channel.finishAndReleaseAll();
+  }
+}
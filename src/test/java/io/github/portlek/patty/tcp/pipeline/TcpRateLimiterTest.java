@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.tcp.pipeline;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.local.LocalMode;
+import io.github.portlek.patty.packets.TestPingPacket;
+import io.github.portlek.patty.util.ReadWrite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+final class TcpRateLimiterTest {
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  @NotNull
+  private static Connection connection() {
+    final PattyClient patty = PattyClient.tcp("127.0.0.1", 0, new TestPacketHeader(), null, new TestPacketSizer(),
+      new RecordingListener());
+    return patty.protocol.newClientConnection(patty, patty.protocol.newAddress("127.0.0.1", 0));
+  }
+
+  @NotNull
+  private static ByteBuf frame(final int id, final int size) {
+    final ByteBuf frame = Unpooled.buffer(size);
+    new TestPacketHeader().writePacketId(frame, id);
+    return frame.writerIndex(size);
+  }
+
+  @NotNull
+  private static ByteBuf streamFrame(final int stream, final int id, final int size) {
+    final ByteBuf frame = Unpooled.buffer(size);
+    ReadWrite.writeVarInt(frame, stream);
+    new TestPacketHeader().writePacketId(frame, id);
+    return frame.writerIndex(size);
+  }
+
+  private static int readAll(@NotNull final EmbeddedChannel channel) {
+    int count = 0;
+    Object message;
+    while ((message = channel.readInbound()) != null) {
+      if (message instanceof TcpPacketMultiplexer.Frame) {
+        ((TcpPacketMultiplexer.Frame) message).content.release();
+      } else {
+        ((ByteBuf) message).release();
+      }
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  void framesPassWithoutLimits() {
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpRateLimiter(TcpRateLimiterTest.connection(),
+      new TcpRateLimiter.Limits()));
+    for (int index = 0; index < 100; index++) {
+      channel.writeInbound(TcpRateLimiterTest.frame(0, 16));
+      channel.writeOutbound(TcpRateLimiterTest.frame(0, 16));
+    }
+    Assertions.assertEquals(100, TcpRateLimiterTest.readAll(channel));
+    Assertions.assertEquals(100, channel.outboundMessages().size());
+    Assertions.assertTrue(channel.config().isAutoRead());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void readingPastThePacketRateStopsReadingUntilRefilled() throws InterruptedException {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    limits.setRead(10, 0);
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpRateLimiter(connection, limits));
+    for (int index = 0; index < 10; index++) {
+      channel.writeInbound(TcpRateLimiterTest.frame(0, 16));
+    }
+    Assertions.assertTrue(channel.config().isAutoRead());
+    channel.writeInbound(TcpRateLimiterTest.frame(0, 16));
+    Assertions.assertEquals(11, TcpRateLimiterTest.readAll(channel));
+    Assertions.assertFalse(channel.config().isAutoRead());
+    Thread.sleep(150L);
+    channel.runScheduledPendingTasks();
+    Assertions.assertTrue(channel.config().isAutoRead());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void packetWeightsTakeMoreTokens() {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    limits.setRead(10, 0);
+    limits.setWeight(7, 5);
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpRateLimiter(connection, limits));
+    channel.writeInbound(TcpRateLimiterTest.frame(7, 16));
+    channel.writeInbound(TcpRateLimiterTest.frame(7, 16));
+    Assertions.assertTrue(channel.config().isAutoRead());
+    channel.writeInbound(TcpRateLimiterTest.frame(7, 16));
+    Assertions.assertFalse(channel.config().isAutoRead());
+    Assertions.assertEquals(3, TcpRateLimiterTest.readAll(channel));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void writesPastTheByteRateWaitForTheirTokens() throws InterruptedException {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    limits.setWrite(0, 1000);
+    final TcpRateLimiter limiter = new TcpRateLimiter(connection, limits);
+    final EmbeddedChannel channel = new EmbeddedChannel(limiter);
+    channel.writeAndFlush(TcpRateLimiterTest.frame(0, 1000));
+    final ChannelFuture held = channel.writeAndFlush(TcpRateLimiterTest.frame(0, 300));
+    Assertions.assertEquals(1, channel.outboundMessages().size());
+    Assertions.assertEquals(1, limiter.getQueued());
+    Assertions.assertFalse(channel.isWritable());
+    Assertions.assertFalse(held.isDone());
+    Thread.sleep(400L);
+    channel.runScheduledPendingTasks();
+    Assertions.assertEquals(2, channel.outboundMessages().size());
+    Assertions.assertEquals(0, limiter.getQueued());
+    Assertions.assertTrue(channel.isWritable());
+    Assertions.assertTrue(held.isSuccess());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void removalFailsTheHeldWrites() {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    limits.setWrite(1, 0);
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpRateLimiter(connection, limits));
+    channel.writeAndFlush(TcpRateLimiterTest.frame(0, 16));
+    final ByteBuf frame = TcpRateLimiterTest.frame(0, 16);
+    final ChannelFuture held = channel.writeAndFlush(frame);
+    Assertions.assertFalse(channel.isWritable());
+    channel.pipeline().remove(TcpRateLimiter.class);
+    Assertions.assertTrue(held.cause() instanceof ClosedChannelException);
+    Assertions.assertEquals(0, frame.refCnt());
+    Assertions.assertTrue(channel.isWritable());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void reassembledFramesAreLimited() {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    connection.setStreamChunkSize(64);
+    limits.setRead(10, 0);
+    limits.setWeight(7, 5);
+    final EmbeddedChannel channel = new EmbeddedChannel(new TcpRateLimiter(connection, limits));
+    for (int index = 0; index < 2; index++) {
+      channel.writeInbound(new TcpPacketMultiplexer.Frame(TcpRateLimiterTest.frame(7, 16), () -> {
+      }));
+    }
+    Assertions.assertTrue(channel.config().isAutoRead());
+    channel.writeInbound(new TcpPacketMultiplexer.Frame(TcpRateLimiterTest.frame(7, 16), () -> {
+    }));
+    Assertions.assertFalse(channel.config().isAutoRead());
+    Assertions.assertEquals(3, TcpRateLimiterTest.readAll(channel));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void outboundStreamIdsAreNotCounted() {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    connection.setStreamChunkSize(64);
+    limits.setWrite(0, 1000);
+    final TcpRateLimiter limiter = new TcpRateLimiter(connection, limits);
+    final EmbeddedChannel channel = new EmbeddedChannel(limiter);
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 0, 502));
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 0, 502));
+    Assertions.assertEquals(0, limiter.getQueued());
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 0, 502));
+    Assertions.assertEquals(1, limiter.getQueued());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void outboundWeightsSkipTheStreamId() {
+    final Connection connection = TcpRateLimiterTest.connection();
+    final TcpRateLimiter.Limits limits = new TcpRateLimiter.Limits();
+    connection.setStreamChunkSize(64);
+    limits.setWrite(10, 0);
+    limits.setWeight(7, 5);
+    final TcpRateLimiter limiter = new TcpRateLimiter(connection, limits);
+    final EmbeddedChannel channel = new EmbeddedChannel(limiter);
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 7, 16));
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 7, 16));
+    Assertions.assertEquals(0, limiter.getQueued());
+    channel.writeAndFlush(TcpRateLimiterTest.streamFrame(300, 7, 16));
+    Assertions.assertEquals(1, limiter.getQueued());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void multiplexedConnectionsAreLimited() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = PattyServer.local("rate-streams", 0, new TestPacketHeader(), null,
+      new TestPacketSizer(), server, server, LocalMode.SERIALIZED);
+    patty.bind();
+    try {
+      final RecordingListener client = new RecordingListener();
+      final Connection connection = PattyClient.local("rate-streams", 0, new TestPacketHeader(), null,
+        new TestPacketSizer(), client, LocalMode.SERIALIZED).connect();
+      connection.setStreamChunkSize(64);
+      connection.setReadRate(10, 0);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      session.setStreamChunkSize(64);
+      final long start = System.nanoTime();
+      for (int index = 0; index < 25; index++) {
+        session.sendPacket(new TestPingPacket("limited " + index));
+      }
+      for (int index = 0; index < 25; index++) {
+        Assertions.assertNotNull(client.next());
+      }
+      Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000L));
+    } finally {
+      patty.close();
+    }
+  }
+}
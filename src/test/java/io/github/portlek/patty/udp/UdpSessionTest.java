@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.udp;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.packets.TestPingPacket;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+final class UdpSessionTest {
+
+  private static final byte[] PING = {0, 0};
+
+  @BeforeAll
+  static void register() {
+    Packets.registerAll();
+  }
+
+  private static int freePort() throws IOException {
+    try (final DatagramSocket socket = new DatagramSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static void send(@NotNull final DatagramSocket socket, final int port, @NotNull final byte[] bytes)
+    throws IOException {
+    socket.send(new DatagramPacket(bytes, bytes.length, new InetSocketAddress("127.0.0.1", port)));
+  }
+
+  @NotNull
+  private static PattyServer server(final int port, @NotNull final RecordingListener listener) {
+    final PattyServer patty = PattyServer.udp("127.0.0.1", port, new TestPacketHeader(), null,
+      new TestPacketSizer(), listener, listener);
+    patty.bind();
+    return patty;
+  }
+
+  @Test
+  void packetsRoundTripThroughASession() throws Exception {
+    final int port = UdpSessionTest.freePort();
+    final RecordingListener server = new RecordingListener();
+    final RecordingListener client = new RecordingListener();
+    final PattyServer patty = UdpSessionTest.server(port, server);
+    try {
+      final Connection connection = PattyClient.udp("127.0.0.1", port, new TestPacketHeader(), null,
+        new TestPacketSizer(), client).connect();
+      try {
+        connection.sendPacket(new TestPingPacket("hello"));
+        final Connection session = server.nextSession();
+        Assertions.assertNotNull(session);
+        Assertions.assertEquals("hello", server.<TestPingPacket>next().message);
+        session.sendPacket(new TestPingPacket("back"));
+        Assertions.assertEquals("back", client.<TestPingPacket>next().message);
+        Assertions.assertEquals(1, patty.connections.size());
+      } finally {
+        connection.disconnect("Test finished.");
+      }
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void datagramsThatDoNotDecodeCreateNoSession() throws Exception {
+    final int port = UdpSessionTest.freePort();
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = UdpSessionTest.server(port, server);
+    try (final DatagramSocket garbage = new DatagramSocket();
+         final DatagramSocket socket = new DatagramSocket()) {
+      UdpSessionTest.send(garbage, port, new byte[]{0x7F});
+      UdpSessionTest.send(garbage, port, new byte[]{0, 1});
+      UdpSessionTest.send(garbage, port, new byte[]{0, 0, 9});
+      UdpSessionTest.send(garbage, port, new byte[0]);
+      UdpSessionTest.send(socket, port, UdpSessionTest.PING);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      Assertions.assertNotNull(server.next());
+      Assertions.assertNull(server.sessions.poll(200L, TimeUnit.MILLISECONDS));
+      Assertions.assertTrue(server.received.isEmpty());
+      Assertions.assertEquals(1, patty.connections.size());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void admissionLimitsNewPeers() throws Exception {
+    final int port = UdpSessionTest.freePort();
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = UdpSessionTest.server(port, server);
+    patty.admission.setMaxSessions(1);
+    try (final DatagramSocket first = new DatagramSocket();
+         final DatagramSocket second = new DatagramSocket()) {
+      UdpSessionTest.send(first, port, UdpSessionTest.PING);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      Assertions.assertNotNull(server.next());
+      UdpSessionTest.send(second, port, UdpSessionTest.PING);
+      UdpSessionTest.send(first, port, UdpSessionTest.PING);
+      Assertions.assertNotNull(server.next());
+      Assertions.assertNull(server.sessions.poll(200L, TimeUnit.MILLISECONDS));
+      Assertions.assertEquals(1L, patty.admission.getRejected());
+      Assertions.assertEquals(1, patty.admission.getSessions());
+      session.disconnect("Test finished.");
+      Assertions.assertEquals(0, patty.admission.getSessions());
+      UdpSessionTest.send(second, port, UdpSessionTest.PING);
+      Assertions.assertNotNull(server.nextSession());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void sessionsShareOneDispatcherThread() throws Exception {
+    final int port = UdpSessionTest.freePort();
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = UdpSessionTest.server(port, server);
+    final List<DatagramSocket> sockets = new ArrayList<>();
+    try {
+      final int threads = Thread.activeCount();
+      for (int index = 0; index < 32; index++) {
+        final DatagramSocket socket = new DatagramSocket();
+        sockets.add(socket);
+        UdpSessionTest.send(socket, port, UdpSessionTest.PING);
+      }
+      for (int index = 0; index < 32; index++) {
+        Assertions.assertNotNull(server.nextSession());
+        Assertions.assertNotNull(server.next());
+      }
+      Assertions.assertEquals(32, patty.connections.size());
+      Assertions.assertTrue(Thread.activeCount() - threads < 32, "a thread was started per session");
+    } finally {
+      sockets.forEach(DatagramSocket::close);
+      patty.close();
+    }
+  }
+}
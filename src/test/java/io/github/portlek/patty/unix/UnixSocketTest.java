@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.github.portlek.patty.unix;
+
+import io.github.portlek.patty.Connection;
+import io.github.portlek.patty.Packets;
+import io.github.portlek.patty.PattyClient;
+import io.github.portlek.patty.PattyServer;
+import io.github.portlek.patty.RecordingListener;
+import io.github.portlek.patty.TestPacketHeader;
+import io.github.portlek.patty.TestPacketSizer;
+import io.github.portlek.patty.packets.TestPingPacket;
+import io.netty.channel.epoll.Epoll;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class UnixSocketTest {
+
+  private Path directory;
+
+  private String path;
+
+  @BeforeAll
+  static void register() {
+    Assumptions.assumeTrue(Epoll.isAvailable(), "Unix domain sockets need the native epoll transport.");
+    Packets.registerAll();
+  }
+
+  @BeforeEach
+  void createDirectory() throws IOException {
+    this.directory = Files.createTempDirectory("patty-unix");
+    this.path = this.directory.resolve("patty.sock").toString();
+  }
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    Files.deleteIfExists(this.directory.resolve("patty.sock"));
+    Files.delete(this.directory);
+  }
+
+  @NotNull
+  private PattyServer server(@NotNull final RecordingListener listener) {
+    final PattyServer patty = PattyServer.unix(this.path, new TestPacketHeader(), null, new TestPacketSizer(),
+      listener, listener);
+    patty.bind();
+    return patty;
+  }
+
+  @NotNull
+  private Connection client(@NotNull final RecordingListener listener) {
+    return PattyClient.unix(this.path, new TestPacketHeader(), null, new TestPacketSizer(), listener).connect();
+  }
+
+  @Test
+  void packetsTravelBothWays() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final RecordingListener client = new RecordingListener();
+    final PattyServer patty = this.server(server);
+    try {
+      Assertions.assertTrue(Files.exists(this.directory.resolve("patty.sock")));
+      final Connection connection = this.client(client);
+      final Connection session = server.nextSession();
+      Assertions.assertNotNull(session);
+      connection.sendPacket(new TestPingPacket("to server"));
+      final TestPingPacket received = server.next();
+      Assertions.assertNotNull(received);
+      Assertions.assertEquals("to server", received.message);
+      session.sendPacket(new TestPingPacket("to client"));
+      final TestPingPacket answer = client.next();
+      Assertions.assertNotNull(answer);
+      Assertions.assertEquals("to client", answer.message);
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void socketFileIsDeletedOnClose() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = this.server(server);
+    this.client(new RecordingListener());
+    Assertions.assertNotNull(server.nextSession());
+    patty.close();
+    Assertions.assertFalse(Files.exists(this.directory.resolve("patty.sock")));
+  }
+
+  @Test
+  void addressLimitsDoNotApply() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = PattyServer.unix(this.path, new TestPacketHeader(), null, new TestPacketSizer(),
+      server, server);
+    patty.admission.setMaxSessionsPerAddress(1);
+    patty.bind();
+    try {
+      this.client(new RecordingListener());
+      this.client(new RecordingListener());
+      Assertions.assertNotNull(server.nextSession());
+      Assertions.assertNotNull(server.nextSession());
+      Assertions.assertEquals(0L, patty.admission.getRejected());
+    } finally {
+      patty.close();
+    }
+  }
+
+  @Test
+  void sessionLimitStillApplies() throws Exception {
+    final RecordingListener server = new RecordingListener();
+    final PattyServer patty = PattyServer.unix(this.path, new TestPacketHeader(), null, new TestPacketSizer(),
+      server, server);
+    patty.admission.setMaxSessions(1);
+    patty.bind();
+    try {
+      this.client(new RecordingListener());
+      Assertions.assertNotNull(server.nextSession());
+      final RecordingListener rejected = new RecordingListener();
+      this.client(rejected);
+      Assertions.assertNotNull(RecordingListener.poll(rejected.disconnected));
+      Assertions.assertEquals(1L, patty.admission.getRejected());
+    } finally {
+      patty.close();
+    }
+  }
+}
@@ -0,0 +1,377 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Hasan Demirtaş
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.github.portlek.patty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class ReadWriteTest {
+
+  private static final int[] INT_BOUNDARIES = {
+    0, 1, 127, 128, 255, 300, 16383, 16384, 2097151, 2097152, 268435455, 268435456, 1 << 30,
+    Integer.MAX_VALUE, -1, -128, Integer.MIN_VALUE
+  };
+
+  private static final long[] LONG_BOUNDARIES = {
+    0L, 1L, 127L, 128L, 16383L, 16384L, 268435455L, 268435456L, 0xFFFFFFFFL, 1L << 35, 1L << 42, 1L << 49,
+    1L << 56, 1L << 62, Long.MAX_VALUE, -1L, Integer.MIN_VALUE, Long.MIN_VALUE
+  };
+
+  @Test
+  void varIntRoundTripsOnTheUnrolledPath() throws IOException {
+    for (final int value : ReadWriteTest.INT_BOUNDARIES) {
+      final ByteBuf buf = Unpooled.buffer();
+      ReadWrite.writeVarInt(buf, value);
+      final int size = buf.readableBytes();
+      buf.writeZero(5);
+      Assertions.assertEquals(value, ReadWrite.readVarInt(buf), "value " + value);
+      Assertions.assertEquals(size, buf.readerIndex(), "reader index after " + value);
+      buf.release();
+    }
+  }
+
+  @Test
+  void varIntRoundTripsOnTheSlowPath() throws IOException {
+    for (final int value : ReadWriteTest.INT_BOUNDARIES) {
+      final ByteBuf buf = Unpooled.buffer();
+      ReadWrite.writeVarInt(buf, value);
+      final int size = buf.readableBytes();
+      if (size == 5) {
+        buf.release();
+        continue;
+      }
+      Assertions.assertEquals(value, ReadWrite.readVarInt(buf), "value " + value);
+      Assertions.assertEquals(size, buf.readerIndex(), "reader index after " + value);
+      buf.release();
+    }
+  }
+
+  @Test
+  void varIntMatchesTheReferenceEncoding() throws IOException {
+    final SplittableRandom random = new SplittableRandom(26L);
+    final ByteBuf buf = Unpooled.buffer();
+    final ByteBuf expected = Unpooled.buffer();
+    for (int index = 0; index < 100_000; index++) {
+      final int value = index < 1 << 15 ? index : random.nextInt();
+      buf.clear();
+      expected.clear();
+      ReadWrite.writeVarInt(buf, value);
+      ReadWriteTest.writeVarIntReference(expected, value);
+      Assertions.assertEquals(expected, buf, "encoding of " + value);
+      Assertions.assertEquals(buf.readableBytes(), ReadWrite.getVarIntSize(value), "size of " + value);
+      Assertions.assertEquals(value, ReadWrite.readVarInt(buf));
+    }
+    buf.release();
+    expected.release();
+  }
+
+  @Test
+  void varIntSizes() {
+    Assertions.assertEquals(1, ReadWrite.getVarIntSize(0));
+    Assertions.assertEquals(1, ReadWrite.getVarIntSize(127));
+    Assertions.assertEquals(2, ReadWrite.getVarIntSize(128));
+    Assertions.assertEquals(2, ReadWrite.getVarIntSize(16383));
+    Assertions.assertEquals(3, ReadWrite.getVarIntSize(16384));
+    Assertions.assertEquals(4, ReadWrite.getVarIntSize(1 << 21));
+    Assertions.assertEquals(5, ReadWrite.getVarIntSize(1 << 28));
+    Assertions.assertEquals(5, ReadWrite.getVarIntSize(Integer.MAX_VALUE));
+    Assertions.assertEquals(5, ReadWrite.getVarIntSize(-1));
+    Assertions.assertEquals(5, ReadWrite.getVarIntSize(Integer.MIN_VALUE));
+  }
+
+  @Test
+  void truncatedVarIntFailsOnTheSlowPath() {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeVarInt(buf, 1 << 21);
+    buf.writerIndex(buf.writerIndex() - 1);
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ReadWrite.readVarInt(buf));
+    buf.release();
+  }
+
+  @Test
+  void overlongVarIntIsRejected() {
+    final ByteBuf buf = Unpooled.buffer();
+    buf.writeBytes(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x00});
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readVarInt(buf));
+    buf.release();
+    final ByteBuf longBuf = Unpooled.buffer();
+    for (int index = 0; index < 10; index++) {
+      longBuf.writeByte(0x80);
+    }
+    longBuf.writeByte(0x00);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readVarLong(longBuf));
+    longBuf.release();
+  }
+
+  @Test
+  void varLongRoundTrips() throws IOException {
+    final SplittableRandom random = new SplittableRandom(27L);
+    final ByteBuf buf = Unpooled.buffer();
+    for (int index = 0; index < ReadWriteTest.LONG_BOUNDARIES.length + 100_000; index++) {
+      final long value = index < ReadWriteTest.LONG_BOUNDARIES.length
+        ? ReadWriteTest.LONG_BOUNDARIES[index]
+        : random.nextLong() >>> random.nextInt(64);
+      buf.clear();
+      ReadWrite.writeVarLong(buf, value);
+      Assertions.assertEquals(ReadWrite.getVarLongSize(value), buf.readableBytes(), "size of " + value);
+      Assertions.assertEquals(value, ReadWrite.readVarLong(buf), "value " + value);
+      Assertions.assertFalse(buf.isReadable());
+    }
+    buf.release();
+  }
+
+  @Test
+  void varLongSizes() {
+    Assertions.assertEquals(1, ReadWrite.getVarLongSize(0L));
+    Assertions.assertEquals(1, ReadWrite.getVarLongSize(127L));
+    Assertions.assertEquals(2, ReadWrite.getVarLongSize(128L));
+    Assertions.assertEquals(5, ReadWrite.getVarLongSize(0xFFFFFFFFL));
+    Assertions.assertEquals(9, ReadWrite.getVarLongSize(Long.MAX_VALUE));
+    Assertions.assertEquals(10, ReadWrite.getVarLongSize(-1L));
+    Assertions.assertEquals(10, ReadWrite.getVarLongSize(Long.MIN_VALUE));
+  }
+
+  @Test
+  void zigZagMapsSmallMagnitudesToSmallValues() {
+    Assertions.assertEquals(0, ReadWrite.encodeZigZag(0));
+    Assertions.assertEquals(1, ReadWrite.encodeZigZag(-1));
+    Assertions.assertEquals(2, ReadWrite.encodeZigZag(1));
+    Assertions.assertEquals(3, ReadWrite.encodeZigZag(-2));
+    Assertions.assertEquals(-1, ReadWrite.encodeZigZag(Integer.MIN_VALUE));
+    Assertions.assertEquals(-2, ReadWrite.encodeZigZag(Integer.MAX_VALUE));
+    Assertions.assertEquals(1L, ReadWrite.encodeZigZag(-1L));
+    Assertions.assertEquals(-1L, ReadWrite.encodeZigZag(Long.MIN_VALUE));
+    for (final int value : ReadWriteTest.INT_BOUNDARIES) {
+      Assertions.assertEquals(value, ReadWrite.decodeZigZag(ReadWrite.encodeZigZag(value)));
+    }
+    for (final long value : ReadWriteTest.LONG_BOUNDARIES) {
+      Assertions.assertEquals(value, ReadWrite.decodeZigZag(ReadWrite.encodeZigZag(value)));
+    }
+  }
+
+  @Test
+  void signedVarIntsRoundTrip() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    for (final int value : ReadWriteTest.INT_BOUNDARIES) {
+      buf.clear();
+      ReadWrite.writeSignedVarInt(buf, value);
+      Assertions.assertEquals(value, ReadWrite.readSignedVarInt(buf));
+    }
+    for (final long value : ReadWriteTest.LONG_BOUNDARIES) {
+      buf.clear();
+      ReadWrite.writeSignedVarLong(buf, value);
+      Assertions.assertEquals(value, ReadWrite.readSignedVarLong(buf));
+    }
+    buf.clear();
+    ReadWrite.writeSignedVarInt(buf, -1);
+    Assertions.assertEquals(1, buf.readableBytes());
+    buf.release();
+  }
+
+  @Test
+  void stringsRoundTrip() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    for (final String value : new String[]{"", "ascii", "h\u00e9llo \u2603 \ud834\udd1e"}) {
+      buf.clear();
+      ReadWrite.writeString(buf, value);
+      Assertions.assertEquals(ReadWrite.getStringSize(value), buf.readableBytes(), "size of " + value);
+      Assertions.assertEquals(value, ReadWrite.readString(buf));
+      Assertions.assertFalse(buf.isReadable());
+    }
+    buf.release();
+  }
+
+  @Test
+  void asciiCharSequencesAreViews() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeString(buf, "ascii");
+    ReadWrite.writeString(buf, "h\u00e9llo");
+    final CharSequence ascii = ReadWrite.readCharSequence(buf);
+    final CharSequence unicode = ReadWrite.readCharSequence(buf);
+    Assertions.assertTrue(ascii instanceof ByteBufCharSequence);
+    Assertions.assertEquals("ascii", ascii.toString());
+    Assertions.assertEquals("h\u00e9llo", unicode.toString());
+    Assertions.assertFalse(buf.isReadable());
+    buf.release();
+  }
+
+  @Test
+  void malformedStringsAreRejected() {
+    final ByteBuf longer = Unpooled.buffer();
+    ReadWrite.writeString(longer, "too long");
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readString(longer, 4));
+    longer.release();
+    final ByteBuf truncated = Unpooled.buffer();
+    ReadWrite.writeString(truncated, "truncated");
+    truncated.writerIndex(truncated.writerIndex() - 1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readString(truncated.duplicate()));
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readCharSequence(truncated.duplicate()));
+    truncated.release();
+    final ByteBuf negative = Unpooled.buffer();
+    ReadWrite.writeVarInt(negative, -1);
+    negative.writeBytes("negative".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readString(negative));
+    negative.release();
+  }
+
+  @Test
+  void uuidsRoundTrip() {
+    final ByteBuf buf = Unpooled.buffer();
+    final UUID value = new UUID(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+    ReadWrite.writeUuid(buf, value);
+    Assertions.assertEquals(16, buf.readableBytes());
+    Assertions.assertEquals(value, ReadWrite.readUuid(buf));
+    ReadWrite.writeUuid(buf, value);
+    buf.writerIndex(buf.writerIndex() - 1);
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ReadWrite.readUuid(buf));
+    buf.release();
+  }
+
+  @Test
+  void primitiveArraysRoundTrip() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    final byte[] bytes = {0, 1, -1, Byte.MAX_VALUE, Byte.MIN_VALUE};
+    final int[] ints = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    final long[] longs = {0L, 1L, -1L, Long.MAX_VALUE, Long.MIN_VALUE};
+    final float[] floats = {0.0F, -1.5F, Float.MAX_VALUE, Float.MIN_VALUE, Float.NaN};
+    final double[] doubles = {0.0D, -1.5D, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN};
+    ReadWrite.writeByteArray(buf, bytes);
+    Assertions.assertEquals(ReadWrite.getByteArraySize(bytes), buf.readableBytes());
+    Assertions.assertArrayEquals(bytes, ReadWrite.readByteArray(buf));
+    ReadWrite.writeIntArray(buf, ints);
+    Assertions.assertEquals(ReadWrite.getIntArraySize(ints), buf.readableBytes());
+    Assertions.assertArrayEquals(ints, ReadWrite.readIntArray(buf));
+    ReadWrite.writeLongArray(buf, longs);
+    Assertions.assertEquals(ReadWrite.getLongArraySize(longs), buf.readableBytes());
+    Assertions.assertArrayEquals(longs, ReadWrite.readLongArray(buf));
+    ReadWrite.writeFloatArray(buf, floats);
+    Assertions.assertEquals(ReadWrite.getFloatArraySize(floats), buf.readableBytes());
+    Assertions.assertArrayEquals(floats, ReadWrite.readFloatArray(buf));
+    ReadWrite.writeDoubleArray(buf, doubles);
+    Assertions.assertEquals(ReadWrite.getDoubleArraySize(doubles), buf.readableBytes());
+    Assertions.assertArrayEquals(doubles, ReadWrite.readDoubleArray(buf));
+    ReadWrite.writeIntArray(buf, new int[0]);
+    Assertions.assertEquals(0, ReadWrite.readIntArray(buf).length);
+    Assertions.assertFalse(buf.isReadable());
+    buf.release();
+  }
+
+  @Test
+  void truncatedPrimitiveArraysAreRejected() {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeVarInt(buf, 1);
+    buf.writeZero(Integer.BYTES - 1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readIntArray(buf.duplicate()));
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readFloatArray(buf.duplicate()));
+    buf.clear();
+    ReadWrite.writeVarInt(buf, 1);
+    buf.writeZero(Long.BYTES - 1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readLongArray(buf.duplicate()));
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readDoubleArray(buf.duplicate()));
+    buf.clear();
+    ReadWrite.writeVarInt(buf, 2);
+    buf.writeZero(1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readByteArray(buf.duplicate()));
+    buf.clear();
+    ReadWrite.writeVarInt(buf, Integer.MAX_VALUE);
+    buf.writeZero(Long.BYTES);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readLongArray(buf.duplicate()));
+    buf.release();
+  }
+
+  @Test
+  void bitSetsRoundTrip() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    final BitSet[] values = {new BitSet(), new BitSet(), new BitSet(), new BitSet()};
+    values[1].set(0);
+    values[2].set(63);
+    values[2].set(64);
+    values[3].set(5, 1000, true);
+    values[3].clear(512);
+    for (final BitSet value : values) {
+      buf.clear();
+      ReadWrite.writeBitSet(buf, value);
+      Assertions.assertEquals(ReadWrite.getBitSetSize(value), buf.readableBytes(), "size of " + value);
+      Assertions.assertEquals(value, ReadWrite.readBitSet(buf));
+      Assertions.assertFalse(buf.isReadable());
+    }
+    buf.clear();
+    ReadWrite.writeVarInt(buf, 2);
+    buf.writeLong(1L);
+    buf.writeZero(Long.BYTES - 1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readBitSet(buf));
+    buf.release();
+  }
+
+  @Test
+  void enumsRoundTrip() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    for (final TimeUnit value : TimeUnit.values()) {
+      ReadWrite.writeEnum(buf, value);
+      Assertions.assertEquals(value, ReadWrite.readEnum(buf, TimeUnit.values()));
+    }
+    ReadWrite.writeVarInt(buf, TimeUnit.values().length);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readEnum(buf.duplicate(), TimeUnit.values()));
+    buf.clear();
+    ReadWrite.writeVarInt(buf, -1);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readEnum(buf, TimeUnit.values()));
+    buf.release();
+  }
+
+  @Test
+  void optionalsRoundTripThroughTheirWriterAndReader() throws IOException {
+    final ByteBuf buf = Unpooled.buffer();
+    ReadWrite.writeOptional(buf, null, ReadWrite::writeString);
+    ReadWrite.writeOptional(buf, "present", ReadWrite::writeString);
+    ReadWrite.writeOptional(buf, new int[]{1, 2}, ReadWrite::writeIntArray);
+    Assertions.assertEquals(1 + 1 + ReadWrite.getStringSize("present") + 1 + ReadWrite.getIntArraySize(new int[2]),
+      buf.readableBytes());
+    Assertions.assertNull(ReadWrite.readOptional(buf, ReadWrite::readString));
+    Assertions.assertEquals("present", ReadWrite.readOptional(buf, ReadWrite::readString));
+    Assertions.assertArrayEquals(new int[]{1, 2}, ReadWrite.readOptional(buf, ReadWrite::readIntArray));
+    Assertions.assertFalse(buf.isReadable());
+    buf.writeBoolean(true);
+    ReadWrite.writeVarInt(buf, 4);
+    Assertions.assertThrows(IOException.class, () -> ReadWrite.readOptional(buf, ReadWrite::readString));
+    buf.release();
+  }
+
+  private static void writeVarIntReference(final ByteBuf buf, int value) {
+    while ((value & -128) != 0) {
+      buf.writeByte(value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    buf.writeByte(value);
+  }
+}